@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.benchmarks;
+
+import be.fedict.lod.shacl.parser.ShaclParser;
+import be.fedict.lod.shacl.parser.ShaclParserException;
+import be.fedict.lod.shacl.shapes.ShaclNodeShape;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+/**
+ * Shapes and data shared by the benchmarks.
+ * 
+ * The data is generated with a fixed seed, so every run validates the same triples.
+ * 
+ * @author Bart Hanssens
+ */
+public class BenchmarkData {
+	public final static String SHAPES = "benchmark-shacl.ttl";
+	public final static String NS = "http://example.com/ns#";
+	public final static IRI BOOK = SimpleValueFactory.getInstance().createIRI(NS, "BookClass");
+	public final static IRI PUBLISHER = SimpleValueFactory.getInstance().createIRI(NS, "PublisherClass");
+	
+	private final static long SEED = 42;
+	private final static int PUBLISHERS = 100;
+	
+	/**
+	 * Read the SHACL shapes as triples
+	 * 
+	 * @return model
+	 * @throws IOException 
+	 */
+	public static Model shapesModel() throws IOException {
+		try (InputStream is = BenchmarkData.class.getClassLoader().getResourceAsStream(SHAPES)) {
+			return Rio.parse(is, "http://localhost", RDFFormat.TURTLE);
+		}
+	}
+	
+	/**
+	 * Read and parse the SHACL shapes
+	 * 
+	 * @return map of node shapes
+	 * @throws IOException 
+	 */
+	public static Map<Resource,ShaclNodeShape> shapes() throws IOException {
+		try {
+			return ShaclParser.parse(shapesModel());
+		} catch (ShaclParserException ex) {
+			throw new IOException(ex);
+		}
+	}
+	
+	/**
+	 * Generate books, a share of them violating one of the constraints.
+	 * 
+	 * @param size number of books
+	 * @param invalid share of invalid books, between 0 and 1
+	 * @return model
+	 */
+	public static Model books(int size, double invalid) {
+		ValueFactory f = SimpleValueFactory.getInstance();
+		Random rnd = new Random(SEED);
+		Model m = new LinkedHashModel();
+		
+		IRI text = f.createIRI(NS, "Text");
+		for (int i = 0; i < PUBLISHERS; i++) {
+			m.add(f.createIRI(NS, "Publisher" + i), RDF.TYPE, PUBLISHER);
+		}
+		
+		for (int i = 0; i < size; i++) {
+			IRI book = f.createIRI(NS, "Book" + i);
+			int error = (rnd.nextDouble() < invalid) ? 1 + rnd.nextInt(6) : 0;
+			
+			m.add(book, RDF.TYPE, BOOK);
+			if (error != 1) {
+				m.add(book, DCTERMS.TITLE, f.createLiteral("Boek " + i, "nl"));
+				m.add(book, DCTERMS.TITLE, f.createLiteral("Livre " + i, 
+														(error == 2) ? "nl" : "fr"));
+			}
+			m.add(book, DCTERMS.IDENTIFIER, f.createLiteral((error == 3) ? "X" + i : "ID-" + i));
+			m.add(book, DCTERMS.CREATED, f.createLiteral(
+								(error == 4) ? "yesterday" : String.format("20%02d-%02d-%02d", 
+									rnd.nextInt(19), 1 + rnd.nextInt(12), 1 + rnd.nextInt(28)), 
+								XMLSchema.DATE));
+			m.add(book, DCTERMS.PUBLISHER, (error == 5) ? f.createIRI(NS, "Unknown" + i)
+								: f.createIRI(NS, "Publisher" + rnd.nextInt(PUBLISHERS)));
+			m.add(book, DCTERMS.TYPE, (error == 6) ? f.createIRI(NS, "Image") : text);
+		}
+		return m;
+	}
+}
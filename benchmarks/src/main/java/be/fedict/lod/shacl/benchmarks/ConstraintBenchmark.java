@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.benchmarks;
+
+import be.fedict.lod.shacl.ShaclContext;
+import be.fedict.lod.shacl.ShaclDataIndex;
+import be.fedict.lod.shacl.constraints.ShaclConstraint;
+import be.fedict.lod.shacl.shapes.ShaclNodeShape;
+import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validating one constraint on the values of all focus nodes.
+ * 
+ * The constraint is selected by the name of its class, 
+ * without the ShaclConstraintProperty prefix.
+ * 
+ * @author Bart Hanssens
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConstraintBenchmark {
+	@Param({"Class", "Count", "Datatype", "Nodekind", "String", "StringLang", "Value"})
+	public String constraint;
+	
+	@Param({"10000"})
+	public int size;
+	
+	private ShaclDataIndex index;
+	private Set<Resource> targets;
+	private Model filtered;
+	private ShaclConstraint c;
+	
+	@Setup
+	public void setup() throws IOException {
+		Model m = BenchmarkData.books(size, 0.1);
+		ShaclNodeShape shape = BenchmarkData.shapes().get(
+			SimpleValueFactory.getInstance().createIRI(BenchmarkData.NS, "BookNodeShape"));
+		
+		index = new ShaclDataIndex(m);
+		targets = shape.getTargetIDs(m);
+		
+		String name = "ShaclConstraintProperty" + constraint;
+		for (ShaclPropertyShape p: shape.getPropertyShapes()) {
+			for (ShaclConstraint pc: p.getConstraints()) {
+				if (c == null && pc.getClass().getSimpleName().equals(name)) {
+					c = pc;
+					filtered = index.select(targets, p.getPath());
+				}
+			}
+		}
+		if (c == null) {
+			throw new IllegalArgumentException("No constraint " + name + " in shapes");
+		}
+	}
+	
+	@Benchmark
+	public long validate() {
+		ShaclContext ctx = new ShaclContext(index, null, null, Long.MAX_VALUE);
+		c.validatePart(ctx, filtered, targets);
+		return ctx.getViolations();
+	}
+}
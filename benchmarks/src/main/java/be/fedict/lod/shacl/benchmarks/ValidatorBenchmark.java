@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.benchmarks;
+
+import be.fedict.lod.shacl.ShaclValidator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end validation at several dataset sizes.
+ * 
+ * Besides validations per second, the number of triples per second is reported
+ * as the secondary "triples" result. 
+ * Run with "-prof gc" to get the allocation rate.
+ * 
+ * @author Bart Hanssens
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ValidatorBenchmark {
+	@Param({"1000", "10000", "100000"})
+	public int size;
+	
+	@Param({"0", "4"})
+	public int threads;
+	
+	private Model m;
+	private byte[] nt;
+	private ShaclValidator validator;
+	
+	/**
+	 * Number of validated triples, reported as a rate
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Counters {
+		public long triples;
+		
+		@Setup(Level.Iteration)
+		public void reset() {
+			triples = 0;
+		}
+	}
+	
+	@Setup
+	public void setup() throws IOException {
+		m = BenchmarkData.books(size, 0.1);
+		
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		Rio.write(m, bos, RDFFormat.NTRIPLES);
+		nt = bos.toByteArray();
+		
+		validator = ShaclValidator.builder(BenchmarkData.shapes())
+						.setListener(null)
+						.setPool((threads > 0) ? new ForkJoinPool(threads) : null)
+						.build();
+	}
+	
+	@TearDown
+	public void tearDown() {
+		if (validator.getPool() != null) {
+			validator.getPool().shutdown();
+		}
+	}
+	
+	@Benchmark
+	public boolean validate(Counters counters) {
+		counters.triples += m.size();
+		return validator.validate(m);
+	}
+	
+	@Benchmark
+	public boolean validateStream(Counters counters) throws IOException {
+		counters.triples += m.size();
+		return validator.validateStream(new ByteArrayInputStream(nt), RDFFormat.NTRIPLES);
+	}
+}
@@ -25,32 +25,350 @@
  */
 package be.fedict.lod.shacl;
 
+import be.fedict.lod.shacl.batch.ShaclBatchResult;
+import be.fedict.lod.shacl.batch.ShaclBatchValidator;
+import be.fedict.lod.shacl.constraints.ShaclValueCache;
+import be.fedict.lod.shacl.generator.ShaclDataGenerator;
+import be.fedict.lod.shacl.metrics.ShaclCounter;
+import be.fedict.lod.shacl.metrics.ShaclMetrics;
+import be.fedict.lod.shacl.parser.ShaclParser;
+import be.fedict.lod.shacl.server.ShaclServer;
+import be.fedict.lod.shacl.store.ShaclMappedStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
 
 /**
- * Main class
+ * Main class.
+ * 
+ * Exits with status 0 when the data conforms, 2 in case of violations, 1 in case of errors
+ * and -1 when the arguments are not valid.
  * 
  * @author Bart Hanssens
  */
 public class Main {
+	private final static int VIOLATIONS = 2;
+	
+	private final static String USAGE = 
+		"Usage: [-stream [-grouped|-sort <MB>]|-encoded] [-threads <n>] [-chunked] [-max <n>] [-compiled <file>]\n" +
+		"       [-metrics] [-cache <n>] [-subclassof] [-explain] <shacl.ttl> <file.rdf>\n" +
+		"       -mapped <dir> [-threads <n>] [-max <n>] <shacl.ttl> [<file.rdf>]\n" +
+		"       -batch <reportdir> [-threads <n>] [-max <n>] [-compiled <file>] [-metrics]\n" +
+		"       [-cache <n>] <shacl.ttl> <dir|glob|@list>...\n" +
+		"       -server <port> [-requests <n>] [-threads <n>] [-max <n>] [-compiled <dir>] [-metrics]\n" +
+		"       [-cache <n>] <shacl.ttl>...\n" +
+		"       -generate <n> [-seed <n>] [-violations <share>] <shacl.ttl> <file.nt>";
+	
+	/**
+	 * Generate synthetic data for the shapes
+	 * 
+	 * @param shacl SHACL file
+	 * @param out output N-Triples file
+	 * @param size number of focus nodes per target class
+	 * @param seed seed
+	 * @param share share of violations
+	 * @throws IOException 
+	 */
+	private static void generate(File shacl, File out, long size, long seed, double share) 
+															throws IOException {
+		RDFFormat fmt = Rio.getParserFormatForFileName(shacl.getName())
+							.orElseThrow(() -> new IOException("File type not supported"));
+		Model m;
+		try (InputStream is = new BufferedInputStream(new FileInputStream(shacl))) {
+			m = Rio.parse(is, "http://localhost", fmt);
+		}
+		ShaclDataGenerator generator = new ShaclDataGenerator(ShaclParser.parse(m));
+		generator.setSeed(seed);
+		generator.setViolations(share);
+		try (OutputStream os = new BufferedOutputStream(new FileOutputStream(out))) {
+			generator.generate(os, size);
+		}
+	}
+	
+	/**
+	 * Run the HTTP validation server, using the base name of the files as name of the shape set
+	 * 
+	 * @param port port
+	 * @param requests maximum number of concurrent validations
+	 * @param shacl SHACL files
+	 * @param compiled directory with compiled shapes or null
+	 * @param pool fork join pool or null
+	 * @param max maximum number of violations per request or 0
+	 * @param metrics metrics or null
+	 * @param cache value cache or null
+	 * @throws IOException 
+	 */
+	private static void serve(int port, int requests, File[] shacl, File compiled, ForkJoinPool pool, 
+				long max, ShaclMetrics metrics, ShaclValueCache cache) throws IOException {
+		ShaclServer server = new ShaclServer(new InetSocketAddress(port), requests);
+		for (File f: shacl) {
+			String name = f.getName().replaceFirst("\\.[^.]*$", "");
+			ShaclValidator.Builder builder = (compiled != null) 
+				? ShaclValidator.builder(f, new File(compiled, name + ".bin"))
+				: ShaclValidator.builder(f);
+			if (max > 0) {
+				builder.setMaxViolations(max);
+			}
+			server.register(name, builder.setPool(pool).setMetrics(metrics).setValueCache(cache).build());
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+		server.start();
+	}
+	
+	/**
+	 * Validate many files in parallel, writing a summary and a report per file
+	 * 
+	 * @param validator validator
+	 * @param threads number of threads or 0
+	 * @param reports report directory
+	 * @param inputs directories, globs or file lists
+	 * @return false in case of violations or files that could not be validated
+	 * @throws IOException 
+	 */
+	private static boolean batch(ShaclValidator validator, int threads, File reports, String[] inputs) 
+																throws IOException {
+		ShaclBatchValidator batch = new ShaclBatchValidator(validator, 
+			(threads > 0) ? threads : Runtime.getRuntime().availableProcessors());
+		batch.setReportDir(reports.toPath());
+		boolean ok = true;
+		for (ShaclBatchResult r: batch.validate(ShaclBatchValidator.expand(Arrays.asList(inputs)))) {
+			ok &= (r.getError() == null && r.conforms());
+		}
+		return ok;
+	}
+	
+	/**
+	 * Print the evaluation plan for a file, without validating it
+	 * 
+	 * @param validator validator
+	 * @param rdf data file
+	 * @param out output writer
+	 * @throws IOException 
+	 */
+	private static void explain(ShaclValidator validator, File rdf, PrintWriter out) throws IOException {
+		RDFFormat fmt = Rio.getParserFormatForFileName(rdf.getName())
+							.orElseThrow(() -> new IOException("File type not supported"));
+		try (InputStream is = new BufferedInputStream(new FileInputStream(rdf))) {
+			out.print(validator.plan(is, fmt).explain());
+		}
+	}
+	
+	/**
+	 * Print the counters, slowest first
+	 * 
+	 * @param metrics metrics
+	 * @param out output writer
+	 */
+	private static void printMetrics(ShaclMetrics metrics, PrintWriter out) {
+		for (ShaclCounter counter: metrics.getCounters()) {
+			out.println(counter);
+		}
+	}
+	
 	public static void main(String[] args) {
-		if (args.length < 2) {
-			System.err.println("Usage: <shacl.ttl> <file.rdf>");
+		boolean stream = false;
+		boolean grouped = false;
+		long sort = 0;
+		boolean encoded = false;
+		boolean chunked = false;
+		File mapped = null;
+		File compiled = null;
+		int threads = 0;
+		int server = -1;
+		File batch = null;
+		ShaclMetrics metrics = null;
+		ShaclValueCache cache = null;
+		boolean subClassOf = false;
+		boolean explain = false;
+		int requests = Runtime.getRuntime().availableProcessors();
+		long max = 0;
+		long generate = 0;
+		long seed = 0;
+		double share = 0;
+		int i = 0;
+		
+		try {
+			for (; i < args.length && args[i].startsWith("-"); i++) {
+				switch (args[i]) {
+					case "-stream": 
+						stream = true; 
+						break;
+					case "-grouped":
+						stream = true;
+						grouped = true;
+						break;
+					case "-sort":
+						stream = true;
+						sort = Long.parseLong(args[++i]);
+						break;
+					case "-encoded":
+						encoded = true;
+						break;
+					case "-chunked":
+						chunked = true;
+						break;
+					case "-mapped":
+						mapped = new File(args[++i]);
+						break;
+					case "-compiled":
+						compiled = new File(args[++i]);
+						break;
+					case "-metrics":
+						metrics = new ShaclMetrics();
+						break;
+					case "-cache":
+						cache = new ShaclValueCache(Long.parseLong(args[++i]));
+						break;
+					case "-subclassof":
+						subClassOf = true;
+						break;
+					case "-explain":
+						explain = true;
+						break;
+					case "-batch":
+						batch = new File(args[++i]);
+						break;
+					case "-server":
+						server = Integer.parseInt(args[++i]);
+						break;
+					case "-requests":
+						requests = Integer.parseInt(args[++i]);
+						break;
+					case "-threads": 
+						threads = Integer.parseInt(args[++i]); 
+						break;
+					case "-max":
+						max = Long.parseLong(args[++i]);
+						break;
+					case "-generate":
+						generate = Long.parseLong(args[++i]);
+						break;
+					case "-seed":
+						seed = Long.parseLong(args[++i]);
+						break;
+					case "-violations":
+						share = Double.parseDouble(args[++i]);
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown option " + args[i]);
+				}
+			}
+		} catch (IllegalArgumentException|ArrayIndexOutOfBoundsException ex) {
+			System.err.println(USAGE);
+			System.exit(-1);
+		}
+		
+		if (metrics != null) {
+			metrics.registerMBeans();
+		}
+		if (server >= 0) {
+			if (args.length < i + 1) {
+				System.err.println(USAGE);
+				System.exit(-1);
+			}
+			File[] shacl = new File[args.length - i];
+			for (int j = 0; j < shacl.length; j++) {
+				shacl[j] = new File(args[i + j]);
+			}
+			try {
+				serve(server, requests, shacl, compiled, 
+						(threads > 0) ? new ForkJoinPool(threads) : null, max, metrics, cache);
+			} catch (IOException|IllegalArgumentException ex) {
+				System.err.println(ex.getMessage());
+				System.exit(1);
+			}
+			return;
+		}
+		
+		// an existing memory-mapped store can be validated without data file
+		int files = (mapped != null && generate == 0) ? 1 : 2;
+		if (args.length < i + files) {
+			System.err.println(USAGE);
 			System.exit(-1);
 		}
 		
-		File shacl = new File(args[0]);
-		File rdf = new File(args[1]);
+		File shacl = new File(args[i]);
+		File rdf = (args.length > i + 1) ? new File(args[i + 1]) : null;
 		
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()));
+		boolean ok = true;
 		try {
-			ShaclValidator validator = new ShaclValidator(shacl);
-			validator.validate(rdf);
-		} catch (IOException ex) {
+			if (generate > 0) {
+				generate(shacl, rdf, generate, seed, share);
+				return;
+			}
+			ShaclValidator.Builder builder = (compiled != null) ? ShaclValidator.builder(shacl, compiled)
+																: ShaclValidator.builder(shacl);
+			if (max > 0) {
+				builder.setMaxViolations(max);
+			}
+			builder.setMetrics(metrics).setValueCache(cache).setSubClassOf(subClassOf).setEncoded(encoded);
+			if (explain) {
+				explain(builder.build(), rdf, out);
+			} else if (batch != null) {
+				ok = batch(builder.build(), threads, batch, Arrays.copyOfRange(args, i + 1, args.length));
+			} else {
+				if (threads > 0) {
+					builder.setPool(new ForkJoinPool(threads));
+				}
+				builder.setChunked(chunked).setGrouped(grouped).setSortBudget(sort * 1024 * 1024)
+						.setMappedDir(mapped);
+				ok = validate(builder.build(), mapped, stream, rdf);
+			}
+			if (metrics != null) {
+				printMetrics(metrics, out);
+			}
+			if (cache != null) {
+				out.println(cache);
+			}
+		} catch (IOException|IllegalArgumentException ex) {
+			out.flush();
 			System.err.println(ex.getMessage());
 			System.exit(1);
 		}
+		out.flush();
+		if (! ok) {
+			System.exit(VIOLATIONS);
+		}
+	}
+	
+	/**
+	 * Validate a file
+	 * 
+	 * @param validator validator
+	 * @param mapped directory of the memory-mapped store, or null
+	 * @param stream streaming mode
+	 * @param rdf data file, or null to reuse the memory-mapped store
+	 * @return false in case of violations
+	 * @throws IOException 
+	 */
+	private static boolean validate(ShaclValidator validator, File mapped, boolean stream, File rdf) 
+															throws IOException {
+		if (rdf == null) {
+			// reuse the existing store
+			try (ShaclMappedStore store = ShaclMappedStore.open(mapped.toPath())) {
+				return validator.validate(store);
+			}
+		} else if (stream) {
+			return validator.validateStream(rdf);
+		} else {
+			return validator.validate(rdf);
+		}
 	}
 }
@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl;
+
+import be.fedict.lod.shacl.constraints.ShaclConstraint;
+import be.fedict.lod.shacl.constraints.ShaclPatternBudget;
+import be.fedict.lod.shacl.constraints.ShaclValueCache;
+import be.fedict.lod.shacl.metrics.ShaclMetricsListener;
+import be.fedict.lod.shacl.plan.ShaclPlan;
+import be.fedict.lod.shacl.report.ShaclViolationListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * State of one validation run.
+ * 
+ * The parsed shapes and constraints do not keep any state, so one validator
+ * can be used by multiple threads, each validation run having its own context.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclContext {
+	private final ShaclData data;
+	private final ForkJoinPool pool;
+	private final ShaclViolationListener listener;
+	private final ShaclMetricsListener metrics;
+	private final ShaclValueCache cache;
+	private final ShaclPlan plan;
+	private final ShaclPatternBudget budget;
+	private final Map<ShaclConstraint,AtomicInteger> errors = new ConcurrentHashMap<>();
+	private final AtomicLong total = new AtomicLong();
+	private final long max;
+	private volatile boolean stopped = false;
+	
+	/**
+	 * Get the data being validated
+	 * 
+	 * @return data or null when streaming
+	 */
+	public ShaclData getData() {
+		return this.data;
+	}
+	
+	/**
+	 * Get the thread pool used for validating in parallel
+	 * 
+	 * @return pool or null
+	 */
+	public ForkJoinPool getPool() {
+		return this.pool;
+	}
+	
+	/**
+	 * Get the listener receiving the violations
+	 * 
+	 * @return listener or null
+	 */
+	public ShaclViolationListener getListener() {
+		return this.listener;
+	}
+	
+	/**
+	 * Get the listener receiving timings and counters
+	 * 
+	 * @return metrics listener or null
+	 */
+	public ShaclMetricsListener getMetrics() {
+		return this.metrics;
+	}
+	
+	/**
+	 * Get the cache of validation results per literal value
+	 * 
+	 * @return cache or null
+	 */
+	public ShaclValueCache getCache() {
+		return this.cache;
+	}
+	
+	/**
+	 * Get the order in which shapes and constraints are evaluated
+	 * 
+	 * @return plan or null for the parsed order
+	 */
+	public ShaclPlan getPlan() {
+		return this.plan;
+	}
+	
+	/**
+	 * Get the budget per value for patterns that cannot be matched in linear time
+	 * 
+	 * @return budget or null if unlimited
+	 */
+	public ShaclPatternBudget getPatternBudget() {
+		return this.budget;
+	}
+	
+	/**
+	 * Get the maximum number of violations to be reported
+	 * 
+	 * @return maximum number
+	 */
+	public long getMaxViolations() {
+		return this.max;
+	}
+	
+	/**
+	 * Check if validation should stop, because the maximum number of violations
+	 * has been reached. Tasks should check this regularly and return early.
+	 * 
+	 * @return true if validation should stop
+	 */
+	public boolean isStopped() {
+		return stopped;
+	}
+	
+	/**
+	 * Count a violation
+	 * 
+	 * @param constraint constraint
+	 * @return true if the violation is within the maximum and must be reported
+	 */
+	private boolean count(ShaclConstraint constraint) {
+		errors.computeIfAbsent(constraint, k -> new AtomicInteger()).incrementAndGet();
+		if (metrics != null) {
+			metrics.violation(constraint);
+		}
+		long n = total.incrementAndGet();
+		if (n >= max) {
+			stopped = true;
+		}
+		return (n <= max);
+	}
+	
+	/**
+	 * Add a violation.
+	 * Can be called concurrently.
+	 * 
+	 * @param violation 
+	 */
+	public void addViolation(ShaclViolation violation) {
+		if (count(violation.getConstraint()) && listener != null) {
+			listener.violation(violation);
+		}
+	}
+	
+	/**
+	 * Add a violation, without creating a violation object.
+	 * Can be called concurrently.
+	 * 
+	 * @param constraint violated constraint
+	 * @param component constraint component
+	 * @param s focus node
+	 * @param p path
+	 * @param o value
+	 */
+	public void addViolation(ShaclConstraint constraint, IRI component, Resource s, IRI p, Value o) {
+		if (count(constraint) && listener != null) {
+			listener.violation(constraint, component, s, p, o);
+		}
+	}
+	
+	/**
+	 * Get the number of violations of a constraint
+	 * 
+	 * @param constraint constraint
+	 * @return number of violations
+	 */
+	public int getViolations(ShaclConstraint constraint) {
+		AtomicInteger cnt = errors.get(constraint);
+		return (cnt != null) ? cnt.get() : 0;
+	}
+	
+	/**
+	 * Get the total number of violations.
+	 * This can be more than the maximum, since running tasks may still report
+	 * violations before they stop.
+	 * 
+	 * @return number of violations
+	 */
+	public long getViolations() {
+		return total.get();
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param data data, or null when streaming
+	 * @param pool thread pool or null
+	 * @param listener violation listener or null
+	 * @param max maximum number of violations before stopping
+	 */
+	public ShaclContext(ShaclData data, ForkJoinPool pool, 
+						ShaclViolationListener listener, long max) {
+		this(data, pool, listener, null, null, null, max);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param data data, or null when streaming
+	 * @param pool thread pool or null
+	 * @param listener violation listener or null
+	 * @param metrics metrics listener or null
+	 * @param cache value cache or null
+	 * @param max maximum number of violations before stopping
+	 */
+	public ShaclContext(ShaclData data, ForkJoinPool pool, ShaclViolationListener listener, 
+						ShaclMetricsListener metrics, ShaclValueCache cache, long max) {
+		this(data, pool, listener, metrics, cache, null, max);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param data data, or null when streaming
+	 * @param pool thread pool or null
+	 * @param listener violation listener or null
+	 * @param metrics metrics listener or null
+	 * @param cache value cache or null
+	 * @param plan evaluation plan or null
+	 * @param max maximum number of violations before stopping
+	 */
+	public ShaclContext(ShaclData data, ForkJoinPool pool, ShaclViolationListener listener, 
+			ShaclMetricsListener metrics, ShaclValueCache cache, ShaclPlan plan, long max) {
+		this(data, pool, listener, metrics, cache, plan, null, max);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param data data, or null when streaming
+	 * @param pool thread pool or null
+	 * @param listener violation listener or null
+	 * @param metrics metrics listener or null
+	 * @param cache value cache or null
+	 * @param plan evaluation plan or null
+	 * @param budget pattern budget or null
+	 * @param max maximum number of violations before stopping
+	 */
+	public ShaclContext(ShaclData data, ForkJoinPool pool, ShaclViolationListener listener, 
+			ShaclMetricsListener metrics, ShaclValueCache cache, ShaclPlan plan, 
+			ShaclPatternBudget budget, long max) {
+		this.data = data;
+		this.pool = pool;
+		this.listener = listener;
+		this.metrics = metrics;
+		this.cache = cache;
+		this.plan = plan;
+		this.budget = budget;
+		this.max = max;
+	}
+}
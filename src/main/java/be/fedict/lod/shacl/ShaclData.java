@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl;
+
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * Data being validated.
+ * 
+ * @author Bart Hanssens
+ */
+public interface ShaclData {
+	/**
+	 * Get all subjects
+	 * 
+	 * @return set of subjects
+	 */
+	public Set<Resource> subjects();
+	
+	/**
+	 * Get the instances of a class
+	 * 
+	 * @param cl class IRI
+	 * @return set of subjects
+	 */
+	public Set<Resource> instancesOf(IRI cl);
+	
+	/**
+	 * Get the number of instances of a class
+	 * 
+	 * @param cl class IRI
+	 * @return number of instances
+	 */
+	public int countInstances(IRI cl);
+	
+	/**
+	 * Get the number of statements with a predicate
+	 * 
+	 * @param p predicate
+	 * @return number of statements
+	 */
+	public int frequency(IRI p);
+	
+	/**
+	 * Check if a value is an instance of a class
+	 * 
+	 * @param v value
+	 * @param cl class IRI
+	 * @return true if instance
+	 */
+	public boolean hasType(Value v, IRI cl);
+	
+	/**
+	 * Select statements
+	 * 
+	 * @param s set of subjects
+	 * @param p predicate or null for all predicates
+	 * @return filtered model
+	 */
+	public Model select(Set<Resource> s, IRI p);
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+
+/**
+ * Index on the data model, by predicate and by subject, and by type.
+ * Built once per validation run, so selecting the statements of a property shape
+ * only takes time proportional to the number of matches.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclDataIndex implements ShaclData {
+	private final Model model;
+	private final Map<IRI,Map<Resource,List<Statement>>> index = new HashMap<>();
+	private final ShaclTypeIndex types;
+	
+	/**
+	 * Get the indexed model
+	 * 
+	 * @return model
+	 */
+	public Model getModel() {
+		return this.model;
+	}
+	
+	/**
+	 * Get the type index
+	 * 
+	 * @return type index
+	 */
+	public ShaclTypeIndex getTypeIndex() {
+		return this.types;
+	}
+	
+	@Override
+	public Set<Resource> subjects() {
+		return model.subjects();
+	}
+	
+	@Override
+	public Set<Resource> instancesOf(IRI cl) {
+		return types.instancesOf(cl);
+	}
+	
+	@Override
+	public int countInstances(IRI cl) {
+		return types.instancesOf(cl).size();
+	}
+	
+	@Override
+	public int frequency(IRI p) {
+		Map<Resource,List<Statement>> bySubj = index.get(p);
+		if (bySubj == null) {
+			return 0;
+		}
+		int n = 0;
+		for (List<Statement> l: bySubj.values()) {
+			n += l.size();
+		}
+		return n;
+	}
+	
+	@Override
+	public boolean hasType(Value v, IRI cl) {
+		return types.hasType(v, cl);
+	}
+	
+	/**
+	 * Add statements of a predicate to a model
+	 * 
+	 * @param m model to add statements to
+	 * @param bySubj statements of a predicate, grouped by subject
+	 * @param s set of subjects
+	 */
+	private static void select(Model m, Map<Resource,List<Statement>> bySubj, Set<Resource> s) {
+		// loop over the smallest set
+		if (s.size() < bySubj.size()) {
+			for (Resource subj: s) {
+				List<Statement> l = bySubj.get(subj);
+				if (l != null) {
+					m.addAll(l);
+				}
+			}
+		} else {
+			for (Map.Entry<Resource,List<Statement>> e: bySubj.entrySet()) {
+				if (s.contains(e.getKey())) {
+					m.addAll(e.getValue());
+				}
+			}
+		}
+	}
+	
+	@Override
+	public Model select(Set<Resource> s, IRI p) {
+		Model m = new LinkedHashModel();
+		if (p == null) {
+			for (Map<Resource,List<Statement>> bySubj: index.values()) {
+				select(m, bySubj, s);
+			}
+		} else {
+			Map<Resource,List<Statement>> bySubj = index.get(p);
+			if (bySubj != null) {
+				select(m, bySubj, s);
+			}
+		}
+		return m;
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param m model
+	 */
+	public ShaclDataIndex(Model m) {
+		this(m, false);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param m model
+	 * @param subClassOf instances of a subclass are also instances of the superclasses
+	 */
+	public ShaclDataIndex(Model m, boolean subClassOf) {
+		this.model = m;
+		this.types = new ShaclTypeIndex(m, subClassOf);
+		for (Statement st: m) {
+			index.computeIfAbsent(st.getPredicate(), k -> new HashMap<>())
+				.computeIfAbsent(st.getSubject(), k -> new ArrayList<>(2))
+				.add(st);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+
+/**
+ * Data backed by a model, without building an index.
+ * Statements are selected by filtering the model per subject, which is fast 
+ * when only a few focus nodes are validated, e.g. when revalidating a change.
+ * 
+ * When following rdfs:subClassOf, only the hierarchy of the classes being looked up
+ * is resolved, instead of inferring the types of the whole model.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclModelData implements ShaclData {
+	private final Model model;
+	private final boolean subClassOf;
+	private final Map<IRI,Set<IRI>> supers = new ConcurrentHashMap<>();
+	
+	@Override
+	public Set<Resource> subjects() {
+		return model.subjects();
+	}
+	
+	@Override
+	public Set<Resource> instancesOf(IRI cl) {
+		if (! subClassOf) {
+			return model.filter(null, RDF.TYPE, cl).subjects();
+		}
+		Set<Resource> s = new HashSet<>(model.filter(null, RDF.TYPE, cl).subjects());
+		for (IRI sub: ShaclTypeIndex.getSubClasses(model, cl)) {
+			s.addAll(model.filter(null, RDF.TYPE, sub).subjects());
+		}
+		return s;
+	}
+	
+	@Override
+	public int countInstances(IRI cl) {
+		return instancesOf(cl).size();
+	}
+	
+	@Override
+	public int frequency(IRI p) {
+		return model.filter(null, p, null).size();
+	}
+	
+	@Override
+	public boolean hasType(Value v, IRI cl) {
+		if (! (v instanceof Resource)) {
+			return false;
+		}
+		if (model.contains((Resource) v, RDF.TYPE, cl)) {
+			return true;
+		}
+		if (! subClassOf) {
+			return false;
+		}
+		for (Value type: model.filter((Resource) v, RDF.TYPE, null).objects()) {
+			if (type instanceof IRI && supers.computeIfAbsent((IRI) type, 
+							k -> ShaclTypeIndex.getSuperClasses(model, k)).contains(cl)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public Model select(Set<Resource> s, IRI p) {
+		Model m = new LinkedHashModel();
+		for (Resource subj: s) {
+			m.addAll(model.filter(subj, p, null));
+		}
+		return m;
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param m model
+	 */
+	public ShaclModelData(Model m) {
+		this(m, false);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param m model
+	 * @param subClassOf follow rdfs:subClassOf
+	 */
+	public ShaclModelData(Model m, boolean subClassOf) {
+		this.model = m;
+		this.subClassOf = subClassOf;
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+
+/**
+ * Index of the rdf:type statements, by class and by instance.
+ * Built once per validation run, and shared by all shapes and constraints,
+ * so resolving target classes and checking sh:class takes constant time per node.
+ * 
+ * Optionally, instances of a subclass are also instances of its superclasses,
+ * following the rdfs:subClassOf statements in the data.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclTypeIndex {
+	private final Map<IRI,Set<Resource>> instances = new HashMap<>();
+	private final Map<Resource,Set<IRI>> types = new HashMap<>();
+	
+	/**
+	 * Get the instances of a class
+	 * 
+	 * @param cl class IRI
+	 * @return read-only set of instances, possibly empty
+	 */
+	public Set<Resource> instancesOf(IRI cl) {
+		Set<Resource> s = instances.get(cl);
+		return (s != null) ? Collections.unmodifiableSet(s) : Collections.emptySet();
+	}
+	
+	/**
+	 * Get the classes of an instance
+	 * 
+	 * @param v value
+	 * @return read-only set of classes, possibly empty
+	 */
+	public Set<IRI> typesOf(Value v) {
+		Set<IRI> s = types.get(v);
+		return (s != null) ? Collections.unmodifiableSet(s) : Collections.emptySet();
+	}
+	
+	/**
+	 * Check if a value is an instance of a class
+	 * 
+	 * @param v value
+	 * @param cl class IRI
+	 * @return true if instance
+	 */
+	public boolean hasType(Value v, IRI cl) {
+		Set<IRI> s = types.get(v);
+		return (s != null && s.contains(cl));
+	}
+	
+	/**
+	 * Add a type to an instance.
+	 * Most instances only have one type, which is kept as a singleton set.
+	 * 
+	 * @param r instance
+	 * @param cl class
+	 */
+	private void add(Resource r, IRI cl) {
+		instances.computeIfAbsent(cl, k -> new HashSet<>()).add(r);
+		Set<IRI> s = types.get(r);
+		if (s == null) {
+			types.put(r, Collections.singleton(cl));
+		} else if (! s.contains(cl)) {
+			if (s.size() == 1) {
+				s = new HashSet<>(s);
+				types.put(r, s);
+			}
+			s.add(cl);
+		}
+	}
+	
+	/**
+	 * Get all (direct and indirect) superclasses of a class
+	 * 
+	 * @param cl class
+	 * @param direct direct superclasses per class
+	 * @return set of superclasses, without the class itself
+	 */
+	private static Set<IRI> getSuperClasses(IRI cl, Map<IRI,Set<IRI>> direct) {
+		Set<IRI> res = new HashSet<>();
+		Deque<IRI> todo = new ArrayDeque<>(direct.getOrDefault(cl, Collections.emptySet()));
+		while (! todo.isEmpty()) {
+			IRI sup = todo.pop();
+			if (! sup.equals(cl) && res.add(sup)) {
+				todo.addAll(direct.getOrDefault(sup, Collections.emptySet()));
+			}
+		}
+		return res;
+	}
+	
+	/**
+	 * Get all (direct and indirect) superclasses of a class in a model
+	 * 
+	 * @param m model
+	 * @param cl class
+	 * @return set of superclasses, without the class itself
+	 */
+	public static Set<IRI> getSuperClasses(Model m, IRI cl) {
+		Set<IRI> res = new HashSet<>();
+		Deque<IRI> todo = new ArrayDeque<>();
+		todo.push(cl);
+		while (! todo.isEmpty()) {
+			for (Value v: m.filter(todo.pop(), RDFS.SUBCLASSOF, null).objects()) {
+				if (v instanceof IRI && !v.equals(cl) && res.add((IRI) v)) {
+					todo.push((IRI) v);
+				}
+			}
+		}
+		return res;
+	}
+	
+	/**
+	 * Get all (direct and indirect) subclasses of a class in a model
+	 * 
+	 * @param m model
+	 * @param cl class
+	 * @return set of subclasses, without the class itself
+	 */
+	public static Set<IRI> getSubClasses(Model m, IRI cl) {
+		Set<IRI> res = new HashSet<>();
+		Deque<IRI> todo = new ArrayDeque<>();
+		todo.push(cl);
+		while (! todo.isEmpty()) {
+			for (Resource r: m.filter(null, RDFS.SUBCLASSOF, todo.pop()).subjects()) {
+				if (r instanceof IRI && !r.equals(cl) && res.add((IRI) r)) {
+					todo.push((IRI) r);
+				}
+			}
+		}
+		return res;
+	}
+	
+	/**
+	 * Add the types inferred by the rdfs:subClassOf statements
+	 * 
+	 * @param m model
+	 */
+	private void addSuperClasses(Model m) {
+		Map<IRI,Set<IRI>> direct = new HashMap<>();
+		for (Statement st: m.filter(null, RDFS.SUBCLASSOF, null)) {
+			if (st.getSubject() instanceof IRI && st.getObject() instanceof IRI) {
+				direct.computeIfAbsent((IRI) st.getSubject(), k -> new HashSet<>())
+						.add((IRI) st.getObject());
+			}
+		}
+		if (direct.isEmpty()) {
+			return;
+		}
+		for (IRI cl: new ArrayList<>(instances.keySet())) {
+			Set<IRI> supers = getSuperClasses(cl, direct);
+			if (supers.isEmpty()) {
+				continue;
+			}
+			for (Resource r: new ArrayList<>(instances.get(cl))) {
+				for (IRI sup: supers) {
+					add(r, sup);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param m model
+	 * @param subClassOf also add the types inferred by rdfs:subClassOf
+	 */
+	public ShaclTypeIndex(Model m, boolean subClassOf) {
+		for (Statement st: m.filter(null, RDF.TYPE, null)) {
+			if (st.getObject() instanceof IRI) {
+				add(st.getSubject(), (IRI) st.getObject());
+			}
+		}
+		if (subClassOf) {
+			addSuperClasses(m);
+		}
+	}
+}
@@ -25,35 +25,466 @@
  */
 package be.fedict.lod.shacl;
 
+import be.fedict.lod.shacl.constraints.ShaclConstraint;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyClass;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyNode;
+import be.fedict.lod.shacl.constraints.ShaclPatternBudget;
+import be.fedict.lod.shacl.constraints.ShaclValueCache;
+import be.fedict.lod.shacl.metrics.ShaclMetricsListener;
 import be.fedict.lod.shacl.parser.ShaclParser;
+import be.fedict.lod.shacl.plan.ShaclPlan;
+import be.fedict.lod.shacl.plan.ShaclPlanner;
+import be.fedict.lod.shacl.parser.ShaclParserException;
+import be.fedict.lod.shacl.parser.ShaclShapesBinary;
+import be.fedict.lod.shacl.report.ShaclLogListener;
+import be.fedict.lod.shacl.report.ShaclValidationReport;
+import be.fedict.lod.shacl.report.ShaclViolationListener;
 import be.fedict.lod.shacl.shapes.ShaclNodeShape;
+import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
+import be.fedict.lod.shacl.store.ShaclMappedStore;
+import be.fedict.lod.shacl.store.ShaclTripleStore;
+import be.fedict.lod.shacl.store.ShaclTripleStoreHandler;
+import be.fedict.lod.shacl.stream.ShaclChunkedParser;
+import be.fedict.lod.shacl.stream.ShaclStreamHandler;
+import be.fedict.lod.shacl.stream.ShaclSubjectSorter;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
 
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParser;
 import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.StatementCollector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * SHACL light validation engine.
  * 
+ * A validator is immutable: the options are set through a builder, and the parsed shapes 
+ * are not modified during validation, so one validator can be shared by multiple threads 
+ * validating different data. The state of a validation run, including the violation listener
+ * and the maximum number of violations of that run, is kept in its own context.
+ * 
  * @author Bart Hanssens
  */
 public class ShaclValidator {
+	private final static Logger LOG = LoggerFactory.getLogger(ShaclValidator.class);
+	
 	private final Map<Resource,ShaclNodeShape> shapes; 
+	private final ForkJoinPool pool;
+	private final ShaclViolationListener listener;
+	private final ShaclMetricsListener metrics;
+	private final ShaclValueCache cache;
+	private final ShaclPatternBudget patternBudget;
+	private final long maxViolations;
+	private final boolean encoded;
+	private final boolean subClassOf;
+	private final File mappedDir;
+	private final boolean grouped;
+	private final boolean chunked;
+	private final long sortBudget;
+	private final long maxInstances;
+	
+	/**
+	 * Builder for a validator.
+	 * 
+	 * The options are copied into the validator when it is built, so changing
+	 * the builder afterwards does not affect validators that have already been built.
+	 */
+	public static class Builder {
+		private final Map<Resource,ShaclNodeShape> shapes;
+		private ForkJoinPool pool = null;
+		private ShaclViolationListener listener = new ShaclLogListener();
+		private ShaclMetricsListener metrics = null;
+		private ShaclValueCache cache = null;
+		private ShaclPatternBudget patternBudget = null;
+		private long maxViolations = Long.MAX_VALUE;
+		private boolean encoded = false;
+		private boolean subClassOf = false;
+		private File mappedDir = null;
+		private boolean grouped = false;
+		private boolean chunked = false;
+		private long sortBudget = 0;
+		private long maxInstances = ShaclStreamHandler.DEFAULT_MAX_INSTANCES;
+		
+		/**
+		 * Load files and streams into a dictionary-encoded triple store 
+		 * instead of a model, using less memory.
+		 * 
+		 * @param encoded true to use a triple store
+		 * @return builder
+		 */
+		public Builder setEncoded(boolean encoded) {
+			this.encoded = encoded;
+			return this;
+		}
+		
+		/**
+		 * Follow the rdfs:subClassOf statements in the data when resolving target classes
+		 * and checking sh:class, so instances of a subclass are also instances of the superclasses.
+		 * Only used when validating models, not in encoded or streaming mode.
+		 * 
+		 * @param subClassOf true to follow rdfs:subClassOf
+		 * @return builder
+		 */
+		public Builder setSubClassOf(boolean subClassOf) {
+			this.subClassOf = subClassOf;
+			return this;
+		}
+		
+		/**
+		 * Treat streams as grouped by subject (e.g. sorted N-Triples), 
+		 * so each subject can be validated and discarded as soon as the next subject starts.
+		 * 
+		 * @param grouped true if grouped
+		 * @return builder
+		 */
+		public Builder setGrouped(boolean grouped) {
+			this.grouped = grouped;
+			return this;
+		}
+		
+		/**
+		 * Parse N-Triples files in parallel chunks: the file is memory-mapped
+		 * and cut into chunks at line boundaries, which are parsed on the thread pool
+		 * (or the common pool when no pool is set).
+		 * 
+		 * @param chunked true to parse in chunks
+		 * @return builder
+		 */
+		public Builder setChunked(boolean chunked) {
+			this.chunked = chunked;
+			return this;
+		}
+		
+		/**
+		 * Sort streams by subject before validating them one subject at a time.
+		 * Statements exceeding the memory budget are sorted in temporary files.
+		 * 
+		 * @param budget budget in bytes, 0 to disable sorting
+		 * @return builder
+		 */
+		public Builder setSortBudget(long budget) {
+			if (budget < 0) {
+				throw new IllegalArgumentException("Memory budget can not be negative");
+			}
+			this.sortBudget = budget;
+			return this;
+		}
+		
+		/**
+		 * Set the maximum number of instances of the classes used by sh:class
+		 * that are kept in streaming mode. Streaming validation fails when there are more.
+		 * 
+		 * @param max maximum number, at least 0
+		 * @return builder
+		 */
+		public Builder setMaxInstances(long max) {
+			if (max < 0) {
+				throw new IllegalArgumentException("Maximum number of instances can not be negative");
+			}
+			this.maxInstances = max;
+			return this;
+		}
+		
+		/**
+		 * Load files and streams into a memory-mapped triple store in a directory,
+		 * for data that does not fit in the heap. 
+		 * An existing store in that directory is replaced.
+		 * 
+		 * @param dir directory or null to disable
+		 * @return builder
+		 */
+		public Builder setMappedDir(File dir) {
+			this.mappedDir = dir;
+			return this;
+		}
+		
+		/**
+		 * Set the default maximum number of violations.
+		 * Validation stops as soon as this number of violations has been found,
+		 * remaining shapes and focus nodes are not evaluated.
+		 * 
+		 * @param max maximum number, at least 1
+		 * @return builder
+		 */
+		public Builder setMaxViolations(long max) {
+			if (max < 1) {
+				throw new IllegalArgumentException("Maximum number of violations must be at least 1");
+			}
+			this.maxViolations = max;
+			return this;
+		}
+		
+		/**
+		 * Set the default violation listener, by default violations are logged.
+		 * When set to null, violations are only counted.
+		 * 
+		 * @param listener listener or null
+		 * @return builder
+		 */
+		public Builder setListener(ShaclViolationListener listener) {
+			this.listener = listener;
+			return this;
+		}
+		
+		/**
+		 * Set the listener receiving timings and counters per shape and constraint, 
+		 * e.g. ShaclMetrics. When set to null (default), nothing is measured.
+		 * 
+		 * @param metrics metrics listener or null
+		 * @return builder
+		 */
+		public Builder setMetrics(ShaclMetricsListener metrics) {
+			this.metrics = metrics;
+			return this;
+		}
+		
+		/**
+		 * Set the cache of validation results per literal value, skipping the datatype
+		 * and string checks for values that have already been checked.
+		 * The cache can be shared by validation runs and validators.
+		 * When set to null (default), every value is checked.
+		 * 
+		 * @param cache cache or null
+		 * @return builder
+		 */
+		public Builder setValueCache(ShaclValueCache cache) {
+			this.cache = cache;
+			return this;
+		}
+		
+		/**
+		 * Set the thread pool used for validating node shapes in parallel.
+		 * Shapes with many focus nodes are split into chunks, which are validated
+		 * in parallel as well.
+		 * When set to null (default), shapes are validated one after another.
+		 * 
+		 * @param pool pool or null
+		 * @return builder
+		 */
+		public Builder setPool(ForkJoinPool pool) {
+			this.pool = pool;
+			return this;
+		}
+		
+		/**
+		 * Set the budget per value for sh:pattern expressions that cannot be matched in linear time,
+		 * e.g. because of backreferences or lookaround. Values exceeding the budget are violations.
+		 * 
+		 * @param budget budget or null if unlimited
+		 * @return builder
+		 */
+		public Builder setPatternBudget(ShaclPatternBudget budget) {
+			this.patternBudget = budget;
+			return this;
+		}
+		
+		/**
+		 * Build the validator
+		 * 
+		 * @return validator
+		 */
+		public ShaclValidator build() {
+			return new ShaclValidator(this);
+		}
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param shapes parsed node shapes
+		 */
+		private Builder(Map<Resource,ShaclNodeShape> shapes) {
+			this.shapes = Collections.unmodifiableMap(shapes);
+		}
+	}
+	
+	/**
+	 * Check if files and streams are loaded into a dictionary-encoded triple store
+	 * 
+	 * @return true if encoded
+	 */
+	public boolean isEncoded() {
+		return this.encoded;
+	}
+	
+	/**
+	 * Check if instances of a subclass are also instances of the superclasses
+	 * 
+	 * @return true if rdfs:subClassOf is followed
+	 */
+	public boolean isSubClassOf() {
+		return this.subClassOf;
+	}
+	
+	/**
+	 * Check if streams are treated as grouped by subject
+	 * 
+	 * @return true if grouped
+	 */
+	public boolean isGrouped() {
+		return this.grouped;
+	}
+	
+	/**
+	 * Check if N-Triples files are parsed in parallel chunks
+	 * 
+	 * @return true if chunked
+	 */
+	public boolean isChunked() {
+		return this.chunked;
+	}
+	
+	/**
+	 * Get the memory budget for sorting streams by subject
+	 * 
+	 * @return budget in bytes, 0 if streams are not sorted
+	 */
+	public long getSortBudget() {
+		return this.sortBudget;
+	}
+	
+	/**
+	 * Get the maximum number of instances of the classes used by sh:class in streaming mode
+	 * 
+	 * @return maximum number
+	 */
+	public long getMaxInstances() {
+		return this.maxInstances;
+	}
+	
+	/**
+	 * Get the directory of the memory-mapped triple store
+	 * 
+	 * @return directory or null
+	 */
+	public File getMappedDir() {
+		return this.mappedDir;
+	}
+	
+	/**
+	 * Get the default maximum number of violations
+	 * 
+	 * @return maximum number
+	 */
+	public long getMaxViolations() {
+		return this.maxViolations;
+	}
+	
+	/**
+	 * Get the default violation listener
+	 * 
+	 * @return listener or null
+	 */
+	public ShaclViolationListener getListener() {
+		return this.listener;
+	}
+	
+	/**
+	 * Get the listener receiving timings and counters
+	 * 
+	 * @return metrics listener or null
+	 */
+	public ShaclMetricsListener getMetrics() {
+		return this.metrics;
+	}
 	
 	/**
-	 * Select statements from model 
+	 * Get the cache of validation results per literal value
+	 * 
+	 * @return cache or null
+	 */
+	public ShaclValueCache getValueCache() {
+		return this.cache;
+	}
+	
+	/**
+	 * Get the thread pool used for validating node shapes in parallel
+	 * 
+	 * @return pool or null
+	 */
+	public ForkJoinPool getPool() {
+		return this.pool;
+	}
+	
+	/**
+	 * Get the budget per value for sh:pattern expressions that cannot be matched in linear time
+	 * 
+	 * @return budget or null if unlimited
+	 */
+	public ShaclPatternBudget getPatternBudget() {
+		return this.patternBudget;
+	}
+	
+	/**
+	 * Get a builder with the shapes and the options of this validator,
+	 * e.g. to create a validator with other options without parsing the shapes again.
+	 * 
+	 * @return builder
+	 */
+	public Builder toBuilder() {
+		Builder b = new Builder(shapes);
+		b.pool = pool;
+		b.listener = listener;
+		b.metrics = metrics;
+		b.cache = cache;
+		b.patternBudget = patternBudget;
+		b.maxViolations = maxViolations;
+		b.encoded = encoded;
+		b.subClassOf = subClassOf;
+		b.mappedDir = mappedDir;
+		b.grouped = grouped;
+		b.chunked = chunked;
+		b.sortBudget = sortBudget;
+		b.maxInstances = maxInstances;
+		return b;
+	}
+	
+	/**
+	 * Get the "unnested" node shapes, the ones with targets
+	 * 
+	 * @return list of node shapes
+	 */
+	private List<ShaclNodeShape> getTopShapes() {
+		return shapes.values().stream()
+						.filter(n -> n.getTargets() != null && !n.getTargets().isEmpty())
+						.collect(Collectors.toList());
+	}
+	
+	/**
+	 * Select statements from model.
+	 * This scans the whole model, use ShaclDataIndex for repeated selections.
 	 * 
 	 * @param m model
 	 * @param s set of subjects
@@ -77,17 +508,320 @@ public class ShaclValidator {
 	 * @return false in case of violations
 	 */
 	public boolean validate(Model m) {
-		int errors = 0;
-		
+		return validate(m, listener);
+	}
+	
+	/**
+	 * Validate an RDF triple model and return a report
+	 * 
+	 * @param m triples
+	 * @return validation report
+	 */
+	public ShaclValidationReport report(Model m) {
+		ShaclValidationReport report = new ShaclValidationReport();
+		validate(m, report);
+		return report;
+	}
+	
+	/**
+	 * Validate an RDF triple model, sending violations to a listener.
+	 * 
+	 * @param m triples
+	 * @param l violation listener or null
+	 * @return false in case of violations
+	 */
+	public boolean validate(Model m, ShaclViolationListener l) {
+		return validate(new ShaclDataIndex(m, subClassOf), l, maxViolations);
+	}
+	
+	/**
+	 * Validate data, e.g. a dictionary-encoded triple store.
+	 * 
+	 * @param data data
+	 * @return false in case of violations
+	 */
+	public boolean validate(ShaclData data) {
+		return validate(data, listener);
+	}
+	
+	/**
+	 * Validate data, sending violations to a listener.
+	 * 
+	 * @param data data
+	 * @param l violation listener or null
+	 * @return false in case of violations
+	 */
+	public boolean validate(ShaclData data, ShaclViolationListener l) {
+		return validate(data, l, maxViolations);
+	}
+	
+	/**
+	 * Check if an RDF triple model conforms to the shapes.
+	 * Validation stops at the first violation, which is not reported.
+	 * 
+	 * @param m triples
+	 * @return true if the model conforms
+	 */
+	public boolean conforms(Model m) {
+		return validate(new ShaclDataIndex(m, subClassOf), null, 1);
+	}
+	
+	/**
+	 * Get the paths of the properties and rdf:type of a node shape
+	 * 
+	 * @param id ID of the node shape
+	 * @return set of predicates
+	 */
+	private Set<IRI> getPaths(Resource id) {
+		Set<IRI> preds = new HashSet<>();
+		preds.add(RDF.TYPE);
+		ShaclNodeShape n = shapes.get(id);
+		if (n != null) {
+			for (ShaclPropertyShape p: n.getPropertyShapes()) {
+				preds.add(p.getPath());
+			}
+		}
+		return preds;
+	}
+	
+	/**
+	 * Get the focus node candidates affected by a change.
+	 * These are the subjects of changed statements with a property path or rdf:type
+	 * as predicate, the nodes referring to instances of which an sh:class changed,
+	 * and the nodes referring (directly or through other nodes) via sh:node 
+	 * to nodes of which a property of the referenced shape changed.
+	 * When following rdfs:subClassOf, a change in the class hierarchy affects all subjects.
+	 * 
+	 * @param m model, after the change
+	 * @param added added statements
+	 * @param removed removed statements
+	 * @return set of nodes
+	 */
+	public Set<Resource> getAffectedNodes(Model m, Model added, Model removed) {
+		if (subClassOf && (added.contains(null, RDFS.SUBCLASSOF, null) 
+							|| removed.contains(null, RDFS.SUBCLASSOF, null))) {
+			return new HashSet<>(m.subjects());
+		}
+		Set<IRI> preds = new HashSet<>();
+		preds.add(RDF.TYPE);
+		Map<IRI,Set<IRI>> classPaths = new HashMap<>();
+		// paths with sh:node, and the predicates of the referenced shapes
+		Map<IRI,Set<IRI>> nodePaths = new HashMap<>();
 		for (ShaclNodeShape n: shapes.values()) {
-			// only validate the "unnested" node shapes
-			if (n.getTargets() != null &&! n.getTargets().isEmpty()) {
-				errors += n.validate(m);
+			for (ShaclPropertyShape p: n.getPropertyShapes()) {
+				for (ShaclConstraint c: p.getConstraints()) {
+					if (c instanceof ShaclConstraintPropertyNode) {
+						nodePaths.computeIfAbsent(p.getPath(), k -> new HashSet<>())
+								.addAll(getPaths(((ShaclConstraintPropertyNode) c).getNode()));
+					}
+				}
+			}
+		}
+		for (ShaclNodeShape n: getTopShapes()) {
+			for (ShaclPropertyShape p: n.getPropertyShapes()) {
+				preds.add(p.getPath());
+				for (ShaclConstraint c: p.getConstraints()) {
+					if (c instanceof ShaclConstraintPropertyClass) {
+						classPaths.computeIfAbsent(((ShaclConstraintPropertyClass) c).getRDFClass(), 
+													k -> new HashSet<>()).add(p.getPath());
+					}
+				}
+			}
+		}
+		
+		Set<Resource> nodes = new HashSet<>();
+		Set<Resource> referenced = new HashSet<>();
+		for (Model delta: new Model[] { added, removed }) {
+			for (Statement st: delta) {
+				for (Set<IRI> nested: nodePaths.values()) {
+					if (nested.contains(st.getPredicate())) {
+						referenced.add(st.getSubject());
+					}
+				}
+				if (! preds.contains(st.getPredicate())) {
+					continue;
+				}
+				nodes.add(st.getSubject());
+				// reverse dependency: nodes referring to this instance
+				if (st.getPredicate().equals(RDF.TYPE) && st.getObject() instanceof IRI) {
+					Set<IRI> classes = new HashSet<>();
+					classes.add((IRI) st.getObject());
+					if (subClassOf) {
+						classes.addAll(ShaclTypeIndex.getSuperClasses(m, (IRI) st.getObject()));
+					}
+					for (IRI cl: classes) {
+						for (IRI path: classPaths.getOrDefault(cl, Collections.emptySet())) {
+							nodes.addAll(m.filter(null, path, st.getSubject()).subjects());
+						}
+					}
+				}
+			}
+		}
+		// reverse dependency: nodes referring via sh:node, which may be referred to in turn
+		Deque<Resource> todo = new ArrayDeque<>(referenced);
+		while (! todo.isEmpty()) {
+			Resource ref = todo.poll();
+			for (IRI path: nodePaths.keySet()) {
+				for (Resource subj: m.filter(null, path, ref).subjects()) {
+					nodes.add(subj);
+					if (referenced.add(subj)) {
+						todo.add(subj);
+					}
+				}
+			}
+		}
+		return nodes;
+	}
+	
+	/**
+	 * Revalidate a model after a change, only validating the focus nodes affected by the change.
+	 * 
+	 * The change must already have been applied to the model, which is not modified.
+	 * The violations of the affected nodes in the report of the previous validation are replaced,
+	 * without the report exceeding the maximum number of violations.
+	 * 
+	 * @param m model after the change
+	 * @param added added statements
+	 * @param removed removed statements
+	 * @param report report of the previous validation
+	 * @return false in case of violations
+	 */
+	public boolean revalidateChange(Model m, Model added, Model removed, ShaclValidationReport report) {
+		Set<Resource> nodes = getAffectedNodes(m, added, removed);
+		report.removeFocusNodes(nodes);
+		
+		// violations of unaffected nodes still count towards the maximum
+		long max = (maxViolations < Long.MAX_VALUE) ? maxViolations - report.size() : maxViolations;
+		if (max <= 0) {
+			return report.conforms();
+		}
+		ShaclData data = new ShaclModelData(m, subClassOf);
+		ShaclContext ctx = new ShaclContext(data, pool, report, metrics, cache, null, 
+											patternBudget, max);
+		for (ShaclNodeShape n: getTopShapes()) {
+			if (ctx.isStopped()) {
+				break;
+			}
+			n.validate(ctx, nodes);
+		}
+		return report.conforms();
+	}
+	
+	/**
+	 * Plan the order of evaluation of shapes and constraints on data
+	 * 
+	 * @param data data
+	 * @return plan
+	 */
+	public ShaclPlan plan(ShaclData data) {
+		return ShaclPlanner.plan(getTopShapes(), data);
+	}
+	
+	/**
+	 * Plan the order of evaluation of shapes and constraints on a model
+	 * 
+	 * @param m model
+	 * @return plan
+	 */
+	public ShaclPlan plan(Model m) {
+		return plan(new ShaclDataIndex(m, subClassOf));
+	}
+	
+	/**
+	 * Plan the order of evaluation of shapes and constraints on an RDF inputstream
+	 * 
+	 * @param is inputstream
+	 * @param fmt format
+	 * @return plan
+	 * @throws IOException
+	 */
+	public ShaclPlan plan(InputStream is, RDFFormat fmt) throws IOException {
+		if (encoded) {
+			return plan(ShaclTripleStore.load(is, fmt));
+		}
+		return plan(Rio.parse(is, "http://localhost", fmt));
+	}
+	
+	/**
+	 * Validate data, stopping when the maximum number of violations has been reached.
+	 * 
+	 * When validation can stop early, cheap checks that are likely to fail are evaluated first,
+	 * so a limited run may evaluate shapes and constraints in another order than an unlimited run.
+	 * This only affects which violations are reported before stopping, not the result.
+	 * The result is based on the violations counted by the context, on both the sequential
+	 * and the parallel path.
+	 * 
+	 * @param data data
+	 * @param l violation listener or null
+	 * @param max maximum number of violations
+	 * @return false in case of violations
+	 */
+	public boolean validate(ShaclData data, ShaclViolationListener l, long max) {
+		// the order only matters when stopping early
+		ShaclPlan plan = (max < Long.MAX_VALUE) ? plan(data) : null;
+		ShaclContext ctx = new ShaclContext(data, pool, l, metrics, cache, plan, patternBudget, max);
+		List<ShaclNodeShape> shapes = (plan != null) ? plan.getNodeShapes() : getTopShapes();
+		
+		if (pool == null) {
+			for (ShaclNodeShape n: shapes) {
+				if (ctx.isStopped()) {
+					break;
+				}
+				n.validate(ctx);
+			}
+			return (ctx.getViolations() == 0);
+		}
+		
+		// data is read-only during validation, so node shapes can be validated in parallel
+		List<ForkJoinTask<Integer>> tasks = new ArrayList<>();
+		for (ShaclNodeShape n: shapes) {
+			tasks.add(pool.submit(() -> n.validate(ctx)));
+		}
+		// join in order of the shapes, cancel the remaining ones when stopped
+		for (ForkJoinTask<Integer> task: tasks) {
+			if (ctx.isStopped()) {
+				task.cancel(false);
+			}
+			if (! task.isCancelled()) {
+				task.join();
 			}
 		}
-		return (errors == 0);
+		return (ctx.getViolations() == 0);
 	}
 
+	/**
+	 * Check if a file must be parsed in parallel chunks, 
+	 * i.e. when chunked parsing is enabled and it is an N-Triples file.
+	 * 
+	 * @param fmt RDF format
+	 * @return true if chunked
+	 */
+	private boolean isChunked(RDFFormat fmt) {
+		return chunked && fmt.equals(RDFFormat.NTRIPLES);
+	}
+	
+	/**
+	 * Get a parser for N-Triples files in parallel chunks
+	 * 
+	 * @return chunked parser
+	 */
+	private ShaclChunkedParser getChunkedParser() {
+		return new ShaclChunkedParser((pool != null) ? pool : ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Get the handler validating statements while they are being parsed
+	 * 
+	 * @param ctx context
+	 * @return RDF handler
+	 */
+	private RDFHandler getStreamHandler(ShaclContext ctx) {
+		ShaclStreamHandler handler = new ShaclStreamHandler(getTopShapes(), ctx);
+		handler.setGrouped(grouped || sortBudget > 0);
+		handler.setMaxInstances(maxInstances);
+		return (sortBudget > 0) ? new ShaclSubjectSorter(handler, sortBudget, null) : handler;
+	}
+	
 	/**
 	 * Validate a file
 	 * 
@@ -98,6 +832,17 @@ public class ShaclValidator {
 	public boolean validate(File f) throws IOException {
 		RDFFormat fmt = Rio.getParserFormatForFileName(f.getName())
 							.orElseThrow(() -> new IOException("File type not supported"));
+		if (isChunked(fmt) && mappedDir == null) {
+			ShaclChunkedParser parser = getChunkedParser();
+			if (encoded) {
+				ShaclTripleStoreHandler handler = new ShaclTripleStoreHandler();
+				parser.parse(f.toPath(), handler);
+				return validate(handler.getStore());
+			}
+			Model m = new LinkedHashModel();
+			parser.parse(f.toPath(), new StatementCollector(m));
+			return validate(m);
+		}
 		try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(f))) {
 			return validate(bis, fmt);
 		}
@@ -112,43 +857,286 @@ public class ShaclValidator {
 	 * @throws IOException
 	 */
 	public boolean validate(InputStream is, RDFFormat fmt) throws IOException {
+		if (mappedDir != null) {
+			try (ShaclMappedStore store = ShaclMappedStore.load(mappedDir.toPath(), is, fmt)) {
+				return validate(store);
+			}
+		}
+		if (encoded) {
+			return validate(ShaclTripleStore.load(is, fmt));
+		}
 		Model m = Rio.parse(is, "http://localhost", fmt);
 		return validate(m);
 	}
 
 	/**
-	 * Constructor
+	 * Validate an RDF inputstream and return a report
+	 * 
+	 * @param is inputstream
+	 * @param fmt format
+	 * @return validation report
+	 * @throws IOException
+	 */
+	public ShaclValidationReport report(InputStream is, RDFFormat fmt) throws IOException {
+		ShaclValidationReport report = new ShaclValidationReport();
+		if (encoded) {
+			validate(ShaclTripleStore.load(is, fmt), report);
+		} else {
+			validate(Rio.parse(is, "http://localhost", fmt), report);
+		}
+		return report;
+	}
+	
+	/**
+	 * Validate a file in streaming mode, without loading it into memory.
+	 * Memory use is only bounded when the file is grouped or sorted by subject.
+	 * 
+	 * @param f
+	 * @return false in case of violations
+	 * @throws IOException 
+	 */
+	public boolean validateStream(File f) throws IOException {
+		RDFFormat fmt = Rio.getParserFormatForFileName(f.getName())
+							.orElseThrow(() -> new IOException("File type not supported"));
+		if (isChunked(fmt)) {
+			ShaclContext ctx = new ShaclContext(null, pool, listener, metrics, cache, null, 
+												patternBudget, maxViolations);
+			try {
+				getChunkedParser().parse(f.toPath(), getStreamHandler(ctx));
+			} catch (RDFHandlerException e) {
+				// thrown by the handler to stop parsing
+				if (! ctx.isStopped()) {
+					throw e;
+				}
+			}
+			return (ctx.getViolations() == 0);
+		}
+		try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(f))) {
+			return validateStream(bis, fmt);
+		}
+	}
+	
+	/**
+	 * Validate an RDF inputstream in streaming mode, checking the constraints
+	 * while the statements are being parsed.
+	 * 
+	 * @param is inputstream
+	 * @param fmt format
+	 * @return false in case of violations
+	 * @throws IOException
+	 */
+	public boolean validateStream(InputStream is, RDFFormat fmt) throws IOException {
+		return validateStream(is, fmt, listener);
+	}
+	
+	/**
+	 * Validate an RDF inputstream in streaming mode, sending violations to a listener.
+	 * 
+	 * @param is inputstream
+	 * @param fmt format
+	 * @param l violation listener or null
+	 * @return false in case of violations
+	 * @throws IOException
+	 */
+	public boolean validateStream(InputStream is, RDFFormat fmt, ShaclViolationListener l) 
+															throws IOException {
+		return validateStream(is, fmt, l, maxViolations);
+	}
+	
+	/**
+	 * Check if an RDF inputstream conforms to the shapes, in streaming mode.
+	 * Parsing stops at the first violation, which is not reported.
+	 * 
+	 * @param is inputstream
+	 * @param fmt format
+	 * @return true if the data conforms
+	 * @throws IOException
+	 */
+	public boolean conformsStream(InputStream is, RDFFormat fmt) throws IOException {
+		return validateStream(is, fmt, null, 1);
+	}
+	
+	/**
+	 * Validate an RDF inputstream in streaming mode, stopping when the maximum
+	 * number of violations has been reached.
+	 * 
+	 * @param is inputstream
+	 * @param fmt format
+	 * @param l violation listener or null
+	 * @param max maximum number of violations
+	 * @return false in case of violations
+	 * @throws IOException
+	 */
+	public boolean validateStream(InputStream is, RDFFormat fmt, ShaclViolationListener l, 
+													long max) throws IOException {
+		ShaclContext ctx = new ShaclContext(null, pool, l, metrics, cache, null, patternBudget, max);
+		RDFParser parser = Rio.createParser(fmt);
+		parser.setRDFHandler(getStreamHandler(ctx));
+		try {
+			parser.parse(is, "http://localhost");
+		} catch (RDFHandlerException e) {
+			// thrown by the handler to stop parsing
+			if (! ctx.isStopped()) {
+				throw e;
+			}
+		}
+		return (ctx.getViolations() == 0);
+	}
+
+	/**
+	 * Parse a SHACL file
 	 * 
 	 * @param f SHACL file
-	 * @throws java.io.IOException
+	 * @return node shapes
+	 * @throws IOException 
 	 */
-	public ShaclValidator(File f) throws IOException {
+	private static Map<Resource,ShaclNodeShape> parse(File f) throws IOException {
 		RDFFormat fmt = Rio.getParserFormatForFileName(f.getName())
 							.orElseThrow(() -> new IOException("File type not supported"));
 		try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(f))) {
 			Model m = Rio.parse(bis, "http://localhost", fmt);
-			this.shapes = ShaclParser.parse(m);
+			return ShaclParser.parse(m);
 		}
 	}
 	
 	/**
-	 * Constructor
+	 * Load compiled shapes, or parse the SHACL file and write the compiled shapes
+	 * when they are missing or do not match the SHACL file.
+	 * 
+	 * @param f SHACL file
+	 * @param compiled compiled shapes file
+	 * @return node shapes
+	 * @throws IOException 
+	 */
+	private static Map<Resource,ShaclNodeShape> parse(File f, File compiled) throws IOException {
+		byte[] hash = ShaclShapesBinary.hash(f);
+		if (compiled.exists()) {
+			try (InputStream is = new BufferedInputStream(new FileInputStream(compiled))) {
+				return ShaclShapesBinary.read(is, hash);
+			} catch (ShaclParserException spe) {
+				LOG.info("Compiling shapes again: {}", spe.getMessage());
+			}
+		}
+		Map<Resource,ShaclNodeShape> shapes = parse(f);
+		
+		// write to a temporary file first, other processes may be reading the compiled file
+		Path dir = compiled.getAbsoluteFile().toPath().getParent();
+		Path tmp = Files.createTempFile(dir, compiled.getName(), ".tmp");
+		try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+			ShaclShapesBinary.write(shapes, hash, os);
+		}
+		Files.move(tmp, compiled.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return shapes;
+	}
+	
+	/**
+	 * Get a builder for a validator of a SHACL file
+	 * 
+	 * @param f SHACL file
+	 * @return builder
+	 * @throws IOException 
+	 */
+	public static Builder builder(File f) throws IOException {
+		return new Builder(parse(f));
+	}
+	
+	/**
+	 * Get a builder for a validator using compiled shapes to avoid parsing the SHACL file.
+	 * The compiled shapes are written when missing or out of date.
+	 * 
+	 * @param f SHACL file
+	 * @param compiled compiled shapes file
+	 * @return builder
+	 * @throws IOException 
+	 */
+	public static Builder builder(File f, File compiled) throws IOException {
+		return new Builder(parse(f, compiled));
+	}
+	
+	/**
+	 * Get a builder for a validator of a SHACL inputstream
 	 * 
 	 * @param is SHACL inputstream
 	 * @param fmt format
+	 * @return builder
 	 * @throws IOException 
 	 */
-	public ShaclValidator(InputStream is, RDFFormat fmt) throws IOException {
+	public static Builder builder(InputStream is, RDFFormat fmt) throws IOException {
 		Model m = Rio.parse(is, "http://localhost", fmt);
-		this.shapes = ShaclParser.parse(m);
+		return new Builder(ShaclParser.parse(m));
+	}
+	
+	/**
+	 * Get a builder for a validator of parsed node shapes
+	 * 
+	 * @param shapes set of node shapes
+	 * @return builder
+	 */
+	public static Builder builder(Map<Resource,ShaclNodeShape> shapes) {
+		return new Builder(shapes);
+	}
+	
+	/**
+	 * Constructor, with default options
+	 * 
+	 * @param f SHACL file
+	 * @throws java.io.IOException
+	 */
+	public ShaclValidator(File f) throws IOException {
+		this(builder(f));
+	}
+	
+	/**
+	 * Constructor, with default options, using compiled shapes to avoid parsing the SHACL file.
+	 * The compiled shapes are written when missing or out of date.
+	 * 
+	 * @param f SHACL file
+	 * @param compiled compiled shapes file
+	 * @throws java.io.IOException
+	 */
+	public ShaclValidator(File f, File compiled) throws IOException {
+		this(builder(f, compiled));
+	}
+	
+	/**
+	 * Constructor, with default options
+	 * 
+	 * @param is SHACL inputstream
+	 * @param fmt format
+	 * @throws IOException 
+	 */
+	public ShaclValidator(InputStream is, RDFFormat fmt) throws IOException {
+		this(builder(is, fmt));
 	}
 
 	/**
-	 * Constructor
+	 * Constructor, with default options
 	 * 
 	 * @param shapes set of node shapes
 	 */
 	public ShaclValidator(Map<Resource,ShaclNodeShape> shapes) {
-		this.shapes = shapes;
+		this(builder(shapes));
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param b builder
+	 */
+	private ShaclValidator(Builder b) {
+		this.shapes = b.shapes;
+		this.pool = b.pool;
+		this.listener = b.listener;
+		this.metrics = b.metrics;
+		this.cache = b.cache;
+		this.patternBudget = b.patternBudget;
+		this.maxViolations = b.maxViolations;
+		this.encoded = b.encoded;
+		this.subClassOf = b.subClassOf;
+		this.mappedDir = b.mappedDir;
+		this.grouped = b.grouped;
+		this.chunked = b.chunked;
+		this.sortBudget = b.sortBudget;
+		this.maxInstances = b.maxInstances;
 	}
 }
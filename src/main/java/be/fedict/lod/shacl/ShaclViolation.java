@@ -39,14 +39,69 @@ import org.eclipse.rdf4j.model.Value;
  */
 public class ShaclViolation {
 	private final ShaclConstraint constraint;
+	private final IRI component;
 	private final Resource subj;
 	private final IRI pred;
 	private final Value obj;
 	
+	/**
+	 * Get the violated constraint
+	 * 
+	 * @return constraint
+	 */
+	public ShaclConstraint getConstraint() {
+		return constraint;
+	}
+	
+	/**
+	 * Get the SHACL constraint component, e.g. sh:MinCountConstraintComponent
+	 * 
+	 * @return component IRI
+	 */
+	public IRI getComponent() {
+		return component;
+	}
+	
+	/**
+	 * Get the ID of the (property) shape containing the constraint
+	 * 
+	 * @return shape ID or null
+	 */
+	public Resource getShape() {
+		return (constraint.getShape() != null) ? constraint.getShape().getID() : null;
+	}
+	
+	/**
+	 * Get the focus node
+	 * 
+	 * @return focus node or null
+	 */
+	public Resource getFocusNode() {
+		return subj;
+	}
+	
+	/**
+	 * Get the path
+	 * 
+	 * @return path or null
+	 */
+	public IRI getPath() {
+		return pred;
+	}
+	
+	/**
+	 * Get the value causing the violation
+	 * 
+	 * @return value or null
+	 */
+	public Value getValue() {
+		return obj;
+	}
+	
 	@Override
 	public String toString() {
 		return String.format("%s (%s) [%s %s %s]", 
-			constraint.getClass().getSimpleName(), constraint.getShape().getID(), 
+			constraint.getClass().getSimpleName(), getShape(), 
 			(subj != null) ? subj : "", (pred != null) ? pred : "", (obj != null) ? obj : "");
 	}
 
@@ -69,7 +124,21 @@ public class ShaclViolation {
 	 * @param o predicate
 	 */
 	public ShaclViolation(ShaclConstraint constraint, Resource s, IRI p, Value o) {
+		this(constraint, constraint.getComponent(), s, p, o);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param constraint
+	 * @param component constraint component
+	 * @param s subject
+	 * @param p object
+	 * @param o predicate
+	 */
+	public ShaclViolation(ShaclConstraint constraint, IRI component, Resource s, IRI p, Value o) {
 		this.constraint = constraint;
+		this.component = component;
 		this.subj = s;
 		this.pred = p;
 		this.obj = o;
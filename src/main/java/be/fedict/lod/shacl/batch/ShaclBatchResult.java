@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.batch;
+
+import java.nio.file.Path;
+
+/**
+ * Result of validating one file in batch mode
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclBatchResult {
+	private final Path file;
+	private final long violations;
+	private final String error;
+	
+	/**
+	 * Get the validated file
+	 * 
+	 * @return file
+	 */
+	public Path getFile() {
+		return file;
+	}
+	
+	/**
+	 * Get the number of violations
+	 * 
+	 * @return number of violations, or -1 in case of an error
+	 */
+	public long getViolations() {
+		return violations;
+	}
+	
+	/**
+	 * Get the error message, e.g. when the file could not be parsed
+	 * 
+	 * @return error message or null
+	 */
+	public String getError() {
+		return error;
+	}
+	
+	/**
+	 * Check if the file could be validated and conforms to the shapes
+	 * 
+	 * @return true if conforms
+	 */
+	public boolean conforms() {
+		return violations == 0;
+	}
+	
+	@Override
+	public String toString() {
+		return (error != null) ? file + "\terror\t\t" + error.replaceAll("\\s+", " ")
+								: file + "\t" + (conforms() ? "conforms" : "violations") + "\t" + violations + "\t";
+	}
+	
+	/**
+	 * Constructor for a validated file
+	 * 
+	 * @param file file
+	 * @param violations number of violations
+	 */
+	public ShaclBatchResult(Path file, long violations) {
+		this.file = file;
+		this.violations = violations;
+		this.error = null;
+	}
+	
+	/**
+	 * Constructor for a file that could not be validated
+	 * 
+	 * @param file file
+	 * @param error error message
+	 */
+	public ShaclBatchResult(Path file, String error) {
+		this.file = file;
+		this.violations = -1;
+		this.error = (error != null) ? error : "unknown error";
+	}
+}
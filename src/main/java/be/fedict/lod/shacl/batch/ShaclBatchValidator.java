@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.batch;
+
+import be.fedict.lod.shacl.ShaclValidator;
+import be.fedict.lod.shacl.report.ShaclValidationReport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validate many files in parallel against the same shapes.
+ * 
+ * The shapes are parsed only once, the files are validated on a fixed number of threads.
+ * A file that cannot be read or parsed is recorded as an error, and does not stop the batch.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclBatchValidator {
+	private final static Logger LOG = LoggerFactory.getLogger(ShaclBatchValidator.class);
+	public final static String SUMMARY = "summary.tsv";
+	
+	private final ShaclValidator validator;
+	private final int threads;
+	private Path reportDir = null;
+	private long progress = 1000;
+	
+	/**
+	 * Get the directory for the reports
+	 * 
+	 * @return directory or null
+	 */
+	public Path getReportDir() {
+		return reportDir;
+	}
+	
+	/**
+	 * Set the directory for the summary and the reports per file.
+	 * When set to null (default), no reports are written.
+	 * 
+	 * @param dir directory or null
+	 */
+	public void setReportDir(Path dir) {
+		this.reportDir = dir;
+	}
+	
+	/**
+	 * Get the number of files between progress messages
+	 * 
+	 * @return number of files
+	 */
+	public long getProgress() {
+		return progress;
+	}
+	
+	/**
+	 * Set the number of files between progress messages
+	 * 
+	 * @param progress number of files
+	 */
+	public void setProgress(long progress) {
+		this.progress = progress;
+	}
+	
+	/**
+	 * Check if a string contains glob characters
+	 * 
+	 * @param s string
+	 * @return true if glob
+	 */
+	private static boolean isGlob(String s) {
+		return s.indexOf('*') >= 0 || s.indexOf('?') >= 0 || s.indexOf('[') >= 0 || s.indexOf('{') >= 0;
+	}
+	
+	/**
+	 * Add the regular files of a directory, recursively
+	 * 
+	 * @param dir directory
+	 * @param matcher matcher for the path relative to the directory, or null
+	 * @param files list of files to add to
+	 * @throws IOException 
+	 */
+	private static void walk(Path dir, PathMatcher matcher, List<Path> files) throws IOException {
+		try (Stream<Path> s = Files.walk(dir)) {
+			files.addAll(s.filter(Files::isRegularFile)
+							.filter(p -> matcher == null || matcher.matches(dir.relativize(p)))
+							.sorted()
+							.collect(Collectors.toList()));
+		}
+	}
+	
+	/**
+	 * Expand arguments to a list of files.
+	 * An argument can be a file, a directory (validating all files in it), 
+	 * a glob pattern like data/**.ttl or a file list starting with @ (one file per line).
+	 * 
+	 * @param args arguments
+	 * @return list of files
+	 * @throws IOException 
+	 */
+	public static List<Path> expand(List<String> args) throws IOException {
+		List<Path> files = new ArrayList<>();
+		
+		for (String arg: args) {
+			if (arg.startsWith("@")) {
+				try (Stream<String> lines = Files.lines(Paths.get(arg.substring(1)), StandardCharsets.UTF_8)) {
+					lines.map(String::trim).filter(l -> !l.isEmpty())
+						.forEach(l -> files.add(Paths.get(l)));
+				}
+			} else if (isGlob(arg)) {
+				// base directory is the part before the first glob character
+				int glob = 0;
+				while (! isGlob(String.valueOf(arg.charAt(glob)))) {
+					glob++;
+				}
+				int sep = arg.lastIndexOf('/', glob);
+				Path base = Paths.get((sep >= 0) ? arg.substring(0, sep + 1) : ".");
+				String pattern = arg.substring(sep + 1);
+				walk(base, FileSystems.getDefault().getPathMatcher("glob:" + pattern), files);
+			} else {
+				Path p = Paths.get(arg);
+				if (Files.isDirectory(p)) {
+					walk(p, null, files);
+				} else {
+					files.add(p);
+				}
+			}
+		}
+		return files;
+	}
+	
+	/**
+	 * Get the report file for a data file, mirroring the path of the data file
+	 * 
+	 * @param file data file
+	 * @return report file
+	 */
+	private Path getReport(Path file) {
+		Path abs = file.toAbsolutePath().normalize();
+		Path cwd = Paths.get("").toAbsolutePath();
+		Path rel = abs.startsWith(cwd) ? cwd.relativize(abs) : abs.getRoot().relativize(abs);
+		return reportDir.resolve(rel.toString() + ".report.ttl");
+	}
+	
+	/**
+	 * Validate one file, writing the report if needed
+	 * 
+	 * @param file file
+	 * @return result
+	 */
+	private ShaclBatchResult validate(Path file) {
+		try {
+			RDFFormat fmt = Rio.getParserFormatForFileName(file.toString())
+								.orElseThrow(() -> new IOException("File type not supported"));
+			ShaclValidationReport report;
+			try (InputStream is = new BufferedInputStream(Files.newInputStream(file))) {
+				report = validator.report(is, fmt);
+			}
+			if (reportDir != null) {
+				Path out = getReport(file);
+				Files.createDirectories(out.getParent());
+				try (OutputStream os = Files.newOutputStream(out)) {
+					Rio.write(report.toModel(), os, RDFFormat.TURTLE);
+				}
+			}
+			return new ShaclBatchResult(file, report.size());
+		} catch (IOException|RuntimeException e) {
+			LOG.warn("Could not validate {}: {}", file, e.getMessage());
+			return new ShaclBatchResult(file, e.getMessage());
+		}
+	}
+	
+	/**
+	 * Write the summary, one line per file
+	 * 
+	 * @param results results
+	 * @throws IOException 
+	 */
+	private void writeSummary(List<ShaclBatchResult> results) throws IOException {
+		Files.createDirectories(reportDir);
+		try (BufferedWriter w = Files.newBufferedWriter(reportDir.resolve(SUMMARY), StandardCharsets.UTF_8)) {
+			w.write("file\tstatus\tviolations\terror");
+			w.newLine();
+			for (ShaclBatchResult r: results) {
+				w.write(r.toString());
+				w.newLine();
+			}
+		}
+	}
+	
+	/**
+	 * Validate files in parallel.
+	 * 
+	 * @param files files
+	 * @return results, in the same order as the files
+	 * @throws IOException when the summary could not be written
+	 */
+	public List<ShaclBatchResult> validate(List<Path> files) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		AtomicLong done = new AtomicLong();
+		long start = System.currentTimeMillis();
+		
+		List<Future<ShaclBatchResult>> futures = new ArrayList<>(files.size());
+		for (Path file: files) {
+			futures.add(executor.submit(() -> {
+				ShaclBatchResult r = validate(file);
+				long n = done.incrementAndGet();
+				if (progress > 0 && n % progress == 0) {
+					LOG.info("Validated {} of {} files", n, files.size());
+				}
+				return r;
+			}));
+		}
+		
+		List<ShaclBatchResult> results = new ArrayList<>(files.size());
+		try {
+			for (Future<ShaclBatchResult> f: futures) {
+				results.add(f.get());
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Batch interrupted", ie);
+		} catch (ExecutionException ee) {
+			throw new IOException(ee.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		long errors = results.stream().filter(r -> r.getError() != null).count();
+		long violations = results.stream().filter(r -> r.getViolations() > 0).count();
+		LOG.info("Validated {} files in {} ms: {} with violations, {} errors", 
+			files.size(), System.currentTimeMillis() - start, violations, errors);
+		
+		if (reportDir != null) {
+			writeSummary(results);
+		}
+		return results;
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param validator validator, shared by all threads
+	 * @param threads number of files to validate in parallel
+	 */
+	public ShaclBatchValidator(ShaclValidator validator, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1");
+		}
+		this.validator = validator;
+		this.threads = threads;
+	}
+}
@@ -25,8 +25,11 @@
  */
 package be.fedict.lod.shacl.constraints;
 
-import be.fedict.lod.shacl.ShaclViolation;
+import be.fedict.lod.shacl.ShaclContext;
 import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
+import be.fedict.lod.shacl.store.ShaclEncodedData;
+
+import java.util.HashSet;
 import java.util.Set;
 
 import org.eclipse.rdf4j.model.IRI;
@@ -35,20 +38,13 @@ import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 /**
  * Abstract SHACL constraint.
  * 
  * @author Bart Hanssens
  */
 public abstract class ShaclConstraint {
-	private final static Logger LOG = LoggerFactory.getLogger(ShaclConstraint.class);
-	
 	private ShaclPropertyShape shape;
-	private int errors = 0;
-		
 
 	public ShaclPropertyShape getShape() {
 		return this.shape;
@@ -59,71 +55,168 @@ public abstract class ShaclConstraint {
 	}
 
 	/**
-	 * Clear the violations counter
+	 * Get the path of the property shape
+	 * 
+	 * @return path or null
 	 */
-	public void clearViolations() {
-		this.errors = 0;
+	private IRI getShapePath() {
+		return (shape != null) ? shape.getPath() : null;
 	}
 	
 	/**
-	 * Check the violations counter
+	 * Get the SHACL constraint component, e.g. sh:ClassConstraintComponent
 	 * 
-	 * @return true when violations occurred
+	 * @return component IRI
 	 */
-	public boolean hasViolations() {
-		return (this.errors > 0);
-	}
+	public abstract IRI getComponent();
 	
 	/**
-	 * Add a violation
+	 * Add a violation.
 	 * 
-	 * @param violation 
+	 * @param ctx validation context
+	 * @param constraint
+	 * @param s subject causing the violation
 	 */
-	protected void addViolation(ShaclViolation violation) {
-		errors++;
-		LOG.error("Violation {}", violation);
-	}	
-
+	protected void addViolation(ShaclContext ctx, ShaclConstraint constraint, Resource s) {
+		ctx.addViolation(constraint, getComponent(), s, getShapePath(), null);
+	}
+	
 	/**
 	 * Add a violation.
 	 * 
+	 * @param ctx validation context
 	 * @param constraint
-	 * @param v value causing the violation
+	 * @param s statement causing the violation
 	 */
-	protected void addViolation(ShaclConstraint constraint, Value v) {
-		addViolation(new ShaclViolation(constraint, null, null, v));		
+	protected void addViolation(ShaclContext ctx, ShaclConstraint constraint, Statement s) {
+		addViolation(ctx, constraint, getComponent(), s);
 	}
-	
+
 	/**
 	 * Add a violation.
 	 * 
+	 * @param ctx validation context
 	 * @param constraint
-	 * @param s subject causing the violation
+	 * @param component constraint component
+	 * @param s statement causing the violation
 	 */
-	protected void addViolation(ShaclConstraint constraint, Resource s) {
-		addViolation(new ShaclViolation(constraint, s, null, null));		
+	protected void addViolation(ShaclContext ctx, ShaclConstraint constraint, IRI component, 
+								Statement s) {
+		ctx.addViolation(constraint, component, s.getSubject(), s.getPredicate(), s.getObject());
 	}
 	
 	/**
 	 * Add a violation.
 	 * 
-	 * @param constraint
-	 * @param s statement causing the violation
+	 * @param ctx validation context
+	 * @param constraint constraint
+	 * @param s subject
+	 * @param p predicate
 	 */
-	protected void addViolation(ShaclConstraint constraint, Statement s) {
-		addViolation(new ShaclViolation(constraint, s));		
+	protected void addViolation(ShaclContext ctx, ShaclConstraint constraint, Resource s, IRI p) {
+		addViolation(ctx, constraint, getComponent(), s, p);
 	}
-
+	
 	/**
 	 * Add a violation.
 	 * 
+	 * @param ctx validation context
 	 * @param constraint constraint
+	 * @param component constraint component
 	 * @param s subject
 	 * @param p predicate
 	 */
-	protected void addViolation(ShaclConstraint constraint, Resource s, IRI p) {
-		addViolation(new ShaclViolation(constraint, s, p, null));
+	protected void addViolation(ShaclContext ctx, ShaclConstraint constraint, IRI component,
+								Resource s, IRI p) {
+		ctx.addViolation(constraint, component, s, p, null);
+	}
+	
+	/**
+	 * Add a violation, decoding the IDs of encoded data.
+	 * 
+	 * @param ctx validation context
+	 * @param constraint constraint
+	 * @param component constraint component
+	 * @param data encoded data
+	 * @param s subject ID
+	 * @param p predicate ID
+	 * @param o object ID or -1
+	 */
+	protected void addViolation(ShaclContext ctx, ShaclConstraint constraint, IRI component,
+								ShaclEncodedData data, int s, int p, int o) {
+		Value obj = (o >= 0) ? data.getTerm(o) : null;
+		ctx.addViolation(constraint, component, (Resource) data.getTerm(s), 
+						(IRI) data.getTerm(p), obj);
+	}
+	
+	/**
+	 * Validate the constraint, adding violations to the context
+	 * 
+	 * @param ctx validation context
+	 * @param m statements of the targets, filtered on property path
+	 * @param targets targets
+	 */
+	protected abstract void validate(ShaclContext ctx, Model m, Set<Resource> targets);
+	
+	/**
+	 * Validate the constraint on encoded data, adding violations to the context.
+	 * By default the statements are decoded and validated as a model,
+	 * constraints can override this to work on the IDs.
+	 * 
+	 * @param ctx validation context
+	 * @param data encoded data
+	 * @param subjs sorted IDs of the targets
+	 * @param from first target (inclusive)
+	 * @param to last target (exclusive)
+	 * @param path ID of the property path, or -1 when not in the data
+	 */
+	protected void validate(ShaclContext ctx, ShaclEncodedData data, int[] subjs, 
+							int from, int to, int path) {
+		Set<Resource> targets = new HashSet<>(to - from);
+		for (int i = from; i < to; i++) {
+			targets.add((Resource) data.getTerm(subjs[i]));
+		}
+		validate(ctx, data.select(subjs, from, to, path), targets);
+	}
+	
+	/**
+	 * Validate a part of the targets in encoded data.
+	 * Can be called concurrently for different parts of the targets.
+	 * 
+	 * @param ctx validation context
+	 * @param data encoded data
+	 * @param subjs sorted IDs of the targets
+	 * @param from first target (inclusive)
+	 * @param to last target (exclusive)
+	 * @param path ID of the property path, or -1 when not in the data
+	 */
+	public void validatePart(ShaclContext ctx, ShaclEncodedData data, int[] subjs, 
+							int from, int to, int path) {
+		validate(ctx, data, subjs, from, to, path);
 	}
 	
-	public abstract boolean isValid(Model m, Set<Resource> targets);
+	/**
+	 * Validate a part of the targets.
+	 * Can be called concurrently for different parts of the targets.
+	 * 
+	 * @param ctx validation context
+	 * @param m statements of the targets, filtered on property path
+	 * @param targets part of the targets
+	 */
+	public void validatePart(ShaclContext ctx, Model m, Set<Resource> targets) {
+		validate(ctx, m, targets);
+	}
+	
+	/**
+	 * Validate the constraint
+	 * 
+	 * @param ctx validation context
+	 * @param m statements of the targets, filtered on property path
+	 * @param targets targets
+	 * @return true when valid
+	 */
+	public boolean isValid(ShaclContext ctx, Model m, Set<Resource> targets) {
+		validate(ctx, m, targets);
+		return (ctx.getViolations(this) == 0);
+	}
 }
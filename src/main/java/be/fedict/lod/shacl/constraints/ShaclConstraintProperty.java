@@ -25,11 +25,7 @@
  */
 package be.fedict.lod.shacl.constraints;
 
-import java.util.Set;
-
 import org.eclipse.rdf4j.model.IRI;
-import org.eclipse.rdf4j.model.Model;
-import org.eclipse.rdf4j.model.Resource;
 
 /**
  * Abstract SHACL Property Shape Constraint.
@@ -50,13 +46,4 @@ public abstract class ShaclConstraintProperty extends ShaclConstraint {
 		IRI path = getPath();
 		return (path != null) ? path.toString() : "";
 	}
-
-	protected abstract void validate(Model m, Set<Resource> targets);
-
-	@Override
-	public boolean isValid(Model m, Set<Resource> targets) {
-		clearViolations();
-		validate(m, targets);
-		return !hasViolations();
-	}
 }
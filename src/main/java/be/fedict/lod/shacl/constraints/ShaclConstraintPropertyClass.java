@@ -25,15 +25,17 @@
  */
 package be.fedict.lod.shacl.constraints;
 
-import be.fedict.lod.shacl.ShaclValidator;
+import be.fedict.lod.shacl.ShaclContext;
+import be.fedict.lod.shacl.ShaclData;
+import be.fedict.lod.shacl.store.ShaclEncodedData;
 
 import java.util.Set;
 
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Resource;
-import org.eclipse.rdf4j.model.Value;
-import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
 
 /**
  * Check if subject is of a certain RDF class.
@@ -49,15 +51,43 @@ public class ShaclConstraintPropertyClass extends ShaclConstraintProperty {
 			this.getClass().getSimpleName(), getPathStr(), cl);
 	}
 
+	/**
+	 * Get the required RDF class
+	 * 
+	 * @return class IRI
+	 */
+	public IRI getRDFClass() {
+		return this.cl;
+	}
+
 	@Override
-	protected void validate(Model m, Set<Resource> targets) {
-		Set<? extends Value> all = ShaclValidator.select(m, targets, getPath()).objects();
-		Set<? extends Value> checked = m.filter(null, RDF.TYPE, cl).subjects();
-		
-		all.removeAll(checked);
+	public IRI getComponent() {
+		return SHACL.CLASS_CONSTRAINT_COMPONENT;
+	}
+
+	@Override
+	protected void validate(ShaclContext ctx, Model m, Set<Resource> targets) {
+		ShaclData data = ctx.getData();
 		
-		for(Value v: all) {
-			addViolation(this, (Resource) v);
+		for(Statement s: m) {
+			if (! data.hasType(s.getObject(), cl)) {
+				addViolation(ctx, this, s);
+			}
+		}
+	}
+	
+	@Override
+	protected void validate(ShaclContext ctx, ShaclEncodedData data, int[] subjs, 
+							int from, int to, int path) {
+		int id = data.getID(cl);
+		for (int i = from; i < to; i++) {
+			int end = data.lowerBound(subjs[i], path + 1);
+			for (int j = data.lowerBound(subjs[i], path); j < end; j++) {
+				int o = data.object(j);
+				if (id < 0 || !data.hasType(o, id)) {
+					addViolation(ctx, this, getComponent(), data, subjs[i], path, o);
+				}
+			}
 		}
 	}
 	
@@ -25,10 +25,15 @@
  */
 package be.fedict.lod.shacl.constraints;
 
+import be.fedict.lod.shacl.ShaclContext;
+import be.fedict.lod.shacl.store.ShaclEncodedData;
+
 import java.util.Set;
 
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
 
 /**
  * Check if a property occurs between min and max times.
@@ -63,12 +68,51 @@ public class ShaclConstraintPropertyCount extends ShaclConstraintProperty {
 		return this.max;
 	}
 	
+	/**
+	 * Check if number of occurrences is within bounds
+	 * 
+	 * @param cnt number of occurrences
+	 * @return true when valid
+	 */
+	public boolean isValidCount(int cnt) {
+		return (cnt >= min && cnt <= max);
+	}
+	
 	@Override
-	protected void validate(Model m, Set<Resource> targets) {
+	public IRI getComponent() {
+		return (min > 0) ? SHACL.MIN_COUNT_CONSTRAINT_COMPONENT 
+						: SHACL.MAX_COUNT_CONSTRAINT_COMPONENT;
+	}
+	
+	/**
+	 * Get the constraint component violated by a number of occurrences
+	 * 
+	 * @param cnt number of occurrences
+	 * @return component IRI
+	 */
+	public IRI getComponent(int cnt) {
+		return (cnt < min) ? SHACL.MIN_COUNT_CONSTRAINT_COMPONENT 
+							: SHACL.MAX_COUNT_CONSTRAINT_COMPONENT;
+	}
+	
+	@Override
+	protected void validate(ShaclContext ctx, Model m, Set<Resource> targets) {
 		for (Resource subj: targets) {
 			int cnt = m.filter(subj, getPath(), null).size();
-			if (cnt < min || cnt > max) {			
-				addViolation(this, subj, getPath());
+			if (! isValidCount(cnt)) {
+				addViolation(ctx, this, getComponent(cnt), subj, getPath());
+			}
+		}
+	}
+	
+	@Override
+	protected void validate(ShaclContext ctx, ShaclEncodedData data, int[] subjs, 
+							int from, int to, int path) {
+		for (int i = from; i < to; i++) {
+			int cnt = data.lowerBound(subjs[i], path + 1) - data.lowerBound(subjs[i], path);
+			if (! isValidCount(cnt)) {
+				addViolation(ctx, this, getComponent(cnt), 
+							(Resource) data.getTerm(subjs[i]), getPath());
 			}
 		}
 	}
@@ -25,16 +25,21 @@
  */
 package be.fedict.lod.shacl.constraints;
 
+import be.fedict.lod.shacl.ShaclContext;
+import be.fedict.lod.shacl.store.ShaclEncodedData;
+
 import java.util.Set;
+import java.util.function.Predicate;
+
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
-import org.eclipse.rdf4j.model.datatypes.XMLDatatypeUtil;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
 
 /**
  * Check the property data type
@@ -43,6 +48,8 @@ import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
  */
 public class ShaclConstraintPropertyDatatype extends ShaclConstraintProperty {
 	private final IRI datatype;
+	private final boolean string;
+	private final Predicate<String> checker;
 	
 	@Override
 	public String toString() {
@@ -60,54 +67,63 @@ public class ShaclConstraintPropertyDatatype extends ShaclConstraintProperty {
 	}
 	
 	/**
-	 * Validate the data type
+	 * Check a single value
 	 * 
 	 * @param v object value
-	 * @param datatype required datatype
 	 * @return true when valid
 	 */
-	private boolean validateDataType(Value v, IRI datatype) {
-		if (v == null) {
-			return false;
-		}
+	public boolean isValidValue(Value v) {
 		if (! (v instanceof Literal)) {
 			return false;
 		}
 		// compare datatypes, also accepting language string type if checking for regular string
 		IRI t = ((Literal) v).getDatatype();
-		if (!datatype.equals(t) && 
-			!(datatype.equals(XMLSchema.STRING) && t.equals(RDF.LANGSTRING))) {
+		if (!datatype.equals(t) && !(string && t.equals(RDF.LANGSTRING))) {
 			return false;
 		}
-		
-		String s = v.stringValue();
-
-		if (datatype.equals(XMLSchema.BOOLEAN)) {
-			return XMLDatatypeUtil.isValidBoolean(s);
-		}
-		if (datatype.equals(XMLSchema.INT)) {
-			return XMLDatatypeUtil.isValidInt(s);
-		}
-		if (datatype.equals(XMLSchema.INTEGER)) {
-			return XMLDatatypeUtil.isValidInteger(s);
-		}
-		if (datatype.equals(XMLSchema.DATE)) {
-			return XMLDatatypeUtil.isValidDate(s);
-		}
-		if (datatype.equals(XMLSchema.DATETIME)) {
-			return XMLDatatypeUtil.isValidDateTime(s);
-		}
-		if (datatype.equals(XMLSchema.ANYURI)) {
-			return XMLDatatypeUtil.isValidAnyURI(s);
+		return checker.test(v.stringValue());
+	}
+	
+	/**
+	 * Check a single value, using the cache of results
+	 * 
+	 * @param v object value
+	 * @param cache cache or null
+	 * @return true when valid
+	 */
+	public boolean isValidValue(Value v, ShaclValueCache cache) {
+		if (cache == null) {
+			return isValidValue(v);
 		}
-		return true;
+		return cache.get(this, v, x -> isValidValue(x) ? null : getComponent()) == null;
+	}
+	
+	@Override
+	public IRI getComponent() {
+		return SHACL.DATATYPE_CONSTRAINT_COMPONENT;
 	}
 	
 	@Override
-	protected void validate(Model m, Set<Resource> targets) {
+	protected void validate(ShaclContext ctx, Model m, Set<Resource> targets) {
+		ShaclValueCache cache = ctx.getCache();
 		for(Statement s: m) {
-			if (! validateDataType(s.getObject(), this.datatype)) {
-				addViolation(this, s);
+			if (! isValidValue(s.getObject(), cache)) {
+				addViolation(ctx, this, s);
+			}
+		}
+	}
+	
+	@Override
+	protected void validate(ShaclContext ctx, ShaclEncodedData data, int[] subjs, 
+							int from, int to, int path) {
+		ShaclValueCache cache = ctx.getCache();
+		for (int i = from; i < to; i++) {
+			int end = data.lowerBound(subjs[i], path + 1);
+			for (int j = data.lowerBound(subjs[i], path); j < end; j++) {
+				int o = data.object(j);
+				if (! isValidValue(data.getTerm(o), cache)) {
+					addViolation(ctx, this, getComponent(), data, subjs[i], path, o);
+				}
 			}
 		}
 	}
@@ -119,5 +135,7 @@ public class ShaclConstraintPropertyDatatype extends ShaclConstraintProperty {
 	 */
 	public ShaclConstraintPropertyDatatype(IRI datatype) {
 		this.datatype = datatype;
+		this.string = datatype.equals(XMLSchema.STRING);
+		this.checker = ShaclDatatypeCheckers.checker(datatype);
 	}
 }
@@ -25,6 +25,7 @@
  */
 package be.fedict.lod.shacl.constraints;
 
+import be.fedict.lod.shacl.ShaclContext;
 import be.fedict.lod.shacl.ShaclValidator;
 
 import java.util.Set;
@@ -34,6 +35,7 @@ import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
 
 /**
  * Check if subject is of a certain RDF class.
@@ -50,7 +52,21 @@ public class ShaclConstraintPropertyNode extends ShaclConstraintProperty {
 	}
 
 	@Override
-	protected void validate(Model m, Set<Resource> targets) {
+	public IRI getComponent() {
+		return SHACL.NODE_CONSTRAINT_COMPONENT;
+	}
+	
+	/**
+	 * Get the ID of the node shape
+	 * 
+	 * @return node shape ID
+	 */
+	public Resource getNode() {
+		return this.node;
+	}
+
+	@Override
+	protected void validate(ShaclContext ctx, Model m, Set<Resource> targets) {
 		//
 	}
 	
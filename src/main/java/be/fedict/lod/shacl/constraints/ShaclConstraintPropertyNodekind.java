@@ -25,6 +25,9 @@
  */
 package be.fedict.lod.shacl.constraints;
 
+import be.fedict.lod.shacl.ShaclContext;
+import be.fedict.lod.shacl.store.ShaclEncodedData;
+
 import java.util.Set;
 import org.eclipse.rdf4j.model.BNode;
 import org.eclipse.rdf4j.model.IRI;
@@ -57,6 +60,16 @@ public class ShaclConstraintPropertyNodekind extends ShaclConstraintProperty {
 		return this.nodekind;
 	}
 	
+	/**
+	 * Check a single value
+	 * 
+	 * @param v object value
+	 * @return true when valid
+	 */
+	public boolean isValidValue(Value v) {
+		return validateNodeKind(v, this.nodekind);
+	}
+	
 	/**
 	 * Validate the data type
 	 * 
@@ -88,10 +101,29 @@ public class ShaclConstraintPropertyNodekind extends ShaclConstraintProperty {
 	}
 
 	@Override
-	protected void validate(Model m, Set<Resource> targets) {
+	public IRI getComponent() {
+		return SHACL.NODE_KIND_CONSTRAINT_COMPONENT;
+	}
+	
+	@Override
+	protected void validate(ShaclContext ctx, Model m, Set<Resource> targets) {
 		for(Statement s: m) {
-			if (! validateNodeKind(s.getObject(), this.nodekind)) {
-				addViolation(this, s);
+			if (! isValidValue(s.getObject())) {
+				addViolation(ctx, this, s);
+			}
+		}
+	}
+	
+	@Override
+	protected void validate(ShaclContext ctx, ShaclEncodedData data, int[] subjs, 
+							int from, int to, int path) {
+		for (int i = from; i < to; i++) {
+			int end = data.lowerBound(subjs[i], path + 1);
+			for (int j = data.lowerBound(subjs[i], path); j < end; j++) {
+				int o = data.object(j);
+				if (! isValidValue(data.getTerm(o))) {
+					addViolation(ctx, this, getComponent(), data, subjs[i], path, o);
+				}
 			}
 		}
 	}
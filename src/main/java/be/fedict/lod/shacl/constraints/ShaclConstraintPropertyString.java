@@ -25,6 +25,9 @@
  */
 package be.fedict.lod.shacl.constraints;
 
+import be.fedict.lod.shacl.ShaclContext;
+import be.fedict.lod.shacl.store.ShaclEncodedData;
+
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -34,6 +37,8 @@ import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
 
 /**
  * Check if object value follows language count and pattern.
@@ -44,6 +49,7 @@ public class ShaclConstraintPropertyString extends ShaclConstraintProperty {
 	private final int min;
 	private final int max;
 	private final Pattern pattern;
+	private final ShaclPatternMatcher matcher;
 
 	@Override
 	public String toString() {
@@ -53,26 +59,136 @@ public class ShaclConstraintPropertyString extends ShaclConstraintProperty {
 	}
 
 	@Override
-	protected void validate(Model m, Set<Resource> targets) {
-		for (Statement s: m) {
-			Value v = s.getObject();
-			if (! (v instanceof Literal)) {
-				addViolation(this, s);
-				continue;
-			}
-			Literal l = (Literal) v;
-			if (! l.getDatatype().equals(XMLSchema.STRING)) {
-				addViolation(this, s);
-			}
+	public IRI getComponent() {
+		return (pattern != null) ? SHACL.PATTERN_CONSTRAINT_COMPONENT
+				: (min > 0) ? SHACL.MIN_LENGTH_CONSTRAINT_COMPONENT 
+							: SHACL.MAX_LENGTH_CONSTRAINT_COMPONENT;
+	}
+	
+	/**
+	 * Get minimum length
+	 * 
+	 * @return 0 or more
+	 */
+	public int getMinLength() {
+		return this.min;
+	}
+	
+	/**
+	 * Get maximum length
+	 * 
+	 * @return max(int) or less
+	 */
+	public int getMaxLength() {
+		return this.max;
+	}
+	
+	/**
+	 * Get pattern
+	 * 
+	 * @return pattern or null
+	 */
+	public Pattern getPattern() {
+		return this.pattern;
+	}
+	
+	/**
+	 * Get the linear-time matcher for the pattern
+	 * 
+	 * @return matcher or null
+	 */
+	public ShaclPatternMatcher getMatcher() {
+		return this.matcher;
+	}
+	
+	/**
+	 * Get the constraint component violated by a single value
+	 * 
+	 * @param v object value
+	 * @return component IRI or null when valid
+	 */
+	public IRI getViolatedComponent(Value v) {
+		return getViolatedComponent(v, (ShaclPatternBudget) null);
+	}
+	
+	/**
+	 * Get the constraint component violated by a single value, 
+	 * matching patterns within a budget
+	 * 
+	 * @param v object value
+	 * @param budget pattern budget or null
+	 * @return component IRI or null when valid
+	 */
+	private IRI getViolatedComponent(Value v, ShaclPatternBudget budget) {
+		if (! (v instanceof Literal)) {
+			return SHACL.DATATYPE_CONSTRAINT_COMPONENT;
+		}
+		Literal l = (Literal) v;
+		if (! l.getDatatype().equals(XMLSchema.STRING)) {
+			return SHACL.DATATYPE_CONSTRAINT_COMPONENT;
+		}
 			
-			String str = l.getLabel();
-			if (str.length() < min || str.length() > max) {
-				addViolation(this, s);
-				continue;
+		String str = l.getLabel();
+		if (str.length() < min) {
+			return SHACL.MIN_LENGTH_CONSTRAINT_COMPONENT;
+		}
+		if (str.length() > max) {
+			return SHACL.MAX_LENGTH_CONSTRAINT_COMPONENT;
+		}
+		if (matcher != null && !matcher.matches(str, budget)) {
+			return SHACL.PATTERN_CONSTRAINT_COMPONENT;
+		}
+		return null;
+	}
+	
+	/**
+	 * Get the constraint component violated by a single value, using the cache of results
+	 * 
+	 * @param v object value
+	 * @param cache cache or null
+	 * @param budget pattern budget or null
+	 * @return component IRI or null when valid
+	 */
+	public IRI getViolatedComponent(Value v, ShaclValueCache cache, ShaclPatternBudget budget) {
+		return (cache != null) ? cache.get(this, v, x -> getViolatedComponent(x, budget), budget) 
+								: getViolatedComponent(v, budget);
+	}
+	
+	/**
+	 * Check a single value
+	 * 
+	 * @param v object value
+	 * @return true when valid
+	 */
+	public boolean isValidValue(Value v) {
+		return (getViolatedComponent(v) == null);
+	}
+
+	@Override
+	protected void validate(ShaclContext ctx, Model m, Set<Resource> targets) {
+		ShaclValueCache cache = ctx.getCache();
+		ShaclPatternBudget budget = ctx.getPatternBudget();
+		for (Statement s: m) {
+			IRI component = getViolatedComponent(s.getObject(), cache, budget);
+			if (component != null) {
+				addViolation(ctx, this, component, s);
 			}
-				
-			if (pattern != null && !pattern.matcher(str).matches()) {
-				addViolation(this, s);
+		}
+	}
+	
+	@Override
+	protected void validate(ShaclContext ctx, ShaclEncodedData data, int[] subjs, 
+							int from, int to, int path) {
+		ShaclValueCache cache = ctx.getCache();
+		ShaclPatternBudget budget = ctx.getPatternBudget();
+		for (int i = from; i < to; i++) {
+			int end = data.lowerBound(subjs[i], path + 1);
+			for (int j = data.lowerBound(subjs[i], path); j < end; j++) {
+				int o = data.object(j);
+				IRI component = getViolatedComponent(data.getTerm(o), cache, budget);
+				if (component != null) {
+					addViolation(ctx, this, component, data, subjs[i], path, o);
+				}
 			}
 		}
 	}
@@ -88,5 +204,6 @@ public class ShaclConstraintPropertyString extends ShaclConstraintProperty {
 		this.min = min;
 		this.max = max;
 		this.pattern = pattern;
+		this.matcher = (pattern != null) ? new ShaclPatternMatcher(pattern) : null;
 	}
 }
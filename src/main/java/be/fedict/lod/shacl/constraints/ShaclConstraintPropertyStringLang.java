@@ -25,6 +25,9 @@
  */
 package be.fedict.lod.shacl.constraints;
 
+import be.fedict.lod.shacl.ShaclContext;
+import be.fedict.lod.shacl.store.ShaclEncodedData;
+
 import java.util.HashSet;
 import java.util.Set;
 
@@ -37,6 +40,7 @@ import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.util.Models;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
 
 /**
  * Check if object value follows language rules.
@@ -54,29 +58,95 @@ public class ShaclConstraintPropertyStringLang extends ShaclConstraintProperty {
 	}
 	
 	@Override
-	protected void validate(Model m, Set<Resource> targets) {
+	public IRI getComponent() {
+		return langs.isEmpty() ? SHACL.UNIQUE_LANG_CONSTRAINT_COMPONENT 
+								: SHACL.LANGUAGE_IN_CONSTRAINT_COMPONENT;
+	}
+	
+	/**
+	 * Get the allowed languages
+	 * 
+	 * @return set of language codes, empty when any language is allowed
+	 */
+	public Set<String> getLangs() {
+		return this.langs;
+	}
+	
+	/**
+	 * Check if only one value per language is allowed
+	 * 
+	 * @return true if language must be unique
+	 */
+	public boolean isUniqueLang() {
+		return this.unique;
+	}
+	
+	/**
+	 * Get the language of a (language) string value
+	 * 
+	 * @param v object value
+	 * @return language code, empty string or null when not a string
+	 */
+	public static String getLang(Value v) {
+		if (! (v instanceof Literal)) {
+			return null;
+		}
+		Literal l = (Literal) v;
+		IRI datatype = l.getDatatype();
+		if (!datatype.equals(XMLSchema.STRING) && !datatype.equals(RDF.LANGSTRING)) {
+			return null;
+		}
+		return l.getLanguage().orElse("");
+	}
+	
+	/**
+	 * Check a single value
+	 * 
+	 * @param v object value
+	 * @return true when valid
+	 */
+	public boolean isValidValue(Value v) {
+		String lang = getLang(v);
+		return (lang != null) && (langs.isEmpty() || langs.contains(lang));
+	}
+	
+	@Override
+	protected void validate(ShaclContext ctx, Model m, Set<Resource> targets) {
 		for (Resource subj: m.subjects()) {
 			Set<String> uniqs = new HashSet<>();
 		
 			for (Statement s: m.filter(subj, null, null)) {
 				Value v = s.getObject();
-				if (! (v instanceof Literal)) {
-					addViolation(this, s);
-					continue;
+				if (! isValidValue(v)) {
+					addViolation(ctx, this, SHACL.LANGUAGE_IN_CONSTRAINT_COMPONENT, s);
 				}
-			
-				Literal l = (Literal) v;
-				IRI datatype = l.getDatatype();
-				if (!datatype.equals(XMLSchema.STRING) && !datatype.equals(RDF.LANGSTRING)) {
-					addViolation(this, s);
-					continue;
+				String lang = getLang(v);
+				if (unique == true && lang != null && !uniqs.add(lang)) {
+					addViolation(ctx, this, SHACL.UNIQUE_LANG_CONSTRAINT_COMPONENT, 
+									s.getSubject(), s.getPredicate());
 				}
-				String lang = l.getLanguage().orElse("");
-				if (!langs.isEmpty() && !langs.contains(lang)) {
-					addViolation(this, s);
+			}
+		}
+	}
+	
+	@Override
+	protected void validate(ShaclContext ctx, ShaclEncodedData data, int[] subjs, 
+							int from, int to, int path) {
+		Set<String> uniqs = new HashSet<>();
+		for (int i = from; i < to; i++) {
+			uniqs.clear();
+			int end = data.lowerBound(subjs[i], path + 1);
+			for (int j = data.lowerBound(subjs[i], path); j < end; j++) {
+				int o = data.object(j);
+				Value v = data.getTerm(o);
+				if (! isValidValue(v)) {
+					addViolation(ctx, this, SHACL.LANGUAGE_IN_CONSTRAINT_COMPONENT, 
+								data, subjs[i], path, o);
 				}
-				if (unique == true && !uniqs.add(lang)) {
-					addViolation(this, s.getSubject(), s.getPredicate());
+				String lang = getLang(v);
+				if (unique == true && lang != null && !uniqs.add(lang)) {
+					addViolation(ctx, this, SHACL.UNIQUE_LANG_CONSTRAINT_COMPONENT, 
+								data, subjs[i], path, -1);
 				}
 			}
 		}
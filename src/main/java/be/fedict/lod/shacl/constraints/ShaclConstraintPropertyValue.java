@@ -25,6 +25,9 @@
  */
 package be.fedict.lod.shacl.constraints;
 
+import be.fedict.lod.shacl.ShaclContext;
+import be.fedict.lod.shacl.store.ShaclEncodedData;
+
 import java.util.Set;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Model;
@@ -32,6 +35,7 @@ import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
 
 /**
  * Check if object value follows language count and pattern.
@@ -47,13 +51,45 @@ public class ShaclConstraintPropertyValue extends ShaclConstraintProperty {
 			this.getClass().getSimpleName(), getPathStr(), value);
 	}
 
+	/**
+	 * Get the required value
+	 * 
+	 * @return value
+	 */
+	public Value getValue() {
+		return this.value;
+	}
+
 	@Override
-	protected void validate(Model m, Set<Resource> targets) {
+	public IRI getComponent() {
+		return SHACL.HAS_VALUE_CONSTRAINT_COMPONENT;
+	}
+
+	@Override
+	protected void validate(ShaclContext ctx, Model m, Set<Resource> targets) {
 		for(Resource subj: m.subjects()) {
 			// check if at least one triple has the specified value
 			Model m2 = m.filter(subj, getPath(), value);
 			if (m2 == null || m2.isEmpty()) {
-				addViolation(this, subj);
+				addViolation(ctx, this, subj);
+			}
+		}
+	}
+	
+	@Override
+	protected void validate(ShaclContext ctx, ShaclEncodedData data, int[] subjs, 
+							int from, int to, int path) {
+		int id = data.getID(value);
+		for (int i = from; i < to; i++) {
+			int start = data.lowerBound(subjs[i], path);
+			int end = data.lowerBound(subjs[i], path + 1);
+			boolean found = false;
+			for (int j = start; j < end && !found; j++) {
+				found = (data.object(j) == id);
+			}
+			// only subjects having the property
+			if (start < end && !found) {
+				addViolation(ctx, this, (Resource) data.getTerm(subjs[i]));
 			}
 		}
 	}
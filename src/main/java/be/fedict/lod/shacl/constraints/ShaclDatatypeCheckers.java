@@ -0,0 +1,590 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.constraints;
+
+import java.util.function.Predicate;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.datatypes.XMLDatatypeUtil;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+
+/**
+ * Allocation-free checkers for the lexical form of XML Schema datatypes.
+ * 
+ * The checker is resolved once per datatype, instead of comparing the datatype
+ * for every value. Leading and trailing whitespace is ignored.
+ * 
+ * @author Bart Hanssens
+ */
+public final class ShaclDatatypeCheckers {
+	private final static Predicate<String> ANY = s -> true;
+	private final static String MAX_UNSIGNED_LONG = "18446744073709551615";
+	
+	/**
+	 * Get the checker for a datatype.
+	 * Values of datatypes that are not supported are always valid.
+	 * 
+	 * @param datatype datatype IRI
+	 * @return checker
+	 */
+	public static Predicate<String> checker(IRI datatype) {
+		if (datatype.equals(XMLSchema.BOOLEAN)) {
+			return ShaclDatatypeCheckers::isBoolean;
+		}
+		if (datatype.equals(XMLSchema.INTEGER)) {
+			return ShaclDatatypeCheckers::isInteger;
+		}
+		if (datatype.equals(XMLSchema.LONG)) {
+			return s -> isInteger(s, Long.MIN_VALUE, Long.MAX_VALUE);
+		}
+		if (datatype.equals(XMLSchema.INT)) {
+			return s -> isInteger(s, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		}
+		if (datatype.equals(XMLSchema.SHORT)) {
+			return s -> isInteger(s, Short.MIN_VALUE, Short.MAX_VALUE);
+		}
+		if (datatype.equals(XMLSchema.BYTE)) {
+			return s -> isInteger(s, Byte.MIN_VALUE, Byte.MAX_VALUE);
+		}
+		if (datatype.equals(XMLSchema.NON_NEGATIVE_INTEGER)) {
+			return s -> isInteger(s) && sign(s) >= 0;
+		}
+		if (datatype.equals(XMLSchema.POSITIVE_INTEGER)) {
+			return s -> isInteger(s) && sign(s) > 0;
+		}
+		if (datatype.equals(XMLSchema.NON_POSITIVE_INTEGER)) {
+			return s -> isInteger(s) && sign(s) <= 0;
+		}
+		if (datatype.equals(XMLSchema.NEGATIVE_INTEGER)) {
+			return s -> isInteger(s) && sign(s) < 0;
+		}
+		if (datatype.equals(XMLSchema.UNSIGNED_LONG)) {
+			return ShaclDatatypeCheckers::isUnsignedLong;
+		}
+		if (datatype.equals(XMLSchema.UNSIGNED_INT)) {
+			return s -> isInteger(s, 0, 4294967295L);
+		}
+		if (datatype.equals(XMLSchema.UNSIGNED_SHORT)) {
+			return s -> isInteger(s, 0, 65535);
+		}
+		if (datatype.equals(XMLSchema.UNSIGNED_BYTE)) {
+			return s -> isInteger(s, 0, 255);
+		}
+		if (datatype.equals(XMLSchema.DECIMAL)) {
+			return ShaclDatatypeCheckers::isDecimal;
+		}
+		if (datatype.equals(XMLSchema.DOUBLE) || datatype.equals(XMLSchema.FLOAT)) {
+			return ShaclDatatypeCheckers::isDouble;
+		}
+		if (datatype.equals(XMLSchema.DATE)) {
+			return ShaclDatatypeCheckers::isDate;
+		}
+		if (datatype.equals(XMLSchema.DATETIME)) {
+			return ShaclDatatypeCheckers::isDateTime;
+		}
+		if (datatype.equals(XMLSchema.TIME)) {
+			return ShaclDatatypeCheckers::isTime;
+		}
+		if (datatype.equals(XMLSchema.GYEAR)) {
+			return ShaclDatatypeCheckers::isGYear;
+		}
+		if (datatype.equals(XMLSchema.GYEARMONTH)) {
+			return ShaclDatatypeCheckers::isGYearMonth;
+		}
+		if (datatype.equals(XMLSchema.ANYURI)) {
+			return ShaclDatatypeCheckers::isAnyURI;
+		}
+		return ANY;
+	}
+	
+	/**
+	 * Check if a character is XML whitespace
+	 * 
+	 * @param c character
+	 * @return true if whitespace
+	 */
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+	
+	/**
+	 * Get the index of the first non-whitespace character
+	 * 
+	 * @param s string
+	 * @return index
+	 */
+	private static int start(String s) {
+		int i = 0;
+		while (i < s.length() && isSpace(s.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+	
+	/**
+	 * Get the index after the last non-whitespace character
+	 * 
+	 * @param s string
+	 * @return index
+	 */
+	private static int end(String s) {
+		int i = s.length();
+		while (i > 0 && isSpace(s.charAt(i - 1))) {
+			i--;
+		}
+		return i;
+	}
+	
+	/**
+	 * Check if a character is a digit
+	 * 
+	 * @param c character
+	 * @return true if digit
+	 */
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+	
+	/**
+	 * Get the index after a sequence of digits
+	 * 
+	 * @param s string
+	 * @param i start index
+	 * @param end end index
+	 * @return index of the first non-digit, or end
+	 */
+	private static int digits(String s, int i, int end) {
+		while (i < end && isDigit(s.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+	
+	/**
+	 * Get the value of two digits
+	 * 
+	 * @param s string
+	 * @param i index of the first digit
+	 * @return value or -1 if not two digits
+	 */
+	private static int twoDigits(String s, int i) {
+		char c1 = s.charAt(i);
+		char c2 = s.charAt(i + 1);
+		return (isDigit(c1) && isDigit(c2)) ? (c1 - '0') * 10 + (c2 - '0') : -1;
+	}
+	
+	/**
+	 * Check boolean
+	 * 
+	 * @param s lexical value
+	 * @return true if valid
+	 */
+	public static boolean isBoolean(String s) {
+		int start = start(s);
+		int len = end(s) - start;
+		return (len == 4 && s.startsWith("true", start)) 
+			|| (len == 5 && s.startsWith("false", start))
+			|| (len == 1 && (s.charAt(start) == '1' || s.charAt(start) == '0'));
+	}
+	
+	/**
+	 * Check integer, without limits
+	 * 
+	 * @param s lexical value
+	 * @return true if valid
+	 */
+	public static boolean isInteger(String s) {
+		int i = start(s);
+		int end = end(s);
+		if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+			i++;
+		}
+		return i < end && digits(s, i, end) == end;
+	}
+	
+	/**
+	 * Get the sign of a valid integer
+	 * 
+	 * @param s lexical value
+	 * @return -1, 0 or 1
+	 */
+	private static int sign(String s) {
+		int i = start(s);
+		int end = end(s);
+		boolean neg = false;
+		if (s.charAt(i) == '+' || s.charAt(i) == '-') {
+			neg = (s.charAt(i) == '-');
+			i++;
+		}
+		while (i < end && s.charAt(i) == '0') {
+			i++;
+		}
+		return (i == end) ? 0 : (neg ? -1 : 1);
+	}
+	
+	/**
+	 * Check integer within limits
+	 * 
+	 * @param s lexical value
+	 * @param min minimum value
+	 * @param max maximum value
+	 * @return true if valid
+	 */
+	public static boolean isInteger(String s, long min, long max) {
+		int i = start(s);
+		int end = end(s);
+		boolean neg = false;
+		if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+			neg = (s.charAt(i) == '-');
+			i++;
+		}
+		if (i >= end) {
+			return false;
+		}
+		// accumulate negative values, to be able to represent Long.MIN_VALUE
+		long val = 0;
+		for (; i < end; i++) {
+			char c = s.charAt(i);
+			if (! isDigit(c)) {
+				return false;
+			}
+			int d = c - '0';
+			if (val < (Long.MIN_VALUE + d) / 10) {
+				return false;
+			}
+			val = val * 10 - d;
+		}
+		if (neg) {
+			return val >= min && val <= max;
+		}
+		return val != Long.MIN_VALUE && -val >= min && -val <= max;
+	}
+	
+	/**
+	 * Check unsigned long
+	 * 
+	 * @param s lexical value
+	 * @return true if valid
+	 */
+	public static boolean isUnsignedLong(String s) {
+		if (! isInteger(s) || sign(s) < 0) {
+			return false;
+		}
+		int i = start(s);
+		int end = end(s);
+		if (s.charAt(i) == '+' || s.charAt(i) == '-') {
+			i++;
+		}
+		while (i < end - 1 && s.charAt(i) == '0') {
+			i++;
+		}
+		int len = end - i;
+		if (len != MAX_UNSIGNED_LONG.length()) {
+			return len < MAX_UNSIGNED_LONG.length();
+		}
+		for (int j = 0; j < len; j++) {
+			int cmp = s.charAt(i + j) - MAX_UNSIGNED_LONG.charAt(j);
+			if (cmp != 0) {
+				return cmp < 0;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Check decimal part, starting at a given index
+	 * 
+	 * @param s lexical value
+	 * @param i start index
+	 * @param end end index
+	 * @return index after the decimal, or -1 if not valid
+	 */
+	private static int decimal(String s, int i, int end) {
+		if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+			i++;
+		}
+		int j = digits(s, i, end);
+		boolean before = (j > i);
+		boolean after = false;
+		if (j < end && s.charAt(j) == '.') {
+			int k = digits(s, j + 1, end);
+			after = (k > j + 1);
+			j = k;
+		}
+		return (before || after) ? j : -1;
+	}
+	
+	/**
+	 * Check decimal
+	 * 
+	 * @param s lexical value
+	 * @return true if valid
+	 */
+	public static boolean isDecimal(String s) {
+		int end = end(s);
+		return decimal(s, start(s), end) == end;
+	}
+	
+	/**
+	 * Check double or float
+	 * 
+	 * @param s lexical value
+	 * @return true if valid
+	 */
+	public static boolean isDouble(String s) {
+		int i = start(s);
+		int end = end(s);
+		int len = end - i;
+		if ((len == 3 && (s.startsWith("INF", i) || s.startsWith("NaN", i)))
+			|| (len == 4 && (s.startsWith("-INF", i) || s.startsWith("+INF", i)))) {
+			return true;
+		}
+		int j = decimal(s, i, end);
+		if (j < 0) {
+			return false;
+		}
+		if (j < end && (s.charAt(j) == 'e' || s.charAt(j) == 'E')) {
+			j++;
+			if (j < end && (s.charAt(j) == '+' || s.charAt(j) == '-')) {
+				j++;
+			}
+			int k = digits(s, j, end);
+			if (k == j) {
+				return false;
+			}
+			j = k;
+		}
+		return j == end;
+	}
+	
+	/**
+	 * Check year part, including optional minus sign
+	 * 
+	 * @param s lexical value
+	 * @param i start index
+	 * @param end end index
+	 * @return index after the year, or -1 if not valid
+	 */
+	private static int year(String s, int i, int end) {
+		if (i < end && s.charAt(i) == '-') {
+			i++;
+		}
+		int j = digits(s, i, end);
+		int len = j - i;
+		if (len < 4 || (len > 4 && s.charAt(i) == '0')) {
+			return -1;
+		}
+		return j;
+	}
+	
+	/**
+	 * Check if year is a leap year
+	 * 
+	 * @param s lexical value
+	 * @param i start index of the year digits
+	 * @param j end index of the year digits
+	 * @return true if leap year
+	 */
+	private static boolean isLeap(String s, int i, int j) {
+		int mod = 0;
+		for (int k = i; k < j; k++) {
+			mod = (mod * 10 + (s.charAt(k) - '0')) % 400;
+		}
+		return (mod % 4 == 0) && (mod % 100 != 0 || mod == 0);
+	}
+	
+	/**
+	 * Check optional timezone
+	 * 
+	 * @param s lexical value
+	 * @param i start index
+	 * @param end end index
+	 * @return true if valid or absent
+	 */
+	private static boolean timezone(String s, int i, int end) {
+		if (i == end) {
+			return true;
+		}
+		if (end - i == 1) {
+			return s.charAt(i) == 'Z';
+		}
+		if (end - i != 6 || (s.charAt(i) != '+' && s.charAt(i) != '-') || s.charAt(i + 3) != ':') {
+			return false;
+		}
+		int hh = twoDigits(s, i + 1);
+		int mm = twoDigits(s, i + 4);
+		return hh >= 0 && mm >= 0 && mm <= 59 && (hh < 14 || (hh == 14 && mm == 0));
+	}
+	
+	/**
+	 * Check date part (year, month, day)
+	 * 
+	 * @param s lexical value
+	 * @param i start index
+	 * @param end end index
+	 * @return index after the date, or -1 if not valid
+	 */
+	private static int date(String s, int i, int end) {
+		int j = year(s, i, end);
+		if (j < 0 || j + 6 > end || s.charAt(j) != '-' || s.charAt(j + 3) != '-') {
+			return -1;
+		}
+		int month = twoDigits(s, j + 1);
+		int day = twoDigits(s, j + 4);
+		if (month < 1 || month > 12 || day < 1) {
+			return -1;
+		}
+		int max = 31;
+		if (month == 2) {
+			int y = (s.charAt(i) == '-') ? i + 1 : i;
+			max = isLeap(s, y, j) ? 29 : 28;
+		} else if (month == 4 || month == 6 || month == 9 || month == 11) {
+			max = 30;
+		}
+		return (day <= max) ? j + 6 : -1;
+	}
+	
+	/**
+	 * Check time part (hours, minutes, seconds and optional fraction)
+	 * 
+	 * @param s lexical value
+	 * @param i start index
+	 * @param end end index
+	 * @return index after the time, or -1 if not valid
+	 */
+	private static int time(String s, int i, int end) {
+		if (i + 8 > end || s.charAt(i + 2) != ':' || s.charAt(i + 5) != ':') {
+			return -1;
+		}
+		int hh = twoDigits(s, i);
+		int mm = twoDigits(s, i + 3);
+		int ss = twoDigits(s, i + 6);
+		if (hh < 0 || hh > 24 || mm < 0 || mm > 59 || ss < 0 || ss > 59) {
+			return -1;
+		}
+		int j = i + 8;
+		boolean zero = true;
+		if (j < end && s.charAt(j) == '.') {
+			int k = digits(s, j + 1, end);
+			if (k == j + 1) {
+				return -1;
+			}
+			for (int f = j + 1; f < k; f++) {
+				zero &= (s.charAt(f) == '0');
+			}
+			j = k;
+		}
+		// 24:00:00 is the end of the day
+		if (hh == 24 && (mm != 0 || ss != 0 || !zero)) {
+			return -1;
+		}
+		return j;
+	}
+	
+	/**
+	 * Check date
+	 * 
+	 * @param s lexical value
+	 * @return true if valid
+	 */
+	public static boolean isDate(String s) {
+		int end = end(s);
+		int j = date(s, start(s), end);
+		return j >= 0 && timezone(s, j, end);
+	}
+	
+	/**
+	 * Check date time
+	 * 
+	 * @param s lexical value
+	 * @return true if valid
+	 */
+	public static boolean isDateTime(String s) {
+		int end = end(s);
+		int j = date(s, start(s), end);
+		if (j < 0 || j >= end || s.charAt(j) != 'T') {
+			return false;
+		}
+		j = time(s, j + 1, end);
+		return j >= 0 && timezone(s, j, end);
+	}
+	
+	/**
+	 * Check time
+	 * 
+	 * @param s lexical value
+	 * @return true if valid
+	 */
+	public static boolean isTime(String s) {
+		int end = end(s);
+		int j = time(s, start(s), end);
+		return j >= 0 && timezone(s, j, end);
+	}
+	
+	/**
+	 * Check year
+	 * 
+	 * @param s lexical value
+	 * @return true if valid
+	 */
+	public static boolean isGYear(String s) {
+		int end = end(s);
+		int j = year(s, start(s), end);
+		return j >= 0 && timezone(s, j, end);
+	}
+	
+	/**
+	 * Check year and month
+	 * 
+	 * @param s lexical value
+	 * @return true if valid
+	 */
+	public static boolean isGYearMonth(String s) {
+		int end = end(s);
+		int j = year(s, start(s), end);
+		if (j < 0 || j + 3 > end || s.charAt(j) != '-') {
+			return false;
+		}
+		int month = twoDigits(s, j + 1);
+		return month >= 1 && month <= 12 && timezone(s, j + 3, end);
+	}
+	
+	/**
+	 * Check URI, using the same (full) IRI parser as RDF4J.
+	 * 
+	 * @param s lexical value
+	 * @return true if valid
+	 */
+	public static boolean isAnyURI(String s) {
+		return XMLDatatypeUtil.isValidAnyURI(s);
+	}
+	
+	/**
+	 * Private constructor
+	 */
+	private ShaclDatatypeCheckers() {
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.constraints;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Budget per value for sh:pattern expressions that cannot be matched in linear time.
+ * 
+ * The budget is passed to the matcher with the validation context, 
+ * so the shared shapes are not modified.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclPatternBudget {
+	private final long maxSteps;
+	private final long maxMillis;
+	private final LongAdder exceeded = new LongAdder();
+	
+	/**
+	 * Get the maximum number of steps (characters read) per value
+	 * 
+	 * @return number of steps, 0 if unlimited
+	 */
+	public long getMaxSteps() {
+		return maxSteps;
+	}
+	
+	/**
+	 * Get the maximum time per value
+	 * 
+	 * @return time in milliseconds, 0 if unlimited
+	 */
+	public long getMaxMillis() {
+		return maxMillis;
+	}
+	
+	/**
+	 * Count a value exceeding the budget.
+	 * Can be called concurrently.
+	 */
+	public void exceeded() {
+		exceeded.increment();
+	}
+	
+	/**
+	 * Get the number of values that exceeded the budget
+	 * 
+	 * @return number of values
+	 */
+	public long getExceeded() {
+		return exceeded.sum();
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%s [steps=%d, millis=%d, exceeded=%d]",
+			this.getClass().getSimpleName(), maxSteps, maxMillis, getExceeded());
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param maxSteps maximum number of characters read, 0 if unlimited
+	 * @param maxMillis maximum time in milliseconds, 0 if unlimited
+	 */
+	public ShaclPatternBudget(long maxSteps, long maxMillis) {
+		if (maxSteps < 0 || maxMillis < 0) {
+			throw new IllegalArgumentException("Pattern budget can not be negative");
+		}
+		this.maxSteps = maxSteps;
+		this.maxMillis = maxMillis;
+	}
+}
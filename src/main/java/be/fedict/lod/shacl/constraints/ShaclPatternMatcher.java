@@ -0,0 +1,1026 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.constraints;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Linear-time matcher for sh:pattern, with the same result as Pattern.matcher(s).matches().
+ * 
+ * Most patterns are compiled into a deterministic automaton, so a value is checked in one pass
+ * without backtracking. Cheap pre-checks (length, literal prefix, suffix and substring) are done first.
+ * Patterns using features like backreferences, lookaround or flags are matched with java.util.regex,
+ * optionally within a budget of steps or time.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclPatternMatcher {
+	private final static Logger LOG = LoggerFactory.getLogger(ShaclPatternMatcher.class);
+	
+	/** Maximum number of automaton states before falling back to java.util.regex */
+	private final static int MAX_NFA = 10_000;
+	/** Maximum size of the deterministic transition table */
+	private final static int MAX_DFA = 1 << 20;
+	
+	private final static int[] DIGIT = { '0', '9' };
+	private final static int[] WORD = { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' };
+	private final static int[] SPACE = { '\t', '\r', ' ', ' ' };
+	private final static int[] DOT = complement(new int[] { '\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029 });
+	
+	private final Pattern pattern;
+	
+	// pre-checks
+	private final int minLength;
+	private final int maxLength;
+	private final String prefix;
+	private final String suffix;
+	private final String required;
+	
+	// alphabet, split in classes of code points that are treated the same
+	private final int[] boundaries;
+	private final int[] ascii;
+	private final int classes;
+	private final boolean[] allowed;
+	
+	// deterministic automaton, or null
+	private final int[] table;
+	private final boolean[] accept;
+	
+	// non-deterministic automaton, used when the deterministic one is too large
+	private final int[][] nfaSet;
+	private final int[] nfaOut;
+	private final int[] nfaOut1;
+	private final int nfaStart;
+	private final int nfaMatch;
+	
+	/**
+	 * Pattern feature not supported by the automaton
+	 */
+	private static class UnsupportedException extends Exception {
+		private static final long serialVersionUID = 1L;
+		
+		UnsupportedException(String msg) {
+			super(msg, null, false, false);
+		}
+	}
+	
+	/**
+	 * Budget exceeded while matching
+	 */
+	private static class BudgetException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		
+		BudgetException() {
+			super(null, null, false, false);
+		}
+	}
+	
+	/**
+	 * Parsed regular expression
+	 */
+	private static class Node {
+		private final static int EMPTY = 0;
+		private final static int SET = 1;
+		private final static int CAT = 2;
+		private final static int ALT = 3;
+		private final static int REP = 4;
+		
+		private final int type;
+		private int[] set;
+		private List<Node> kids;
+		private int min;
+		private int max;
+		
+		Node(int type) {
+			this.type = type;
+		}
+		
+		static Node set(int[] set) {
+			Node n = new Node(SET);
+			n.set = set;
+			return n;
+		}
+		
+		static Node list(int type, List<Node> kids) {
+			if (kids.size() == 1) {
+				return kids.get(0);
+			}
+			Node n = new Node(kids.isEmpty() ? EMPTY : type);
+			n.kids = kids;
+			return n;
+		}
+		
+		static Node rep(Node kid, int min, int max) {
+			Node n = new Node(REP);
+			n.kids = new ArrayList<>(1);
+			n.kids.add(kid);
+			n.min = min;
+			n.max = max;
+			return n;
+		}
+	}
+	
+	/**
+	 * Recursive descent parser for a subset of the java.util.regex syntax
+	 */
+	private static class Parser {
+		private final int[] cps;
+		private int pos = 0;
+		
+		private boolean more() {
+			return pos < cps.length;
+		}
+		
+		private int peek() {
+			return cps[pos];
+		}
+		
+		private Node parse() throws UnsupportedException {
+			Node n = parseAlt();
+			if (more()) {
+				throw new UnsupportedException("Unexpected " + new String(cps, pos, 1));
+			}
+			return n;
+		}
+		
+		private Node parseAlt() throws UnsupportedException {
+			List<Node> alts = new ArrayList<>();
+			alts.add(parseCat());
+			while (more() && peek() == '|') {
+				pos++;
+				alts.add(parseCat());
+			}
+			return (alts.size() == 1) ? alts.get(0) : Node.list(Node.ALT, alts);
+		}
+		
+		private Node parseCat() throws UnsupportedException {
+			List<Node> kids = new ArrayList<>();
+			while (more() && peek() != '|' && peek() != ')') {
+				kids.add(parseRepeat());
+			}
+			return Node.list(Node.CAT, kids);
+		}
+		
+		private int parseInt() throws UnsupportedException {
+			int start = pos;
+			long n = 0;
+			while (more() && peek() >= '0' && peek() <= '9') {
+				n = n * 10 + (cps[pos++] - '0');
+				if (n > MAX_NFA) {
+					throw new UnsupportedException("Repetition too large");
+				}
+			}
+			if (pos == start) {
+				throw new UnsupportedException("Number expected");
+			}
+			return (int) n;
+		}
+		
+		private Node parseRepeat() throws UnsupportedException {
+			Node n = parseAtom();
+			while (more()) {
+				int c = peek();
+				int min;
+				int max;
+				if (c == '*') {
+					min = 0;
+					max = -1;
+					pos++;
+				} else if (c == '+') {
+					min = 1;
+					max = -1;
+					pos++;
+				} else if (c == '?') {
+					min = 0;
+					max = 1;
+					pos++;
+				} else if (c == '{') {
+					pos++;
+					min = parseInt();
+					max = min;
+					if (more() && peek() == ',') {
+						pos++;
+						max = (more() && peek() == '}') ? -1 : parseInt();
+					}
+					if (! more() || peek() != '}') {
+						throw new UnsupportedException("Invalid repetition");
+					}
+					pos++;
+				} else {
+					break;
+				}
+				if (more() && peek() == '+') {
+					throw new UnsupportedException("Possessive quantifier");
+				}
+				if (more() && peek() == '?') {
+					// reluctant, does not change the result of a full match
+					pos++;
+				}
+				n = Node.rep(n, min, max);
+			}
+			return n;
+		}
+		
+		private Node parseAtom() throws UnsupportedException {
+			int c = cps[pos++];
+			switch (c) {
+				case '(':
+					if (more() && peek() == '?') {
+						if (pos + 1 < cps.length && cps[pos + 1] == ':') {
+							pos += 2;
+						} else {
+							throw new UnsupportedException("Special group");
+						}
+					}
+					Node n = parseAlt();
+					if (! more() || peek() != ')') {
+						throw new UnsupportedException("Missing )");
+					}
+					pos++;
+					return n;
+				case '[':
+					return Node.set(parseClass());
+				case '.':
+					return Node.set(DOT);
+				case '^':
+					if (pos != 1) {
+						throw new UnsupportedException("Anchor not at start");
+					}
+					return new Node(Node.EMPTY);
+				case '$':
+					if (pos != cps.length) {
+						throw new UnsupportedException("Anchor not at end");
+					}
+					return new Node(Node.EMPTY);
+				case '\\':
+					return Node.set(parseEscape());
+				case '*':
+				case '+':
+				case '?':
+				case '{':
+					throw new UnsupportedException("Dangling quantifier");
+				default:
+					return Node.set(new int[] { c, c });
+			}
+		}
+		
+		private int parseHex(int digits) throws UnsupportedException {
+			if (pos + digits > cps.length) {
+				throw new UnsupportedException("Invalid escape");
+			}
+			int v = 0;
+			for (int i = 0; i < digits; i++) {
+				int d = Character.digit(cps[pos++], 16);
+				if (d < 0) {
+					throw new UnsupportedException("Invalid escape");
+				}
+				v = v * 16 + d;
+			}
+			return v;
+		}
+		
+		private int[] parseEscape() throws UnsupportedException {
+			if (! more()) {
+				throw new UnsupportedException("Trailing backslash");
+			}
+			int c = cps[pos++];
+			switch (c) {
+				case 'd': return DIGIT;
+				case 'D': return complement(DIGIT);
+				case 'w': return WORD;
+				case 'W': return complement(WORD);
+				case 's': return SPACE;
+				case 'S': return complement(SPACE);
+				case 't': return new int[] { '\t', '\t' };
+				case 'n': return new int[] { '\n', '\n' };
+				case 'r': return new int[] { '\r', '\r' };
+				case 'f': return new int[] { '\f', '\f' };
+				case 'a': return new int[] { 0x07, 0x07 };
+				case 'e': return new int[] { 0x1B, 0x1B };
+				case 'x':
+					if (more() && peek() == '{') {
+						throw new UnsupportedException("Hex code point");
+					}
+					int x = parseHex(2);
+					return new int[] { x, x };
+				case 'u':
+					int u = parseHex(4);
+					return new int[] { u, u };
+				default:
+					if (Character.isLetterOrDigit(c)) {
+						throw new UnsupportedException("Escape \\" + new String(cps, pos - 1, 1));
+					}
+					return new int[] { c, c };
+			}
+		}
+		
+		private int[] parseClass() throws UnsupportedException {
+			boolean negate = false;
+			if (more() && peek() == '^') {
+				negate = true;
+				pos++;
+			}
+			if (more() && peek() == ']') {
+				throw new UnsupportedException("Empty class");
+			}
+			List<int[]> sets = new ArrayList<>();
+			while (true) {
+				if (! more()) {
+					throw new UnsupportedException("Missing ]");
+				}
+				int c = cps[pos++];
+				if (c == ']') {
+					break;
+				}
+				if (c == '[' || (c == '&' && more() && peek() == '&')) {
+					throw new UnsupportedException("Nested class");
+				}
+				int[] item;
+				if (c == '\\') {
+					item = parseEscape();
+				} else {
+					item = new int[] { c, c };
+				}
+				// range, unless the dash is the last character
+				if (item.length == 2 && item[0] == item[1] && more() && peek() == '-' 
+						&& pos + 1 < cps.length && cps[pos + 1] != ']') {
+					pos++;
+					int d = cps[pos++];
+					int[] end;
+					if (d == '\\') {
+						end = parseEscape();
+					} else if (d == '[') {
+						throw new UnsupportedException("Nested class");
+					} else {
+						end = new int[] { d, d };
+					}
+					if (end.length != 2 || end[0] != end[1] || end[0] < item[0]) {
+						throw new UnsupportedException("Invalid range");
+					}
+					item = new int[] { item[0], end[0] };
+				}
+				sets.add(item);
+			}
+			int[] set = union(sets);
+			return negate ? complement(set) : set;
+		}
+		
+		Parser(String pattern) {
+			this.cps = pattern.codePoints().toArray();
+		}
+	}
+	
+	/**
+	 * Union of sets of code point ranges
+	 * 
+	 * @param sets sets of [low, high] pairs
+	 * @return sorted, non-overlapping set
+	 */
+	private static int[] union(List<int[]> sets) {
+		List<int[]> ranges = new ArrayList<>();
+		for (int[] set: sets) {
+			for (int i = 0; i < set.length; i += 2) {
+				ranges.add(new int[] { set[i], set[i + 1] });
+			}
+		}
+		ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+		
+		int[] res = new int[ranges.size() * 2];
+		int n = 0;
+		for (int[] r: ranges) {
+			if (n > 0 && r[0] <= res[n - 1] + 1) {
+				res[n - 1] = Math.max(res[n - 1], r[1]);
+			} else {
+				res[n++] = r[0];
+				res[n++] = r[1];
+			}
+		}
+		return Arrays.copyOf(res, n);
+	}
+	
+	/**
+	 * Complement of a sorted set of code point ranges
+	 * 
+	 * @param set sorted, non-overlapping set
+	 * @return complement
+	 */
+	private static int[] complement(int[] set) {
+		int[] res = new int[set.length + 2];
+		int n = 0;
+		int next = 0;
+		for (int i = 0; i < set.length; i += 2) {
+			if (set[i] > next) {
+				res[n++] = next;
+				res[n++] = set[i] - 1;
+			}
+			next = set[i + 1] + 1;
+		}
+		if (next <= Character.MAX_CODE_POINT) {
+			res[n++] = next;
+			res[n++] = Character.MAX_CODE_POINT;
+		}
+		return Arrays.copyOf(res, n);
+	}
+	
+	/**
+	 * Check if a set contains a code point
+	 * 
+	 * @param set sorted set
+	 * @param cp code point
+	 * @return true if contains
+	 */
+	private static boolean contains(int[] set, int cp) {
+		int lo = 0;
+		int hi = set.length / 2;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (set[mid * 2 + 1] < cp) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo < set.length / 2 && set[lo * 2] <= cp;
+	}
+	
+	/**
+	 * Get the exact string matched by a node
+	 * 
+	 * @param n node
+	 * @return string or null if the node can match different strings
+	 */
+	private static String literal(Node n) {
+		switch (n.type) {
+			case Node.EMPTY:
+				return "";
+			case Node.SET:
+				return (n.set.length == 2 && n.set[0] == n.set[1]) 
+						? new String(Character.toChars(n.set[0])) : null;
+			case Node.CAT:
+				StringBuilder sb = new StringBuilder();
+				for (Node kid: n.kids) {
+					String s = literal(kid);
+					if (s == null) {
+						return null;
+					}
+					sb.append(s);
+				}
+				return sb.toString();
+			case Node.REP:
+				String s = (n.min == n.max) ? literal(n.kids.get(0)) : null;
+				if (s == null) {
+					return null;
+				}
+				StringBuilder rep = new StringBuilder();
+				for (int i = 0; i < n.min; i++) {
+					rep.append(s);
+				}
+				return rep.toString();
+			default:
+				return null;
+		}
+	}
+	
+	/**
+	 * Get the literal prefix of all strings matched by a node
+	 * 
+	 * @param n node
+	 * @param reverse get the suffix instead of the prefix
+	 * @return prefix or suffix, possibly empty
+	 */
+	private static String affix(Node n, boolean reverse) {
+		String lit = literal(n);
+		if (lit != null) {
+			return lit;
+		}
+		if (n.type == Node.REP && n.min > 0) {
+			return affix(n.kids.get(0), reverse);
+		}
+		if (n.type != Node.CAT) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < n.kids.size(); i++) {
+			Node kid = n.kids.get(reverse ? n.kids.size() - 1 - i : i);
+			String s = literal(kid);
+			if (s == null) {
+				s = affix(kid, reverse);
+				sb.insert(reverse ? 0 : sb.length(), s);
+				break;
+			}
+			sb.insert(reverse ? 0 : sb.length(), s);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Get the longest literal substring required in all strings matched by a node
+	 * 
+	 * @param n node
+	 * @return substring, possibly empty
+	 */
+	private static String required(Node n) {
+		if (n.type != Node.CAT) {
+			return "";
+		}
+		String best = "";
+		StringBuilder run = new StringBuilder();
+		for (Node kid: n.kids) {
+			String s = literal(kid);
+			if (s != null) {
+				run.append(s);
+			} else {
+				run.setLength(0);
+			}
+			if (run.length() > best.length()) {
+				best = run.toString();
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Get the minimum (index 0) and maximum (index 1, -1 if unbounded) length in code points
+	 * 
+	 * @param n node
+	 * @return minimum and maximum
+	 */
+	private static long[] length(Node n) {
+		switch (n.type) {
+			case Node.EMPTY:
+				return new long[] { 0, 0 };
+			case Node.SET:
+				return new long[] { 1, 1 };
+			case Node.CAT:
+			case Node.ALT:
+				long[] res = null;
+				for (Node kid: n.kids) {
+					long[] l = length(kid);
+					if (res == null) {
+						res = l;
+					} else if (n.type == Node.CAT) {
+						res[0] = Math.min(res[0] + l[0], Integer.MAX_VALUE);
+						res[1] = (res[1] < 0 || l[1] < 0) ? -1 : Math.min(res[1] + l[1], Integer.MAX_VALUE);
+					} else {
+						res[0] = Math.min(res[0], l[0]);
+						res[1] = (res[1] < 0 || l[1] < 0) ? -1 : Math.max(res[1], l[1]);
+					}
+				}
+				return res;
+			default:
+				long[] l = length(n.kids.get(0));
+				long min = Math.min(l[0] * n.min, Integer.MAX_VALUE);
+				long max = (l[1] == 0) ? 0 : (l[1] < 0 || n.max < 0) ? -1 
+											: Math.min(l[1] * n.max, Integer.MAX_VALUE);
+				return new long[] { min, max };
+		}
+	}
+	
+	/**
+	 * Non-deterministic automaton, built from the parsed regular expression
+	 */
+	private static class Builder {
+		private final List<int[]> sets = new ArrayList<>();
+		private final List<int[]> outs = new ArrayList<>();
+		
+		private int add(int[] set, int out, int out1) throws UnsupportedException {
+			if (sets.size() >= MAX_NFA) {
+				throw new UnsupportedException("Automaton too large");
+			}
+			sets.add(set);
+			outs.add(new int[] { out, out1 });
+			return sets.size() - 1;
+		}
+		
+		/**
+		 * Build the states of a node, continuing with the next state
+		 * 
+		 * @param n node
+		 * @param next next state
+		 * @return first state
+		 */
+		private int build(Node n, int next) throws UnsupportedException {
+			switch (n.type) {
+				case Node.EMPTY:
+					return next;
+				case Node.SET:
+					return add(n.set, next, -1);
+				case Node.CAT:
+					for (int i = n.kids.size() - 1; i >= 0; i--) {
+						next = build(n.kids.get(i), next);
+					}
+					return next;
+				case Node.ALT:
+					int s = build(n.kids.get(n.kids.size() - 1), next);
+					for (int i = n.kids.size() - 2; i >= 0; i--) {
+						s = add(null, build(n.kids.get(i), next), s);
+					}
+					return s;
+				default:
+					Node kid = n.kids.get(0);
+					int t;
+					if (n.max < 0) {
+						t = add(null, -1, next);
+						outs.get(t)[0] = build(kid, t);
+					} else {
+						t = next;
+						for (int i = 0; i < n.max - n.min; i++) {
+							t = add(null, build(kid, t), next);
+						}
+					}
+					for (int i = 0; i < n.min; i++) {
+						t = build(kid, t);
+					}
+					return t;
+			}
+		}
+	}
+	
+	/**
+	 * Add a state and the states reachable without input
+	 * 
+	 * @param set set of states
+	 * @param state state
+	 */
+	private void closure(BitSet set, int state) {
+		Deque<Integer> todo = new ArrayDeque<>();
+		todo.push(state);
+		while (! todo.isEmpty()) {
+			int s = todo.pop();
+			if (s < 0 || set.get(s)) {
+				continue;
+			}
+			set.set(s);
+			if (s != nfaMatch && nfaSet[s] == null) {
+				todo.push(nfaOut1[s]);
+				todo.push(nfaOut[s]);
+			}
+		}
+	}
+	
+	/**
+	 * Get the next set of states
+	 * 
+	 * @param set current states
+	 * @param rep representative code point of the class
+	 * @return next states
+	 */
+	private BitSet step(BitSet set, int rep) {
+		BitSet next = new BitSet(nfaSet.length);
+		for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+			if (s != nfaMatch && nfaSet[s] != null && contains(nfaSet[s], rep)) {
+				closure(next, nfaOut[s]);
+			}
+		}
+		return next;
+	}
+	
+	/**
+	 * Get the alphabet class of a code point
+	 * 
+	 * @param cp code point
+	 * @return class
+	 */
+	private int classOf(int cp) {
+		if (cp < 128) {
+			return ascii[cp];
+		}
+		int i = Arrays.binarySearch(boundaries, cp);
+		return (i >= 0) ? i + 1 : -i - 1;
+	}
+	
+	/**
+	 * Get the representative (first) code point of an alphabet class
+	 * 
+	 * @param cl class
+	 * @return code point
+	 */
+	private int representative(int cl) {
+		return (cl == 0) ? 0 : boundaries[cl - 1];
+	}
+	
+	/**
+	 * Check if the pattern is matched by the automaton, in linear time
+	 * 
+	 * @return true if linear
+	 */
+	public boolean isLinear() {
+		return nfaSet != null;
+	}
+	
+	/**
+	 * Get the pattern
+	 * 
+	 * @return pattern
+	 */
+	public Pattern getPattern() {
+		return pattern;
+	}
+	
+	/**
+	 * Character sequence counting the characters read by java.util.regex
+	 */
+	private static class BudgetSequence implements CharSequence {
+		private final String str;
+		private final long maxSteps;
+		private final long deadline;
+		private long steps = 0;
+		
+		@Override
+		public int length() {
+			return str.length();
+		}
+		
+		@Override
+		public char charAt(int index) {
+			steps++;
+			if (maxSteps > 0 && steps > maxSteps) {
+				throw new BudgetException();
+			}
+			if (deadline > 0 && (steps & 0xFFF) == 0 && System.nanoTime() > deadline) {
+				throw new BudgetException();
+			}
+			return str.charAt(index);
+		}
+		
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return str.subSequence(start, end);
+		}
+		
+		@Override
+		public String toString() {
+			return str;
+		}
+		
+		BudgetSequence(String str, long maxSteps, long maxMillis) {
+			this.str = str;
+			this.maxSteps = maxSteps;
+			this.deadline = (maxMillis > 0) ? System.nanoTime() + maxMillis * 1_000_000 : 0;
+		}
+	}
+	
+	/**
+	 * Match with java.util.regex, within the budget
+	 * 
+	 * @param str string
+	 * @param budget budget or null
+	 * @return true if matches
+	 */
+	private boolean matchesRegex(String str, ShaclPatternBudget budget) {
+		if (budget == null || (budget.getMaxSteps() <= 0 && budget.getMaxMillis() <= 0)) {
+			return pattern.matcher(str).matches();
+		}
+		try {
+			return pattern.matcher(new BudgetSequence(str, budget.getMaxSteps(), 
+														budget.getMaxMillis())).matches();
+		} catch (BudgetException e) {
+			budget.exceeded();
+			LOG.warn("Pattern {} exceeded budget on value of length {}", pattern, str.length());
+			return false;
+		}
+	}
+	
+	/**
+	 * Match by simulating the non-deterministic automaton
+	 * 
+	 * @param str string
+	 * @return true if matches
+	 */
+	private boolean matchesNFA(String str) {
+		for (int i = 0; i < str.length(); ) {
+			int cp = str.codePointAt(i);
+			if (! allowed[classOf(cp)]) {
+				return false;
+			}
+			i += Character.charCount(cp);
+		}
+		BitSet set = new BitSet(nfaSet.length);
+		closure(set, nfaStart);
+		for (int i = 0; i < str.length() && !set.isEmpty(); ) {
+			int cp = str.codePointAt(i);
+			set = step(set, representative(classOf(cp)));
+			i += Character.charCount(cp);
+		}
+		return set.get(nfaMatch);
+	}
+	
+	/**
+	 * Check if a string matches the whole pattern
+	 * 
+	 * @param str string
+	 * @return true if matches
+	 */
+	public boolean matches(String str) {
+		return matches(str, null);
+	}
+	
+	/**
+	 * Check if a string matches the whole pattern.
+	 * Patterns that cannot be matched in linear time are matched within the budget,
+	 * a value exceeding the budget does not match.
+	 * 
+	 * @param str string
+	 * @param budget budget or null if unlimited
+	 * @return true if matches
+	 */
+	public boolean matches(String str, ShaclPatternBudget budget) {
+		if (nfaSet == null) {
+			return matchesRegex(str, budget);
+		}
+		int len = str.length();
+		if (len < minLength) {
+			return false;
+		}
+		if (maxLength >= 0 && len > maxLength && str.codePointCount(0, len) > maxLength) {
+			return false;
+		}
+		if (! str.startsWith(prefix) || !str.endsWith(suffix) || !str.contains(required)) {
+			return false;
+		}
+		if (table == null) {
+			return matchesNFA(str);
+		}
+		int s = 0;
+		for (int i = 0; i < len; ) {
+			int cp = str.codePointAt(i);
+			s = table[s * classes + classOf(cp)];
+			if (s < 0) {
+				return false;
+			}
+			i += Character.charCount(cp);
+		}
+		return accept[s];
+	}
+	
+	@Override
+	public String toString() {
+		return pattern.pattern();
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param pattern compiled java.util.regex pattern
+	 */
+	public ShaclPatternMatcher(Pattern pattern) {
+		this.pattern = pattern;
+		
+		Node root = null;
+		Builder builder = new Builder();
+		int start = -1;
+		int match = -1;
+		if (pattern.flags() == 0) {
+			try {
+				root = new Parser(pattern.pattern()).parse();
+				match = builder.add(null, -1, -1);
+				start = builder.build(root, match);
+			} catch (UnsupportedException e) {
+				LOG.debug("Pattern {} not linear: {}", pattern, e.getMessage());
+				root = null;
+			}
+		}
+		
+		if (root == null) {
+			minLength = 0;
+			maxLength = -1;
+			prefix = suffix = required = "";
+			boundaries = ascii = null;
+			classes = 0;
+			allowed = null;
+			table = null;
+			accept = null;
+			nfaSet = null;
+			nfaOut = nfaOut1 = null;
+			nfaStart = nfaMatch = -1;
+			return;
+		}
+		
+		long[] len = length(root);
+		minLength = (int) len[0];
+		maxLength = (int) len[1];
+		prefix = affix(root, false);
+		suffix = affix(root, true);
+		required = required(root);
+		
+		int size = builder.sets.size();
+		nfaSet = builder.sets.toArray(new int[size][]);
+		nfaOut = new int[size];
+		nfaOut1 = new int[size];
+		for (int i = 0; i < size; i++) {
+			nfaOut[i] = builder.outs.get(i)[0];
+			nfaOut1[i] = builder.outs.get(i)[1];
+		}
+		nfaStart = start;
+		nfaMatch = match;
+		
+		// split the alphabet at the bounds of all ranges
+		TreeSet<Integer> bounds = new TreeSet<>();
+		for (int[] set: nfaSet) {
+			if (set != null) {
+				for (int i = 0; i < set.length; i += 2) {
+					bounds.add(set[i]);
+					bounds.add(set[i + 1] + 1);
+				}
+			}
+		}
+		bounds.remove(0);
+		boundaries = bounds.stream().mapToInt(Integer::intValue).toArray();
+		classes = boundaries.length + 1;
+		ascii = new int[128];
+		for (int cp = 0; cp < 128; cp++) {
+			int i = Arrays.binarySearch(boundaries, cp);
+			ascii[cp] = (i >= 0) ? i + 1 : -i - 1;
+		}
+		allowed = new boolean[classes];
+		for (int cl = 0; cl < classes; cl++) {
+			int rep = representative(cl);
+			for (int[] set: nfaSet) {
+				if (set != null && contains(set, rep)) {
+					allowed[cl] = true;
+					break;
+				}
+			}
+		}
+		
+		// subset construction
+		Map<BitSet,Integer> ids = new HashMap<>();
+		List<BitSet> states = new ArrayList<>();
+		BitSet first = new BitSet(size);
+		closure(first, nfaStart);
+		ids.put(first, 0);
+		states.add(first);
+		
+		int[] t = new int[classes * 16];
+		for (int s = 0; s < states.size(); s++) {
+			if ((long) states.size() * classes > MAX_DFA) {
+				t = null;
+				break;
+			}
+			if ((s + 1) * classes > t.length) {
+				t = Arrays.copyOf(t, Math.max(t.length * 2, (s + 1) * classes));
+			}
+			for (int cl = 0; cl < classes; cl++) {
+				BitSet next = allowed[cl] ? step(states.get(s), representative(cl)) : new BitSet();
+				if (next.isEmpty()) {
+					t[s * classes + cl] = -1;
+					continue;
+				}
+				Integer id = ids.get(next);
+				if (id == null) {
+					id = states.size();
+					ids.put(next, id);
+					states.add(next);
+				}
+				t[s * classes + cl] = id;
+			}
+		}
+		
+		if (t == null) {
+			LOG.debug("Pattern {} too large for deterministic automaton", pattern);
+			table = null;
+			accept = null;
+		} else {
+			table = Arrays.copyOf(t, states.size() * classes);
+			accept = new boolean[states.size()];
+			for (int s = 0; s < states.size(); s++) {
+				accept[s] = states.get(s).get(nfaMatch);
+			}
+		}
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.constraints;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * Bounded cache of validation results per constraint and literal value,
+ * so the lexical and pattern checks are done only once for values that are repeated many times.
+ * 
+ * The cache can be shared by multiple threads and validation runs.
+ * It is split into a number of least-recently-used segments, each with its own lock.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclValueCache {
+	/** Longer values are not cached */
+	public final static int MAX_LENGTH = 256;
+	
+	private final static Object VALID = new Object();
+	
+	private final Segment[] segments;
+	private final long maxSize;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	/**
+	 * Key, using the identity of the constraint
+	 */
+	private static class Key {
+		private final ShaclConstraint constraint;
+		private final Value value;
+		private final int hash;
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (! (o instanceof Key)) {
+				return false;
+			}
+			Key k = (Key) o;
+			return constraint == k.constraint && value.equals(k.value);
+		}
+		
+		Key(ShaclConstraint constraint, Value value) {
+			this.constraint = constraint;
+			this.value = value;
+			int h = System.identityHashCode(constraint) * 31 + value.hashCode();
+			this.hash = h ^ (h >>> 16);
+		}
+	}
+	
+	/**
+	 * Least-recently-used segment
+	 */
+	private class Segment extends LinkedHashMap<Key,Object> {
+		private static final long serialVersionUID = 1L;
+		
+		private final int max;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key,Object> eldest) {
+			if (size() > max) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+		
+		Segment(int max) {
+			super(16, 0.75f, true);
+			this.max = max;
+		}
+	}
+	
+	/**
+	 * Get the violated constraint component, computing and caching it when not yet cached.
+	 * Only literals are cached.
+	 * 
+	 * @param c constraint
+	 * @param v value
+	 * @param check function returning the violated component, or null when valid
+	 * @return component IRI or null when valid
+	 */
+	public IRI get(ShaclConstraint c, Value v, Function<Value,IRI> check) {
+		return get(c, v, check, null);
+	}
+	
+	/**
+	 * Get the violated constraint component, computing and caching it when not yet cached.
+	 * Only literals are cached, and results are not cached when the pattern budget was exceeded,
+	 * since these depend on the budget and the time available.
+	 * 
+	 * @param c constraint
+	 * @param v value
+	 * @param check function returning the violated component, or null when valid
+	 * @param budget pattern budget used by the check, or null
+	 * @return component IRI or null when valid
+	 */
+	public IRI get(ShaclConstraint c, Value v, Function<Value,IRI> check, ShaclPatternBudget budget) {
+		if (! (v instanceof Literal) || ((Literal) v).getLabel().length() > MAX_LENGTH) {
+			return check.apply(v);
+		}
+		Key key = new Key(c, v);
+		Segment segment = segments[key.hash & (segments.length - 1)];
+		Object res;
+		synchronized (segment) {
+			res = segment.get(key);
+		}
+		if (res != null) {
+			hits.increment();
+			return (res == VALID) ? null : (IRI) res;
+		}
+		misses.increment();
+		long exceeded = (budget != null) ? budget.getExceeded() : 0;
+		IRI component = check.apply(v);
+		if (budget != null && budget.getExceeded() != exceeded) {
+			// possibly exceeded by this check, or another thread: don't cache to be sure
+			return component;
+		}
+		synchronized (segment) {
+			segment.put(key, (component != null) ? component : VALID);
+		}
+		return component;
+	}
+	
+	/**
+	 * Remove all entries, e.g. when the shapes have changed.
+	 * Statistics are not reset.
+	 */
+	public void clear() {
+		for (Segment segment: segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+	
+	/**
+	 * Get the maximum number of entries
+	 * 
+	 * @return number of entries
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * Get the current number of entries
+	 * 
+	 * @return number of entries
+	 */
+	public long getSize() {
+		long size = 0;
+		for (Segment segment: segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+	
+	/**
+	 * Get the number of values found in the cache
+	 * 
+	 * @return number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * Get the number of values not found in the cache
+	 * 
+	 * @return number of misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * Get the number of entries removed to make room for new ones
+	 * 
+	 * @return number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	/**
+	 * Get the share of values found in the cache
+	 * 
+	 * @return hit rate between 0 and 1
+	 */
+	public double getHitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return (total > 0) ? (double) h / total : 0;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%s [size=%d, max=%d, hits=%d, misses=%d, evictions=%d, hitrate=%.3f]",
+			this.getClass().getSimpleName(), getSize(), maxSize, getHits(), getMisses(), 
+			getEvictions(), getHitRate());
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param maxSize maximum number of entries, at least 1
+	 */
+	public ShaclValueCache(long maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Cache size must be at least 1");
+		}
+		// power of two, a few segments per processor to limit contention
+		int n = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) * 2;
+		n = Math.max(1, Math.min(n, Integer.highestOneBit((int) Math.min(maxSize, 1 << 30))));
+		this.maxSize = maxSize;
+		this.segments = new Segment[n];
+		for (int i = 0; i < n; i++) {
+			segments[i] = new Segment((int) Math.min(Integer.MAX_VALUE, maxSize / n));
+		}
+	}
+}
@@ -0,0 +1,522 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.generator;
+
+import be.fedict.lod.shacl.constraints.ShaclConstraint;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyClass;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyCount;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyDatatype;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyNode;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyNodekind;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyString;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyStringLang;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyValue;
+import be.fedict.lod.shacl.shapes.ShaclNodeShape;
+import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
+import be.fedict.lod.shacl.targets.ShaclTarget;
+import be.fedict.lod.shacl.targets.ShaclTargetClass;
+import be.fedict.lod.shacl.targets.ShaclTargetNode;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.Rio;
+
+/**
+ * Generate synthetic N-Triples data for the targets of SHACL shapes.
+ * 
+ * Statements are written while they are generated, so the size of the output
+ * is not limited by the heap. 
+ * Using the same shapes, settings and seed always produces the same output.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclDataGenerator {
+	private final static ValueFactory F = SimpleValueFactory.getInstance();
+	private final static String WRONG_LANG = "xx";
+	
+	private final Map<Resource,ShaclNodeShape> shapes;
+	
+	private long seed = 0;
+	private double violations = 0;
+	private int cardinality = 3;
+	private int depth = 1;
+	private String namespace = "http://example.com/data/";
+	private Map<String,Double> languages = Collections.singletonMap("en", 1.0);
+	
+	private Random rnd;
+	private RDFWriter writer;
+	private long bnodes;
+	private long refs;
+	
+	/**
+	 * Set the seed of the random generator
+	 * 
+	 * @param seed seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	
+	/**
+	 * Set the share of property values violating a constraint.
+	 * 
+	 * @param share share between 0 (no violations) and 1
+	 */
+	public void setViolations(double share) {
+		if (share < 0 || share > 1) {
+			throw new IllegalArgumentException("Share must be between 0 and 1");
+		}
+		this.violations = share;
+	}
+	
+	/**
+	 * Set the maximum number of values of a property, when not limited by sh:maxCount.
+	 * 
+	 * @param cardinality maximum number of values, at least 1
+	 */
+	public void setCardinality(int cardinality) {
+		if (cardinality < 1) {
+			throw new IllegalArgumentException("Cardinality must be at least 1");
+		}
+		this.cardinality = cardinality;
+	}
+	
+	/**
+	 * Set the maximum depth of nested blank nodes, used for sh:node
+	 * 
+	 * @param depth maximum depth
+	 */
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
+	
+	/**
+	 * Set the namespace of the generated IRIs
+	 * 
+	 * @param namespace namespace
+	 */
+	public void setNamespace(String namespace) {
+		this.namespace = namespace;
+	}
+	
+	/**
+	 * Set the distribution of language tags, as relative weights.
+	 * Languages not allowed by sh:languageIn are skipped.
+	 * 
+	 * @param languages map of language codes and weights
+	 */
+	public void setLanguages(Map<String,Double> languages) {
+		if (languages == null || languages.isEmpty()) {
+			throw new IllegalArgumentException("At least one language is required");
+		}
+		this.languages = new LinkedHashMap<>(languages);
+	}
+	
+	/**
+	 * Write a statement
+	 * 
+	 * @param s subject
+	 * @param p predicate
+	 * @param o object
+	 */
+	private void write(Resource s, IRI p, Value o) {
+		writer.handleStatement(F.createStatement(s, p, o));
+	}
+	
+	/**
+	 * Create a (deterministic) blank node
+	 * 
+	 * @return blank node
+	 */
+	private Resource bnode() {
+		return F.createBNode("b" + (bnodes++));
+	}
+	
+	/**
+	 * Create a random word
+	 * 
+	 * @param min minimum length
+	 * @param max maximum length
+	 * @return word
+	 */
+	private String word(int min, int max) {
+		int len = min + rnd.nextInt(max - min + 1);
+		StringBuilder sb = new StringBuilder(len);
+		for (int i = 0; i < len; i++) {
+			sb.append((char) ('a' + rnd.nextInt(26)));
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Create a valid lexical value for a datatype
+	 * 
+	 * @param datatype datatype
+	 * @return lexical value
+	 */
+	private String lexical(IRI datatype) {
+		if (datatype.equals(XMLSchema.BOOLEAN)) {
+			return rnd.nextBoolean() ? "true" : "false";
+		}
+		if (datatype.equals(XMLSchema.INT) || datatype.equals(XMLSchema.INTEGER) 
+				|| datatype.equals(XMLSchema.LONG)) {
+			return String.valueOf(rnd.nextInt(100000) - 50000);
+		}
+		if (datatype.equals(XMLSchema.SHORT) || datatype.equals(XMLSchema.BYTE)) {
+			return String.valueOf(rnd.nextInt(100));
+		}
+		if (datatype.equals(XMLSchema.DECIMAL)) {
+			return rnd.nextInt(10000) + "." + rnd.nextInt(100);
+		}
+		if (datatype.equals(XMLSchema.DOUBLE) || datatype.equals(XMLSchema.FLOAT)) {
+			return (1 + rnd.nextInt(9)) + "." + rnd.nextInt(1000) + "E" + rnd.nextInt(10);
+		}
+		if (datatype.equals(XMLSchema.GYEAR)) {
+			return String.valueOf(1900 + rnd.nextInt(120));
+		}
+		if (datatype.equals(XMLSchema.DATE)) {
+			return String.format("%04d-%02d-%02d", 
+					1900 + rnd.nextInt(120), 1 + rnd.nextInt(12), 1 + rnd.nextInt(28));
+		}
+		if (datatype.equals(XMLSchema.DATETIME)) {
+			return String.format("%04d-%02d-%02dT%02d:%02d:%02d", 
+					1900 + rnd.nextInt(120), 1 + rnd.nextInt(12), 1 + rnd.nextInt(28),
+					rnd.nextInt(24), rnd.nextInt(60), rnd.nextInt(60));
+		}
+		if (datatype.equals(XMLSchema.ANYURI)) {
+			return namespace + word(3, 10);
+		}
+		return word(3, 12);
+	}
+	
+	/**
+	 * Create a string value, taking length and pattern into account
+	 * 
+	 * @param c string constraint
+	 * @param valid true to create a valid value
+	 * @return string
+	 */
+	private String string(ShaclConstraintPropertyString c, boolean valid) {
+		int min = c.getMinLength();
+		int max = Math.min(c.getMaxLength(), Math.max(min, 12));
+		Pattern pattern = c.getPattern();
+		
+		if (! valid) {
+			if (min > 0) {
+				return word(0, min - 1);
+			}
+			if (c.getMaxLength() < Integer.MAX_VALUE) {
+				return word(c.getMaxLength() + 1, c.getMaxLength() + 5);
+			}
+			String str = word(1, 5) + "~!";
+			return pattern.matcher(str).matches() ? "" : str;
+		}
+		if (pattern == null) {
+			return word(min, max);
+		}
+		String str = "";
+		for (int i = 0; i < 10; i++) {
+			str = ShaclPatternSampler.sample(pattern.pattern(), rnd);
+			if (str.length() >= min && str.length() <= c.getMaxLength() 
+					&& pattern.matcher(str).matches()) {
+				break;
+			}
+		}
+		return str;
+	}
+	
+	/**
+	 * Get the weights of the languages that can be used
+	 * 
+	 * @param c language constraint or null
+	 * @return map of language codes and weights
+	 */
+	private Map<String,Double> weights(ShaclConstraintPropertyStringLang c) {
+		Map<String,Double> weights = new LinkedHashMap<>(languages);
+		Set<String> allowed = (c != null) ? c.getLangs() : Collections.emptySet();
+		if (! allowed.isEmpty()) {
+			weights.keySet().retainAll(allowed);
+			if (weights.isEmpty()) {
+				allowed.forEach(l -> weights.put(l, 1.0));
+			}
+		}
+		return weights;
+	}
+	
+	/**
+	 * Choose languages, using the weights and allowed languages
+	 * 
+	 * @param c language constraint or null
+	 * @param n number of languages
+	 * @param unique true if languages must be unique
+	 * @return list of languages
+	 */
+	private List<String> langs(ShaclConstraintPropertyStringLang c, int n, boolean unique) {
+		Map<String,Double> weights = weights(c);
+		
+		List<String> res = new ArrayList<>(n);
+		for (int i = 0; i < n && !weights.isEmpty(); i++) {
+			double total = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+			double r = rnd.nextDouble() * total;
+			String lang = null;
+			for (Map.Entry<String,Double> e: weights.entrySet()) {
+				lang = e.getKey();
+				r -= e.getValue();
+				if (r < 0) {
+					break;
+				}
+			}
+			res.add(lang);
+			if (unique) {
+				weights.remove(lang);
+			}
+		}
+		return res;
+	}
+	
+	/**
+	 * Create a value of a node kind
+	 * 
+	 * @param c node kind constraint
+	 * @param valid true to create a valid value
+	 * @return value
+	 */
+	private Value nodekind(ShaclConstraintPropertyNodekind c, boolean valid) {
+		Value[] candidates = { F.createIRI(namespace, "node/" + word(5, 10)), 
+								F.createLiteral(word(3, 12)), bnode() };
+		int start = rnd.nextInt(candidates.length);
+		for (int i = 0; i < candidates.length; i++) {
+			Value v = candidates[(start + i) % candidates.length];
+			if (c.isValidValue(v) == valid) {
+				return v;
+			}
+		}
+		return candidates[start];
+	}
+	
+	/**
+	 * Generate the values of a property shape for a subject.
+	 * 
+	 * @param subj subject
+	 * @param p property shape
+	 * @param level nesting level
+	 */
+	private void generate(Resource subj, ShaclPropertyShape p, int level) {
+		ShaclConstraintPropertyCount count = null;
+		ShaclConstraintPropertyDatatype datatype = null;
+		ShaclConstraintPropertyNodekind kind = null;
+		ShaclConstraintPropertyString string = null;
+		ShaclConstraintPropertyStringLang lang = null;
+		ShaclConstraintPropertyValue value = null;
+		ShaclConstraintPropertyClass cl = null;
+		ShaclConstraintPropertyNode node = null;
+		
+		for (ShaclConstraint c: p.getConstraints()) {
+			if (c instanceof ShaclConstraintPropertyCount) {
+				count = (ShaclConstraintPropertyCount) c;
+			} else if (c instanceof ShaclConstraintPropertyDatatype) {
+				datatype = (ShaclConstraintPropertyDatatype) c;
+			} else if (c instanceof ShaclConstraintPropertyNodekind) {
+				kind = (ShaclConstraintPropertyNodekind) c;
+			} else if (c instanceof ShaclConstraintPropertyString) {
+				string = (ShaclConstraintPropertyString) c;
+			} else if (c instanceof ShaclConstraintPropertyStringLang) {
+				lang = (ShaclConstraintPropertyStringLang) c;
+			} else if (c instanceof ShaclConstraintPropertyValue) {
+				value = (ShaclConstraintPropertyValue) c;
+			} else if (c instanceof ShaclConstraintPropertyClass) {
+				cl = (ShaclConstraintPropertyClass) c;
+			} else if (c instanceof ShaclConstraintPropertyNode) {
+				node = (ShaclConstraintPropertyNode) c;
+			}
+		}
+		
+		// choose the constraint to violate, if any
+		ShaclConstraint violated = null;
+		if (violations > 0 && !p.getConstraints().isEmpty() && rnd.nextDouble() < violations) {
+			List<ShaclConstraint> l = new ArrayList<>(p.getConstraints());
+			l.removeIf(c -> c instanceof ShaclConstraintPropertyNode);
+			if (! l.isEmpty()) {
+				violated = l.get(rnd.nextInt(l.size()));
+			}
+		}
+
+		// number of values
+		int min = (count != null) ? count.getMin() : 0;
+		int max = (count != null) ? count.getMax() : Integer.MAX_VALUE;
+		if (value != null) {
+			min = Math.max(min, 1);
+		}
+		int hi = Math.min(max, Math.max(min, cardinality));
+		if (lang != null && lang.isUniqueLang()) {
+			hi = Math.max(min, Math.min(hi, weights(lang).size()));
+		}
+		int n = min + rnd.nextInt(hi - min + 1);
+		if (violated == count && count != null) {
+			n = (min > 0) ? min - 1 : max + 1;
+		}
+		if (violated != null && violated != count && n == 0) {
+			n = 1;
+		}
+		
+		List<String> langs = null;
+		if (lang != null) {
+			boolean duplicate = (violated == lang && lang.isUniqueLang() && n > 1);
+			langs = langs(lang, n, lang.isUniqueLang() && !duplicate);
+			if (duplicate) {
+				langs.set(1, langs.get(0));
+			} else if (violated == lang && !langs.isEmpty()) {
+				langs.set(0, WRONG_LANG);
+			}
+		}
+		
+		for (int i = 0; i < n; i++) {
+			Value v;
+			// only one of the values violates the constraint
+			ShaclConstraint bad = (i == n - 1) ? violated : null;
+			if (i == 0 && value != null && violated != value) {
+				v = value.getValue();
+			} else if (kind != null && bad == kind) {
+				v = nodekind(kind, false);
+			} else if (cl != null) {
+				IRI ref = F.createIRI(namespace, "ref/" + (refs++));
+				if (bad != cl) {
+					write(ref, RDF.TYPE, cl.getRDFClass());
+				}
+				v = ref;
+			} else if (node != null) {
+				Resource b = bnode();
+				ShaclNodeShape ns = shapes.get(node.getNode());
+				if (ns != null && level < depth) {
+					generate(b, ns, level + 1);
+				}
+				v = b;
+			} else if (kind != null) {
+				v = nodekind(kind, bad != kind);
+			} else if (datatype != null) {
+				IRI dt = datatype.getDataType();
+				if (bad == datatype) {
+					v = dt.equals(XMLSchema.STRING) ? F.createLiteral(rnd.nextInt(100))
+													: F.createLiteral(word(3, 12));
+				} else if (dt.equals(RDF.LANGSTRING)) {
+					v = F.createLiteral(word(3, 12), langs(null, 1, false).get(0));
+				} else {
+					v = F.createLiteral(lexical(dt), dt);
+				}
+			} else if (langs != null && i < langs.size()) {
+				v = F.createLiteral(word(3, 12), langs.get(i));
+			} else if (string != null) {
+				v = F.createLiteral(string(string, bad != string));
+			} else {
+				v = F.createLiteral(word(3, 12));
+			}
+			write(subj, p.getPath(), v);
+		}
+	}
+	
+	/**
+	 * Generate the values of all property shapes of a node shape for a subject.
+	 * 
+	 * @param subj subject
+	 * @param shape node shape
+	 * @param level nesting level
+	 */
+	private void generate(Resource subj, ShaclNodeShape shape, int level) {
+		for (ShaclPropertyShape p: shape.getPropertyShapes()) {
+			generate(subj, p, level);
+		}
+	}
+	
+	/**
+	 * Write N-Triples data, with a number of focus nodes for each target class.
+	 * Target nodes are only generated once.
+	 * 
+	 * @param os output stream
+	 * @param size number of focus nodes per target class
+	 * @throws RDFHandlerException 
+	 */
+	public void generate(OutputStream os, long size) throws RDFHandlerException {
+		Writer w = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+		
+		rnd = new Random(seed);
+		writer = Rio.createWriter(RDFFormat.NTRIPLES, w);
+		bnodes = 0;
+		refs = 0;
+		
+		writer.startRDF();
+		for (ShaclNodeShape shape: shapes.values()) {
+			if (shape.getTargets() == null) {
+				continue;
+			}
+			for (ShaclTarget t: shape.getTargets()) {
+				if (t instanceof ShaclTargetNode) {
+					generate(((ShaclTargetNode) t).getTargetNode(), shape, 0);
+				} else if (t instanceof ShaclTargetClass) {
+					IRI cl = ((ShaclTargetClass) t).getTargetClass();
+					String prefix = namespace + cl.getLocalName() + "/";
+					for (long i = 0; i < size; i++) {
+						IRI subj = F.createIRI(prefix + i);
+						write(subj, RDF.TYPE, cl);
+						generate(subj, shape, 0);
+					}
+				}
+			}
+		}
+		writer.endRDF();
+		writer = null;
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param shapes node shapes, as returned by the parser
+	 */
+	public ShaclDataGenerator(Map<Resource,ShaclNodeShape> shapes) {
+		this.shapes = shapes;
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Create random strings matching a regular expression.
+ * 
+ * Only a common subset is supported: literals, character classes, escapes like \d,
+ * groups, alternatives and quantifiers. Anchors and lookarounds are ignored, 
+ * so the result must still be checked against the pattern.
+ * 
+ * @author Bart Hanssens
+ */
+class ShaclPatternSampler {
+	private final static int MAX_REPEAT = 3;
+	
+	private final String regex;
+	private final Random rnd;
+	private int pos = 0;
+	
+	/**
+	 * Create a string matching (most) regular expressions
+	 * 
+	 * @param regex regular expression
+	 * @param rnd random generator
+	 * @return string
+	 */
+	public static String sample(String regex, Random rnd) {
+		ShaclPatternSampler sampler = new ShaclPatternSampler(regex, rnd);
+		StringBuilder sb = new StringBuilder();
+		sampler.alternatives(sb);
+		return sb.toString();
+	}
+	
+	/**
+	 * Check if there are more characters to be parsed
+	 * 
+	 * @return true if not at the end
+	 */
+	private boolean more() {
+		return pos < regex.length();
+	}
+	
+	/**
+	 * Parse alternatives, choosing one of them
+	 * 
+	 * @param sb string builder
+	 */
+	private void alternatives(StringBuilder sb) {
+		List<StringBuilder> alts = new ArrayList<>();
+		do {
+			StringBuilder alt = new StringBuilder();
+			sequence(alt);
+			alts.add(alt);
+		} while (more() && regex.charAt(pos) == '|' && ++pos > 0);
+		sb.append(alts.get(rnd.nextInt(alts.size())));
+	}
+	
+	/**
+	 * Parse a sequence of (quantified) atoms
+	 * 
+	 * @param sb string builder
+	 */
+	private void sequence(StringBuilder sb) {
+		while (more() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+			int start = pos;
+			StringBuilder atom = new StringBuilder();
+			atom(atom);
+			int end = pos;
+			
+			int[] range = quantifier();
+			int times = range[0] + rnd.nextInt(range[1] - range[0] + 1);
+			int after = pos;
+			if (times > 0) {
+				sb.append(atom);
+			}
+			for (int i = 1; i < times; i++) {
+				pos = start;
+				atom(sb);
+				pos = end;
+			}
+			pos = after;
+		}
+	}
+	
+	/**
+	 * Parse an optional quantifier
+	 * 
+	 * @return minimum and maximum number of repetitions
+	 */
+	private int[] quantifier() {
+		int[] range = { 1, 1 };
+		if (! more()) {
+			return range;
+		}
+		char c = regex.charAt(pos);
+		if (c == '?') {
+			range = new int[] { 0, 1 };
+		} else if (c == '*') {
+			range = new int[] { 0, MAX_REPEAT };
+		} else if (c == '+') {
+			range = new int[] { 1, MAX_REPEAT };
+		} else if (c == '{' && regex.indexOf('}', pos) > 0) {
+			int close = regex.indexOf('}', pos);
+			String[] parts = regex.substring(pos + 1, close).split(",", -1);
+			try {
+				int min = Integer.parseInt(parts[0].trim());
+				int max = (parts.length == 1) ? min
+						: parts[1].trim().isEmpty() ? min + MAX_REPEAT 
+													: Integer.parseInt(parts[1].trim());
+				range = new int[] { min, Math.max(min, max) };
+				pos = close;
+			} catch (NumberFormatException nfe) {
+				return range;
+			}
+		} else {
+			return range;
+		}
+		pos++;
+		// lazy or possessive quantifiers
+		if (more() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+			pos++;
+		}
+		return range;
+	}
+	
+	/**
+	 * Parse a single atom
+	 * 
+	 * @param sb string builder
+	 */
+	private void atom(StringBuilder sb) {
+		char c = regex.charAt(pos++);
+		switch (c) {
+			case '(':
+				if (more() && regex.charAt(pos) == '?') {
+					// non-capturing group or lookaround, only keep the group
+					pos++;
+					while (more() && regex.charAt(pos) != ':' && regex.charAt(pos) != ')') {
+						pos++;
+					}
+					if (more() && regex.charAt(pos) == ':') {
+						pos++;
+					}
+				}
+				alternatives(sb);
+				if (more()) {
+					pos++;
+				}
+				break;
+			case '[':
+				sb.append(charClass());
+				break;
+			case '.':
+				sb.append((char) ('a' + rnd.nextInt(26)));
+				break;
+			case '\\':
+				sb.append(escape());
+				break;
+			case '^':
+			case '$':
+				break;
+			default:
+				sb.append(c);
+		}
+	}
+	
+	/**
+	 * Parse an escaped character
+	 * 
+	 * @return character
+	 */
+	private char escape() {
+		if (! more()) {
+			return '\\';
+		}
+		char c = regex.charAt(pos++);
+		switch (c) {
+			case 'd': return (char) ('0' + rnd.nextInt(10));
+			case 'w': return (char) ('a' + rnd.nextInt(26));
+			case 's': return ' ';
+			case 'D': return 'x';
+			case 'W': return '-';
+			case 'S': return 'x';
+			case 'n': return '\n';
+			case 't': return '\t';
+			case 'p':
+			case 'P':
+				// unicode category, assume letters
+				int close = regex.indexOf('}', pos);
+				if (more() && regex.charAt(pos) == '{' && close > 0) {
+					pos = close + 1;
+				}
+				return (char) ('a' + rnd.nextInt(26));
+			default: return c;
+		}
+	}
+	
+	/**
+	 * Parse a character class and choose a character
+	 * 
+	 * @return character
+	 */
+	private char charClass() {
+		boolean negate = more() && regex.charAt(pos) == '^';
+		if (negate) {
+			pos++;
+		}
+		List<char[]> ranges = new ArrayList<>();
+		boolean first = true;
+		while (more() && (regex.charAt(pos) != ']' || first)) {
+			first = false;
+			char lo = regex.charAt(pos++);
+			if (lo == '\\' && more()) {
+				char e = regex.charAt(pos++);
+				switch (e) {
+					case 'd': ranges.add(new char[] { '0', '9' }); continue;
+					case 'w': ranges.add(new char[] { 'a', 'z' }); continue;
+					case 's': ranges.add(new char[] { ' ', ' ' }); continue;
+					case 'n': lo = '\n'; break;
+					case 't': lo = '\t'; break;
+					default: lo = e;
+				}
+			}
+			char hi = lo;
+			if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+				hi = regex.charAt(pos + 1);
+				pos += 2;
+				if (hi == '\\' && more()) {
+					hi = regex.charAt(pos++);
+				}
+			}
+			ranges.add(new char[] { lo, (char) Math.max(lo, hi) });
+		}
+		pos++;
+		
+		if (negate) {
+			List<Character> allowed = new ArrayList<>();
+			for (char c = '0'; c <= 'z'; c++) {
+				if (Character.isLetterOrDigit(c) && !inRanges(ranges, c)) {
+					allowed.add(c);
+				}
+			}
+			return allowed.isEmpty() ? '~' : allowed.get(rnd.nextInt(allowed.size()));
+		}
+		if (ranges.isEmpty()) {
+			return 'x';
+		}
+		char[] r = ranges.get(rnd.nextInt(ranges.size()));
+		return (char) (r[0] + rnd.nextInt(r[1] - r[0] + 1));
+	}
+	
+	/**
+	 * Check if a character is within one of the ranges
+	 * 
+	 * @param ranges character ranges
+	 * @param c character
+	 * @return true if in range
+	 */
+	private static boolean inRanges(List<char[]> ranges, char c) {
+		for (char[] r: ranges) {
+			if (c >= r[0] && c <= r[1]) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param regex regular expression
+	 * @param rnd random generator
+	 */
+	private ShaclPatternSampler(String regex, Random rnd) {
+		this.regex = regex;
+		this.rnd = rnd;
+	}
+}
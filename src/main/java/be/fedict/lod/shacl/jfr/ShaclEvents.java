@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.jfr;
+
+import be.fedict.lod.shacl.constraints.ShaclConstraint;
+import be.fedict.lod.shacl.shapes.ShaclNodeShape;
+import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
+
+import java.util.Objects;
+
+import jdk.jfr.EventType;
+
+/**
+ * Java Flight Recorder events for parsing shapes, resolving targets and validating.
+ * 
+ * Events are only created when JFR is available and the event is enabled in the recording,
+ * otherwise the begin methods return null. 
+ * The enabled check uses the event types looked up once, so no event is allocated
+ * when not recording.
+ * Callers only use this class, so the JFR API is never loaded on runtimes without it.
+ * 
+ * @author Bart Hanssens
+ */
+public final class ShaclEvents {
+	public final static String PREFIX = "be.fedict.lod.shacl.";
+	public final static String CATEGORY = "SHACL";
+	
+	private final static boolean AVAILABLE = isAvailable();
+	
+	/**
+	 * Event types, only loaded when the JFR API is available
+	 */
+	private final static class Types {
+		private final static EventType PARSE = EventType.getEventType(ShaclParseEvent.class);
+		private final static EventType NODE_SHAPE = EventType.getEventType(ShaclNodeShapeEvent.class);
+		private final static EventType TARGETS = EventType.getEventType(ShaclTargetsEvent.class);
+		private final static EventType CONSTRAINT = EventType.getEventType(ShaclConstraintEvent.class);
+	}
+	
+	/**
+	 * Check if the JFR API is available
+	 * 
+	 * @return true if available
+	 */
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException|LinkageError e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Get the name of a node shape
+	 * 
+	 * @param shape node shape or null
+	 * @return string
+	 */
+	private static String getName(ShaclNodeShape shape) {
+		return (shape != null) ? shape.getID().toString() : null;
+	}
+	
+	/**
+	 * Start a parse event
+	 * 
+	 * @return event or null when not recording
+	 */
+	public static Object beginParse() {
+		if (! AVAILABLE || ! Types.PARSE.isEnabled()) {
+			return null;
+		}
+		ShaclParseEvent event = new ShaclParseEvent();
+		event.begin();
+		return event;
+	}
+	
+	/**
+	 * End a parse event
+	 * 
+	 * @param obj event returned by beginParse
+	 * @param statements number of statements in the SHACL model
+	 * @param nodeShapes number of node shapes
+	 * @param propertyShapes number of property shapes
+	 */
+	public static void endParse(Object obj, long statements, long nodeShapes, long propertyShapes) {
+		ShaclParseEvent event = (ShaclParseEvent) obj;
+		event.end();
+		if (event.shouldCommit()) {
+			event.statements = statements;
+			event.nodeShapes = nodeShapes;
+			event.propertyShapes = propertyShapes;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Start a node shape event
+	 * 
+	 * @return event or null when not recording
+	 */
+	public static Object beginNodeShape() {
+		if (! AVAILABLE || ! Types.NODE_SHAPE.isEnabled()) {
+			return null;
+		}
+		ShaclNodeShapeEvent event = new ShaclNodeShapeEvent();
+		event.begin();
+		return event;
+	}
+	
+	/**
+	 * End a node shape event
+	 * 
+	 * @param obj event returned by beginNodeShape
+	 * @param shape node shape
+	 * @param focusNodes number of focus nodes
+	 * @param violations number of violations
+	 */
+	public static void endNodeShape(Object obj, ShaclNodeShape shape, long focusNodes, long violations) {
+		ShaclNodeShapeEvent event = (ShaclNodeShapeEvent) obj;
+		event.end();
+		if (event.shouldCommit()) {
+			event.shape = getName(shape);
+			event.focusNodes = focusNodes;
+			event.violations = violations;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Start a target resolution event
+	 * 
+	 * @return event or null when not recording
+	 */
+	public static Object beginTargets() {
+		if (! AVAILABLE || ! Types.TARGETS.isEnabled()) {
+			return null;
+		}
+		ShaclTargetsEvent event = new ShaclTargetsEvent();
+		event.begin();
+		return event;
+	}
+	
+	/**
+	 * End a target resolution event
+	 * 
+	 * @param obj event returned by beginTargets
+	 * @param shape node shape
+	 * @param targets number of targets (e.g. target classes) of the shape
+	 * @param focusNodes number of focus nodes found
+	 */
+	public static void endTargets(Object obj, ShaclNodeShape shape, long targets, long focusNodes) {
+		ShaclTargetsEvent event = (ShaclTargetsEvent) obj;
+		event.end();
+		if (event.shouldCommit()) {
+			event.shape = getName(shape);
+			event.targets = targets;
+			event.focusNodes = focusNodes;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Check if constraint events are being recorded, e.g. to decide if values must be counted
+	 * 
+	 * @return true if recording
+	 */
+	public static boolean isConstraintEnabled() {
+		return AVAILABLE && Types.CONSTRAINT.isEnabled();
+	}
+	
+	/**
+	 * Start a constraint event
+	 * 
+	 * @return event or null when not recording
+	 */
+	public static Object beginConstraint() {
+		if (! AVAILABLE || ! Types.CONSTRAINT.isEnabled()) {
+			return null;
+		}
+		ShaclConstraintEvent event = new ShaclConstraintEvent();
+		event.begin();
+		return event;
+	}
+	
+	/**
+	 * End a constraint event
+	 * 
+	 * @param obj event returned by beginConstraint
+	 * @param constraint constraint
+	 * @param focusNodes number of focus nodes
+	 * @param values number of values
+	 * @param violations number of violations
+	 */
+	public static void endConstraint(Object obj, ShaclConstraint constraint, 
+									long focusNodes, long values, long violations) {
+		ShaclConstraintEvent event = (ShaclConstraintEvent) obj;
+		event.end();
+		if (event.shouldCommit()) {
+			ShaclPropertyShape prop = constraint.getShape();
+			event.shape = (prop != null) ? getName(prop.getNodeShape()) : null;
+			event.path = (prop != null) ? Objects.toString(prop.getPath(), null) : null;
+			event.constraint = constraint.getClass().getSimpleName();
+			event.focusNodes = focusNodes;
+			event.values = values;
+			event.violations = violations;
+			event.commit();
+		}
+	}
+	
+	private ShaclEvents() {
+	}
+}
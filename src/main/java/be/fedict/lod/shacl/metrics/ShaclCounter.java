@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a shape or constraint class
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclCounter implements ShaclCounterMBean {
+	private final String type;
+	private final String name;
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+	private final LongAdder focusNodes = new LongAdder();
+	private final LongAdder values = new LongAdder();
+	private final LongAdder violations = new LongAdder();
+	
+	@Override
+	public String getType() {
+		return type;
+	}
+	
+	@Override
+	public String getName() {
+		return name;
+	}
+	
+	@Override
+	public long getCalls() {
+		return calls.sum();
+	}
+	
+	/**
+	 * Get the total time
+	 * 
+	 * @return time in nanoseconds
+	 */
+	public long getTimeNanos() {
+		return nanos.sum();
+	}
+	
+	@Override
+	public long getTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(nanos.sum());
+	}
+	
+	@Override
+	public long getFocusNodes() {
+		return focusNodes.sum();
+	}
+	
+	@Override
+	public long getValues() {
+		return values.sum();
+	}
+	
+	@Override
+	public long getViolations() {
+		return violations.sum();
+	}
+	
+	/**
+	 * Add a call
+	 * 
+	 * @param nanos time in nanoseconds
+	 * @param focusNodes number of focus nodes
+	 * @param values number of values
+	 */
+	public void add(long nanos, long focusNodes, long values) {
+		this.calls.increment();
+		this.nanos.add(nanos);
+		this.focusNodes.add(focusNodes);
+		this.values.add(values);
+	}
+	
+	/**
+	 * Add a violation
+	 */
+	public void addViolation() {
+		violations.increment();
+	}
+	
+	@Override
+	public void reset() {
+		calls.reset();
+		nanos.reset();
+		focusNodes.reset();
+		values.reset();
+		violations.reset();
+	}
+	
+	@Override
+	public String toString() {
+		return type + " " + name + ": calls=" + getCalls() + ", time=" + getTimeMillis() + "ms, " 
+				+ "focusNodes=" + getFocusNodes() + ", values=" + getValues() 
+				+ ", violations=" + getViolations();
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param type type
+	 * @param name name
+	 */
+	public ShaclCounter(String type, String name) {
+		this.type = type;
+		this.name = name;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.metrics;
+
+/**
+ * JMX interface of a counter
+ * 
+ * @author Bart Hanssens
+ */
+public interface ShaclCounterMBean {
+	/**
+	 * Get the type: NodeShape, PropertyShape or Constraint
+	 * 
+	 * @return type
+	 */
+	public String getType();
+	
+	/**
+	 * Get the name of the shape or constraint class
+	 * 
+	 * @return name
+	 */
+	public String getName();
+	
+	/**
+	 * Get the number of times the shape or constraint was validated
+	 * 
+	 * @return number of calls
+	 */
+	public long getCalls();
+	
+	/**
+	 * Get the total time
+	 * 
+	 * @return time in milliseconds
+	 */
+	public long getTimeMillis();
+	
+	/**
+	 * Get the number of focus nodes checked
+	 * 
+	 * @return number of focus nodes
+	 */
+	public long getFocusNodes();
+	
+	/**
+	 * Get the number of values checked
+	 * 
+	 * @return number of values
+	 */
+	public long getValues();
+	
+	/**
+	 * Get the number of violations found
+	 * 
+	 * @return number of violations
+	 */
+	public long getViolations();
+	
+	/**
+	 * Reset all counters to zero
+	 */
+	public void reset();
+}
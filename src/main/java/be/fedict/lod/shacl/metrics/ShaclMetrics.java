@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.metrics;
+
+import be.fedict.lod.shacl.constraints.ShaclConstraint;
+import be.fedict.lod.shacl.shapes.ShaclNodeShape;
+import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.rdf4j.model.IRI;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collect timings and counters per node shape, property shape and constraint class,
+ * optionally registered as JMX MBeans.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclMetrics implements ShaclMetricsListener, Closeable {
+	private final static Logger LOG = LoggerFactory.getLogger(ShaclMetrics.class);
+	public final static String DOMAIN = "be.fedict.lod.shacl";
+	
+	public final static String NODE_SHAPE = "NodeShape";
+	public final static String PROPERTY_SHAPE = "PropertyShape";
+	public final static String CONSTRAINT = "Constraint";
+	
+	private final Map<String,ShaclCounter> counters = new ConcurrentHashMap<>();
+	private final List<ObjectName> registered = new ArrayList<>();
+	private MBeanServer server = null;
+	
+	/**
+	 * Get the name of a node shape
+	 * 
+	 * @param shape node shape
+	 * @return name
+	 */
+	private static String getName(ShaclNodeShape shape) {
+		return shape.getID().toString();
+	}
+	
+	/**
+	 * Get the name of a property shape, using the node shape and the path for blank nodes
+	 * 
+	 * @param shape property shape
+	 * @return name
+	 */
+	private static String getName(ShaclPropertyShape shape) {
+		if (shape.getID() instanceof IRI || shape.getNodeShape() == null) {
+			return shape.getID().toString();
+		}
+		return getName(shape.getNodeShape()) + " " + shape.getPath();
+	}
+	
+	/**
+	 * Register a counter as MBean
+	 * 
+	 * @param counter counter
+	 */
+	private synchronized void register(ShaclCounter counter) {
+		if (server == null) {
+			return;
+		}
+		try {
+			ObjectName name = new ObjectName(DOMAIN + ":type=" + counter.getType() 
+											+ ",name=" + ObjectName.quote(counter.getName()));
+			if (! server.isRegistered(name)) {
+				server.registerMBean(counter, name);
+				registered.add(name);
+			}
+		} catch (JMException e) {
+			LOG.warn("Could not register MBean {}", counter.getName(), e);
+		}
+	}
+	
+	/**
+	 * Get or create a counter
+	 * 
+	 * @param type type
+	 * @param name name
+	 * @return counter
+	 */
+	private ShaclCounter get(String type, String name) {
+		String key = type + " " + name;
+		ShaclCounter counter = counters.get(key);
+		if (counter == null) {
+			ShaclCounter c = new ShaclCounter(type, name);
+			counter = counters.putIfAbsent(key, c);
+			if (counter == null) {
+				counter = c;
+				register(c);
+			}
+		}
+		return counter;
+	}
+	
+	/**
+	 * Get a counter
+	 * 
+	 * @param type NodeShape, PropertyShape or Constraint
+	 * @param name name of the shape or simple class name of the constraint
+	 * @return counter or null
+	 */
+	public ShaclCounter getCounter(String type, String name) {
+		return counters.get(type + " " + name);
+	}
+	
+	/**
+	 * Get all counters, slowest first
+	 * 
+	 * @return list of counters
+	 */
+	public List<ShaclCounter> getCounters() {
+		List<ShaclCounter> l = new ArrayList<>(counters.values());
+		l.sort(Comparator.comparingLong(ShaclCounter::getTimeNanos).reversed());
+		return l;
+	}
+	
+	/**
+	 * Register the counters as MBeans in the platform MBean server.
+	 * Counters created later on are registered as well.
+	 */
+	public synchronized void registerMBeans() {
+		server = ManagementFactory.getPlatformMBeanServer();
+		counters.values().forEach(this::register);
+	}
+	
+	/**
+	 * Unregister the MBeans
+	 */
+	@Override
+	public synchronized void close() {
+		if (server == null) {
+			return;
+		}
+		for (ObjectName name: registered) {
+			try {
+				server.unregisterMBean(name);
+			} catch (JMException e) {
+				LOG.warn("Could not unregister MBean {}", name, e);
+			}
+		}
+		registered.clear();
+		server = null;
+	}
+	
+	@Override
+	public void nodeShape(ShaclNodeShape shape, long nanos, long focusNodes) {
+		get(NODE_SHAPE, getName(shape)).add(nanos, focusNodes, 0);
+	}
+	
+	@Override
+	public void propertyShape(ShaclPropertyShape shape, long nanos, long focusNodes, long values) {
+		get(PROPERTY_SHAPE, getName(shape)).add(nanos, focusNodes, values);
+	}
+	
+	@Override
+	public void constraint(ShaclConstraint constraint, long nanos, long focusNodes, long values) {
+		get(CONSTRAINT, constraint.getClass().getSimpleName()).add(nanos, focusNodes, values);
+	}
+	
+	@Override
+	public void violation(ShaclConstraint constraint) {
+		get(CONSTRAINT, constraint.getClass().getSimpleName()).addViolation();
+		ShaclPropertyShape shape = constraint.getShape();
+		if (shape != null) {
+			get(PROPERTY_SHAPE, getName(shape)).addViolation();
+			if (shape.getNodeShape() != null) {
+				get(NODE_SHAPE, getName(shape.getNodeShape())).addViolation();
+			}
+		}
+	}
+}
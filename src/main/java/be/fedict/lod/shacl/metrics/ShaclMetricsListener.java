@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.metrics;
+
+import be.fedict.lod.shacl.constraints.ShaclConstraint;
+import be.fedict.lod.shacl.shapes.ShaclNodeShape;
+import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
+
+/**
+ * Receives timings and counters while validating.
+ * Methods can be called concurrently, once per chunk of focus nodes.
+ * In streaming mode, only violations are reported.
+ * 
+ * @author Bart Hanssens
+ */
+public interface ShaclMetricsListener {
+	/**
+	 * Node shape validated
+	 * 
+	 * @param shape node shape
+	 * @param nanos wall time in nanoseconds
+	 * @param focusNodes number of focus nodes
+	 */
+	public void nodeShape(ShaclNodeShape shape, long nanos, long focusNodes);
+	
+	/**
+	 * Property shape validated on a chunk of focus nodes
+	 * 
+	 * @param shape property shape
+	 * @param nanos time in nanoseconds, including selecting the values
+	 * @param focusNodes number of focus nodes
+	 * @param values number of values
+	 */
+	public void propertyShape(ShaclPropertyShape shape, long nanos, long focusNodes, long values);
+	
+	/**
+	 * Constraint validated on a chunk of focus nodes
+	 * 
+	 * @param constraint constraint
+	 * @param nanos time in nanoseconds
+	 * @param focusNodes number of focus nodes
+	 * @param values number of values
+	 */
+	public void constraint(ShaclConstraint constraint, long nanos, long focusNodes, long values);
+	
+	/**
+	 * Violation found
+	 * 
+	 * @param constraint violated constraint
+	 */
+	public void violation(ShaclConstraint constraint);
+}
@@ -34,14 +34,15 @@ import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyNodekind;
 import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyString;
 import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyStringLang;
 import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyValue;
+import be.fedict.lod.shacl.jfr.ShaclEvents;
 import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
 import be.fedict.lod.shacl.targets.ShaclTarget;
 import be.fedict.lod.shacl.targets.ShaclTargetClass;
 import be.fedict.lod.shacl.targets.ShaclTargetNode;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -221,7 +222,8 @@ public class ShaclParser {
 	 * @throws ShaclParserException
 	 */
 	public static Map<Resource,ShaclNodeShape> parse(Model shacl) throws ShaclParserException {
-		Map<Resource,ShaclNodeShape> shapes = new HashMap<>();
+		Map<Resource,ShaclNodeShape> shapes = new LinkedHashMap<>();
+		Object event = ShaclEvents.beginParse();
 		
 		// Node shapes
 		Model ids = shacl.filter(null, RDF.TYPE, SHACL.NODE_SHAPE);
@@ -281,6 +283,10 @@ public class ShaclParser {
 			shapes.put(subj,nodeShape);
 		}
 		LOG.info("Added {} node shapes", shapes.size());
+		if (event != null) {
+			ShaclEvents.endParse(event, shacl.size(), shapes.size(), 
+				shapes.values().stream().mapToInt(n -> n.getPropertyShapes().size()).sum());
+		}
 		return shapes;
 	}
 }
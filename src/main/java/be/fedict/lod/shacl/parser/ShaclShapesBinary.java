@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.parser;
+
+import be.fedict.lod.shacl.constraints.ShaclConstraint;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyClass;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyCount;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyDatatype;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyNode;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyNodekind;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyString;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyStringLang;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyValue;
+import be.fedict.lod.shacl.shapes.ShaclNodeShape;
+import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
+import be.fedict.lod.shacl.targets.ShaclTarget;
+import be.fedict.lod.shacl.targets.ShaclTargetClass;
+import be.fedict.lod.shacl.targets.ShaclTargetNode;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.ntriples.NTriplesUtil;
+
+/**
+ * Write and read parsed shapes in a compact binary format, 
+ * so they can be loaded without parsing the SHACL file again.
+ * 
+ * The header contains a version and the SHA-256 hash of the SHACL file,
+ * to detect files written by another version or for another SHACL file.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclShapesBinary {
+	private final static int MAGIC = 0x5348434C;
+	private final static int VERSION = 1;
+	
+	private final static byte TARGET_CLASS = 1;
+	private final static byte TARGET_NODE = 2;
+	
+	private final static byte CLASS = 1;
+	private final static byte COUNT = 2;
+	private final static byte DATATYPE = 3;
+	private final static byte NODE = 4;
+	private final static byte NODEKIND = 5;
+	private final static byte STRING = 6;
+	private final static byte STRINGLANG = 7;
+	private final static byte VALUE = 8;
+	
+	private final static ValueFactory F = SimpleValueFactory.getInstance();
+	
+	/**
+	 * Calculate the SHA-256 hash of a SHACL file
+	 * 
+	 * @param f file
+	 * @return hash
+	 * @throws IOException 
+	 */
+	public static byte[] hash(File f) throws IOException {
+		try (InputStream is = new DigestInputStream(new BufferedInputStream(new FileInputStream(f)), 
+													MessageDigest.getInstance("SHA-256"))) {
+			byte[] buf = new byte[8192];
+			while (is.read(buf) != -1) {
+				// read the whole file
+			}
+			return ((DigestInputStream) is).getMessageDigest().digest();
+		} catch (NoSuchAlgorithmException nsa) {
+			throw new IOException(nsa);
+		}
+	}
+	
+	/**
+	 * Write a string
+	 * 
+	 * @param out output
+	 * @param s string
+	 * @throws IOException 
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+	
+	/**
+	 * Read a string
+	 * 
+	 * @param in input
+	 * @return string
+	 * @throws IOException 
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		int len = in.readInt();
+		if (len < 0 || len > in.available()) {
+			throw new ShaclParserException("Invalid string length " + len + " in compiled shapes");
+		}
+		byte[] b = new byte[len];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Write an RDF term as N-Triples string
+	 * 
+	 * @param out output
+	 * @param v term
+	 * @throws IOException 
+	 */
+	private static void writeValue(DataOutputStream out, Value v) throws IOException {
+		writeString(out, NTriplesUtil.toNTriplesString(v));
+	}
+	
+	/**
+	 * Read an RDF term
+	 * 
+	 * @param in input
+	 * @return term
+	 * @throws IOException 
+	 */
+	private static Value readValue(DataInputStream in) throws IOException {
+		try {
+			return NTriplesUtil.parseValue(readString(in), F);
+		} catch (IllegalArgumentException iae) {
+			throw new ShaclParserException("Invalid term in compiled shapes", iae);
+		}
+	}
+	
+	/**
+	 * Write a constraint
+	 * 
+	 * @param out output
+	 * @param c constraint
+	 * @throws IOException 
+	 */
+	private static void writeConstraint(DataOutputStream out, ShaclConstraint c) throws IOException {
+		if (c instanceof ShaclConstraintPropertyClass) {
+			out.writeByte(CLASS);
+			writeValue(out, ((ShaclConstraintPropertyClass) c).getRDFClass());
+		} else if (c instanceof ShaclConstraintPropertyCount) {
+			out.writeByte(COUNT);
+			out.writeInt(((ShaclConstraintPropertyCount) c).getMin());
+			out.writeInt(((ShaclConstraintPropertyCount) c).getMax());
+		} else if (c instanceof ShaclConstraintPropertyDatatype) {
+			out.writeByte(DATATYPE);
+			writeValue(out, ((ShaclConstraintPropertyDatatype) c).getDataType());
+		} else if (c instanceof ShaclConstraintPropertyNode) {
+			out.writeByte(NODE);
+			writeValue(out, ((ShaclConstraintPropertyNode) c).getNode());
+		} else if (c instanceof ShaclConstraintPropertyNodekind) {
+			out.writeByte(NODEKIND);
+			writeValue(out, ((ShaclConstraintPropertyNodekind) c).getNodeKind());
+		} else if (c instanceof ShaclConstraintPropertyString) {
+			ShaclConstraintPropertyString s = (ShaclConstraintPropertyString) c;
+			out.writeByte(STRING);
+			out.writeInt(s.getMinLength());
+			out.writeInt(s.getMaxLength());
+			out.writeBoolean(s.getPattern() != null);
+			if (s.getPattern() != null) {
+				writeString(out, s.getPattern().pattern());
+			}
+		} else if (c instanceof ShaclConstraintPropertyStringLang) {
+			ShaclConstraintPropertyStringLang l = (ShaclConstraintPropertyStringLang) c;
+			out.writeByte(STRINGLANG);
+			out.writeInt(l.getLangs().size());
+			for (String lang: l.getLangs()) {
+				writeString(out, lang);
+			}
+			out.writeBoolean(l.isUniqueLang());
+		} else if (c instanceof ShaclConstraintPropertyValue) {
+			out.writeByte(VALUE);
+			writeValue(out, ((ShaclConstraintPropertyValue) c).getValue());
+		} else {
+			throw new ShaclParserException("Can not write constraint " + c);
+		}
+	}
+	
+	/**
+	 * Read a constraint
+	 * 
+	 * @param in input
+	 * @return constraint
+	 * @throws IOException 
+	 */
+	private static ShaclConstraint readConstraint(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+			case CLASS:
+				return new ShaclConstraintPropertyClass((IRI) readValue(in));
+			case COUNT:
+				return new ShaclConstraintPropertyCount(in.readInt(), in.readInt());
+			case DATATYPE:
+				return new ShaclConstraintPropertyDatatype((IRI) readValue(in));
+			case NODE:
+				return new ShaclConstraintPropertyNode((Resource) readValue(in));
+			case NODEKIND:
+				return new ShaclConstraintPropertyNodekind((IRI) readValue(in));
+			case STRING:
+				int min = in.readInt();
+				int max = in.readInt();
+				Pattern pattern = in.readBoolean() ? Pattern.compile(readString(in)) : null;
+				return new ShaclConstraintPropertyString(min, max, pattern);
+			case STRINGLANG:
+				int n = in.readInt();
+				Set<String> langs = new HashSet<>();
+				for (int i = 0; i < n; i++) {
+					langs.add(readString(in));
+				}
+				return new ShaclConstraintPropertyStringLang(langs, in.readBoolean());
+			case VALUE:
+				return new ShaclConstraintPropertyValue(readValue(in));
+			default:
+				throw new ShaclParserException("Unknown constraint type " + type);
+		}
+	}
+	
+	/**
+	 * Write shapes
+	 * 
+	 * @param shapes node shapes
+	 * @param hash hash of the SHACL file
+	 * @param os output stream
+	 * @throws IOException 
+	 */
+	public static void write(Map<Resource,ShaclNodeShape> shapes, byte[] hash, OutputStream os) 
+															throws IOException {
+		DataOutputStream out = new DataOutputStream(os);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(hash.length);
+		out.write(hash);
+		
+		out.writeInt(shapes.size());
+		for (ShaclNodeShape n: shapes.values()) {
+			writeValue(out, n.getID());
+			Set<ShaclTarget> targets = n.getTargets();
+			out.writeInt((targets != null) ? targets.size() : -1);
+			if (targets != null) {
+				for (ShaclTarget t: targets) {
+					if (t instanceof ShaclTargetClass) {
+						out.writeByte(TARGET_CLASS);
+						writeValue(out, ((ShaclTargetClass) t).getTargetClass());
+					} else if (t instanceof ShaclTargetNode) {
+						out.writeByte(TARGET_NODE);
+						writeValue(out, ((ShaclTargetNode) t).getTargetNode());
+					} else {
+						throw new ShaclParserException("Can not write target " + t);
+					}
+				}
+			}
+			out.writeInt(n.getPropertyShapes().size());
+			for (ShaclPropertyShape p: n.getPropertyShapes()) {
+				writeValue(out, p.getID());
+				writeValue(out, p.getPath());
+				out.writeInt(p.getConstraints().size());
+				for (ShaclConstraint c: p.getConstraints()) {
+					writeConstraint(out, c);
+				}
+			}
+		}
+		out.flush();
+	}
+	
+	/**
+	 * Read the whole input into memory
+	 * 
+	 * @param is input stream
+	 * @return bytes
+	 * @throws IOException 
+	 */
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		int len;
+		while ((len = is.read(buf)) != -1) {
+			bos.write(buf, 0, len);
+		}
+		return bos.toByteArray();
+	}
+	
+	/**
+	 * Read shapes.
+	 * The input is buffered completely, so lengths can be checked against the remaining bytes.
+	 * 
+	 * @param is input stream
+	 * @param hash expected hash of the SHACL file, or null to skip the check
+	 * @return node shapes
+	 * @throws IOException when the format or version is not supported or the hash does not match
+	 */
+	public static Map<Resource,ShaclNodeShape> read(InputStream is, byte[] hash) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(readAll(is)));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new ShaclParserException("Not a compiled shapes file");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new ShaclParserException("Unsupported compiled shapes version " + version);
+			}
+			int len = in.readInt();
+			if (len < 0 || len > 64) {
+				throw new ShaclParserException("Corrupt compiled shapes header");
+			}
+			byte[] h = new byte[len];
+			in.readFully(h);
+			if (hash != null && !Arrays.equals(hash, h)) {
+				throw new ShaclParserException("Compiled shapes do not match the SHACL file");
+			}
+			
+			Map<Resource,ShaclNodeShape> shapes = new LinkedHashMap<>();
+			int nodes = in.readInt();
+			for (int i = 0; i < nodes; i++) {
+				ShaclNodeShape n = new ShaclNodeShape((Resource) readValue(in));
+				int nrTargets = in.readInt();
+				if (nrTargets >= 0) {
+					Set<ShaclTarget> targets = new LinkedHashSet<>();
+					for (int j = 0; j < nrTargets; j++) {
+						byte type = in.readByte();
+						Value v = readValue(in);
+						targets.add((type == TARGET_CLASS) ? new ShaclTargetClass((IRI) v) 
+															: new ShaclTargetNode((Resource) v));
+					}
+					n.setTargets(targets);
+				}
+				int props = in.readInt();
+				for (int j = 0; j < props; j++) {
+					ShaclPropertyShape p = new ShaclPropertyShape((Resource) readValue(in));
+					p.setPath((IRI) readValue(in));
+					int constraints = in.readInt();
+					for (int k = 0; k < constraints; k++) {
+						p.addConstraint(readConstraint(in));
+					}
+					n.addPropertyShape(p);
+				}
+				shapes.put(n.getID(), n);
+			}
+			return shapes;
+		} catch (EOFException|ClassCastException|IllegalArgumentException|NegativeArraySizeException e) {
+			throw new ShaclParserException("Corrupt compiled shapes file", e);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.plan;
+
+/**
+ * Estimated cost and rejection of a constraint or shape.
+ * 
+ * The cost is a relative number of operations, the rejection is the estimated 
+ * probability that a focus node is found to be invalid.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclEstimate {
+	/** Lowest rejection used for ranking, so checks that are unlikely to fail still have a rank */
+	public final static double MIN_REJECTION = 0.001;
+	
+	private final long nodes;
+	private final long values;
+	private final double cost;
+	private final double rejection;
+	
+	/**
+	 * Get the estimated number of focus nodes
+	 * 
+	 * @return number of focus nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+	
+	/**
+	 * Get the estimated number of values
+	 * 
+	 * @return number of values
+	 */
+	public long getValues() {
+		return values;
+	}
+	
+	/**
+	 * Get the estimated cost
+	 * 
+	 * @return relative cost
+	 */
+	public double getCost() {
+		return cost;
+	}
+	
+	/**
+	 * Get the estimated rejection
+	 * 
+	 * @return probability between 0 and 1
+	 */
+	public double getRejection() {
+		return rejection;
+	}
+	
+	/**
+	 * Get the rank: cost per rejection. 
+	 * Evaluating the lowest ranks first finds violations as cheaply as possible.
+	 * 
+	 * @return rank
+	 */
+	public double getRank() {
+		return cost / Math.max(rejection, MIN_REJECTION);
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("nodes=%d, values=%d, cost=%.0f, rejection=%.3f", 
+								nodes, values, cost, rejection);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param nodes number of focus nodes
+	 * @param values number of values
+	 * @param cost relative cost
+	 * @param rejection probability of rejection
+	 */
+	public ShaclEstimate(long nodes, long values, double cost, double rejection) {
+		this.nodes = nodes;
+		this.values = values;
+		this.cost = cost;
+		this.rejection = Math.min(1, Math.max(0, rejection));
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.plan;
+
+import be.fedict.lod.shacl.constraints.ShaclConstraint;
+import be.fedict.lod.shacl.shapes.ShaclNodeShape;
+import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order in which node shapes, property shapes and constraints are evaluated.
+ * 
+ * A plan does not modify the shapes, so it can be used for one validation run
+ * while other runs use the shapes in their original order.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclPlan {
+	private final List<ShaclNodeShape> nodeShapes;
+	private final Map<ShaclNodeShape,List<ShaclPropertyShape>> properties = new IdentityHashMap<>();
+	private final Map<ShaclPropertyShape,List<ShaclConstraint>> constraints = new IdentityHashMap<>();
+	private final Map<Object,ShaclEstimate> estimates = new IdentityHashMap<>();
+	
+	/**
+	 * Get the node shapes, in order of evaluation
+	 * 
+	 * @return list of node shapes
+	 */
+	public List<ShaclNodeShape> getNodeShapes() {
+		return Collections.unmodifiableList(nodeShapes);
+	}
+	
+	/**
+	 * Get the property shapes of a node shape, in order of evaluation
+	 * 
+	 * @param n node shape
+	 * @return list of property shapes
+	 */
+	public List<ShaclPropertyShape> getPropertyShapes(ShaclNodeShape n) {
+		List<ShaclPropertyShape> l = properties.get(n);
+		return (l != null) ? l : n.getPropertyShapes();
+	}
+	
+	/**
+	 * Get the constraints of a property shape, in order of evaluation
+	 * 
+	 * @param p property shape
+	 * @return list of constraints
+	 */
+	public List<ShaclConstraint> getConstraints(ShaclPropertyShape p) {
+		List<ShaclConstraint> l = constraints.get(p);
+		return (l != null) ? l : p.getConstraints();
+	}
+	
+	/**
+	 * Get the estimate of a node shape, property shape or constraint
+	 * 
+	 * @param o shape or constraint
+	 * @return estimate or null
+	 */
+	public ShaclEstimate getEstimate(Object o) {
+		return estimates.get(o);
+	}
+	
+	/**
+	 * Set the order of the property shapes of a node shape
+	 * 
+	 * @param n node shape
+	 * @param l ordered list of property shapes
+	 */
+	void setPropertyShapes(ShaclNodeShape n, List<ShaclPropertyShape> l) {
+		properties.put(n, Collections.unmodifiableList(l));
+	}
+	
+	/**
+	 * Set the order of the constraints of a property shape
+	 * 
+	 * @param p property shape
+	 * @param l ordered list of constraints
+	 */
+	void setConstraints(ShaclPropertyShape p, List<ShaclConstraint> l) {
+		constraints.put(p, Collections.unmodifiableList(l));
+	}
+	
+	/**
+	 * Set the estimate of a shape or constraint
+	 * 
+	 * @param o shape or constraint
+	 * @param e estimate
+	 */
+	void setEstimate(Object o, ShaclEstimate e) {
+		estimates.put(o, e);
+	}
+	
+	/**
+	 * Describe the plan, with the estimates, in order of evaluation
+	 * 
+	 * @return multi-line description
+	 */
+	public String explain() {
+		StringBuilder sb = new StringBuilder();
+		for (ShaclNodeShape n: nodeShapes) {
+			sb.append(n.getID()).append(" [").append(getEstimate(n)).append("]\n");
+			for (ShaclPropertyShape p: getPropertyShapes(n)) {
+				sb.append("  ").append(p.getPath()).append(" [").append(getEstimate(p)).append("]\n");
+				for (ShaclConstraint c: getConstraints(p)) {
+					sb.append("    ").append(c.getClass().getSimpleName())
+						.append(" [").append(getEstimate(c)).append("]\n");
+				}
+			}
+		}
+		return sb.toString();
+	}
+	
+	@Override
+	public String toString() {
+		return explain();
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param nodeShapes node shapes, in order of evaluation
+	 */
+	ShaclPlan(List<ShaclNodeShape> nodeShapes) {
+		this.nodeShapes = nodeShapes;
+	}
+}
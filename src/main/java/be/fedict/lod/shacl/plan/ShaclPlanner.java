@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.plan;
+
+import be.fedict.lod.shacl.ShaclData;
+import be.fedict.lod.shacl.constraints.ShaclConstraint;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyClass;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyCount;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyDatatype;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyNode;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyNodekind;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyString;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyStringLang;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyValue;
+import be.fedict.lod.shacl.constraints.ShaclPatternMatcher;
+import be.fedict.lod.shacl.shapes.ShaclNodeShape;
+import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
+import be.fedict.lod.shacl.targets.ShaclTarget;
+import be.fedict.lod.shacl.targets.ShaclTargetClass;
+import be.fedict.lod.shacl.targets.ShaclTargetNode;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Cost-based planner, ordering the evaluation of shapes and constraints 
+ * so that cheap checks that are likely to find violations are done first.
+ * This matters when validation stops after a maximum number of violations.
+ * 
+ * The estimates use the number of focus nodes, the number of statements per predicate,
+ * and the complexity of patterns. When the data does not tell how likely a check is to fail,
+ * a fixed rejection per type of constraint is used.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclPlanner {
+	private final static double REJECT_COUNT = 0.01;
+	private final static double REJECT_KIND = 0.02;
+	private final static double REJECT_VALUE = 0.05;
+	private final static double REJECT_PATTERN = 0.1;
+	
+	/**
+	 * Get the relative cost of matching a pattern
+	 * 
+	 * @param m pattern matcher or null
+	 * @return cost per value
+	 */
+	private static double patternCost(ShaclPatternMatcher m) {
+		if (m == null) {
+			return 0;
+		}
+		int len = m.getPattern().pattern().length();
+		// backtracking can be much more expensive than a linear scan
+		return m.isLinear() ? 2 + len / 16.0 : 20 + len;
+	}
+	
+	/**
+	 * Estimate the cost and rejection of a constraint
+	 * 
+	 * @param c constraint
+	 * @param nodes number of focus nodes
+	 * @param values number of values
+	 * @return estimate
+	 */
+	static ShaclEstimate estimate(ShaclConstraint c, long nodes, long values) {
+		if (c instanceof ShaclConstraintPropertyCount) {
+			ShaclConstraintPropertyCount cnt = (ShaclConstraintPropertyCount) c;
+			double rejection = REJECT_COUNT;
+			if (nodes == 0) {
+				rejection = 0;
+			} else if (cnt.getMin() > 0 && values < nodes * cnt.getMin()) {
+				rejection = 1 - (double) values / (nodes * cnt.getMin());
+			} else if (cnt.getMax() < Integer.MAX_VALUE && values > nodes * cnt.getMax()) {
+				rejection = 1 - (double) nodes * cnt.getMax() / values;
+			}
+			return new ShaclEstimate(nodes, values, 2.0 * nodes, rejection);
+		}
+		if (c instanceof ShaclConstraintPropertyValue) {
+			// sh:hasValue fails for every focus node when there are no values
+			double rejection = (values == 0) ? ((nodes > 0) ? 1 : 0) : REJECT_VALUE;
+			return new ShaclEstimate(nodes, values, nodes + values, rejection);
+		}
+		if (c instanceof ShaclConstraintPropertyNode) {
+			return new ShaclEstimate(nodes, values, 0, 0);
+		}
+		
+		// other constraints check each value
+		double cost;
+		double rejection = REJECT_VALUE;
+		if (c instanceof ShaclConstraintPropertyNodekind) {
+			cost = 1;
+			rejection = REJECT_KIND;
+		} else if (c instanceof ShaclConstraintPropertyClass) {
+			cost = 2;
+		} else if (c instanceof ShaclConstraintPropertyStringLang) {
+			cost = 3;
+		} else if (c instanceof ShaclConstraintPropertyDatatype) {
+			cost = 4;
+		} else if (c instanceof ShaclConstraintPropertyString) {
+			ShaclPatternMatcher m = ((ShaclConstraintPropertyString) c).getMatcher();
+			cost = 1 + patternCost(m);
+			if (m != null) {
+				rejection = REJECT_PATTERN;
+			}
+		} else {
+			cost = 5;
+		}
+		return new ShaclEstimate(nodes, values, cost * values, (values == 0) ? 0 : rejection);
+	}
+	
+	/**
+	 * Combine estimates of checks that are all evaluated
+	 * 
+	 * @param nodes number of focus nodes
+	 * @param values number of values
+	 * @param cost additional cost
+	 * @param parts estimates of the parts
+	 * @return combined estimate
+	 */
+	private static ShaclEstimate combine(long nodes, long values, double cost, 
+											List<ShaclEstimate> parts) {
+		double accept = 1;
+		for (ShaclEstimate e: parts) {
+			cost += e.getCost();
+			accept *= 1 - e.getRejection();
+		}
+		return new ShaclEstimate(nodes, values, cost, 1 - accept);
+	}
+	
+	/**
+	 * Estimate the number of focus nodes of a node shape
+	 * 
+	 * @param n node shape
+	 * @param data data
+	 * @return number of focus nodes
+	 */
+	private static long countTargets(ShaclNodeShape n, ShaclData data) {
+		if (n.getTargets() == null) {
+			return data.subjects().size();
+		}
+		long nodes = 0;
+		for (ShaclTarget t: n.getTargets()) {
+			if (t instanceof ShaclTargetClass) {
+				nodes += data.countInstances(((ShaclTargetClass) t).getTargetClass());
+			} else if (t instanceof ShaclTargetNode) {
+				nodes++;
+			}
+		}
+		return nodes;
+	}
+	
+	/**
+	 * Plan the evaluation of node shapes on data
+	 * 
+	 * @param shapes node shapes
+	 * @param data data
+	 * @return plan
+	 */
+	public static ShaclPlan plan(List<ShaclNodeShape> shapes, ShaclData data) {
+		List<ShaclNodeShape> order = new ArrayList<>(shapes);
+		ShaclPlan plan = new ShaclPlan(order);
+		
+		for (ShaclNodeShape n: shapes) {
+			long nodes = countTargets(n, data);
+			
+			List<ShaclEstimate> propEstimates = new ArrayList<>();
+			List<ShaclPropertyShape> props = new ArrayList<>(n.getPropertyShapes());
+			long total = 0;
+			for (ShaclPropertyShape p: props) {
+				// upper bound: the predicate may also be used by nodes that are not focus nodes
+				long values = (nodes > 0) ? data.frequency(p.getPath()) : 0;
+				total += values;
+				
+				List<ShaclEstimate> estimates = new ArrayList<>();
+				List<ShaclConstraint> constraints = new ArrayList<>(p.getConstraints());
+				for (ShaclConstraint c: constraints) {
+					ShaclEstimate e = estimate(c, nodes, values);
+					plan.setEstimate(c, e);
+					estimates.add(e);
+				}
+				// stable sort, keeps the parsed order when ranks are equal
+				constraints.sort(Comparator.comparingDouble(c -> plan.getEstimate(c).getRank()));
+				plan.setConstraints(p, constraints);
+				
+				ShaclEstimate pe = combine(nodes, values, 0, estimates);
+				plan.setEstimate(p, pe);
+				propEstimates.add(pe);
+			}
+			props.sort(Comparator.comparingDouble(p -> plan.getEstimate(p).getRank()));
+			plan.setPropertyShapes(n, props);
+			
+			// resolving the targets
+			plan.setEstimate(n, combine(nodes, total, nodes, propEstimates));
+		}
+		order.sort(Comparator.comparingDouble(n -> plan.getEstimate(n).getRank()));
+		return plan;
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.report;
+
+import be.fedict.lod.shacl.ShaclViolation;
+import be.fedict.lod.shacl.constraints.ShaclConstraint;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
+
+/**
+ * In-memory validation report, collecting the violations.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclValidationReport implements ShaclViolationListener {
+	private final static Comparator<ShaclViolation> ORDER = 
+		Comparator.comparing((ShaclViolation v) -> Objects.toString(v.getShape(), ""))
+				.thenComparing(v -> Objects.toString(v.getFocusNode(), ""))
+				.thenComparing(v -> Objects.toString(v.getPath(), ""))
+				.thenComparing(v -> Objects.toString(v.getValue(), ""))
+				.thenComparing(v -> Objects.toString(v.getComponent(), ""));
+	
+	private final List<ShaclViolation> violations = new ArrayList<>();
+	
+	@Override
+	public void violation(ShaclConstraint constraint, IRI component, 
+							Resource focus, IRI path, Value value) {
+		violation(new ShaclViolation(constraint, component, focus, path, value));
+	}
+
+	@Override
+	public synchronized void violation(ShaclViolation violation) {
+		violations.add(violation);
+	}
+	
+	/**
+	 * Remove the violations of some focus nodes, e.g. before revalidating them
+	 * 
+	 * @param nodes focus nodes
+	 */
+	public synchronized void removeFocusNodes(Set<Resource> nodes) {
+		violations.removeIf(v -> nodes.contains(v.getFocusNode()));
+	}
+	
+	/**
+	 * Check if the data conforms to the shapes
+	 * 
+	 * @return true if there are no violations
+	 */
+	public synchronized boolean conforms() {
+		return violations.isEmpty();
+	}
+	
+	/**
+	 * Get the number of violations
+	 * 
+	 * @return number of violations
+	 */
+	public synchronized int size() {
+		return violations.size();
+	}
+	
+	/**
+	 * Get the violations, sorted by shape, focus node, path and value,
+	 * so the order does not depend on how the validation was run.
+	 * 
+	 * @return list of violations
+	 */
+	public synchronized List<ShaclViolation> getViolations() {
+		List<ShaclViolation> l = new ArrayList<>(violations);
+		l.sort(ORDER);
+		return l;
+	}
+	
+	/**
+	 * Convert to a SHACL validation report in RDF
+	 * 
+	 * @return RDF model
+	 */
+	public Model toModel() {
+		ValueFactory f = SimpleValueFactory.getInstance();
+		Model m = new LinkedHashModel();
+		m.setNamespace(SHACL.PREFIX, SHACL.NAMESPACE);
+		
+		BNode report = f.createBNode();
+		m.add(report, RDF.TYPE, SHACL.VALIDATION_REPORT);
+		m.add(report, SHACL.CONFORMS, f.createLiteral(conforms()));
+		
+		for (ShaclViolation v: getViolations()) {
+			BNode result = f.createBNode();
+			m.add(report, SHACL.RESULT, result);
+			m.add(result, RDF.TYPE, SHACL.VALIDATION_RESULT);
+			m.add(result, SHACL.RESULT_SEVERITY, SHACL.VIOLATION);
+			if (v.getFocusNode() != null) {
+				m.add(result, SHACL.FOCUS_NODE, v.getFocusNode());
+			}
+			if (v.getPath() != null) {
+				m.add(result, SHACL.RESULT_PATH, v.getPath());
+			}
+			if (v.getValue() != null) {
+				m.add(result, SHACL.VALUE, v.getValue());
+			}
+			if (v.getComponent() != null) {
+				m.add(result, SHACL.SOURCE_CONSTRAINT_COMPONENT, v.getComponent());
+			}
+			if (v.getShape() != null) {
+				m.add(result, SHACL.SOURCE_SHAPE, v.getShape());
+			}
+		}
+		return m;
+	}
+	
+	@Override
+	public String toString() {
+		return "conforms=" + conforms() + ", violations=" + size();
+	}
+}
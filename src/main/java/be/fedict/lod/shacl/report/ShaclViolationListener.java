@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.report;
+
+import be.fedict.lod.shacl.ShaclViolation;
+import be.fedict.lod.shacl.constraints.ShaclConstraint;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * Receives violations during validation.
+ * 
+ * Violations are passed as separate arguments, so listeners that only count
+ * or forward violations do not need to create objects.
+ * Implementations must be thread-safe when validating in parallel.
+ * 
+ * @author Bart Hanssens
+ */
+public interface ShaclViolationListener {
+	/**
+	 * Receive a violation
+	 * 
+	 * @param constraint violated constraint
+	 * @param component constraint component
+	 * @param focus focus node or null
+	 * @param path path or null
+	 * @param value value or null
+	 */
+	public void violation(ShaclConstraint constraint, IRI component, 
+							Resource focus, IRI path, Value value);
+	
+	/**
+	 * Receive a violation object
+	 * 
+	 * @param violation violation
+	 */
+	public default void violation(ShaclViolation violation) {
+		violation(violation.getConstraint(), violation.getComponent(), 
+				violation.getFocusNode(), violation.getPath(), violation.getValue());
+	}
+}
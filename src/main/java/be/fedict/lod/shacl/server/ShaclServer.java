@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.server;
+
+import be.fedict.lod.shacl.ShaclValidator;
+import be.fedict.lod.shacl.report.ShaclValidationReport;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.Rio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lightweight HTTP validation service, using the HTTP server of the JDK.
+ * 
+ * Shape sets are parsed once and kept in a registry.
+ * RDF data is posted to /validate/{name}, in any format supported by Rio,
+ * and a SHACL validation report is returned. 
+ * The number of concurrent validations is limited, other requests wait for a while
+ * and are then refused with status 503.
+ * The request body is parsed into memory, so its size is limited as well:
+ * larger requests are refused with status 413.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclServer implements Closeable {
+	private final static Logger LOG = LoggerFactory.getLogger(ShaclServer.class);
+	private final static String VALIDATE = "/validate/";
+	private final static String SHAPES = "/shapes";
+	public final static long DEFAULT_MAX_BODY = 64L * 1024 * 1024;
+	
+	private final Map<String,ShaclValidator> registry = new ConcurrentHashMap<>();
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Semaphore permits;
+	private volatile long wait = 1000;
+	private volatile long maxBody = DEFAULT_MAX_BODY;
+	
+	/**
+	 * Thrown when the request body is larger than the maximum size
+	 */
+	private static class BodyTooLargeException extends IOException {
+		private static final long serialVersionUID = 1L;
+		
+		private BodyTooLargeException(long max) {
+			super("Request body larger than " + max + " bytes");
+		}
+	}
+	
+	/**
+	 * Input stream failing when more than a maximum number of bytes is read,
+	 * also when the request has no content length
+	 */
+	private static class LimitedInputStream extends FilterInputStream {
+		private final long max;
+		private long remaining;
+		
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1 && --remaining < 0) {
+				throw new BodyTooLargeException(max);
+			}
+			return b;
+		}
+		
+		@Override
+		public int read(byte[] buf, int off, int len) throws IOException {
+			int n = super.read(buf, off, len);
+			if (n > 0 && (remaining -= n) < 0) {
+				throw new BodyTooLargeException(max);
+			}
+			return n;
+		}
+		
+		private LimitedInputStream(InputStream in, long max) {
+			super(in);
+			this.max = max;
+			this.remaining = max;
+		}
+	}
+	
+	/**
+	 * Register a shape set
+	 * 
+	 * @param name name, used in the path of the request
+	 * @param validator validator
+	 */
+	public void register(String name, ShaclValidator validator) {
+		registry.put(name, validator);
+	}
+	
+	/**
+	 * Remove a shape set
+	 * 
+	 * @param name name
+	 * @return validator or null
+	 */
+	public ShaclValidator unregister(String name) {
+		return registry.remove(name);
+	}
+	
+	/**
+	 * Get the names of the registered shape sets
+	 * 
+	 * @return sorted set of names
+	 */
+	public Set<String> getShapeSets() {
+		return new TreeSet<>(registry.keySet());
+	}
+	
+	/**
+	 * Get the address the server is listening on
+	 * 
+	 * @return address
+	 */
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+	
+	/**
+	 * Get the maximum time a request waits for a validation slot
+	 * 
+	 * @return time in milliseconds
+	 */
+	public long getWait() {
+		return wait;
+	}
+	
+	/**
+	 * Set the maximum time a request waits for a validation slot,
+	 * before it is refused.
+	 * 
+	 * @param wait time in milliseconds
+	 */
+	public void setWait(long wait) {
+		this.wait = wait;
+	}
+	
+	/**
+	 * Get the maximum size of a request body
+	 * 
+	 * @return size in bytes
+	 */
+	public long getMaxBody() {
+		return maxBody;
+	}
+	
+	/**
+	 * Set the maximum size of a request body.
+	 * The body is parsed into memory, so this limits the memory used per request.
+	 * 
+	 * @param max size in bytes, at least 1
+	 */
+	public void setMaxBody(long max) {
+		if (max < 1) {
+			throw new IllegalArgumentException("Maximum body size must be at least 1");
+		}
+		this.maxBody = max;
+	}
+	
+	/**
+	 * Read the remainder of the request body, so the connection can be reused
+	 * 
+	 * @param ex HTTP exchange
+	 * @throws IOException 
+	 */
+	private static void drain(HttpExchange ex) throws IOException {
+		InputStream is = ex.getRequestBody();
+		byte[] buf = new byte[8192];
+		while (is.read(buf) != -1) {
+			// discard
+		}
+	}
+	
+	/**
+	 * Send a response with a fixed length
+	 * 
+	 * @param ex HTTP exchange
+	 * @param status status code
+	 * @param type content type
+	 * @param body response body
+	 * @throws IOException 
+	 */
+	private static void send(HttpExchange ex, int status, String type, byte[] body) throws IOException {
+		drain(ex);
+		ex.getResponseHeaders().set("Content-Type", type);
+		ex.sendResponseHeaders(status, (body.length > 0) ? body.length : -1);
+		if (body.length > 0) {
+			try (OutputStream os = ex.getResponseBody()) {
+				os.write(body);
+			}
+		}
+	}
+	
+	/**
+	 * Send a plain text response
+	 * 
+	 * @param ex HTTP exchange
+	 * @param status status code
+	 * @param msg message
+	 * @throws IOException 
+	 */
+	private static void send(HttpExchange ex, int status, String msg) throws IOException {
+		send(ex, status, "text/plain; charset=utf-8", (msg + "\n").getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Get the RDF format of the report, based on the accept header
+	 * 
+	 * @param ex HTTP exchange
+	 * @return RDF format, Turtle by default
+	 */
+	private static RDFFormat getWriterFormat(HttpExchange ex) {
+		String accept = ex.getRequestHeaders().getFirst("Accept");
+		if (accept != null) {
+			for (String type: accept.split(",")) {
+				Optional<RDFFormat> fmt = Rio.getWriterFormatForMIMEType(type.split(";")[0].trim());
+				if (fmt.isPresent()) {
+					return fmt.get();
+				}
+			}
+		}
+		return RDFFormat.TURTLE;
+	}
+	
+	/**
+	 * List the registered shape sets
+	 * 
+	 * @param ex HTTP exchange
+	 * @throws IOException 
+	 */
+	private void handleShapes(HttpExchange ex) throws IOException {
+		try {
+			if (! ex.getRequestMethod().equals("GET")) {
+				send(ex, 405, "Method not allowed");
+				return;
+			}
+			send(ex, 200, String.join("\n", getShapeSets()));
+		} finally {
+			ex.close();
+		}
+	}
+	
+	/**
+	 * Validate the request body and return the report
+	 * 
+	 * @param ex HTTP exchange
+	 * @throws IOException 
+	 */
+	private void handleValidate(HttpExchange ex) throws IOException {
+		try {
+			if (! ex.getRequestMethod().equals("POST")) {
+				send(ex, 405, "Method not allowed");
+				return;
+			}
+			String name = ex.getRequestURI().getPath().substring(VALIDATE.length());
+			ShaclValidator validator = registry.get(name);
+			if (validator == null) {
+				send(ex, 404, "Unknown shape set " + name);
+				return;
+			}
+			String type = ex.getRequestHeaders().getFirst("Content-Type");
+			Optional<RDFFormat> fmt = (type == null) ? Optional.empty() 
+											: Rio.getParserFormatForMIMEType(type.split(";")[0].trim());
+			if (! fmt.isPresent()) {
+				send(ex, 415, "Unsupported content type " + type);
+				return;
+			}
+			RDFFormat out = getWriterFormat(ex);
+			
+			long max = maxBody;
+			String length = ex.getRequestHeaders().getFirst("Content-Length");
+			if (length != null && Long.parseLong(length.trim()) > max) {
+				send(ex, 413, "Request body larger than " + max + " bytes");
+				return;
+			}
+			if (! permits.tryAcquire(wait, TimeUnit.MILLISECONDS)) {
+				ex.getResponseHeaders().set("Retry-After", "1");
+				send(ex, 503, "Too many requests");
+				return;
+			}
+			ShaclValidationReport report;
+			try {
+				report = validator.report(new LimitedInputStream(ex.getRequestBody(), max), fmt.get());
+			} catch (BodyTooLargeException tle) {
+				send(ex, 413, tle.getMessage());
+				return;
+			} catch (RDFParseException pe) {
+				send(ex, 400, "Invalid RDF: " + pe.getMessage());
+				return;
+			} finally {
+				permits.release();
+			}
+			
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			Rio.write(report.toModel(), bos, out);
+			send(ex, 200, out.getDefaultMIMEType(), bos.toByteArray());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			// headers can only be sent once
+			if (ex.getResponseCode() == -1) {
+				send(ex, 503, "Server is shutting down");
+			}
+		} catch (IOException|RuntimeException e) {
+			LOG.error("Validation failed", e);
+			if (ex.getResponseCode() == -1) {
+				send(ex, 500, "Validation failed");
+			}
+		} finally {
+			ex.close();
+		}
+	}
+	
+	/**
+	 * Start the server
+	 */
+	public void start() {
+		server.start();
+		LOG.info("Listening on {}", server.getAddress());
+	}
+	
+	/**
+	 * Stop the server, waiting at most one second for running requests
+	 */
+	@Override
+	public void close() {
+		server.stop(1);
+		executor.shutdown();
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param addr address to listen on, port 0 for any free port
+	 * @param maxRequests maximum number of concurrent validations
+	 * @throws IOException 
+	 */
+	public ShaclServer(InetSocketAddress addr, int maxRequests) throws IOException {
+		if (maxRequests < 1) {
+			throw new IllegalArgumentException("Maximum number of requests must be at least 1");
+		}
+		this.permits = new Semaphore(maxRequests);
+		// more threads than validations, cheap requests and refusals don't have to wait
+		this.executor = Executors.newFixedThreadPool(maxRequests * 2);
+		this.server = HttpServer.create(addr, 0);
+		server.setExecutor(executor);
+		server.createContext(VALIDATE, this::handleValidate);
+		server.createContext(SHAPES, this::handleShapes);
+	}
+}
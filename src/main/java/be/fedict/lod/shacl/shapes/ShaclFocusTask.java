@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.shapes;
+
+import be.fedict.lod.shacl.ShaclContext;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.RecursiveAction;
+
+import org.eclipse.rdf4j.model.Resource;
+
+/**
+ * Validate the property shapes of a node shape on a range of focus nodes.
+ * Large ranges are split in two, idle threads of the fork/join pool can then
+ * steal the other half.
+ * 
+ * @author Bart Hanssens
+ */
+class ShaclFocusTask extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+	
+	private final ShaclNodeShape shape;
+	private final ShaclContext ctx;
+	private final Resource[] nodes;
+	private final int[] ids;
+	private final int start;
+	private final int end;
+	private final int chunk;
+	
+	/**
+	 * Validate a range of focus nodes
+	 * 
+	 * @param from first focus node (inclusive)
+	 * @param to last focus node (exclusive)
+	 */
+	private void validateRange(int from, int to) {
+		if (ids != null) {
+			shape.validateNodes(ctx, ids, from, to);
+			return;
+		}
+		Set<Resource> subjs = new HashSet<>(to - from);
+		for (int i = from; i < to; i++) {
+			subjs.add(nodes[i]);
+		}
+		shape.validateNodes(ctx, subjs);
+	}
+	
+	/**
+	 * Validate all focus nodes in the calling thread, one chunk at a time.
+	 */
+	public void computeSequential() {
+		for (int i = start; i < end && !ctx.isStopped(); i += chunk) {
+			validateRange(i, Math.min(i + chunk, end));
+		}
+	}
+	
+	@Override
+	protected void compute() {
+		if (ctx.isStopped()) {
+			return;
+		}
+		if (end - start > chunk) {
+			int mid = (start + end) >>> 1;
+			invokeAll(new ShaclFocusTask(shape, ctx, nodes, ids, start, mid, chunk),
+						new ShaclFocusTask(shape, ctx, nodes, ids, mid, end, chunk));
+			return;
+		}
+		validateRange(start, end);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param shape node shape
+	 * @param ctx validation context
+	 * @param nodes focus nodes or null
+	 * @param ids sorted IDs of focus nodes in encoded data, or null
+	 * @param start first focus node (inclusive)
+	 * @param end last focus node (exclusive)
+	 * @param chunk maximum number of focus nodes to validate without splitting
+	 */
+	private ShaclFocusTask(ShaclNodeShape shape, ShaclContext ctx, Resource[] nodes, int[] ids,
+							int start, int end, int chunk) {
+		this.shape = shape;
+		this.ctx = ctx;
+		this.nodes = nodes;
+		this.ids = ids;
+		this.start = start;
+		this.end = end;
+		this.chunk = chunk;
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param shape node shape
+	 * @param ctx validation context
+	 * @param nodes focus nodes
+	 * @param start first focus node (inclusive)
+	 * @param end last focus node (exclusive)
+	 * @param chunk maximum number of focus nodes to validate without splitting
+	 */
+	public ShaclFocusTask(ShaclNodeShape shape, ShaclContext ctx, 
+							Resource[] nodes, int start, int end, int chunk) {
+		this(shape, ctx, nodes, null, start, end, chunk);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param shape node shape
+	 * @param ctx validation context, with encoded data
+	 * @param ids sorted IDs of the focus nodes
+	 * @param start first focus node (inclusive)
+	 * @param end last focus node (exclusive)
+	 * @param chunk maximum number of focus nodes to validate without splitting
+	 */
+	public ShaclFocusTask(ShaclNodeShape shape, ShaclContext ctx, 
+							int[] ids, int start, int end, int chunk) {
+		this(shape, ctx, null, ids, start, end, chunk);
+	}
+}
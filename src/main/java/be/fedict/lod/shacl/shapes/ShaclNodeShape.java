@@ -25,29 +25,38 @@
  */
 package be.fedict.lod.shacl.shapes;
 
-import static be.fedict.lod.shacl.ShaclValidator.select;
+import be.fedict.lod.shacl.ShaclContext;
+import be.fedict.lod.shacl.ShaclData;
+import be.fedict.lod.shacl.ShaclModelData;
 import be.fedict.lod.shacl.constraints.ShaclConstraint;
-import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyClass;
+import be.fedict.lod.shacl.jfr.ShaclEvents;
+import be.fedict.lod.shacl.metrics.ShaclMetricsListener;
+import be.fedict.lod.shacl.plan.ShaclPlan;
+import be.fedict.lod.shacl.store.ShaclEncodedData;
 import be.fedict.lod.shacl.targets.ShaclTarget;
 import be.fedict.lod.shacl.targets.ShaclTargetClass;
 import be.fedict.lod.shacl.targets.ShaclTargetNode;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
 
-import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Resource;
-import org.eclipse.rdf4j.model.vocabulary.RDF;
 
 /**
  *
  * @author Bart.Hanssens
  */
 public class ShaclNodeShape extends ShaclShape {
+	/** Number of focus nodes validated by one task when running in parallel */
+	public final static int CHUNK = 512;
+	
 	private final List<ShaclPropertyShape> properties = new ArrayList<>();
 	private Set<ShaclTarget> targets = new HashSet<>();
 	
@@ -65,79 +74,351 @@ public class ShaclNodeShape extends ShaclShape {
 	}
 	
 	/**
-	 * Get subject IRIs by SHACL targetClass
+	 * Get subject IRIs of the targets of a shape.
+	 * When resolving the targets of many shapes, use a ShaclDataIndex instead,
+	 * which indexes the types only once.
 	 * 
 	 * @param m model
-	 * @param classes target classes
-	 * @return set of subjects
+	 * @return set of subjects 
 	 */
-	public static Set<Resource> getSubjectPerClass(Model m, Set<IRI> classes) {
-		Set<Resource> subjs = new HashSet<>();
-		for(Resource cl: classes) {
-			subjs.addAll(m.filter(null, RDF.TYPE, cl).subjects());
-		}
-		return subjs;
+	public Set<Resource> getTargetIDs(Model m) {
+		return getTargetIDs(new ShaclModelData(m));
 	}
 	
+	/**
+	 * Add property shape
+	 * 
+	 * @param shape 
+	 */
+	public void addPropertyShape(ShaclPropertyShape shape) {
+		properties.add(shape);
+		shape.setNodeShape(this);
+	}
+
 	/**
 	 * Get subject IRIs of the targets of a shape
 	 * 
-	 * @param m model
-	 * @return set of subjects 
+	 * @param data data
+	 * @return set of subjects
 	 */
-	public Set<Resource> getTargetIDs(Model m) {
+	public Set<Resource> getTargetIDs(ShaclData data) {
 		if (targets == null) {
-			return m.subjects();
+			return data.subjects();
 		}
-
-		Set<Resource> iris = new HashSet<>();
 		
-		Set<IRI> classes = targets.stream()
-									.filter(t -> t instanceof ShaclTargetClass)
-									.map(t -> ((ShaclTargetClass) t).getTargetClass())
-									.collect(Collectors.toSet());
-		if (!classes.isEmpty()) {
-			iris.addAll(getSubjectPerClass(m, classes));
+		Object event = ShaclEvents.beginTargets();
+		Set<Resource> iris = new HashSet<>();
+		for (ShaclTarget t: targets) {
+			if (t instanceof ShaclTargetClass) {
+				iris.addAll(data.instancesOf(((ShaclTargetClass) t).getTargetClass()));
+			} else if (t instanceof ShaclTargetNode) {
+				iris.add(((ShaclTargetNode) t).getTargetNode());
+			}
+		}
+		if (event != null) {
+			ShaclEvents.endTargets(event, this, targets.size(), iris.size());
 		}
-		
-		Set<Resource> nodes = targets.stream()
-									.filter(t -> t instanceof ShaclTargetNode)
-									.map(t -> ((ShaclTargetNode) t).getTargetNode())
-									.collect(Collectors.toSet());
-		iris.addAll(nodes);
-		
 		return iris;
 	}
 	
 	/**
-	 * Add property shape
+	 * Check if a node is a focus node of this shape
 	 * 
-	 * @param shape 
+	 * @param data data
+	 * @param node node
+	 * @return true if focus node
 	 */
-	public void addPropertyShape(ShaclPropertyShape shape) {
-		properties.add(shape);
-		shape.setNodeShape(this);
+	public boolean isTarget(ShaclData data, Resource node) {
+		if (targets == null) {
+			return true;
+		}
+		for (ShaclTarget t: targets) {
+			if (t instanceof ShaclTargetClass) {
+				if (data.hasType(node, ((ShaclTargetClass) t).getTargetClass())) {
+					return true;
+				}
+			} else if (t instanceof ShaclTargetNode) {
+				if (((ShaclTargetNode) t).getTargetNode().equals(node)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Get the sorted IDs of the targets of a shape in encoded data.
+	 * Target nodes that are not present in the data are returned separately.
+	 * 
+	 * @param data encoded data
+	 * @param missing target nodes not present in the data
+	 * @return sorted array of IDs
+	 */
+	public int[] getTargetIDs(ShaclEncodedData data, Set<Resource> missing) {
+		if (targets == null) {
+			return data.subjectIDs();
+		}
+		
+		Object event = ShaclEvents.beginTargets();
+		int[] ids = new int[0];
+		for (ShaclTarget t: targets) {
+			int[] add;
+			if (t instanceof ShaclTargetClass) {
+				add = data.instanceIDs(data.getID(((ShaclTargetClass) t).getTargetClass()));
+			} else if (t instanceof ShaclTargetNode) {
+				Resource node = ((ShaclTargetNode) t).getTargetNode();
+				int id = data.getID(node);
+				if (id < 0) {
+					missing.add(node);
+					continue;
+				}
+				add = new int[] { id };
+			} else {
+				continue;
+			}
+			ids = (ids.length == 0) ? add : IntStream.concat(Arrays.stream(ids), Arrays.stream(add))
+															.toArray();
+		}
+		// remove duplicates, in case of multiple targets
+		if (targets.size() > 1) {
+			ids = Arrays.stream(ids).sorted().distinct().toArray();
+		}
+		if (event != null) {
+			ShaclEvents.endTargets(event, this, targets.size(), ids.length + missing.size());
+		}
+		return ids;
 	}
 
-	public int validate(Model m) {
+	/**
+	 * Validate the property shapes on a set of focus nodes.
+	 * Stops early when the context signals that validation should stop.
+	 * 
+	 * @param ctx validation context
+	 * @param subjs focus nodes
+	 */
+	void validateNodes(ShaclContext ctx, Set<Resource> subjs) {
+		ShaclData data = ctx.getData();
+		ShaclMetricsListener metrics = ctx.getMetrics();
+		ShaclPlan plan = ctx.getPlan();
+
+		for (ShaclPropertyShape p: (plan != null) ? plan.getPropertyShapes(this) : properties) {
+			if (ctx.isStopped()) {
+				return;
+			}
+			long start = (metrics != null) ? System.nanoTime() : 0;
+			Model filtered = data.select(subjs, p.getPath());
+			for (ShaclConstraint c: (plan != null) ? plan.getConstraints(p) : p.getConstraints()) {
+				if (ctx.isStopped()) {
+					return;
+				}
+				validateConstraint(ctx, c, filtered, subjs);
+			}
+			if (metrics != null) {
+				metrics.propertyShape(p, System.nanoTime() - start, subjs.size(), filtered.size());
+			}
+		}
+	}
+	
+	/**
+	 * Validate the property shapes on a range of focus nodes in encoded data.
+	 * Stops early when the context signals that validation should stop.
+	 * 
+	 * @param ctx validation context
+	 * @param ids sorted IDs of the focus nodes
+	 * @param from first focus node (inclusive)
+	 * @param to last focus node (exclusive)
+	 */
+	void validateNodes(ShaclContext ctx, int[] ids, int from, int to) {
+		ShaclEncodedData data = (ShaclEncodedData) ctx.getData();
+		ShaclMetricsListener metrics = ctx.getMetrics();
+		boolean measured = (metrics != null) || ShaclEvents.isConstraintEnabled();
+		ShaclPlan plan = ctx.getPlan();
+		
+		for (ShaclPropertyShape p: (plan != null) ? plan.getPropertyShapes(this) : properties) {
+			if (ctx.isStopped()) {
+				return;
+			}
+			int path = data.getID(p.getPath());
+			List<ShaclConstraint> constraints = (plan != null) ? plan.getConstraints(p) 
+																: p.getConstraints();
+			if (! measured) {
+				for (ShaclConstraint c: constraints) {
+					if (ctx.isStopped()) {
+						return;
+					}
+					c.validatePart(ctx, data, ids, from, to, path);
+				}
+				continue;
+			}
+			long start = System.nanoTime();
+			int values = data.count(ids, from, to, path);
+			for (ShaclConstraint c: constraints) {
+				if (ctx.isStopped()) {
+					return;
+				}
+				validateConstraint(ctx, c, ids, from, to, path, values);
+			}
+			if (metrics != null) {
+				metrics.propertyShape(p, System.nanoTime() - start, to - from, values);
+			}
+		}
+	}
+	
+	/**
+	 * Validate a constraint on a set of focus nodes, 
+	 * reporting timings and counters when needed
+	 * 
+	 * @param ctx validation context
+	 * @param c constraint
+	 * @param m statements of the focus nodes, filtered on property path
+	 * @param subjs focus nodes
+	 */
+	private static void validateConstraint(ShaclContext ctx, ShaclConstraint c, 
+											Model m, Set<Resource> subjs) {
+		ShaclMetricsListener metrics = ctx.getMetrics();
+		Object event = ShaclEvents.beginConstraint();
+		if (metrics == null && event == null) {
+			c.validatePart(ctx, m, subjs);
+			return;
+		}
+		int before = ctx.getViolations(c);
+		long start = System.nanoTime();
+		c.validatePart(ctx, m, subjs);
+		if (metrics != null) {
+			metrics.constraint(c, System.nanoTime() - start, subjs.size(), m.size());
+		}
+		if (event != null) {
+			ShaclEvents.endConstraint(event, c, subjs.size(), m.size(), ctx.getViolations(c) - before);
+		}
+	}
+	
+	/**
+	 * Validate a constraint on a range of focus nodes in encoded data, 
+	 * reporting timings and counters
+	 * 
+	 * @param ctx validation context
+	 * @param c constraint
+	 * @param ids sorted IDs of the focus nodes
+	 * @param from first focus node (inclusive)
+	 * @param to last focus node (exclusive)
+	 * @param path ID of the property path, or -1 when not in the data
+	 * @param values number of values
+	 */
+	private static void validateConstraint(ShaclContext ctx, ShaclConstraint c, 
+									int[] ids, int from, int to, int path, int values) {
+		ShaclMetricsListener metrics = ctx.getMetrics();
+		Object event = ShaclEvents.beginConstraint();
+		int before = ctx.getViolations(c);
+		long start = System.nanoTime();
+		c.validatePart(ctx, (ShaclEncodedData) ctx.getData(), ids, from, to, path);
+		if (metrics != null) {
+			metrics.constraint(c, System.nanoTime() - start, to - from, values);
+		}
+		if (event != null) {
+			ShaclEvents.endConstraint(event, c, to - from, values, ctx.getViolations(c) - before);
+		}
+	}
+	
+	/**
+	 * Run a task on focus nodes, sequentially or using the thread pool
+	 * 
+	 * @param ctx validation context
+	 * @param task focus node task
+	 */
+	private static void run(ShaclContext ctx, ShaclFocusTask task) {
+		ForkJoinPool pool = ctx.getPool();
+		if (pool == null) {
+			task.computeSequential();
+		} else if (ForkJoinTask.getPool() == pool) {
+			// avoid submitting to the pool when already running inside it
+			task.invoke();
+		} else {
+			pool.invoke(task);
+		}
+	}
+	
+	/**
+	 * Validate the data against the property shapes.
+	 * Focus nodes are validated in chunks, so validation can stop early.
+	 * When the context has a thread pool, chunks are validated in parallel.
+	 * 
+	 * @param ctx validation context
+	 * @return number of constraints with violations
+	 */
+	public int validate(ShaclContext ctx) {
 		int errors = 0;
+		long start = (ctx.getMetrics() != null) ? System.nanoTime() : 0;
+		Object event = ShaclEvents.beginNodeShape();
+		long focusNodes;
 		
-		Set<Resource> subjs = getTargetIDs(m);
+		if (ctx.getData() instanceof ShaclEncodedData) {
+			Set<Resource> missing = new HashSet<>();
+			int[] ids = getTargetIDs((ShaclEncodedData) ctx.getData(), missing);
+			run(ctx, new ShaclFocusTask(this, ctx, ids, 0, ids.length, CHUNK));
+			if (! missing.isEmpty()) {
+				validateNodes(ctx, missing);
+			}
+			focusNodes = ids.length + missing.size();
+		} else {
+			Set<Resource> subjs = getTargetIDs(ctx.getData());
+			focusNodes = subjs.size();
+			if (subjs.size() <= CHUNK) {
+				validateNodes(ctx, subjs);
+			} else {
+				Resource[] nodes = subjs.toArray(new Resource[subjs.size()]);
+				run(ctx, new ShaclFocusTask(this, ctx, nodes, 0, nodes.length, CHUNK));
+			}
+		}
+		
+		if (ctx.getMetrics() != null) {
+			ctx.getMetrics().nodeShape(this, System.nanoTime() - start, focusNodes);
+		}
 		
+		long violations = 0;
 		for (ShaclPropertyShape p: properties) {
-			List<ShaclConstraint> constraints = p.getConstraints();
-			Model filtered = select(m, subjs, p.getPath());
-				
-			for (ShaclConstraint c: constraints) {
-				Model model = (c instanceof ShaclConstraintPropertyClass) ? m : filtered;
-	
-				if (! c.isValid(model, subjs)) {
+			for (ShaclConstraint c: p.getConstraints()) {
+				int n = ctx.getViolations(c);
+				if (n > 0) {
 					errors++;
+					violations += n;
 				}
 			}
 		}
+		if (event != null) {
+			ShaclEvents.endNodeShape(event, this, focusNodes, violations);
+		}
 		return errors;
 	}
+	
+	/**
+	 * Validate only some nodes against the property shapes, e.g. after a change in the data.
+	 * Nodes that are not focus nodes of this shape are skipped.
+	 * When the context has a thread pool, chunks of many nodes are validated in parallel.
+	 * 
+	 * @param ctx validation context
+	 * @param nodes nodes to validate
+	 */
+	public void validate(ShaclContext ctx, Set<Resource> nodes) {
+		Set<Resource> subjs = new HashSet<>();
+		for (Resource node: nodes) {
+			if (isTarget(ctx.getData(), node)) {
+				subjs.add(node);
+			}
+		}
+		if (! subjs.isEmpty()) {
+			long start = (ctx.getMetrics() != null) ? System.nanoTime() : 0;
+			if (subjs.size() <= CHUNK) {
+				validateNodes(ctx, subjs);
+			} else {
+				Resource[] arr = subjs.toArray(new Resource[subjs.size()]);
+				run(ctx, new ShaclFocusTask(this, ctx, arr, 0, arr.length, CHUNK));
+			}
+			if (ctx.getMetrics() != null) {
+				ctx.getMetrics().nodeShape(this, System.nanoTime() - start, subjs.size());
+			}
+		}
+	}
+	
 	/**
 	 * Get property shapes
 	 * 
@@ -67,7 +67,7 @@ public class ShaclPropertyShape extends ShaclShape {
 		if (constraint != null) {
 			constraint.setShape(this);
 			constraints.add(constraint);
-			LOG.info("Added constraint {}", constraint);
+			LOG.debug("Added constraint {}", constraint);
 		}
 	}
 	
@@ -5,6 +5,7 @@
  */
 package be.fedict.lod.shacl.shapes;
 
+import be.fedict.lod.shacl.ShaclContext;
 import be.fedict.lod.shacl.constraints.ShaclConstraintProperty;
 import java.util.List;
 import java.util.Set;
@@ -30,7 +31,12 @@ public class ShaclRulePropertyIgnored extends ShaclConstraintProperty {
 	}
 
 	@Override
-	protected void validate(Model m, Set<Resource> targets) {
+	public IRI getComponent() {
+		return null;
+	}
+	
+	@Override
+	protected void validate(ShaclContext ctx, Model m, Set<Resource> targets) {
 		// do nothing
 	}
 }
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.store;
+
+import be.fedict.lod.shacl.ShaclData;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+
+/**
+ * Dictionary-encoded data.
+ * 
+ * Terms are encoded as int IDs, triples are sorted by subject, predicate and object.
+ * The rdf:type triples are also kept in a separate table, sorted by class and instance.
+ * Constraints can work on the IDs, and only decode terms when needed.
+ * 
+ * @author Bart Hanssens
+ */
+public abstract class ShaclEncodedData implements ShaclData {
+	private volatile int[] frequencies = null;
+	
+	/**
+	 * Get the number of triples
+	 * 
+	 * @return number of triples
+	 */
+	public abstract int size();
+	
+	/**
+	 * Get the subject ID of a triple
+	 * 
+	 * @param i triple index
+	 * @return subject ID
+	 */
+	public abstract int subject(int i);
+	
+	/**
+	 * Get the predicate ID of a triple
+	 * 
+	 * @param i triple index
+	 * @return predicate ID
+	 */
+	public abstract int predicate(int i);
+	
+	/**
+	 * Get the object ID of a triple
+	 * 
+	 * @param i triple index
+	 * @return object ID
+	 */
+	public abstract int object(int i);
+	
+	/**
+	 * Get the number of rdf:type triples
+	 * 
+	 * @return number of triples
+	 */
+	public abstract int typeSize();
+	
+	/**
+	 * Get the class ID of a rdf:type triple
+	 * 
+	 * @param i type index
+	 * @return class ID
+	 */
+	public abstract int typeClass(int i);
+	
+	/**
+	 * Get the instance ID of a rdf:type triple
+	 * 
+	 * @param i type index
+	 * @return instance ID
+	 */
+	public abstract int typeInstance(int i);
+	
+	/**
+	 * Get the ID of a term
+	 * 
+	 * @param v term
+	 * @return ID or -1 if not present
+	 */
+	public abstract int getID(Value v);
+	
+	/**
+	 * Decode a term
+	 * 
+	 * @param id ID
+	 * @return term
+	 */
+	public abstract Value getTerm(int id);
+	
+	/**
+	 * Get the index of the first triple with a subject and predicate 
+	 * equal to or larger than the given IDs.
+	 * 
+	 * @param s subject ID
+	 * @param p predicate ID
+	 * @return triple index
+	 */
+	public int lowerBound(int s, int p) {
+		int lo = 0;
+		int hi = size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = Integer.compare(subject(mid), s);
+			if (cmp == 0) {
+				cmp = Integer.compare(predicate(mid), p);
+			}
+			if (cmp < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+	
+	/**
+	 * Get the index of the first rdf:type triple with a class and instance
+	 * equal to or larger than the given IDs.
+	 * 
+	 * @param cl class ID
+	 * @param inst instance ID
+	 * @return type index
+	 */
+	public int typeLowerBound(int cl, int inst) {
+		int lo = 0;
+		int hi = typeSize();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = Integer.compare(typeClass(mid), cl);
+			if (cmp == 0) {
+				cmp = Integer.compare(typeInstance(mid), inst);
+			}
+			if (cmp < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+	
+	/**
+	 * Check if a term is an instance of a class
+	 * 
+	 * @param id term ID
+	 * @param cl class ID
+	 * @return true if instance
+	 */
+	public boolean hasType(int id, int cl) {
+		int i = typeLowerBound(cl, id);
+		return (i < typeSize() && typeClass(i) == cl && typeInstance(i) == id);
+	}
+	
+	/**
+	 * Get the IDs of the instances of a class, sorted
+	 * 
+	 * @param cl class ID
+	 * @return array of IDs
+	 */
+	public int[] instanceIDs(int cl) {
+		if (cl < 0) {
+			return new int[0];
+		}
+		int start = typeLowerBound(cl, 0);
+		int end = typeLowerBound(cl + 1, 0);
+		int[] ids = new int[end - start];
+		for (int i = start; i < end; i++) {
+			ids[i - start] = typeInstance(i);
+		}
+		return ids;
+	}
+	
+	/**
+	 * Get the IDs of all subjects, sorted
+	 * 
+	 * @return array of IDs
+	 */
+	public int[] subjectIDs() {
+		int[] ids = new int[size()];
+		int n = 0;
+		for (int i = 0; i < size(); i++) {
+			int s = subject(i);
+			if (n == 0 || ids[n - 1] != s) {
+				ids[n++] = s;
+			}
+		}
+		return Arrays.copyOf(ids, n);
+	}
+	
+	/**
+	 * Count the statements of a range of subjects
+	 * 
+	 * @param subjs sorted subject IDs
+	 * @param from first subject (inclusive)
+	 * @param to last subject (exclusive)
+	 * @param p predicate ID
+	 * @return number of statements
+	 */
+	public int count(int[] subjs, int from, int to, int p) {
+		if (p < 0) {
+			return 0;
+		}
+		int n = 0;
+		for (int i = from; i < to; i++) {
+			n += lowerBound(subjs[i], p + 1) - lowerBound(subjs[i], p);
+		}
+		return n;
+	}
+	
+	/**
+	 * Select statements of a range of subjects
+	 * 
+	 * @param subjs sorted subject IDs
+	 * @param from first subject (inclusive)
+	 * @param to last subject (exclusive)
+	 * @param p predicate ID
+	 * @return filtered model
+	 */
+	public Model select(int[] subjs, int from, int to, int p) {
+		Model m = new LinkedHashModel();
+		for (int i = from; i < to; i++) {
+			int end = lowerBound(subjs[i], p + 1);
+			for (int j = lowerBound(subjs[i], p); j < end; j++) {
+				m.add((Resource) getTerm(subject(j)), (IRI) getTerm(predicate(j)), getTerm(object(j)));
+			}
+		}
+		return m;
+	}
+	
+	@Override
+	public Set<Resource> subjects() {
+		Set<Resource> subjs = new HashSet<>();
+		for (int id: subjectIDs()) {
+			subjs.add((Resource) getTerm(id));
+		}
+		return subjs;
+	}
+	
+	@Override
+	public Set<Resource> instancesOf(IRI cl) {
+		Set<Resource> subjs = new HashSet<>();
+		for (int id: instanceIDs(getID(cl))) {
+			subjs.add((Resource) getTerm(id));
+		}
+		return subjs;
+	}
+	
+	@Override
+	public int countInstances(IRI cl) {
+		int id = getID(cl);
+		return (id < 0) ? 0 : typeLowerBound(id + 1, 0) - typeLowerBound(id, 0);
+	}
+	
+	/**
+	 * Count the statements per predicate ID, only once
+	 * 
+	 * @return array of counts, indexed by predicate ID
+	 */
+	private int[] getFrequencies() {
+		int[] freqs = frequencies;
+		if (freqs == null) {
+			freqs = new int[16];
+			for (int i = 0; i < size(); i++) {
+				int p = predicate(i);
+				if (p >= freqs.length) {
+					freqs = Arrays.copyOf(freqs, Math.max(p + 1, freqs.length * 2));
+				}
+				freqs[p]++;
+			}
+			frequencies = freqs;
+		}
+		return freqs;
+	}
+	
+	@Override
+	public int frequency(IRI p) {
+		int id = getID(p);
+		int[] freqs = getFrequencies();
+		return (id >= 0 && id < freqs.length) ? freqs[id] : 0;
+	}
+	
+	@Override
+	public boolean hasType(Value v, IRI cl) {
+		int id = getID(v);
+		int clID = getID(cl);
+		return (id >= 0 && clID >= 0 && hasType(id, clID));
+	}
+	
+	@Override
+	public Model select(Set<Resource> s, IRI p) {
+		Model m = new LinkedHashModel();
+		int pID = (p != null) ? getID(p) : -1;
+		if (p != null && pID < 0) {
+			return m;
+		}
+		for (Resource subj: s) {
+			int id = getID(subj);
+			if (id < 0) {
+				continue;
+			}
+			int start = (p != null) ? lowerBound(id, pID) : lowerBound(id, 0);
+			int end = (p != null) ? lowerBound(id, pID + 1) : lowerBound(id + 1, 0);
+			for (int j = start; j < end; j++) {
+				m.add(subj, (IRI) getTerm(predicate(j)), getTerm(object(j)));
+			}
+		}
+		return m;
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.ntriples.NTriplesUtil;
+
+/**
+ * Dictionary of terms stored in memory-mapped files, assigning int IDs in order of first appearance.
+ * 
+ * Terms are stored as N-Triples strings, one after the other, with a table of offsets.
+ * Looking up IDs uses an open addressing hash table, also stored on disk.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclMappedDictionary implements Closeable {
+	final static String TERMS = "terms.bin";
+	final static String OFFSETS = "offsets.bin";
+	final static String HASH = "hash.bin";
+	
+	private final static int INITIAL = 1 << 16;
+	private final static ValueFactory F = SimpleValueFactory.getInstance();
+	
+	private final Path dir;
+	private final ShaclMappedFile terms;
+	private final ShaclMappedFile offsets;
+	private ShaclMappedFile hash;
+	private long capacity;
+	private int size;
+	
+	/**
+	 * Get the number of terms
+	 * 
+	 * @return number of terms
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Serialize a term
+	 * 
+	 * @param v term
+	 * @return UTF-8 bytes
+	 */
+	private static byte[] toBytes(Value v) {
+		return NTriplesUtil.toNTriplesString(v).getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Calculate the hash of a serialized term
+	 * 
+	 * @param b bytes
+	 * @return hash
+	 */
+	private static int hash(byte[] b) {
+		int h = 0x811C9DC5;
+		for (byte c: b) {
+			h = (h ^ c) * 0x01000193;
+		}
+		return h ^ (h >>> 16);
+	}
+	
+	/**
+	 * Read the serialized term 
+	 * 
+	 * @param id ID
+	 * @return bytes
+	 */
+	private byte[] bytes(int id) {
+		long start = offsets.getLong(id * 8L);
+		byte[] b = new byte[(int) (offsets.getLong(id * 8L + 8) - start)];
+		terms.get(start, b);
+		return b;
+	}
+	
+	/**
+	 * Find the slot of a serialized term in the hash table
+	 * 
+	 * @param b bytes
+	 * @param h hash
+	 * @return slot, either empty or containing the term
+	 */
+	private long slot(byte[] b, int h) {
+		long mask = capacity - 1;
+		for (long i = h & mask; ; i = (i + 1) & mask) {
+			int id = hash.getInt(i * 8 + 4) - 1;
+			if (id < 0) {
+				return i;
+			}
+			if (hash.getInt(i * 8) == h && Arrays.equals(bytes(id), b)) {
+				return i;
+			}
+		}
+	}
+	
+	/**
+	 * Double the size of the hash table
+	 * 
+	 * @throws IOException 
+	 */
+	private void grow() throws IOException {
+		Path tmp = dir.resolve(HASH + ".tmp");
+		long cap = capacity * 2;
+		ShaclMappedFile table = ShaclMappedFile.create(tmp);
+		table.ensure(cap * 8);
+		
+		for (long i = 0; i < capacity; i++) {
+			int id = hash.getInt(i * 8 + 4);
+			if (id > 0) {
+				int h = hash.getInt(i * 8);
+				long j = h & (cap - 1);
+				while (table.getInt(j * 8 + 4) != 0) {
+					j = (j + 1) & (cap - 1);
+				}
+				table.putInt(j * 8, h);
+				table.putInt(j * 8 + 4, id);
+			}
+		}
+		hash.close();
+		Files.move(tmp, dir.resolve(HASH), StandardCopyOption.REPLACE_EXISTING);
+		hash = table;
+		capacity = cap;
+	}
+	
+	/**
+	 * Encode a term, adding it to the dictionary when needed
+	 * 
+	 * @param v term
+	 * @return ID
+	 * @throws IOException 
+	 */
+	public int encode(Value v) throws IOException {
+		byte[] b = toBytes(v);
+		int h = hash(b);
+		long i = slot(b, h);
+		int id = hash.getInt(i * 8 + 4) - 1;
+		if (id >= 0) {
+			return id;
+		}
+		
+		id = size++;
+		long start = offsets.getLong(id * 8L);
+		terms.ensure(start + b.length);
+		terms.put(start, b);
+		offsets.ensure(id * 8L + 16);
+		offsets.putLong(id * 8L + 8, start + b.length);
+		hash.putInt(i * 8, h);
+		hash.putInt(i * 8 + 4, id + 1);
+		
+		if (size * 2L > capacity) {
+			grow();
+		}
+		return id;
+	}
+	
+	/**
+	 * Get the ID of a term
+	 * 
+	 * @param v term
+	 * @return ID or -1 if not present
+	 */
+	public int getID(Value v) {
+		byte[] b = toBytes(v);
+		return hash.getInt(slot(b, hash(b)) * 8 + 4) - 1;
+	}
+	
+	/**
+	 * Decode a term
+	 * 
+	 * @param id ID
+	 * @return term
+	 */
+	public Value getTerm(int id) {
+		return NTriplesUtil.parseValue(new String(bytes(id), StandardCharsets.UTF_8), F);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		terms.close();
+		offsets.close();
+		hash.close();
+	}
+	
+	/**
+	 * Create a new, empty dictionary in a directory
+	 * 
+	 * @param dir directory
+	 * @return dictionary
+	 * @throws IOException 
+	 */
+	public static ShaclMappedDictionary create(Path dir) throws IOException {
+		ShaclMappedFile offsets = ShaclMappedFile.create(dir.resolve(OFFSETS));
+		offsets.ensure(8);
+		offsets.putLong(0, 0);
+		ShaclMappedFile hash = ShaclMappedFile.create(dir.resolve(HASH));
+		hash.ensure(INITIAL * 8L);
+		return new ShaclMappedDictionary(dir, ShaclMappedFile.create(dir.resolve(TERMS)), offsets, hash);
+	}
+	
+	/**
+	 * Open an existing dictionary, read-only
+	 * 
+	 * @param dir directory
+	 * @return dictionary
+	 * @throws IOException 
+	 */
+	public static ShaclMappedDictionary open(Path dir) throws IOException {
+		return new ShaclMappedDictionary(dir, ShaclMappedFile.open(dir.resolve(TERMS)),
+			ShaclMappedFile.open(dir.resolve(OFFSETS)), ShaclMappedFile.open(dir.resolve(HASH)));
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param dir directory
+	 * @param terms serialized terms
+	 * @param offsets offsets of the terms
+	 * @param hash hash table
+	 * @throws IOException 
+	 */
+	private ShaclMappedDictionary(Path dir, ShaclMappedFile terms, ShaclMappedFile offsets, 
+									ShaclMappedFile hash) throws IOException {
+		this.dir = dir;
+		this.terms = terms;
+		this.offsets = offsets;
+		this.hash = hash;
+		this.capacity = hash.length() / 8;
+		this.size = (int) (offsets.length() / 8) - 1;
+		if (size < 0 || Long.bitCount(capacity) != 1) {
+			throw new IOException("Corrupt term dictionary in " + dir);
+		}
+	}
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * File mapped into memory in chunks, addressed with a long position.
+ * 
+ * A single mapped buffer is limited to 2 GB, so larger files are split into chunks.
+ * Ints and longs are aligned, so they never cross a chunk boundary.
+ * Writable files grow when needed, and are truncated to their length when closed.
+ * 
+ * @author Bart Hanssens
+ */
+class ShaclMappedFile implements Closeable {
+	private final static int CHUNK_BITS = 26;
+	private final static long CHUNK = 1L << CHUNK_BITS;
+	private final static long MASK = CHUNK - 1;
+	
+	private final FileChannel channel;
+	private final boolean writable;
+	private MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+	private long length;
+	
+	/**
+	 * Get the length of the file
+	 * 
+	 * @return length in bytes
+	 */
+	public long length() {
+		return length;
+	}
+	
+	/**
+	 * Make sure the file can hold at least a number of bytes
+	 * 
+	 * @param size number of bytes
+	 * @throws IOException 
+	 */
+	public void ensure(long size) throws IOException {
+		if (size > length) {
+			length = size;
+		}
+		int n = (int) ((size + CHUNK - 1) >>> CHUNK_BITS);
+		if (n <= chunks.length) {
+			return;
+		}
+		int old = chunks.length;
+		chunks = Arrays.copyOf(chunks, n);
+		for (int i = old; i < n; i++) {
+			chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * CHUNK, CHUNK);
+		}
+	}
+	
+	/**
+	 * Set the length of a writable file, e.g. to discard unused space at the end.
+	 * 
+	 * @param size number of bytes
+	 * @throws IOException 
+	 */
+	public void setLength(long size) throws IOException {
+		ensure(size);
+		length = size;
+	}
+	
+	/**
+	 * Get a byte
+	 * 
+	 * @param pos position
+	 * @return byte value
+	 */
+	public byte get(long pos) {
+		return chunks[(int) (pos >>> CHUNK_BITS)].get((int) (pos & MASK));
+	}
+	
+	/**
+	 * Copy bytes into an array
+	 * 
+	 * @param pos position
+	 * @param dst destination array
+	 */
+	public void get(long pos, byte[] dst) {
+		int off = 0;
+		while (off < dst.length) {
+			ByteBuffer buf = chunks[(int) (pos >>> CHUNK_BITS)].duplicate();
+			buf.position((int) (pos & MASK));
+			int len = Math.min(dst.length - off, buf.remaining());
+			buf.get(dst, off, len);
+			off += len;
+			pos += len;
+		}
+	}
+	
+	/**
+	 * Write bytes
+	 * 
+	 * @param pos position
+	 * @param src source array
+	 */
+	public void put(long pos, byte[] src) {
+		int off = 0;
+		while (off < src.length) {
+			ByteBuffer buf = chunks[(int) (pos >>> CHUNK_BITS)].duplicate();
+			buf.position((int) (pos & MASK));
+			int len = Math.min(src.length - off, buf.remaining());
+			buf.put(src, off, len);
+			off += len;
+			pos += len;
+		}
+	}
+	
+	/**
+	 * Get an int
+	 * 
+	 * @param pos position, multiple of 4
+	 * @return int value
+	 */
+	public int getInt(long pos) {
+		return chunks[(int) (pos >>> CHUNK_BITS)].getInt((int) (pos & MASK));
+	}
+	
+	/**
+	 * Write an int
+	 * 
+	 * @param pos position, multiple of 4
+	 * @param v int value
+	 */
+	public void putInt(long pos, int v) {
+		chunks[(int) (pos >>> CHUNK_BITS)].putInt((int) (pos & MASK), v);
+	}
+	
+	/**
+	 * Get a long
+	 * 
+	 * @param pos position, multiple of 8
+	 * @return long value
+	 */
+	public long getLong(long pos) {
+		return chunks[(int) (pos >>> CHUNK_BITS)].getLong((int) (pos & MASK));
+	}
+	
+	/**
+	 * Write a long
+	 * 
+	 * @param pos position, multiple of 8
+	 * @param v long value
+	 */
+	public void putLong(long pos, long v) {
+		chunks[(int) (pos >>> CHUNK_BITS)].putLong((int) (pos & MASK), v);
+	}
+	
+	/**
+	 * Flush changes to disk and truncate a writable file to its length.
+	 * 
+	 * @throws IOException 
+	 */
+	@Override
+	public void close() throws IOException {
+		if (writable) {
+			for (MappedByteBuffer chunk: chunks) {
+				chunk.force();
+			}
+		}
+		chunks = null;
+		if (writable) {
+			channel.truncate(length);
+		}
+		channel.close();
+	}
+	
+	/**
+	 * Create a new, empty writable file, replacing the existing file.
+	 * 
+	 * @param p path
+	 * @return mapped file
+	 * @throws IOException 
+	 */
+	public static ShaclMappedFile create(Path p) throws IOException {
+		FileChannel ch = FileChannel.open(p, StandardOpenOption.CREATE, 
+			StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		return new ShaclMappedFile(ch, true);
+	}
+	
+	/**
+	 * Open an existing file for reading
+	 * 
+	 * @param p path
+	 * @return mapped file
+	 * @throws IOException 
+	 */
+	public static ShaclMappedFile open(Path p) throws IOException {
+		return new ShaclMappedFile(FileChannel.open(p, StandardOpenOption.READ), false);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param channel file channel
+	 * @param writable true if writable
+	 * @throws IOException 
+	 */
+	private ShaclMappedFile(FileChannel channel, boolean writable) throws IOException {
+		this.channel = channel;
+		this.writable = writable;
+		this.length = channel.size();
+		
+		if (!writable) {
+			int n = (int) ((length + CHUNK - 1) >>> CHUNK_BITS);
+			chunks = new MappedByteBuffer[n];
+			for (int i = 0; i < n; i++) {
+				long start = i * CHUNK;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, 
+										Math.min(CHUNK, length - start));
+			}
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.store;
+
+import java.io.IOException;
+import java.util.PriorityQueue;
+
+/**
+ * Sort rows of ints stored in a mapped file, using a limited amount of heap.
+ * 
+ * Blocks of rows are sorted in memory and written back, 
+ * after which the sorted blocks are merged into another file.
+ * Duplicate rows are removed.
+ * 
+ * @author Bart Hanssens
+ */
+class ShaclMappedSort {
+	/**
+	 * Cursor on a sorted block
+	 */
+	private static class Block {
+		private long row;
+		private final long end;
+		
+		private Block(long row, long end) {
+			this.row = row;
+			this.end = end;
+		}
+	}
+	
+	/**
+	 * Compare two rows
+	 * 
+	 * @param f mapped file
+	 * @param width number of ints per row
+	 * @param i first row
+	 * @param j second row
+	 * @return negative, zero or positive
+	 */
+	private static int compare(ShaclMappedFile f, int width, long i, long j) {
+		long x = i * width * 4;
+		long y = j * width * 4;
+		for (int k = 0; k < width * 4; k += 4) {
+			int cmp = Integer.compare(f.getInt(x + k), f.getInt(y + k));
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * Copy a row
+	 * 
+	 * @param in input file
+	 * @param width number of ints per row
+	 * @param row input row
+	 * @param out output file
+	 * @param pos output row
+	 */
+	private static void copy(ShaclMappedFile in, int width, long row, ShaclMappedFile out, long pos) {
+		for (int k = 0; k < width * 4; k += 4) {
+			out.putInt(pos * width * 4 + k, in.getInt(row * width * 4 + k));
+		}
+	}
+	
+	/**
+	 * Sort a block in memory, and write it back without duplicates
+	 * 
+	 * @param f mapped file
+	 * @param width number of ints per row
+	 * @param start first row
+	 * @param rows number of rows
+	 * @return number of unique rows
+	 */
+	private static int sortBlock(ShaclMappedFile f, int width, long start, int rows) {
+		int[] a = new int[rows * width];
+		long pos = start * width * 4;
+		for (int i = 0; i < a.length; i++) {
+			a[i] = f.getInt(pos + i * 4L);
+		}
+		ShaclTripleSort.sort(a, width, 0, rows);
+		int n = ShaclTripleSort.dedup(a, width, rows);
+		for (int i = 0; i < n * width; i++) {
+			f.putInt(pos + i * 4L, a[i]);
+		}
+		return n;
+	}
+	
+	/**
+	 * Sort rows into another file, removing duplicates
+	 * 
+	 * @param in input file, modified during the sort
+	 * @param width number of ints per row
+	 * @param rows number of rows
+	 * @param blockRows maximum number of rows to sort in memory
+	 * @param out output file
+	 * @return number of unique rows
+	 * @throws IOException 
+	 */
+	public static long sort(ShaclMappedFile in, int width, long rows, int blockRows, 
+								ShaclMappedFile out) throws IOException {
+		PriorityQueue<Block> queue = new PriorityQueue<>((a, b) -> compare(in, width, a.row, b.row));
+		for (long start = 0; start < rows; start += blockRows) {
+			int n = sortBlock(in, width, start, (int) Math.min(blockRows, rows - start));
+			queue.add(new Block(start, start + n));
+		}
+		
+		out.ensure(rows * width * 4);
+		long n = 0;
+		while (!queue.isEmpty()) {
+			Block b = queue.poll();
+			copy(in, width, b.row, out, n);
+			if (n == 0 || compare(out, width, n, n - 1) != 0) {
+				n++;
+			}
+			if (++b.row < b.end) {
+				queue.add(b);
+			}
+		}
+		out.setLength(n * width * 4);
+		return n;
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+
+/**
+ * Dictionary-encoded triple store, kept in memory-mapped files in a directory.
+ * 
+ * The size of the data is limited by disk space and the OS page cache instead of the heap,
+ * and the files can be reopened and validated again in later runs.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclMappedStore extends ShaclEncodedData implements Closeable {
+	final static String TRIPLES = "triples.bin";
+	final static String TYPES = "types.bin";
+	final static String PROPERTIES = "store.properties";
+	private final static String VERSION = "1";
+	
+	private final ShaclMappedDictionary dict;
+	private final ShaclMappedFile triples;
+	private final int size;
+	private final ShaclMappedFile types;
+	private final int typeSize;
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public int subject(int i) {
+		return triples.getInt(i * 12L);
+	}
+	
+	@Override
+	public int predicate(int i) {
+		return triples.getInt(i * 12L + 4);
+	}
+	
+	@Override
+	public int object(int i) {
+		return triples.getInt(i * 12L + 8);
+	}
+	
+	@Override
+	public int typeSize() {
+		return typeSize;
+	}
+	
+	@Override
+	public int typeClass(int i) {
+		return types.getInt(i * 8L);
+	}
+	
+	@Override
+	public int typeInstance(int i) {
+		return types.getInt(i * 8L + 4);
+	}
+	
+	@Override
+	public int getID(Value v) {
+		return dict.getID(v);
+	}
+	
+	@Override
+	public Value getTerm(int id) {
+		return dict.getTerm(id);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		dict.close();
+		triples.close();
+		types.close();
+	}
+	
+	/**
+	 * Check if a directory contains a complete store
+	 * 
+	 * @param dir directory
+	 * @return true if a store can be opened
+	 */
+	public static boolean exists(Path dir) {
+		return Files.exists(dir.resolve(PROPERTIES));
+	}
+	
+	/**
+	 * Write the description of the store, marking it as complete.
+	 * 
+	 * @param dir directory
+	 * @param terms number of terms
+	 * @param size number of triples
+	 * @param typeSize number of rdf:type triples
+	 * @throws IOException 
+	 */
+	static void writeProperties(Path dir, int terms, long size, long typeSize) throws IOException {
+		Properties p = new Properties();
+		p.setProperty("version", VERSION);
+		p.setProperty("terms", String.valueOf(terms));
+		p.setProperty("triples", String.valueOf(size));
+		p.setProperty("types", String.valueOf(typeSize));
+		try (OutputStream os = Files.newOutputStream(dir.resolve(PROPERTIES))) {
+			p.store(os, "SHACL light triple store");
+		}
+	}
+	
+	/**
+	 * Open an existing store, read-only
+	 * 
+	 * @param dir directory
+	 * @return triple store
+	 * @throws IOException when the store is missing, incomplete or of another version
+	 */
+	public static ShaclMappedStore open(Path dir) throws IOException {
+		if (!exists(dir)) {
+			throw new IOException("No triple store in " + dir);
+		}
+		Properties p = new Properties();
+		try (InputStream is = Files.newInputStream(dir.resolve(PROPERTIES))) {
+			p.load(is);
+		}
+		if (!VERSION.equals(p.getProperty("version"))) {
+			throw new IOException("Unsupported triple store version in " + dir);
+		}
+		try {
+			int terms = Integer.parseInt(p.getProperty("terms"));
+			int size = Integer.parseInt(p.getProperty("triples"));
+			int typeSize = Integer.parseInt(p.getProperty("types"));
+			return new ShaclMappedStore(dir, terms, size, typeSize);
+		} catch (NumberFormatException nfe) {
+			throw new IOException("Corrupt triple store description in " + dir);
+		}
+	}
+	
+	/**
+	 * Load a model into a store, replacing the existing store in the directory
+	 * 
+	 * @param dir directory
+	 * @param m model
+	 * @return triple store
+	 * @throws IOException 
+	 */
+	public static ShaclMappedStore load(Path dir, Model m) throws IOException {
+		ShaclMappedStoreHandler handler = new ShaclMappedStoreHandler(dir);
+		try {
+			handler.startRDF();
+			for (Statement st: m) {
+				handler.handleStatement(st);
+			}
+			handler.endRDF();
+		} catch (RDFHandlerException e) {
+			throw new IOException(e);
+		}
+		return handler.getStore();
+	}
+	
+	/**
+	 * Parse RDF into a store, replacing the existing store in the directory
+	 * 
+	 * @param dir directory
+	 * @param is input stream
+	 * @param fmt RDF format
+	 * @return triple store
+	 * @throws IOException 
+	 */
+	public static ShaclMappedStore load(Path dir, InputStream is, RDFFormat fmt) throws IOException {
+		ShaclMappedStoreHandler handler = new ShaclMappedStoreHandler(dir);
+		RDFParser parser = Rio.createParser(fmt);
+		parser.setRDFHandler(handler);
+		parser.parse(is, "http://localhost");
+		return handler.getStore();
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param dir directory
+	 * @param terms number of terms
+	 * @param size number of triples
+	 * @param typeSize number of rdf:type triples
+	 * @throws IOException when the files do not match the description
+	 */
+	private ShaclMappedStore(Path dir, int terms, int size, int typeSize) throws IOException {
+		this.dict = ShaclMappedDictionary.open(dir);
+		this.triples = ShaclMappedFile.open(dir.resolve(TRIPLES));
+		this.size = size;
+		this.types = ShaclMappedFile.open(dir.resolve(TYPES));
+		this.typeSize = typeSize;
+		
+		if (dict.size() != terms || triples.length() != size * 12L || types.length() != typeSize * 8L) {
+			close();
+			throw new IOException("Corrupt triple store in " + dir);
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+
+/**
+ * Encode statements while they are being parsed, and build a memory-mapped triple store.
+ * 
+ * Triples are appended to a file as they arrive, and sorted at the end of the data
+ * using blocks of limited size.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclMappedStoreHandler extends AbstractRDFHandler {
+	private final static String RAW = ".raw";
+	
+	private final Path dir;
+	private ShaclMappedDictionary dict;
+	private ShaclMappedFile triples;
+	private long size = 0;
+	private ShaclMappedFile types;
+	private long typeSize = 0;
+	private int blockSize = 1 << 22;
+	private ShaclMappedStore store = null;
+	
+	/**
+	 * Get the maximum number of triples sorted in memory at once
+	 * 
+	 * @return number of triples
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+	
+	/**
+	 * Set the maximum number of triples sorted in memory at once
+	 * 
+	 * @param blockSize number of triples
+	 */
+	public void setBlockSize(int blockSize) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("Block size must be at least 1");
+		}
+		this.blockSize = blockSize;
+	}
+	
+	/**
+	 * Get the triple store, after the end of the RDF data
+	 * 
+	 * @return triple store or null
+	 */
+	public ShaclMappedStore getStore() {
+		return store;
+	}
+	
+	@Override
+	public void startRDF() throws RDFHandlerException {
+		try {
+			Files.createDirectories(dir);
+			Files.deleteIfExists(dir.resolve(ShaclMappedStore.PROPERTIES));
+			dict = ShaclMappedDictionary.create(dir);
+			triples = ShaclMappedFile.create(dir.resolve(ShaclMappedStore.TRIPLES + RAW));
+			types = ShaclMappedFile.create(dir.resolve(ShaclMappedStore.TYPES + RAW));
+		} catch (IOException ioe) {
+			throw new RDFHandlerException(ioe);
+		}
+	}
+	
+	@Override
+	public void handleStatement(Statement st) throws RDFHandlerException {
+		if (size == Integer.MAX_VALUE) {
+			throw new RDFHandlerException("Too many triples");
+		}
+		try {
+			int s = dict.encode(st.getSubject());
+			int p = dict.encode(st.getPredicate());
+			int o = dict.encode(st.getObject());
+			
+			long pos = size * 12;
+			triples.ensure(pos + 12);
+			triples.putInt(pos, s);
+			triples.putInt(pos + 4, p);
+			triples.putInt(pos + 8, o);
+			size++;
+			
+			if (st.getPredicate().equals(RDF.TYPE)) {
+				pos = typeSize * 8;
+				types.ensure(pos + 8);
+				types.putInt(pos, o);
+				types.putInt(pos + 4, s);
+				typeSize++;
+			}
+		} catch (IOException ioe) {
+			throw new RDFHandlerException(ioe);
+		}
+	}
+	
+	/**
+	 * Sort a file with rows of IDs into the final file, and remove the unsorted file
+	 * 
+	 * @param raw unsorted file
+	 * @param name name of the sorted file
+	 * @param width number of ints per row
+	 * @param rows number of rows
+	 * @return number of unique rows
+	 * @throws IOException 
+	 */
+	private long sort(ShaclMappedFile raw, String name, int width, long rows) throws IOException {
+		long n;
+		try (ShaclMappedFile out = ShaclMappedFile.create(dir.resolve(name))) {
+			n = ShaclMappedSort.sort(raw, width, rows, blockSize, out);
+		}
+		raw.close();
+		Files.delete(dir.resolve(name + RAW));
+		return n;
+	}
+	
+	@Override
+	public void endRDF() throws RDFHandlerException {
+		try {
+			dict.close();
+			long n = sort(triples, ShaclMappedStore.TRIPLES, 3, size);
+			long t = sort(types, ShaclMappedStore.TYPES, 2, typeSize);
+			ShaclMappedStore.writeProperties(dir, dict.size(), n, t);
+			store = ShaclMappedStore.open(dir);
+		} catch (IOException ioe) {
+			throw new RDFHandlerException(ioe);
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param dir directory of the store
+	 */
+	public ShaclMappedStoreHandler(Path dir) {
+		this.dir = dir;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * In-memory dictionary of terms, assigning int IDs in order of first appearance.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclTermDictionary {
+	private final Map<Value,Integer> ids = new HashMap<>();
+	private final List<Value> terms = new ArrayList<>();
+	
+	/**
+	 * Get the number of terms
+	 * 
+	 * @return number of terms
+	 */
+	public int size() {
+		return terms.size();
+	}
+	
+	/**
+	 * Encode a term, adding it to the dictionary when needed
+	 * 
+	 * @param v term
+	 * @return ID
+	 */
+	public int encode(Value v) {
+		Integer id = ids.get(v);
+		if (id == null) {
+			id = terms.size();
+			ids.put(v, id);
+			terms.add(v);
+		}
+		return id;
+	}
+	
+	/**
+	 * Get the ID of a term
+	 * 
+	 * @param v term
+	 * @return ID or -1 if not present
+	 */
+	public int getID(Value v) {
+		Integer id = ids.get(v);
+		return (id != null) ? id : -1;
+	}
+	
+	/**
+	 * Decode a term
+	 * 
+	 * @param id ID
+	 * @return term
+	 */
+	public Value getTerm(int id) {
+		return terms.get(id);
+	}
+}
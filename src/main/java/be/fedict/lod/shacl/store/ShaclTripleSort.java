@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.store;
+
+/**
+ * Sort rows of ints stored in a flat array, e.g. triples of IDs.
+ * 
+ * @author Bart Hanssens
+ */
+class ShaclTripleSort {
+	private final static int INSERTION = 16;
+	
+	/**
+	 * Compare two rows
+	 * 
+	 * @param a array
+	 * @param width number of ints per row
+	 * @param i first row
+	 * @param j second row
+	 * @return negative, zero or positive
+	 */
+	private static int compare(int[] a, int width, int i, int j) {
+		int x = i * width;
+		int y = j * width;
+		for (int k = 0; k < width; k++) {
+			int cmp = Integer.compare(a[x + k], a[y + k]);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * Swap two rows
+	 * 
+	 * @param a array
+	 * @param width number of ints per row
+	 * @param i first row
+	 * @param j second row
+	 */
+	private static void swap(int[] a, int width, int i, int j) {
+		int x = i * width;
+		int y = j * width;
+		for (int k = 0; k < width; k++) {
+			int tmp = a[x + k];
+			a[x + k] = a[y + k];
+			a[y + k] = tmp;
+		}
+	}
+	
+	/**
+	 * Sort rows in place, using quicksort with median of three pivot.
+	 * 
+	 * @param a array
+	 * @param width number of ints per row
+	 * @param lo first row (inclusive)
+	 * @param hi last row (exclusive)
+	 */
+	public static void sort(int[] a, int width, int lo, int hi) {
+		while (hi - lo > INSERTION) {
+			int mid = (lo + hi) >>> 1;
+			// median of three, moved to lo
+			if (compare(a, width, mid, lo) < 0) {
+				swap(a, width, mid, lo);
+			}
+			if (compare(a, width, hi - 1, lo) < 0) {
+				swap(a, width, hi - 1, lo);
+			}
+			if (compare(a, width, hi - 1, mid) < 0) {
+				swap(a, width, hi - 1, mid);
+			}
+			swap(a, width, lo, mid);
+			
+			// partition around the pivot at lo
+			int i = lo + 1;
+			int j = hi - 1;
+			while (true) {
+				while (i <= j && compare(a, width, i, lo) < 0) {
+					i++;
+				}
+				while (i <= j && compare(a, width, j, lo) > 0) {
+					j--;
+				}
+				if (i >= j) {
+					break;
+				}
+				swap(a, width, i++, j--);
+			}
+			swap(a, width, lo, j);
+			
+			// recurse on the smaller part, loop on the larger one
+			if (j - lo < hi - j - 1) {
+				sort(a, width, lo, j);
+				lo = j + 1;
+			} else {
+				sort(a, width, j + 1, hi);
+				hi = j;
+			}
+		}
+		for (int i = lo + 1; i < hi; i++) {
+			for (int j = i; j > lo && compare(a, width, j, j - 1) < 0; j--) {
+				swap(a, width, j, j - 1);
+			}
+		}
+	}
+	
+	/**
+	 * Remove duplicate rows from a sorted array
+	 * 
+	 * @param a array
+	 * @param width number of ints per row
+	 * @param rows number of rows
+	 * @return number of unique rows
+	 */
+	public static int dedup(int[] a, int width, int rows) {
+		if (rows == 0) {
+			return 0;
+		}
+		int n = 1;
+		for (int i = 1; i < rows; i++) {
+			if (compare(a, width, i, n - 1) != 0) {
+				System.arraycopy(a, i * width, a, n * width, width);
+				n++;
+			}
+		}
+		return n;
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+
+/**
+ * In-memory dictionary-encoded triple store.
+ * 
+ * Triples are stored in a primitive array, taking 12 bytes per triple 
+ * (plus 8 bytes per rdf:type triple) instead of statement objects.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclTripleStore extends ShaclEncodedData {
+	private final ShaclTermDictionary dict;
+	private final int[] triples;
+	private final int size;
+	private final int[] types;
+	private final int typeSize;
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public int subject(int i) {
+		return triples[i * 3];
+	}
+	
+	@Override
+	public int predicate(int i) {
+		return triples[i * 3 + 1];
+	}
+	
+	@Override
+	public int object(int i) {
+		return triples[i * 3 + 2];
+	}
+	
+	@Override
+	public int typeSize() {
+		return typeSize;
+	}
+	
+	@Override
+	public int typeClass(int i) {
+		return types[i * 2];
+	}
+	
+	@Override
+	public int typeInstance(int i) {
+		return types[i * 2 + 1];
+	}
+	
+	@Override
+	public int getID(Value v) {
+		return dict.getID(v);
+	}
+	
+	@Override
+	public Value getTerm(int id) {
+		return dict.getTerm(id);
+	}
+	
+	/**
+	 * Load a model into a store
+	 * 
+	 * @param m model
+	 * @return triple store
+	 */
+	public static ShaclTripleStore load(Model m) {
+		ShaclTripleStoreHandler handler = new ShaclTripleStoreHandler();
+		handler.startRDF();
+		for (Statement st: m) {
+			handler.handleStatement(st);
+		}
+		handler.endRDF();
+		return handler.getStore();
+	}
+	
+	/**
+	 * Parse RDF directly into a store, without creating a model
+	 * 
+	 * @param is input stream
+	 * @param fmt RDF format
+	 * @return triple store
+	 * @throws IOException 
+	 */
+	public static ShaclTripleStore load(InputStream is, RDFFormat fmt) throws IOException {
+		ShaclTripleStoreHandler handler = new ShaclTripleStoreHandler();
+		RDFParser parser = Rio.createParser(fmt);
+		parser.setRDFHandler(handler);
+		parser.parse(is, "http://localhost");
+		return handler.getStore();
+	}
+	
+	/**
+	 * Constructor, sorting the triples and removing duplicates.
+	 * 
+	 * @param dict term dictionary
+	 * @param triples subject, predicate, object IDs
+	 * @param size number of triples
+	 * @param types class, instance IDs
+	 * @param typeSize number of rdf:type triples
+	 */
+	ShaclTripleStore(ShaclTermDictionary dict, int[] triples, int size, int[] types, int typeSize) {
+		ShaclTripleSort.sort(triples, 3, 0, size);
+		ShaclTripleSort.sort(types, 2, 0, typeSize);
+		this.dict = dict;
+		this.triples = triples;
+		this.size = ShaclTripleSort.dedup(triples, 3, size);
+		this.types = types;
+		this.typeSize = ShaclTripleSort.dedup(types, 2, typeSize);
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.store;
+
+import java.util.Arrays;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+
+/**
+ * Encode statements while they are being parsed, and build a triple store.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclTripleStoreHandler extends AbstractRDFHandler {
+	private final ShaclTermDictionary dict = new ShaclTermDictionary();
+	private int[] triples = new int[3 * 1024];
+	private int size = 0;
+	private int[] types = new int[2 * 256];
+	private int typeSize = 0;
+	private ShaclTripleStore store = null;
+	
+	/**
+	 * Get the triple store, after the end of the RDF data
+	 * 
+	 * @return triple store or null
+	 */
+	public ShaclTripleStore getStore() {
+		return store;
+	}
+	
+	@Override
+	public void handleStatement(Statement st) throws RDFHandlerException {
+		int s = dict.encode(st.getSubject());
+		int p = dict.encode(st.getPredicate());
+		int o = dict.encode(st.getObject());
+		
+		if (size * 3 == triples.length) {
+			triples = Arrays.copyOf(triples, triples.length * 2);
+		}
+		triples[size * 3] = s;
+		triples[size * 3 + 1] = p;
+		triples[size * 3 + 2] = o;
+		size++;
+		
+		if (st.getPredicate().equals(RDF.TYPE)) {
+			if (typeSize * 2 == types.length) {
+				types = Arrays.copyOf(types, types.length * 2);
+			}
+			types[typeSize * 2] = o;
+			types[typeSize * 2 + 1] = s;
+			typeSize++;
+		}
+	}
+	
+	@Override
+	public void endRDF() throws RDFHandlerException {
+		store = new ShaclTripleStore(dict, triples, size, types, typeSize);
+		triples = null;
+		types = null;
+	}
+}
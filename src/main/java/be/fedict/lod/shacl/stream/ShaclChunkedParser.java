@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
+import org.eclipse.rdf4j.rio.helpers.StatementCollector;
+
+/**
+ * Parse an N-Triples file in parallel.
+ * 
+ * The file is memory-mapped and cut into chunks at line boundaries, which are parsed concurrently.
+ * Statements are passed on to the handler in the order of the file, on the calling thread,
+ * so the handler does not have to be thread-safe and subject-grouped files stay grouped.
+ * Blank node labels are preserved, so the same label refers to the same node in all chunks.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclChunkedParser {
+	private final ForkJoinPool pool;
+	private int chunkSize = 1024 * 1024;
+	
+	/**
+	 * Input stream reading a (memory-mapped) byte buffer
+	 */
+	private static class BufferInputStream extends InputStream {
+		private final ByteBuffer buf;
+
+		@Override
+		public int read() {
+			return buf.hasRemaining() ? (buf.get() & 0xFF) : -1;
+		}
+	
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (! buf.hasRemaining()) {
+				return -1;
+			}
+			len = Math.min(len, buf.remaining());
+			buf.get(b, off, len);
+			return len;
+		}
+	
+		public BufferInputStream(ByteBuffer buf) {
+			this.buf = buf;
+		}
+	}
+	
+	/**
+	 * Get the size of the chunks
+	 * 
+	 * @return size in bytes
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+	
+	/**
+	 * Set the (approximate) size of the chunks
+	 * 
+	 * @param chunkSize size in bytes
+	 */
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least 1");
+		}
+		this.chunkSize = chunkSize;
+	}
+	
+	/**
+	 * Find the start of the next line, at or after a position
+	 * 
+	 * @param ch file channel
+	 * @param pos position
+	 * @return position after the next newline, or the size of the file
+	 * @throws IOException 
+	 */
+	private static long nextLine(FileChannel ch, long pos) throws IOException {
+		long size = ch.size();
+		ByteBuffer buf = ByteBuffer.allocate(4096);
+		
+		while (pos < size) {
+			buf.clear();
+			int len = ch.read(buf, pos);
+			for (int i = 0; i < len; i++) {
+				if (buf.get(i) == '\n') {
+					return pos + i + 1;
+				}
+			}
+			pos += len;
+		}
+		return size;
+	}
+	
+	/**
+	 * Count the lines before a position, only used for error messages
+	 * 
+	 * @param ch file channel
+	 * @param end position
+	 * @return number of lines
+	 * @throws IOException 
+	 */
+	private static long countLines(FileChannel ch, long end) throws IOException {
+		long lines = 0;
+		ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+		
+		for (long pos = 0; pos < end; ) {
+			buf.clear();
+			buf.limit((int) Math.min(buf.capacity(), end - pos));
+			int len = ch.read(buf, pos);
+			for (int i = 0; i < len; i++) {
+				if (buf.get(i) == '\n') {
+					lines++;
+				}
+			}
+			pos += len;
+		}
+		return lines;
+	}
+	
+	/**
+	 * Parse one chunk into a list of statements
+	 * 
+	 * @param chunk memory-mapped chunk
+	 * @return list of statements
+	 * @throws IOException 
+	 */
+	private static List<Statement> parseChunk(MappedByteBuffer chunk) throws IOException {
+		List<Statement> statements = new ArrayList<>();
+		RDFParser parser = Rio.createParser(RDFFormat.NTRIPLES);
+		parser.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+		parser.setRDFHandler(new StatementCollector(statements));
+		parser.parse(new BufferInputStream(chunk), "http://localhost");
+		return statements;
+	}
+	
+	/**
+	 * Wait for the oldest chunk and pass its statements on to the handler
+	 * 
+	 * @param ch file channel
+	 * @param tasks tasks, in the order of the file
+	 * @param starts start position of the chunks
+	 * @param handler RDF handler
+	 * @throws IOException 
+	 */
+	private static void emit(FileChannel ch, Deque<ForkJoinTask<List<Statement>>> tasks,
+							Deque<Long> starts, RDFHandler handler) throws IOException {
+		long start = starts.removeFirst();
+		List<Statement> statements;
+		try {
+			statements = tasks.removeFirst().join();
+		} catch (RuntimeException e) {
+			// exceptions of other threads may be wrapped or copied by the pool
+			for (Throwable t = e; t != null; t = t.getCause()) {
+				if (t instanceof RDFParseException && ((RDFParseException) t).getLineNumber() > 0) {
+					RDFParseException pe = (RDFParseException) t;
+					String msg = pe.getMessage().replaceFirst(" \\[line [^\\]]*\\]$", "");
+					throw new RDFParseException(msg, 
+						countLines(ch, start) + pe.getLineNumber(), pe.getColumnNumber());
+				}
+				if (t instanceof IOException) {
+					throw (IOException) t;
+				}
+			}
+			throw e;
+		}
+		for (Statement st: statements) {
+			handler.handleStatement(st);
+		}
+	}
+	
+	/**
+	 * Parse an N-Triples file
+	 * 
+	 * @param file N-Triples file
+	 * @param handler RDF handler
+	 * @throws IOException 
+	 */
+	public void parse(Path file, RDFHandler handler) throws IOException {
+		// limit the number of parsed chunks waiting to be passed on
+		int window = pool.getParallelism() * 2;
+		Deque<ForkJoinTask<List<Statement>>> tasks = new ArrayDeque<>(window);
+		Deque<Long> starts = new ArrayDeque<>(window);
+		
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = ch.size();
+			handler.startRDF();
+			try {
+				for (long start = 0; start < size; ) {
+					long end = nextLine(ch, Math.min(start + chunkSize, size));
+					MappedByteBuffer chunk = ch.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+					tasks.addLast(pool.submit(() -> parseChunk(chunk)));
+					starts.addLast(start);
+					start = end;
+					if (tasks.size() >= window) {
+						emit(ch, tasks, starts, handler);
+					}
+				}
+				while (! tasks.isEmpty()) {
+					emit(ch, tasks, starts, handler);
+				}
+			} finally {
+				// e.g. when the handler stops the parsing
+				tasks.forEach(t -> t.cancel(false));
+			}
+			handler.endRDF();
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param pool fork join pool used for parsing the chunks
+	 */
+	public ShaclChunkedParser(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.stream;
+
+import be.fedict.lod.shacl.ShaclViolation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * State of one property shape for one subject, used when streaming.
+ * Collections are only created when needed.
+ * 
+ * @author Bart Hanssens
+ */
+class ShaclPropertyState {
+	private int count = 0;
+	private boolean hasValue = false;
+	private Set<String> langs;
+	private List<Value> refs;
+	private List<ShaclViolation> violations;
+	
+	/**
+	 * Increment the number of values
+	 */
+	public void incCount() {
+		count++;
+	}
+	
+	/**
+	 * Get the number of values
+	 * 
+	 * @return number of values 
+	 */
+	public int getCount() {
+		return count;
+	}
+	
+	/**
+	 * Mark the required value as seen
+	 */
+	public void setHasValue() {
+		hasValue = true;
+	}
+	
+	/**
+	 * Check if the required value was seen
+	 * 
+	 * @return boolean
+	 */
+	public boolean hasValue() {
+		return hasValue;
+	}
+	
+	/**
+	 * Add a language
+	 * 
+	 * @param lang language code
+	 * @return false if language was already present
+	 */
+	public boolean addLang(String lang) {
+		if (langs == null) {
+			langs = new HashSet<>(4);
+		}
+		return langs.add(lang);
+	}
+	
+	/**
+	 * Add a reference to a resource that must be of a specific class
+	 * 
+	 * @param v value
+	 */
+	public void addRef(Value v) {
+		if (refs == null) {
+			refs = new ArrayList<>(2);
+		}
+		refs.add(v);
+	}
+	
+	/**
+	 * Get references to be checked against class
+	 * 
+	 * @return list of values or null
+	 */
+	public List<Value> getRefs() {
+		return refs;
+	}
+	
+	/**
+	 * Add a violation, to be reported when the subject turns out to be a target
+	 * 
+	 * @param violation 
+	 */
+	public void addViolation(ShaclViolation violation) {
+		if (violations == null) {
+			violations = new ArrayList<>(2);
+		}
+		violations.add(violation);
+	}
+	
+	/**
+	 * Get pending violations
+	 * 
+	 * @return list of violations or null
+	 */
+	public List<ShaclViolation> getViolations() {
+		return violations;
+	}
+}
@@ -0,0 +1,508 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.stream;
+
+import be.fedict.lod.shacl.ShaclContext;
+import be.fedict.lod.shacl.ShaclViolation;
+import be.fedict.lod.shacl.constraints.ShaclConstraint;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyClass;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyCount;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyDatatype;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyNodekind;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyString;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyStringLang;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyValue;
+import be.fedict.lod.shacl.shapes.ShaclNodeShape;
+import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
+import be.fedict.lod.shacl.targets.ShaclTarget;
+import be.fedict.lod.shacl.targets.ShaclTargetClass;
+import be.fedict.lod.shacl.targets.ShaclTargetNode;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validate statements while they are being parsed.
+ * 
+ * Instead of storing the statements, only the state required by the constraints
+ * is kept per subject: number of values, languages, pending violations
+ * and references to be checked against sh:class.
+ * Node shapes are evaluated at the end of the stream, when all types are known.
+ * 
+ * Memory use is only bounded when the input is grouped by subject: otherwise
+ * the state of every possible focus node is kept until the end of the stream.
+ * 
+ * When the input is grouped by subject (e.g. sorted N-Triples), node shapes can be
+ * evaluated as soon as the subject changes, so only the state of one subject is kept.
+ * References to be checked against sh:class are then deferred until the end,
+ * unless the instance is already known.
+ * 
+ * The instances of the classes used by sh:class are kept until the end of the stream, 
+ * up to a maximum number: parsing stops with an exception when there are more instances.
+ * 
+ * No state is kept for subjects that cannot become a focus node of a node shape,
+ * i.e. when the node shape has no target class and the subject is not a target node.
+ * Constraints that cannot be checked while streaming, like sh:node, are rejected
+ * when the handler is created.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclStreamHandler extends AbstractRDFHandler {
+	private final static Logger LOG = LoggerFactory.getLogger(ShaclStreamHandler.class);
+	private final static int RECENT = 1024;
+	public final static long DEFAULT_MAX_INSTANCES = 1_000_000;
+	
+	private final List<ShaclNodeShape> nodeShapes = new ArrayList<>();
+	private final Map<ShaclNodeShape,Integer> shapeIndex = new HashMap<>();
+	private final BitSet byClass = new BitSet();
+	private final Map<IRI,List<Slot>> paths = new HashMap<>();
+	private final Map<IRI,List<ShaclNodeShape>> targetClasses = new HashMap<>();
+	private final Map<Resource,List<ShaclNodeShape>> targetNodes = new HashMap<>();
+	private final Map<IRI,Set<Resource>> instances = new HashMap<>();
+	private final Map<Resource,ShaclSubjectState> states = new HashMap<>();
+	private final Map<Value,List<ShaclViolation>> deferred = new HashMap<>();
+	// recently closed subjects, to detect input that is not grouped
+	private final Set<Resource> closed = Collections.newSetFromMap(new LinkedHashMap<Resource,Boolean>() {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Resource,Boolean> e) {
+			return size() > RECENT;
+		}
+	});
+	private final Set<Resource> finishedNodes = new HashSet<>();
+	private final ShaclContext ctx;
+	private boolean grouped = false;
+	private long maxInstances = DEFAULT_MAX_INSTANCES;
+	private long instanceCount = 0;
+	private Resource current = null;
+	
+	/**
+	 * Property shape and its position within the node shape
+	 */
+	private static class Slot {
+		private final int shape;
+		private final int index;
+		private final ShaclPropertyShape prop;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param shape index of the node shape
+		 * @param index index of the property shape within the node shape
+		 * @param prop property shape
+		 */
+		private Slot(int shape, int index, ShaclPropertyShape prop) {
+			this.shape = shape;
+			this.index = index;
+			this.prop = prop;
+		}
+	}
+	
+	/**
+	 * Check if the input is treated as grouped by subject
+	 * 
+	 * @return true if grouped
+	 */
+	public boolean isGrouped() {
+		return grouped;
+	}
+	
+	/**
+	 * Treat the input as grouped by subject: all triples with the same subject
+	 * are next to each other.
+	 * 
+	 * @param grouped true if grouped
+	 */
+	public void setGrouped(boolean grouped) {
+		this.grouped = grouped;
+	}
+	
+	/**
+	 * Get the maximum number of instances of the classes used by sh:class
+	 * 
+	 * @return maximum number
+	 */
+	public long getMaxInstances() {
+		return maxInstances;
+	}
+	
+	/**
+	 * Set the maximum number of instances of the classes used by sh:class, 
+	 * which are kept until the end of the stream.
+	 * 
+	 * @param max maximum number, at least 0
+	 */
+	public void setMaxInstances(long max) {
+		if (max < 0) {
+			throw new IllegalArgumentException("Maximum number of instances can not be negative");
+		}
+		this.maxInstances = max;
+	}
+	
+	/**
+	 * Report a violation
+	 * 
+	 * @param violation 
+	 */
+	protected void addViolation(ShaclViolation violation) {
+		ctx.addViolation(violation);
+	}
+	
+	/**
+	 * Get or create the state of a subject
+	 * 
+	 * @param subj subject
+	 * @return state
+	 */
+	private ShaclSubjectState getState(Resource subj) {
+		ShaclSubjectState state = states.get(subj);
+		if (state == null) {
+			state = new ShaclSubjectState(nodeShapes.size());
+			states.put(subj, state);
+		}
+		return state;
+	}
+	
+	/**
+	 * Check if a subject can be a focus node of a node shape: either the shape 
+	 * has a target class (type may only be known later on), or the subject is
+	 * a target node of the shape.
+	 * 
+	 * @param subj subject
+	 * @param shape index of the node shape
+	 * @return true if possible focus node
+	 */
+	private boolean isCandidate(Resource subj, int shape) {
+		if (byClass.get(shape)) {
+			return true;
+		}
+		List<ShaclNodeShape> l = targetNodes.get(subj);
+		return l != null && l.contains(nodeShapes.get(shape));
+	}
+	
+	/**
+	 * Check a value against the constraints that can be verified per value
+	 * 
+	 * @param st statement
+	 * @param p property shape
+	 * @param ps state of the property shape
+	 */
+	private void checkValue(Statement st, ShaclPropertyShape p, ShaclPropertyState ps) {
+		Value v = st.getObject();
+		ps.incCount();
+		
+		for (ShaclConstraint c: p.getConstraints()) {
+			boolean valid = true;
+			if (c instanceof ShaclConstraintPropertyDatatype) {
+				valid = ((ShaclConstraintPropertyDatatype) c).isValidValue(v, ctx.getCache());
+			} else if (c instanceof ShaclConstraintPropertyNodekind) {
+				valid = ((ShaclConstraintPropertyNodekind) c).isValidValue(v);
+			} else if (c instanceof ShaclConstraintPropertyString) {
+				IRI component = ((ShaclConstraintPropertyString) c)
+								.getViolatedComponent(v, ctx.getCache(), ctx.getPatternBudget());
+				if (component != null) {
+					ps.addViolation(new ShaclViolation(c, component, st.getSubject(), 
+														st.getPredicate(), v));
+				}
+			} else if (c instanceof ShaclConstraintPropertyStringLang) {
+				ShaclConstraintPropertyStringLang l = (ShaclConstraintPropertyStringLang) c;
+				if (! l.isValidValue(v)) {
+					ps.addViolation(new ShaclViolation(c, SHACL.LANGUAGE_IN_CONSTRAINT_COMPONENT, 
+														st.getSubject(), st.getPredicate(), v));
+				}
+				String lang = ShaclConstraintPropertyStringLang.getLang(v);
+				if (l.isUniqueLang() && lang != null && !ps.addLang(lang)) {
+					ps.addViolation(new ShaclViolation(c, SHACL.UNIQUE_LANG_CONSTRAINT_COMPONENT,
+									st.getSubject(), st.getPredicate(), null));
+				}
+			} else if (c instanceof ShaclConstraintPropertyValue) {
+				if (((ShaclConstraintPropertyValue) c).getValue().equals(v)) {
+					ps.setHasValue();
+				}
+			} else if (c instanceof ShaclConstraintPropertyClass) {
+				ps.addRef(v);
+			}
+			if (! valid) {
+				ps.addViolation(new ShaclViolation(c, st));
+			}
+		}
+	}
+	
+	/**
+	 * Check the constraints of a subject that require all values to be known
+	 * 
+	 * @param subj subject
+	 * @param p property shape
+	 * @param ps state of the property shape or null
+	 */
+	private void checkSubject(Resource subj, ShaclPropertyShape p, ShaclPropertyState ps) {
+		if (ps != null && ps.getViolations() != null) {
+			ps.getViolations().forEach(this::addViolation);
+		}
+		int cnt = (ps != null) ? ps.getCount() : 0;
+		
+		for (ShaclConstraint c: p.getConstraints()) {
+			if (c instanceof ShaclConstraintPropertyCount) {
+				ShaclConstraintPropertyCount count = (ShaclConstraintPropertyCount) c;
+				if (! count.isValidCount(cnt)) {
+					addViolation(new ShaclViolation(c, count.getComponent(cnt), 
+													subj, p.getPath(), null));
+				}
+			} else if (c instanceof ShaclConstraintPropertyValue) {
+				if (cnt > 0 && !ps.hasValue()) {
+					addViolation(new ShaclViolation(c, subj, p.getPath(), null));
+				}
+			} else if (c instanceof ShaclConstraintPropertyClass) {
+				if (ps == null || ps.getRefs() == null) {
+					continue;
+				}
+				Set<Resource> checked = instances.getOrDefault(
+					((ShaclConstraintPropertyClass) c).getRDFClass(), Collections.emptySet());
+				for (Value ref: ps.getRefs()) {
+					if (checked.contains(ref)) {
+						continue;
+					}
+					ShaclViolation v = new ShaclViolation(c, subj, p.getPath(), ref);
+					if (grouped) {
+						// instance may still be found later on
+						deferred.computeIfAbsent(ref, k -> new ArrayList<>()).add(v);
+					} else {
+						addViolation(v);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Evaluate all the node shapes targeting a subject.
+	 * 
+	 * @param subj subject
+	 * @param state state of the subject
+	 */
+	protected void finish(Resource subj, ShaclSubjectState state) {
+		Set<ShaclNodeShape> shapes = new LinkedHashSet<>();
+		shapes.addAll(targetNodes.getOrDefault(subj, Collections.emptyList()));
+		for (IRI type: state.getTypes()) {
+			shapes.addAll(targetClasses.get(type));
+		}
+		for (ShaclNodeShape shape: shapes) {
+			int idx = shapeIndex.get(shape);
+			List<ShaclPropertyShape> l = shape.getPropertyShapes();
+			for (int i = 0; i < l.size(); i++) {
+				checkSubject(subj, l.get(i), state.get(idx, i));
+			}
+		}
+	}
+	
+	/**
+	 * Evaluate the node shapes of a subject and discard its state, 
+	 * when the input is grouped by subject.
+	 * 
+	 * @param subj subject
+	 */
+	private void close(Resource subj) {
+		ShaclSubjectState state = states.remove(subj);
+		if (targetNodes.containsKey(subj)) {
+			finishedNodes.add(subj);
+			if (state == null) {
+				state = new ShaclSubjectState(nodeShapes.size());
+			}
+		}
+		if (state != null) {
+			finish(subj, state);
+		}
+		closed.add(subj);
+	}
+	
+	/**
+	 * Remove deferred sh:class violations for a reference, now known to be an instance
+	 * 
+	 * @param ref reference
+	 * @param cl class
+	 */
+	private void resolve(Resource ref, Value cl) {
+		List<ShaclViolation> l = deferred.get(ref);
+		if (l == null) {
+			return;
+		}
+		l.removeIf(v -> ((ShaclConstraintPropertyClass) v.getConstraint()).getRDFClass().equals(cl));
+		if (l.isEmpty()) {
+			deferred.remove(ref);
+		}
+	}
+	
+	@Override
+	public void handleStatement(Statement st) throws RDFHandlerException {
+		if (ctx.isStopped()) {
+			throw new RDFHandlerException("Maximum number of violations reached");
+		}
+		Resource subj = st.getSubject();
+		IRI pred = st.getPredicate();
+		
+		if (grouped && !subj.equals(current)) {
+			if (current != null) {
+				close(current);
+			}
+			if (closed.contains(subj)) {
+				throw new RDFHandlerException("Input is not grouped by subject, found " + subj + " again");
+			}
+			current = subj;
+		}
+		
+		if (pred.equals(RDF.TYPE)) {
+			Value obj = st.getObject();
+			if (targetClasses.containsKey(obj)) {
+				getState(subj).addType((IRI) obj);
+			}
+			Set<Resource> s = instances.get(obj);
+			if (s != null) {
+				if (s.add(subj) && ++instanceCount > maxInstances) {
+					throw new RDFHandlerException("More than " + maxInstances + 
+						" instances of classes used by sh:class, validate a model or a store instead");
+				}
+				if (grouped) {
+					resolve(subj, obj);
+				}
+			}
+		}
+		
+		List<Slot> l = paths.get(pred);
+		if (l != null) {
+			ShaclSubjectState state = null;
+			for (Slot s: l) {
+				if (! isCandidate(subj, s.shape)) {
+					continue;
+				}
+				if (state == null) {
+					state = getState(subj);
+				}
+				int size = nodeShapes.get(s.shape).getPropertyShapes().size();
+				checkValue(st, s.prop, state.getOrCreate(s.shape, s.index, size));
+			}
+		}
+	}
+
+	@Override
+	public void endRDF() throws RDFHandlerException {
+		if (grouped && current != null && !ctx.isStopped()) {
+			close(current);
+		}
+		for (Resource node: targetNodes.keySet()) {
+			if (! states.containsKey(node) && !finishedNodes.contains(node)) {
+				states.put(node, new ShaclSubjectState(nodeShapes.size()));
+			}
+		}
+		for (Map.Entry<Resource,ShaclSubjectState> e: states.entrySet()) {
+			if (ctx.isStopped()) {
+				break;
+			}
+			finish(e.getKey(), e.getValue());
+		}
+		states.clear();
+		for (List<ShaclViolation> l: deferred.values()) {
+			l.forEach(this::addViolation);
+		}
+		deferred.clear();
+		LOG.debug("Stream validated, {} violations", ctx.getViolations());
+	}
+	
+	/**
+	 * Check if a constraint can be checked while streaming
+	 * 
+	 * @param c constraint
+	 * @return true if supported
+	 */
+	private static boolean isSupported(ShaclConstraint c) {
+		return c instanceof ShaclConstraintPropertyClass
+			|| c instanceof ShaclConstraintPropertyCount
+			|| c instanceof ShaclConstraintPropertyDatatype
+			|| c instanceof ShaclConstraintPropertyNodekind
+			|| c instanceof ShaclConstraintPropertyString
+			|| c instanceof ShaclConstraintPropertyStringLang
+			|| c instanceof ShaclConstraintPropertyValue;
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param shapes top level node shapes
+	 * @param ctx validation context
+	 * @throws IllegalArgumentException when a constraint cannot be checked while streaming
+	 */
+	public ShaclStreamHandler(Collection<ShaclNodeShape> shapes, ShaclContext ctx) {
+		this.ctx = ctx;
+		for (ShaclNodeShape shape: shapes) {
+			int idx = nodeShapes.size();
+			nodeShapes.add(shape);
+			shapeIndex.put(shape, idx);
+			for (ShaclTarget t: shape.getTargets()) {
+				if (t instanceof ShaclTargetClass) {
+					byClass.set(idx);
+					targetClasses.computeIfAbsent(((ShaclTargetClass) t).getTargetClass(), 
+													k -> new ArrayList<>()).add(shape);
+				} else if (t instanceof ShaclTargetNode) {
+					targetNodes.computeIfAbsent(((ShaclTargetNode) t).getTargetNode(),
+													k -> new ArrayList<>()).add(shape);
+				}
+			}
+			List<ShaclPropertyShape> l = shape.getPropertyShapes();
+			for (int i = 0; i < l.size(); i++) {
+				ShaclPropertyShape p = l.get(i);
+				paths.computeIfAbsent(p.getPath(), k -> new ArrayList<>()).add(new Slot(idx, i, p));
+				for (ShaclConstraint c: p.getConstraints()) {
+					if (! isSupported(c)) {
+						throw new IllegalArgumentException("Constraint not supported in streaming mode: " + c);
+					}
+					if (c instanceof ShaclConstraintPropertyClass) {
+						instances.put(((ShaclConstraintPropertyClass) c).getRDFClass(), 
+										new HashSet<>());
+					}
+				}
+			}
+		}
+	}
+}
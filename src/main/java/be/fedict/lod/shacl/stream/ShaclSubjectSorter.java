@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+import org.eclipse.rdf4j.rio.ntriples.NTriplesUtil;
+
+/**
+ * Sort statements by subject, using a limited amount of memory, 
+ * and pass them on to another handler, e.g. a grouped stream handler.
+ * 
+ * Statements are serialized as N-Triples terms and buffered until the memory budget is used.
+ * The buffer is then sorted and written to a temporary file, and at the end of the data
+ * these sorted runs are merged. Duplicate statements are removed.
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclSubjectSorter extends AbstractRDFHandler {
+	private final static ValueFactory F = SimpleValueFactory.getInstance();
+	private final static int FANIN = 64;
+	private final static int OVERHEAD = 24;
+	
+	private final RDFHandler out;
+	private final long budget;
+	private final Path dir;
+	private final List<byte[]> buffer = new ArrayList<>();
+	private final List<Path> runs = new ArrayList<>();
+	private final List<Run> open = new ArrayList<>();
+	private long used = 0;
+	
+	/**
+	 * Compare two records as unsigned bytes.
+	 * Terms are separated by newlines, which sort before any character in a term,
+	 * so statements with the same subject end up next to each other.
+	 */
+	private final static Comparator<byte[]> ORDER = (a, b) -> {
+		int len = Math.min(a.length, b.length);
+		for (int i = 0; i < len; i++) {
+			int cmp = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return a.length - b.length;
+	};
+	
+	/**
+	 * Cursor on a sorted run
+	 */
+	private static class Run {
+		private final DataInputStream in;
+		private byte[] record;
+		
+		/**
+		 * Read the next record
+		 * 
+		 * @return false at the end of the run
+		 * @throws IOException 
+		 */
+		private boolean next() throws IOException {
+			try {
+				record = new byte[in.readInt()];
+			} catch (EOFException eof) {
+				in.close();
+				return false;
+			}
+			in.readFully(record);
+			return true;
+		}
+		
+		private Run(Path p) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(p)));
+		}
+	}
+	
+	/**
+	 * Get the number of sorted runs written to disk so far
+	 * 
+	 * @return number of runs
+	 */
+	public int getRuns() {
+		return runs.size();
+	}
+	
+	/**
+	 * Serialize a statement
+	 * 
+	 * @param st statement
+	 * @return bytes
+	 */
+	private static byte[] toRecord(Statement st) {
+		String s = NTriplesUtil.toNTriplesString(st.getSubject()) + '\n' 
+					+ NTriplesUtil.toNTriplesString(st.getPredicate()) + '\n'
+					+ NTriplesUtil.toNTriplesString(st.getObject());
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Deserialize a statement
+	 * 
+	 * @param record bytes
+	 * @return statement
+	 */
+	private static Statement toStatement(byte[] record) {
+		String[] terms = new String(record, StandardCharsets.UTF_8).split("\n", 3);
+		return F.createStatement((Resource) NTriplesUtil.parseValue(terms[0], F), 
+								(IRI) NTriplesUtil.parseValue(terms[1], F),
+								NTriplesUtil.parseValue(terms[2], F));
+	}
+	
+	/**
+	 * Write sorted records to a new temporary file
+	 * 
+	 * @param records sorted records
+	 * @return path of the run
+	 * @throws IOException 
+	 */
+	private Path write(Iterator<byte[]> records) throws IOException {
+		Path p = (dir != null) ? Files.createTempFile(dir, "shacl", ".run") 
+								: Files.createTempFile("shacl", ".run");
+		runs.add(p);
+		try (DataOutputStream dos = new DataOutputStream(
+										new BufferedOutputStream(Files.newOutputStream(p)))) {
+			while (records.hasNext()) {
+				byte[] record = records.next();
+				dos.writeInt(record.length);
+				dos.write(record);
+			}
+		}
+		return p;
+	}
+	
+	/**
+	 * Sort the buffer and write it to disk
+	 * 
+	 * @throws IOException 
+	 */
+	private void spill() throws IOException {
+		buffer.sort(ORDER);
+		write(buffer.iterator());
+		buffer.clear();
+		used = 0;
+	}
+	
+	/**
+	 * Merge sorted runs
+	 * 
+	 * @param paths sorted runs
+	 * @return iterator over the merged records
+	 * @throws IOException 
+	 */
+	private Iterator<byte[]> merge(List<Path> paths) throws IOException {
+		PriorityQueue<Run> queue = new PriorityQueue<>((a, b) -> ORDER.compare(a.record, b.record));
+		for (Path p: paths) {
+			Run run = new Run(p);
+			open.add(run);
+			if (run.next()) {
+				queue.add(run);
+			}
+		}
+		return new Iterator<byte[]>() {
+			@Override
+			public boolean hasNext() {
+				return !queue.isEmpty();
+			}
+			
+			@Override
+			public byte[] next() {
+				Run run = queue.poll();
+				byte[] record = run.record;
+				try {
+					if (run.next()) {
+						queue.add(run);
+					}
+				} catch (IOException ioe) {
+					throw new UncheckedIOException(ioe);
+				}
+				return record;
+			}
+		};
+	}
+	
+	/**
+	 * Delete temporary files
+	 */
+	private void cleanup() {
+		for (Run run: open) {
+			try {
+				run.in.close();
+			} catch (IOException ioe) {
+				// best effort
+			}
+		}
+		open.clear();
+		for (Path p: runs) {
+			try {
+				Files.deleteIfExists(p);
+			} catch (IOException ioe) {
+				// best effort
+			}
+		}
+		runs.clear();
+		buffer.clear();
+	}
+	
+	@Override
+	public void startRDF() throws RDFHandlerException {
+		out.startRDF();
+	}
+	
+	@Override
+	public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+		out.handleNamespace(prefix, uri);
+	}
+	
+	@Override
+	public void handleStatement(Statement st) throws RDFHandlerException {
+		byte[] record = toRecord(st);
+		buffer.add(record);
+		used += record.length + OVERHEAD;
+		if (used >= budget) {
+			try {
+				spill();
+			} catch (IOException ioe) {
+				cleanup();
+				throw new RDFHandlerException(ioe);
+			}
+		}
+	}
+	
+	@Override
+	public void endRDF() throws RDFHandlerException {
+		try {
+			Iterator<byte[]> records;
+			if (runs.isEmpty()) {
+				// everything fits in memory
+				buffer.sort(ORDER);
+				records = buffer.iterator();
+			} else {
+				if (!buffer.isEmpty()) {
+					spill();
+				}
+				// limit the number of open files
+				while (runs.size() > FANIN) {
+					List<Path> first = new ArrayList<>(runs.subList(0, FANIN));
+					runs.removeAll(first);
+					write(merge(first));
+					for (Path p: first) {
+						Files.delete(p);
+					}
+				}
+				records = merge(runs);
+			}
+			byte[] last = null;
+			while (records.hasNext()) {
+				byte[] record = records.next();
+				if (last == null || ORDER.compare(record, last) != 0) {
+					out.handleStatement(toStatement(record));
+				}
+				last = record;
+			}
+			out.endRDF();
+		} catch (IOException|UncheckedIOException e) {
+			throw new RDFHandlerException(e);
+		} finally {
+			cleanup();
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param out handler receiving the sorted statements
+	 * @param budget memory budget in bytes
+	 * @param dir directory for temporary files or null for the default
+	 */
+	public ShaclSubjectSorter(RDFHandler out, long budget, Path dir) {
+		if (budget < 1) {
+			throw new IllegalArgumentException("Memory budget must be at least 1 byte");
+		}
+		this.out = out;
+		this.budget = budget;
+		this.dir = dir;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@bosa.fgov.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.stream;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+
+/**
+ * State of one subject, used when streaming.
+ * Only the target classes and the state per property shape are kept,
+ * the states are only allocated for node shapes with matching properties.
+ * 
+ * @author Bart Hanssens
+ */
+class ShaclSubjectState {
+	private final Set<IRI> types = new HashSet<>(2);
+	private final ShaclPropertyState[][] shapes;
+	
+	/**
+	 * Add target class
+	 * 
+	 * @param type class IRI 
+	 */
+	public void addType(IRI type) {
+		types.add(type);
+	}
+	
+	/**
+	 * Get target classes
+	 * 
+	 * @return set of classes
+	 */
+	public Set<IRI> getTypes() {
+		return types;
+	}
+	
+	/**
+	 * Get the state of a property shape
+	 * 
+	 * @param shape index of the node shape
+	 * @param i index of the property shape within the node shape
+	 * @return state or null
+	 */
+	public ShaclPropertyState get(int shape, int i) {
+		ShaclPropertyState[] props = shapes[shape];
+		return (props != null) ? props[i] : null;
+	}
+	
+	/**
+	 * Get or create the state of a property shape
+	 * 
+	 * @param shape index of the node shape
+	 * @param i index of the property shape within the node shape
+	 * @param size number of property shapes of the node shape
+	 * @return state
+	 */
+	public ShaclPropertyState getOrCreate(int shape, int i, int size) {
+		ShaclPropertyState[] props = shapes[shape];
+		if (props == null) {
+			props = new ShaclPropertyState[size];
+			shapes[shape] = props;
+		}
+		if (props[i] == null) {
+			props[i] = new ShaclPropertyState();
+		}
+		return props[i];
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param size number of node shapes
+	 */
+	public ShaclSubjectState(int size) {
+		this.shapes = new ShaclPropertyState[size][];
+	}
+}
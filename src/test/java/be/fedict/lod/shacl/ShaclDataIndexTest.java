@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+
+import org.junit.Test;
+
+
+/**
+ * Index on the data model, by predicate, subject and type
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclDataIndexTest {
+	private final static ValueFactory F = SimpleValueFactory.getInstance();
+	private final static String NS = "http://example.com/ns#";
+	private final static IRI BOOK = F.createIRI(NS, "BookClass");
+	private final static IRI NOVEL = F.createIRI(NS, "NovelClass");
+	private final static IRI BOOK1 = F.createIRI(NS, "Book1");
+	private final static IRI BOOK2 = F.createIRI(NS, "Book2");
+	private final static IRI BOOK3 = F.createIRI(NS, "Book3");
+	
+	/**
+	 * Create a model with three books, one of them also a novel, and two titles
+	 * 
+	 * @return model
+	 */
+	private static Model books() {
+		Model m = new LinkedHashModel();
+		m.add(BOOK1, RDF.TYPE, BOOK);
+		m.add(BOOK1, RDF.TYPE, NOVEL);
+		m.add(BOOK1, DCTERMS.TITLE, F.createLiteral("First"));
+		m.add(BOOK1, DCTERMS.TITLE, F.createLiteral("Premier", "fr"));
+		m.add(BOOK2, RDF.TYPE, BOOK);
+		m.add(BOOK2, DCTERMS.TITLE, F.createLiteral("Second"));
+		m.add(BOOK3, RDF.TYPE, BOOK);
+		return m;
+	}
+	
+	private static Set<Resource> set(Resource... subjs) {
+		return new HashSet<>(Arrays.asList(subjs));
+	}
+	
+	@Test
+	public void select() {
+		ShaclDataIndex index = new ShaclDataIndex(books());
+		
+		Model m = index.select(set(BOOK1, BOOK3), DCTERMS.TITLE);
+		assertEquals(2, m.size());
+		assertEquals(Collections.singleton(BOOK1), m.subjects());
+		
+		assertEquals(3, index.select(set(BOOK2, BOOK3), null).size());
+		assertTrue(index.select(Collections.emptySet(), DCTERMS.TITLE).isEmpty());
+	}
+	
+	@Test
+	public void selectSmallIndex() {
+		// more subjects than statements of the predicate
+		ShaclDataIndex index = new ShaclDataIndex(books());
+		Set<Resource> subjs = set(BOOK1, BOOK2, BOOK3);
+		for (int i = 0; i < 10; i++) {
+			subjs.add(F.createIRI(NS, "Other" + i));
+		}
+		assertEquals(3, index.select(subjs, DCTERMS.TITLE).size());
+	}
+	
+	@Test
+	public void subjects() {
+		ShaclDataIndex index = new ShaclDataIndex(books());
+		assertEquals(set(BOOK1, BOOK2, BOOK3), index.subjects());
+	}
+	
+	@Test
+	public void frequency() {
+		ShaclDataIndex index = new ShaclDataIndex(books());
+		assertEquals(3, index.frequency(DCTERMS.TITLE));
+		assertEquals(4, index.frequency(RDF.TYPE));
+	}
+	
+	@Test
+	public void absentPredicate() {
+		ShaclDataIndex index = new ShaclDataIndex(books());
+		assertEquals(0, index.frequency(DCTERMS.CREATOR));
+		assertTrue(index.select(set(BOOK1, BOOK2), DCTERMS.CREATOR).isEmpty());
+	}
+	
+	@Test
+	public void multipleTypes() {
+		ShaclDataIndex index = new ShaclDataIndex(books());
+		assertEquals(3, index.countInstances(BOOK));
+		assertEquals(1, index.countInstances(NOVEL));
+		assertEquals(0, index.countInstances(F.createIRI(NS, "ThrillerClass")));
+		
+		assertEquals(set(BOOK1), index.instancesOf(NOVEL));
+		assertTrue(index.hasType(BOOK1, BOOK));
+		assertTrue(index.hasType(BOOK1, NOVEL));
+		assertFalse(index.hasType(BOOK2, NOVEL));
+	}
+}
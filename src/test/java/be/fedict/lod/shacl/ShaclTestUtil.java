@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl;
+
+import be.fedict.lod.shacl.report.ShaclValidationReport;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+
+/**
+ * Helpers shared by the tests
+ * 
+ * @author Bart Hanssens
+ */
+public final class ShaclTestUtil {
+	/**
+	 * Get the violations of a report as a string, one violation per line,
+	 * to compare reports of different validation modes
+	 * 
+	 * @param report validation report
+	 * @return string
+	 */
+	public static String violations(ShaclValidationReport report) {
+		StringBuilder sb = new StringBuilder();
+		for (ShaclViolation v: report.getViolations()) {
+			sb.append(v.getComponent()).append(' ').append(v.getFocusNode()).append(' ')
+				.append(v.getPath()).append(' ').append(v.getValue()).append('\n');
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Create a model with books of the BookClass in shacl.ttl, each with a title except one
+	 * 
+	 * @param size number of books
+	 * @param missing number of the book without title, or -1
+	 * @return model
+	 */
+	public static Model books(int size, int missing) {
+		ValueFactory f = SimpleValueFactory.getInstance();
+		IRI cl = f.createIRI("http://example.com/ns#BookClass");
+		
+		Model m = new LinkedHashModel();
+		for (int i = 0; i < size; i++) {
+			IRI book = f.createIRI("http://example.com/ns#Book" + i);
+			m.add(book, RDF.TYPE, cl);
+			if (i != missing) {
+				m.add(book, DCTERMS.TITLE, f.createLiteral("Title " + i));
+			}
+		}
+		return m;
+	}
+	
+	/**
+	 * Private constructor
+	 */
+	private ShaclTestUtil() {
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl;
+
+import be.fedict.lod.shacl.report.ShaclValidationReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.rio.RDFFormat;
+
+import org.junit.Test;
+
+
+/**
+ * Type index, with and without rdfs:subClassOf
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclTypeIndexTest {
+	private final static ValueFactory F = SimpleValueFactory.getInstance();
+	private final static String NS = "http://example.com/ns#";
+	private final static IRI BOOK = F.createIRI(NS, "BookClass");
+	private final static IRI NOVEL = F.createIRI(NS, "NovelClass");
+	private final static IRI THRILLER = F.createIRI(NS, "ThrillerClass");
+	
+	/**
+	 * Create a model with a thriller, a subclass of novel, a subclass of book
+	 * 
+	 * @return model
+	 */
+	private static Model thriller() {
+		Model m = new LinkedHashModel();
+		m.add(THRILLER, RDFS.SUBCLASSOF, NOVEL);
+		m.add(NOVEL, RDFS.SUBCLASSOF, BOOK);
+		m.add(F.createIRI(NS, "Book1"), RDF.TYPE, THRILLER);
+		return m;
+	}
+	
+	private static ShaclValidator validator(boolean subClassOf) throws IOException {
+		InputStream is = ShaclTypeIndexTest.class.getClassLoader().getResourceAsStream("shacl.ttl");
+		return ShaclValidator.builder(is, RDFFormat.TURTLE).setSubClassOf(subClassOf).build();
+	}
+	
+	@Test
+	public void types() {
+		ShaclTypeIndex index = new ShaclTypeIndex(thriller(), false);
+		IRI book = F.createIRI(NS, "Book1");
+		
+		assertTrue("instance not found", index.hasType(book, THRILLER));
+		assertFalse("superclass without rdfs:subClassOf", index.hasType(book, BOOK));
+		assertEquals("wrong number of instances", 1, index.instancesOf(THRILLER).size());
+		assertTrue("unknown class must be empty", index.instancesOf(BOOK).isEmpty());
+		assertFalse("literal is not an instance", index.hasType(F.createLiteral("Book1"), THRILLER));
+	}
+	
+	@Test
+	public void subClassOf() {
+		Model m = thriller();
+		// cycles must not loop forever
+		m.add(BOOK, RDFS.SUBCLASSOF, THRILLER);
+		ShaclTypeIndex index = new ShaclTypeIndex(m, true);
+		IRI book = F.createIRI(NS, "Book1");
+		
+		assertTrue("superclass not found", index.hasType(book, BOOK));
+		assertTrue("superclass not found", index.hasType(book, NOVEL));
+		assertEquals("wrong number of types", 3, index.typesOf(book).size());
+		assertTrue("instance not found", index.instancesOf(BOOK).contains(book));
+	}
+	
+	@Test
+	public void modelData() {
+		Model m = thriller();
+		m.add(BOOK, RDFS.SUBCLASSOF, THRILLER);
+		IRI book = F.createIRI(NS, "Book1");
+		ShaclModelData data = new ShaclModelData(m, true);
+		
+		assertTrue("superclass not found", data.hasType(book, BOOK));
+		assertTrue("superclass not found", data.hasType(book, NOVEL));
+		assertTrue("instance not found", data.instancesOf(BOOK).contains(book));
+		assertFalse("superclass without rdfs:subClassOf", new ShaclModelData(m).hasType(book, BOOK));
+	}
+	
+	@Test
+	public void validate() throws IOException {
+		// book has no title
+		assertTrue("must not be a target", validator(false).validate(thriller()));
+		assertFalse("not reporting missing title", validator(true).validate(thriller()));
+	}
+	
+	@Test
+	public void revalidate() throws IOException {
+		ShaclValidator validator = validator(true);
+		Model m = new LinkedHashModel(thriller());
+		m.remove(NOVEL, RDFS.SUBCLASSOF, BOOK);
+		ShaclValidationReport report = validator.report(m);
+		assertTrue("must not be a target", report.conforms());
+		
+		Model added = new LinkedHashModel();
+		added.add(NOVEL, RDFS.SUBCLASSOF, BOOK);
+		m.addAll(added);
+		assertFalse("not reporting missing title", 
+					validator.revalidateChange(m, added, new LinkedHashModel(), report));
+	}
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl;
+
+import be.fedict.lod.shacl.constraints.ShaclPatternBudget;
+import be.fedict.lod.shacl.report.ShaclValidationReport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static be.fedict.lod.shacl.ShaclTestUtil.violations;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+/**
+ * Compare parallel validation with sequential validation
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclValidatorTest {
+	private final static String[] FILES = { 
+		"class-ok.ttl", "class-missing.ttl", 
+		"count-ok.ttl", "count-toofew.ttl", "count-toomuch.ttl",
+		"datatype-ok.ttl", "datatype-wrong1.ttl", "datatype-wrong2.ttl",
+		"lang-ok.ttl", "lang-notunique.ttl", "lang-wrong1.ttl", "lang-wrong2.ttl", "lang-wrong3.ttl",
+		"nodekind-ok.ttl", "nodekind-wrong.ttl",
+		"string-ok.ttl", "string-toolong.ttl", "string-tooshort.ttl",
+		"value-ok.ttl", "value-wrong.ttl" };
+	
+	public static ShaclValidator validator;
+	public static ShaclValidator parallel;
+	
+	private static ClassLoader getClassLoader() {
+		return ShaclValidatorTest.class.getClassLoader();
+	}
+	
+	public static boolean validate(ShaclValidator v, String f) throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream(f);
+		return v.validate(is, RDFFormat.TURTLE);
+	}
+	
+	@BeforeClass
+	public static void init() throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream("shacl.ttl");
+		validator = new ShaclValidator(is, RDFFormat.TURTLE);
+		is = getClassLoader().getResourceAsStream("shacl.ttl");
+		parallel = ShaclValidator.builder(is, RDFFormat.TURTLE).setPool(new ForkJoinPool(4)).build();
+	}
+
+	/**
+	 * Create a model with many books, more than one chunk of focus nodes
+	 * 
+	 * @param missing number of the book without title, or -1
+	 * @return model
+	 */
+	private static Model books(int missing) {
+		return ShaclTestUtil.books(5000, missing);
+	}
+	
+	@AfterClass
+	public static void close() {
+		parallel.getPool().shutdown();
+	}
+	
+	@Test
+	public void parallelSameAsSequential() throws IOException {
+		for (String f: FILES) {
+			assertEquals("parallel differs for " + f, validate(validator, f), validate(parallel, f));
+		}
+	}
+	
+	@Test
+	public void concurrentRequests() throws Exception {
+		ExecutorService exec = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> valid = new ArrayList<>();
+			List<Future<Boolean>> invalid = new ArrayList<>();
+			for (int i = 0; i < 50; i++) {
+				valid.add(exec.submit(() -> validator.validate(books(-1))));
+				invalid.add(exec.submit(() -> validator.validate(books(42))));
+			}
+			for (int i = 0; i < 50; i++) {
+				assertTrue("must be valid", valid.get(i).get());
+				assertFalse("not reporting too few", invalid.get(i).get());
+			}
+		} finally {
+			exec.shutdown();
+		}
+	}
+	
+	@Test
+	public void parallelChunks() {
+		assertTrue("must be valid", parallel.validate(books(-1)));
+		assertFalse("not reporting too few", parallel.validate(books(4321)));
+	}
+	
+	@Test
+	public void maxViolations() throws IOException {
+		Model m = books(-1);
+		m.remove(null, DCTERMS.TITLE, null);
+		
+		InputStream is = getClassLoader().getResourceAsStream("shacl.ttl");
+		ShaclValidator limited = ShaclValidator.builder(is, RDFFormat.TURTLE).setMaxViolations(10).build();
+		assertEquals("more than max reported", 10, limited.report(m).size());
+		
+		limited = limited.toBuilder().setPool(parallel.getPool()).build();
+		assertEquals("more than max reported in parallel", 10, limited.report(m).size());
+	}
+	
+	@Test
+	public void conforms() {
+		assertTrue("must conform", validator.conforms(books(-1)));
+		assertFalse("must not conform", validator.conforms(books(42)));
+		assertFalse("must not conform in parallel", parallel.conforms(books(4321)));
+	}
+	
+	@Test
+	public void patternBudget() throws IOException {
+		String shapes = "@prefix sh: <http://www.w3.org/ns/shacl#> .\n" +
+					"@prefix ex: <http://example.com/ns#> .\n" +
+					"ex:Shape a sh:NodeShape ; sh:targetClass ex:Word ; " +
+					"sh:property [ sh:path ex:label ; sh:pattern \"((a+)+)\\\\2b\" ] .\n";
+		ShaclPatternBudget budget = new ShaclPatternBudget(100_000, 0);
+		ShaclValidator v = ShaclValidator.builder(
+			new ByteArrayInputStream(shapes.getBytes(StandardCharsets.UTF_8)), RDFFormat.TURTLE)
+				.setPatternBudget(budget).build();
+		
+		String ok = "<http://example.com/ns#w> a <http://example.com/ns#Word> ; " +
+					"<http://example.com/ns#label> \"aab\" .";
+		String slow = "<http://example.com/ns#w> a <http://example.com/ns#Word> ; " +
+					"<http://example.com/ns#label> \"aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa\" .";
+		assertTrue("must be valid", v.validate(
+			Rio.parse(new ByteArrayInputStream(ok.getBytes(StandardCharsets.UTF_8)), "", RDFFormat.TURTLE)));
+		assertFalse("exceeding the budget must be a violation", v.validate(
+			Rio.parse(new ByteArrayInputStream(slow.getBytes(StandardCharsets.UTF_8)), "", RDFFormat.TURTLE)));
+		assertFalse("exceeding the budget must be a violation when streaming", v.validateStream(
+			new ByteArrayInputStream(slow.getBytes(StandardCharsets.UTF_8)), RDFFormat.TURTLE));
+		assertEquals("exceeded budget", 2, budget.getExceeded());
+	}
+	
+	private static void assertRevalidated(String f, Model added, Model removed) throws IOException {
+		Model m = Rio.parse(getClassLoader().getResourceAsStream(f), "http://localhost", RDFFormat.TURTLE);
+		ShaclValidationReport report = validator.report(m);
+		m.removeAll(removed);
+		m.addAll(added);
+		validator.revalidateChange(m, added, removed, report);
+		assertEquals("revalidation differs for " + f, violations(validator.report(m)), violations(report));
+	}
+	
+	@Test
+	public void revalidate() throws IOException {
+		ValueFactory f = SimpleValueFactory.getInstance();
+		IRI book = f.createIRI("http://example.com/ns#Book1");
+		IRI poster1 = f.createIRI("http://example.com/ns#Poster1");
+		IRI poster2 = f.createIRI("http://example.com/ns#Poster2");
+		IRI bookCl = f.createIRI("http://example.com/ns#BookClass");
+		IRI posterCl = f.createIRI("http://example.com/ns#PosterClass");
+		Model none = new LinkedHashModel();
+		
+		Model m = new LinkedHashModel();
+		m.add(poster1, RDF.TYPE, posterCl);
+		assertRevalidated("class-ok.ttl", none, m);
+		
+		m = new LinkedHashModel();
+		m.add(poster2, RDF.TYPE, posterCl);
+		assertRevalidated("class-missing.ttl", m, none);
+		
+		m = new LinkedHashModel();
+		m.add(book, DCTERMS.TITLE, f.createLiteral("Title 2"));
+		m.add(book, DCTERMS.TITLE, f.createLiteral("Title 3"));
+		assertRevalidated("count-ok.ttl", m, none);
+		
+		m = new LinkedHashModel();
+		m.add(book, RDF.TYPE, bookCl);
+		assertRevalidated("count-toomuch.ttl", none, m);
+	}
+	
+	/**
+	 * Get the titles of a range of books
+	 * 
+	 * @param m model
+	 * @param from first book
+	 * @param to last book (exclusive)
+	 * @return titles
+	 */
+	private static Model titles(Model m, int from, int to) {
+		ValueFactory f = SimpleValueFactory.getInstance();
+		Model titles = new LinkedHashModel();
+		for (int i = from; i < to; i++) {
+			titles.addAll(m.filter(f.createIRI("http://example.com/ns#Book" + i), DCTERMS.TITLE, null));
+		}
+		return titles;
+	}
+	
+	@Test
+	public void revalidateMax() throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream("shacl.ttl");
+		ShaclValidator limited = ShaclValidator.builder(is, RDFFormat.TURTLE).setMaxViolations(10).build();
+		
+		Model m = books(-1);
+		ShaclValidationReport report = limited.report(m);
+		Model removed = titles(m, 0, 100);
+		m.removeAll(removed);
+		assertFalse("must not conform", 
+					limited.revalidateChange(m, new LinkedHashModel(), removed, report));
+		assertEquals("more than max reported", 10, report.size());
+		
+		limited = limited.toBuilder().setPool(parallel.getPool()).build();
+		m = books(-1);
+		report = limited.report(m);
+		removed = titles(m, 0, 1000);
+		m.removeAll(removed);
+		limited.revalidateChange(m, new LinkedHashModel(), removed, report);
+		assertEquals("more than max reported in parallel", 10, report.size());
+	}
+	
+	@Test
+	public void revalidateParallel() {
+		Model m = books(-1);
+		ShaclValidationReport report = parallel.report(m);
+		Model removed = titles(m, 0, 1000);
+		m.removeAll(removed);
+		assertFalse("must not conform", 
+					parallel.revalidateChange(m, new LinkedHashModel(), removed, report));
+		assertEquals("wrong number of violations", 1000, report.size());
+	}
+	
+	@Test
+	public void revalidateAffected() {
+		ValueFactory f = SimpleValueFactory.getInstance();
+		IRI book = f.createIRI("http://example.com/ns#Book42");
+		Model m = books(42);
+		ShaclValidationReport report = validator.report(m);
+		assertEquals("missing title not reported", 1, report.size());
+		
+		Model added = new LinkedHashModel();
+		added.add(book, DCTERMS.TITLE, f.createLiteral("Title 42"));
+		added.add(book, DCTERMS.DESCRIPTION, f.createLiteral("Not in a shape"));
+		m.addAll(added);
+		int size = m.size();
+		assertEquals("too many affected", 1, validator.getAffectedNodes(m, added, new LinkedHashModel()).size());
+		assertTrue("must conform", validator.revalidateChange(m, added, new LinkedHashModel(), report));
+		assertEquals("model modified", size, m.size());
+	}
+	
+	@Test
+	public void revalidateAffectedNode() throws IOException {
+		String shapes = "@prefix sh: <http://www.w3.org/ns/shacl#> .\n" +
+					"@prefix ex: <http://example.com/ns#> .\n" +
+					"ex:Shape a sh:NodeShape ; sh:targetClass ex:A ; " +
+					"sh:property [ sh:path ex:p ; sh:node ex:Middle ] .\n" +
+					"ex:Middle a sh:NodeShape ; sh:property [ sh:path ex:q ; sh:node ex:Leaf ] .\n" +
+					"ex:Leaf a sh:NodeShape ; sh:property [ sh:path ex:r ; sh:minCount 1 ] .\n";
+		ShaclValidator v = new ShaclValidator(
+			new ByteArrayInputStream(shapes.getBytes(StandardCharsets.UTF_8)), RDFFormat.TURTLE);
+		String data = "@prefix ex: <http://example.com/ns#> .\n" +
+					"ex:a a ex:A ; ex:p ex:b .\n" +
+					"ex:b ex:q ex:c .\n" +
+					"ex:c ex:r \"x\" .\n" +
+					"ex:other a ex:A .\n";
+		Model m = Rio.parse(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), 
+							"", RDFFormat.TURTLE);
+		ValueFactory f = SimpleValueFactory.getInstance();
+		Model removed = new LinkedHashModel(m.filter(null, f.createIRI("http://example.com/ns#r"), null));
+		m.removeAll(removed);
+		
+		Set<Resource> nodes = v.getAffectedNodes(m, new LinkedHashModel(), removed);
+		assertTrue("referring node not affected", nodes.contains(f.createIRI("http://example.com/ns#a")));
+		assertFalse("unrelated node affected", nodes.contains(f.createIRI("http://example.com/ns#other")));
+	}
+}
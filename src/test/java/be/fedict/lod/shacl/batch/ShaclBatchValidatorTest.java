@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.batch;
+
+import be.fedict.lod.shacl.ShaclValidator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Validate a directory of files in parallel
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclBatchValidatorTest {
+	private final static String[] FILES = { 
+		"class-ok.ttl", "count-toofew.ttl", "datatype-wrong1.ttl", "lang-ok.ttl", "value-wrong.ttl" };
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private static ClassLoader getClassLoader() {
+		return ShaclBatchValidatorTest.class.getClassLoader();
+	}
+	
+	private Path copy() throws IOException {
+		Path dir = folder.newFolder("data").toPath();
+		for (String f: FILES) {
+			try (InputStream is = getClassLoader().getResourceAsStream(f)) {
+				Files.copy(is, dir.resolve(f));
+			}
+		}
+		Files.write(dir.resolve("broken.ttl"), "this is not turtle".getBytes(StandardCharsets.UTF_8));
+		return dir;
+	}
+	
+	@Test
+	public void validate() throws IOException {
+		Path dir = copy();
+		Path reports = folder.newFolder("reports").toPath();
+		
+		ShaclValidator validator;
+		try (InputStream is = getClassLoader().getResourceAsStream("shacl.ttl")) {
+			validator = new ShaclValidator(is, RDFFormat.TURTLE);
+		}
+		ShaclBatchValidator batch = new ShaclBatchValidator(validator, 3);
+		batch.setReportDir(reports);
+		
+		List<Path> files = ShaclBatchValidator.expand(Collections.singletonList(dir.toString()));
+		assertEquals(FILES.length + 1, files.size());
+		
+		List<ShaclBatchResult> results = batch.validate(files);
+		assertEquals(files.size(), results.size());
+		for (ShaclBatchResult r: results) {
+			String name = r.getFile().getFileName().toString();
+			if (name.equals("broken.ttl")) {
+				assertNotNull(r.getError());
+			} else {
+				assertEquals(name, name.contains("-ok"), r.conforms());
+			}
+		}
+		try (Stream<Path> s = Files.walk(reports)) {
+			assertEquals(FILES.length, s.filter(p -> p.toString().endsWith(".report.ttl")).count());
+		}
+		List<String> summary = Files.readAllLines(reports.resolve(ShaclBatchValidator.SUMMARY));
+		assertEquals(files.size() + 1, summary.size());
+	}
+	
+	@Test
+	public void expand() throws IOException {
+		Path dir = copy();
+		List<Path> glob = ShaclBatchValidator.expand(Collections.singletonList(dir + "/*-ok.ttl"));
+		assertEquals(2, glob.size());
+		
+		Path list = folder.newFile("list.txt").toPath();
+		Files.write(list, Arrays.asList(dir.resolve("class-ok.ttl").toString(), "", 
+										dir.resolve("broken.ttl").toString()));
+		List<Path> listed = ShaclBatchValidator.expand(Collections.singletonList("@" + list));
+		assertEquals(2, listed.size());
+		assertFalse(listed.contains(list));
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.constraints;
+
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+
+import org.junit.Test;
+
+/**
+ * Check the lexical datatype checkers
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclDatatypeCheckersTest {
+	private static void check(IRI datatype, String[] valid, String[] invalid) {
+		Predicate<String> checker = ShaclDatatypeCheckers.checker(datatype);
+		for (String s: valid) {
+			assertTrue(s + " must be valid " + datatype, checker.test(s));
+		}
+		for (String s: invalid) {
+			assertFalse(s + " must not be valid " + datatype, checker.test(s));
+		}
+	}
+	
+	@Test
+	public void numbers() {
+		check(XMLSchema.INTEGER, new String[] { "0", "-12", "+0012", " 42 ", "123456789012345678901234" },
+								new String[] { "", "-", "1.0", "1e3", "12a" });
+		check(XMLSchema.INT, new String[] { "2147483647", "-2147483648" },
+							new String[] { "2147483648", "-2147483649", " ", "\n\t" });
+		check(XMLSchema.LONG, new String[] { "9223372036854775807", "-9223372036854775808" },
+							new String[] { "9223372036854775808", "-9223372036854775809", " " });
+		check(XMLSchema.UNSIGNED_LONG, new String[] { "18446744073709551615", "000123", "-0" },
+							new String[] { "18446744073709551616", "-1", " " });
+		check(XMLSchema.UNSIGNED_BYTE, new String[] { "255", " 0 " },
+							new String[] { "256", "-1", "\n\t" });
+		check(XMLSchema.SHORT, new String[] { "-32768" }, new String[] { "32768", "\t" });
+		check(XMLSchema.POSITIVE_INTEGER, new String[] { "1", "+007" },
+										new String[] { "0", "-0", "-5" });
+		check(XMLSchema.DECIMAL, new String[] { "1.5", "-.5", "5.", "+10" },
+								new String[] { ".", "1.2.3", "1e2", "NaN" });
+		check(XMLSchema.DOUBLE, new String[] { "1.5E3", "-1e-2", ".5e+1", "INF", "-INF", "NaN", "12" },
+								new String[] { "1e", "e3", "1.5F", "inf" });
+	}
+	
+	@Test
+	public void dates() {
+		check(XMLSchema.DATE, new String[] { "2018-02-28", "2016-02-29", "2000-02-29", "-0044-03-15", 
+											"2018-01-01Z", "2018-01-01+14:00", "12018-01-01" },
+							new String[] { "2018-02-29", "1900-02-29", "2018-13-01", "2018-04-31", 
+											"18-01-01", "02018-01-01", "2018-01-01+15:00", "123" });
+		check(XMLSchema.DATETIME, new String[] { "2018-01-01T12:00:00", "2018-01-01T24:00:00Z",
+												"2018-01-01T23:59:59.999+01:00" },
+								new String[] { "2018-01-01", "2018-01-01T24:00:01", "2018-01-01T12:60:00",
+												"2018-01-01T12:00:00.", "2018-01-01 12:00:00" });
+		check(XMLSchema.GYEAR, new String[] { "2018", "-0001", "2018Z" },
+								new String[] { "18", "2018-01", "abcd" });
+	}
+	
+	@Test
+	public void others() {
+		check(XMLSchema.BOOLEAN, new String[] { "true", "false", "1", "0" },
+								new String[] { "TRUE", "yes", "" });
+		check(XMLSchema.ANYURI, new String[] { "http://example.com/a?b=c#d", "relative/path" },
+								new String[] { "http://example.com/<a>", "http://example.com/a b", 
+												"http://example.com/%zz" });
+		check(XMLSchema.STRING, new String[] { "", "anything" }, new String[] { });
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.constraints;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+/**
+ *
+ * @author Bart Hanssens
+ */
+public class ShaclPatternMatcherTest {
+	private final static String[] PATTERNS = {
+		"abc", "^a.c$", "a*b+c?", "(ab|a)*b", "[a-c]{2,3}", "[^ab]+", "x{0,2}y{2}", "(?:a|bc)+$",
+		"\\d{4}-\\d{2}-\\d{2}", "[\\w.-]+@[\\w-]+\\.be", "\\s*\\S+", "[a\\-c]+", "[-a]b[c-]",
+		"(a|b|)*c", "((a*)*)*b", "a+?b", ".*é.*", "\\x41\\u00e9+", "\\.\\*\\[", "a{2,}", "[]a]",
+		"(a)\\1", "(?i)abc", "a(?=b).", "a*+b", "\\p{L}+", "\\bab"
+	};
+	private final static String ALPHABET = "abcxy-.@ é1\n\t";
+	
+	@Test
+	public void sameAsRegex() {
+		Random rnd = new Random(42);
+		for (String p: PATTERNS) {
+			Pattern pattern = Pattern.compile(p);
+			ShaclPatternMatcher matcher = new ShaclPatternMatcher(pattern);
+			for (int i = 0; i < 2000; i++) {
+				StringBuilder sb = new StringBuilder();
+				int len = rnd.nextInt(8);
+				for (int j = 0; j < len; j++) {
+					sb.append(ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+				}
+				String str = sb.toString();
+				assertEquals(p + " on " + str, pattern.matcher(str).matches(), matcher.matches(str));
+			}
+		}
+	}
+	
+	@Test
+	public void sameAsRegexSamples() {
+		String[][] samples = {
+			{ "\\d{4}-\\d{2}-\\d{2}", "2018-01-31" },
+			{ "[\\w.-]+@[\\w-]+\\.be", "bart.hanssens@bosa.be" },
+			{ "(?:a|bc)+$", "abcbca" },
+			{ "\\x41\\u00e9+", "Aéé" },
+			{ ".*é.*", "😀é" },
+			{ ".", "😀" },
+			{ "[^a]", "😀" }
+		};
+		for (String[] s: samples) {
+			Pattern pattern = Pattern.compile(s[0]);
+			assertTrue(s[0] + " must match", pattern.matcher(s[1]).matches());
+			assertTrue(s[0] + " must match", new ShaclPatternMatcher(pattern).matches(s[1]));
+		}
+	}
+	
+	@Test
+	public void linear() {
+		assertTrue("must be linear", new ShaclPatternMatcher(Pattern.compile("(a+)+b")).isLinear());
+		assertFalse("backreference not linear", new ShaclPatternMatcher(Pattern.compile("(a)\\1")).isLinear());
+		assertFalse("flags not linear", 
+			new ShaclPatternMatcher(Pattern.compile("a", Pattern.CASE_INSENSITIVE)).isLinear());
+	}
+	
+	@Test
+	public void catastrophic() {
+		ShaclPatternMatcher matcher = new ShaclPatternMatcher(Pattern.compile("(a|aa)+(b|c)*+d?x"));
+		assertFalse("possessive not linear", matcher.isLinear());
+		
+		matcher = new ShaclPatternMatcher(Pattern.compile("^(\\w+\\s?)*$"));
+		assertTrue("must be linear", matcher.isLinear());
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 10_000; i++) {
+			sb.append("ab ");
+		}
+		sb.append('!');
+		long start = System.nanoTime();
+		assertFalse("must not match", matcher.matches(sb.toString()));
+		assertTrue("must be fast", System.nanoTime() - start < 1_000_000_000L);
+	}
+	
+	@Test
+	public void budget() {
+		ShaclPatternMatcher matcher = new ShaclPatternMatcher(Pattern.compile("((a+)+)\\2b"));
+		assertFalse("backreference not linear", matcher.isLinear());
+		ShaclPatternBudget budget = new ShaclPatternBudget(100_000, 0);
+		
+		assertTrue("must match", matcher.matches("aab", budget));
+		assertFalse("must not match", matcher.matches("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa", budget));
+		assertEquals("exceeded budget", 1, budget.getExceeded());
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.constraints;
+
+import be.fedict.lod.shacl.ShaclValidator;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+/**
+ *
+ * @author Bart Hanssens
+ */
+public class ShaclValueCacheTest extends ShaclConstraintTest {
+	private final static ValueFactory F = SimpleValueFactory.getInstance();
+	
+	@Test
+	public void hits() {
+		ShaclValueCache cache = new ShaclValueCache(100);
+		ShaclConstraintPropertyDatatype c = new ShaclConstraintPropertyDatatype(XMLSchema.INT);
+		
+		for (int i = 0; i < 10; i++) {
+			assertTrue("must be valid", c.isValidValue(F.createLiteral("42", XMLSchema.INT), cache));
+			assertFalse("must be invalid", c.isValidValue(F.createLiteral("x", XMLSchema.INT), cache));
+		}
+		assertEquals("wrong number of misses", 2, cache.getMisses());
+		assertEquals("wrong number of hits", 18, cache.getHits());
+		assertEquals("wrong hit rate", 0.9, cache.getHitRate(), 0.001);
+	}
+	
+	@Test
+	public void perConstraint() {
+		ShaclValueCache cache = new ShaclValueCache(100);
+		ShaclConstraintPropertyString min = new ShaclConstraintPropertyString(3, 10, null);
+		ShaclConstraintPropertyString max = new ShaclConstraintPropertyString(0, 1, null);
+		
+		IRI component = min.getViolatedComponent(F.createLiteral("ab"), cache, null);
+		assertNull("must be valid", max.getViolatedComponent(F.createLiteral("a"), cache, null));
+		assertEquals("wrong component", min.getComponent(), component);
+		assertEquals("wrong component", max.getComponent(), 
+										max.getViolatedComponent(F.createLiteral("ab"), cache, null));
+		assertEquals("must not be shared", 0, cache.getHits());
+	}
+	
+	@Test
+	public void budgetExceeded() {
+		ShaclValueCache cache = new ShaclValueCache(100);
+		ShaclPatternBudget budget = new ShaclPatternBudget(100_000, 0);
+		ShaclConstraintPropertyString c = new ShaclConstraintPropertyString(0, 100, 
+														Pattern.compile("((a+)+)\\2b"));
+		
+		assertNull("must be valid", c.getViolatedComponent(F.createLiteral("aab"), cache, budget));
+		for (int i = 0; i < 2; i++) {
+			assertEquals("must be invalid", SHACL.PATTERN_CONSTRAINT_COMPONENT, c.getViolatedComponent(
+				F.createLiteral("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa"), cache, budget));
+		}
+		assertEquals("exceeded budget", 2, budget.getExceeded());
+		assertEquals("exceeded result must not be cached", 1, cache.getSize());
+	}
+	
+	@Test
+	public void evictions() {
+		ShaclValueCache cache = new ShaclValueCache(64);
+		ShaclConstraintPropertyDatatype c = new ShaclConstraintPropertyDatatype(XMLSchema.INT);
+		
+		for (int i = 0; i < 1000; i++) {
+			c.isValidValue(F.createLiteral(String.valueOf(i), XMLSchema.INT), cache);
+		}
+		assertTrue("too many entries", cache.getSize() <= 64);
+		assertEquals("wrong number of evictions", 1000 - cache.getSize(), cache.getEvictions());
+	}
+	
+	@Test
+	public void validate() throws IOException {
+		ShaclValueCache cache = new ShaclValueCache(1000);
+		ShaclValidator plain = validator;
+		validator = plain.toBuilder().setValueCache(cache).build();
+		try {
+			for (int i = 0; i < 2; i++) {
+				assertTrue("must be valid", validate("string-ok.ttl"));
+				assertFalse("not reporting too long", validate("string-toolong.ttl"));
+				assertTrue("must be valid", validate("datatype-ok.ttl"));
+				assertFalse("not reporting wrong type", validate("datatype-wrong1.ttl"));
+			}
+			assertTrue("no hits", cache.getHits() > 0);
+		} finally {
+			validator = plain;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.generator;
+
+import be.fedict.lod.shacl.ShaclValidator;
+import be.fedict.lod.shacl.parser.ShaclParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Generate data and validate it
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclDataGeneratorTest {
+	private static ShaclValidator validator;
+	private static Model shacl;
+	
+	@BeforeClass
+	public static void init() throws IOException {
+		InputStream is = ShaclDataGeneratorTest.class.getClassLoader().getResourceAsStream("shacl.ttl");
+		shacl = Rio.parse(is, "http://localhost", RDFFormat.TURTLE);
+		validator = ShaclValidator.builder(ShaclParser.parse(shacl)).setListener(null).build();
+	}
+	
+	private static byte[] generate(long seed, double share) throws IOException {
+		ShaclDataGenerator generator = new ShaclDataGenerator(ShaclParser.parse(shacl));
+		generator.setSeed(seed);
+		generator.setViolations(share);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		generator.generate(bos, 200);
+		return bos.toByteArray();
+	}
+	
+	private static boolean validate(byte[] nt) throws IOException {
+		return validator.validate(new ByteArrayInputStream(nt), RDFFormat.NTRIPLES);
+	}
+	
+	@Test
+	public void valid() throws IOException {
+		assertTrue("generated data must be valid", validate(generate(42, 0)));
+	}
+	
+	@Test
+	public void violations() throws IOException {
+		assertFalse("generated data must contain violations", validate(generate(42, 0.2)));
+	}
+	
+	@Test
+	public void sameSeed() throws IOException {
+		assertArrayEquals("same seed must give same data", generate(7, 0.1), generate(7, 0.1));
+		assertFalse("other seed must give other data", 
+					new String(generate(7, 0.1)).equals(new String(generate(8, 0.1))));
+	}
+	
+	@Test
+	public void pattern() {
+		Random rnd = new Random(1);
+		String[] regexes = { "^ID-[0-9]+$", "[A-Z]{2}\\d{4}", "(ab|cd)*x?", 
+							"[^0-9]+@example\\.(com|org)", "\\w{3,5}" };
+		for (String regex: regexes) {
+			for (int i = 0; i < 20; i++) {
+				String str = ShaclPatternSampler.sample(regex, rnd);
+				assertTrue(str + " must match " + regex, Pattern.compile(regex).matcher(str).matches());
+			}
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.jfr;
+
+import be.fedict.lod.shacl.ShaclTestUtil;
+import be.fedict.lod.shacl.ShaclValidator;
+import be.fedict.lod.shacl.store.ShaclTripleStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.rio.RDFFormat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Record JFR events while parsing and validating
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclEventsTest {
+	private final static String BOOKS = "http://example.com/ns#BookNodeShape";
+	private final static String[] EVENTS = { "Parse", "NodeShape", "Targets", "Constraint" };
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private static ClassLoader getClassLoader() {
+		return ShaclEventsTest.class.getClassLoader();
+	}
+	
+	/**
+	 * Create a model with many books, each with a title except one
+	 * 
+	 * @return model
+	 */
+	private static Model books() {
+		return ShaclTestUtil.books(2000, 42);
+	}
+	
+	/**
+	 * Get the events of a type
+	 * 
+	 * @param events all events
+	 * @param name name without prefix
+	 * @return list of events
+	 */
+	private static List<RecordedEvent> filter(List<RecordedEvent> events, String name) {
+		return events.stream().filter(e -> e.getEventType().getName().equals(ShaclEvents.PREFIX + name))
+								.collect(Collectors.toList());
+	}
+	
+	private List<RecordedEvent> record(boolean encoded) throws IOException {
+		Path f = folder.newFile().toPath();
+		try (Recording r = new Recording()) {
+			for (String name: EVENTS) {
+				r.enable(ShaclEvents.PREFIX + name).withThreshold(Duration.ZERO);
+			}
+			r.start();
+			ShaclValidator validator;
+			try (InputStream is = getClassLoader().getResourceAsStream("shacl.ttl")) {
+				validator = ShaclValidator.builder(is, RDFFormat.TURTLE).setListener(null).build();
+			}
+			if (encoded) {
+				assertFalse(validator.validate(ShaclTripleStore.load(books())));
+			} else {
+				assertFalse(validator.validate(books()));
+			}
+			r.stop();
+			r.dump(f);
+		}
+		return RecordingFile.readAllEvents(f);
+	}
+	
+	private static void assertEvents(List<RecordedEvent> events) {
+		List<RecordedEvent> parse = filter(events, "Parse");
+		assertEquals(1, parse.size());
+		assertTrue(parse.get(0).getLong("nodeShapes") > 0);
+		
+		List<RecordedEvent> nodes = filter(events, "NodeShape").stream()
+				.filter(e -> BOOKS.equals(e.getString("shape"))).collect(Collectors.toList());
+		assertEquals(1, nodes.size());
+		assertEquals(2000, nodes.get(0).getLong("focusNodes"));
+		assertEquals(1, nodes.get(0).getLong("violations"));
+		
+		assertTrue(filter(events, "Targets").stream()
+				.anyMatch(e -> BOOKS.equals(e.getString("shape")) && e.getLong("focusNodes") == 2000));
+		
+		List<RecordedEvent> constraints = filter(events, "Constraint").stream()
+				.filter(e -> BOOKS.equals(e.getString("shape"))).collect(Collectors.toList());
+		assertEquals(1999, constraints.stream().mapToLong(e -> e.getLong("values")).sum());
+		assertEquals(2000, constraints.stream().mapToLong(e -> e.getLong("focusNodes")).sum());
+		assertEquals(1, constraints.stream().mapToLong(e -> e.getLong("violations")).sum());
+		assertTrue(constraints.stream().allMatch(e -> 
+				"ShaclConstraintPropertyCount".equals(e.getString("constraint"))
+				&& DCTERMS.TITLE.toString().equals(e.getString("path"))));
+	}
+	
+	@Test
+	public void model() throws IOException {
+		assertEvents(record(false));
+	}
+	
+	@Test
+	public void encoded() throws IOException {
+		assertEvents(record(true));
+	}
+	
+	@Test
+	public void disabled() {
+		assertEquals(null, ShaclEvents.beginConstraint());
+		assertFalse(ShaclEvents.isConstraintEnabled());
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.metrics;
+
+import be.fedict.lod.shacl.ShaclTestUtil;
+import be.fedict.lod.shacl.ShaclValidator;
+import be.fedict.lod.shacl.store.ShaclTripleStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.rio.RDFFormat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Collect timings and counters per shape and constraint
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclMetricsTest {
+	private final static String BOOKS = "http://example.com/ns#BookNodeShape";
+	
+	private ShaclValidator validator;
+	
+	private static ClassLoader getClassLoader() {
+		return ShaclMetricsTest.class.getClassLoader();
+	}
+	
+	@Before
+	public void init() throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream("shacl.ttl");
+		validator = ShaclValidator.builder(is, RDFFormat.TURTLE).setListener(null).build();
+	}
+	
+	/**
+	 * Create a model with many books, each with a title except one
+	 * 
+	 * @return model
+	 */
+	private static Model books() {
+		return ShaclTestUtil.books(2000, 42);
+	}
+	
+	private static void assertBooks(ShaclMetrics metrics) {
+		ShaclCounter node = metrics.getCounter(ShaclMetrics.NODE_SHAPE, BOOKS);
+		assertNotNull(node);
+		assertEquals(2000, node.getFocusNodes());
+		assertEquals(1, node.getViolations());
+		
+		ShaclCounter prop = metrics.getCounter(ShaclMetrics.PROPERTY_SHAPE, BOOKS + " " + DCTERMS.TITLE);
+		assertNotNull(prop);
+		assertEquals(2000, prop.getFocusNodes());
+		assertEquals(1999, prop.getValues());
+		
+		ShaclCounter count = metrics.getCounter(ShaclMetrics.CONSTRAINT, "ShaclConstraintPropertyCount");
+		assertNotNull(count);
+		assertEquals(1, count.getViolations());
+		assertEquals(1999, count.getValues());
+	}
+	
+	@Test
+	public void model() {
+		ShaclMetrics metrics = new ShaclMetrics();
+		ShaclValidator v = validator.toBuilder().setMetrics(metrics).build();
+		assertFalse(v.validate(books()));
+		assertBooks(metrics);
+	}
+	
+	@Test
+	public void encoded() {
+		ShaclMetrics metrics = new ShaclMetrics();
+		ShaclValidator v = validator.toBuilder().setMetrics(metrics).build();
+		assertFalse(v.validate(ShaclTripleStore.load(books())));
+		assertBooks(metrics);
+	}
+	
+	@Test
+	public void disabled() {
+		ShaclMetrics metrics = new ShaclMetrics();
+		ShaclValidator v = validator.toBuilder().setMetrics(metrics).setMetrics(null).build();
+		assertFalse(v.validate(books()));
+		assertNull(metrics.getCounter(ShaclMetrics.NODE_SHAPE, BOOKS));
+	}
+	
+	@Test
+	public void mbeans() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(ShaclMetrics.DOMAIN + ":type=" + ShaclMetrics.NODE_SHAPE 
+											+ ",name=" + ObjectName.quote(BOOKS));
+		try (ShaclMetrics metrics = new ShaclMetrics()) {
+			metrics.registerMBeans();
+			validator.toBuilder().setMetrics(metrics).build().validate(books());
+			
+			assertEquals(2000L, server.getAttribute(name, "FocusNodes"));
+			assertEquals(1L, server.getAttribute(name, "Violations"));
+		}
+		assertFalse(server.isRegistered(name));
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.parser;
+
+import be.fedict.lod.shacl.ShaclValidator;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyString;
+import be.fedict.lod.shacl.report.ShaclValidationReport;
+import be.fedict.lod.shacl.shapes.ShaclNodeShape;
+import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static be.fedict.lod.shacl.ShaclTestUtil.violations;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Write and read compiled shapes
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclShapesBinaryTest {
+	private final static String[] FILES = { 
+		"class-ok.ttl", "class-missing.ttl", 
+		"count-ok.ttl", "count-toofew.ttl", "count-toomuch.ttl",
+		"datatype-ok.ttl", "datatype-wrong1.ttl", "datatype-wrong2.ttl",
+		"lang-ok.ttl", "lang-notunique.ttl", "lang-wrong1.ttl", "lang-wrong2.ttl", "lang-wrong3.ttl",
+		"nodekind-ok.ttl", "nodekind-wrong.ttl",
+		"string-ok.ttl", "string-toolong.ttl", "string-tooshort.ttl",
+		"value-ok.ttl", "value-wrong.ttl" };
+	
+	private final static byte[] HASH = new byte[32];
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private static ClassLoader getClassLoader() {
+		return ShaclShapesBinaryTest.class.getClassLoader();
+	}
+	
+	private static Map<Resource,ShaclNodeShape> parse() throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream("shacl.ttl");
+		return ShaclParser.parse(Rio.parse(is, "http://localhost", RDFFormat.TURTLE));
+	}
+	
+	private static byte[] write(Map<Resource,ShaclNodeShape> shapes) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ShaclShapesBinary.write(shapes, HASH, bos);
+		return bos.toByteArray();
+	}
+	
+	@Test
+	public void sameAsParsed() throws IOException {
+		Map<Resource,ShaclNodeShape> shapes = parse();
+		Map<Resource,ShaclNodeShape> read = ShaclShapesBinary.read(
+									new ByteArrayInputStream(write(shapes)), HASH);
+		assertEquals("wrong node shapes", shapes.keySet(), read.keySet());
+		
+		ShaclValidator expected = new ShaclValidator(shapes);
+		ShaclValidator compiled = new ShaclValidator(read);
+		for (String f: FILES) {
+			Model m = Rio.parse(getClassLoader().getResourceAsStream(f), "http://localhost", RDFFormat.TURTLE);
+			assertEquals("compiled differs for " + f, 
+				violations(expected.report(m)), violations(compiled.report(m)));
+		}
+	}
+	
+	@Test(expected = ShaclParserException.class)
+	public void otherHash() throws IOException {
+		byte[] hash = new byte[32];
+		hash[0] = 1;
+		ShaclShapesBinary.read(new ByteArrayInputStream(write(parse())), hash);
+	}
+	
+	@Test(expected = ShaclParserException.class)
+	public void truncated() throws IOException {
+		byte[] b = write(parse());
+		ShaclShapesBinary.read(new ByteArrayInputStream(b, 0, b.length / 2), HASH);
+	}
+	
+	@Test(expected = ShaclParserException.class)
+	public void corruptLength() throws IOException {
+		byte[] b = write(parse());
+		// length of the ID of the first node shape, after magic, version, hash and number of shapes
+		int pos = 4 + 4 + 4 + HASH.length + 4;
+		b[pos] = (byte) 0x7F;
+		ShaclShapesBinary.read(new ByteArrayInputStream(b), HASH);
+	}
+	
+	@Test(expected = ShaclParserException.class)
+	public void corruptPattern() throws IOException {
+		ValueFactory f = SimpleValueFactory.getInstance();
+		ShaclNodeShape n = new ShaclNodeShape(f.createIRI("http://example.com/shape"));
+		ShaclPropertyShape p = new ShaclPropertyShape(f.createIRI("http://example.com/prop"));
+		p.setPath(f.createIRI("http://example.com/path"));
+		p.addConstraint(new ShaclConstraintPropertyString(0, 10, Pattern.compile("[a]")));
+		n.addPropertyShape(p);
+		Map<Resource,ShaclNodeShape> shapes = new HashMap<>();
+		shapes.put(n.getID(), n);
+		
+		byte[] b = write(shapes);
+		String s = new String(b, StandardCharsets.ISO_8859_1);
+		b[s.indexOf("[a]") + 2] = '(';
+		ShaclShapesBinary.read(new ByteArrayInputStream(b), HASH);
+	}
+	
+	@Test
+	public void recompileCorrupt() throws IOException {
+		File shacl = folder.newFile("shacl.ttl");
+		File compiled = new File(folder.getRoot(), "shacl.bin");
+		Files.copy(getClassLoader().getResourceAsStream("shacl.ttl"), shacl.toPath(), 
+					StandardCopyOption.REPLACE_EXISTING);
+		new ShaclValidator(shacl, compiled);
+		
+		byte[] b = Files.readAllBytes(compiled.toPath());
+		int pos = 4 + 4 + 4 + HASH.length + 4;
+		b[pos] = (byte) 0xFF;
+		Files.write(compiled.toPath(), b);
+		
+		ShaclValidator validator = new ShaclValidator(shacl, compiled);
+		try (InputStream is = new FileInputStream(compiled)) {
+			Map<Resource,ShaclNodeShape> shapes = ShaclShapesBinary.read(is, ShaclShapesBinary.hash(shacl));
+			assertEquals("wrong number of shapes", parse().size(), shapes.size());
+		}
+		assertTrue("must be valid", validator.validate(
+			Rio.parse(getClassLoader().getResourceAsStream("count-ok.ttl"), "http://localhost", RDFFormat.TURTLE)));
+	}
+	
+	@Test
+	public void recompile() throws IOException {
+		File shacl = folder.newFile("shacl.ttl");
+		File compiled = new File(folder.getRoot(), "shacl.bin");
+		Files.copy(getClassLoader().getResourceAsStream("shacl.ttl"), shacl.toPath(), 
+					StandardCopyOption.REPLACE_EXISTING);
+		
+		new ShaclValidator(shacl, compiled);
+		assertTrue("compiled shapes not written", compiled.exists());
+		
+		Files.write(shacl.toPath(), "# changed\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		ShaclValidator validator = new ShaclValidator(shacl, compiled);
+		try (InputStream is = new FileInputStream(compiled)) {
+			Map<Resource,ShaclNodeShape> shapes = ShaclShapesBinary.read(is, ShaclShapesBinary.hash(shacl));
+			assertEquals("wrong number of shapes", parse().size(), shapes.size());
+		}
+		assertTrue("must be valid", validator.validate(
+			Rio.parse(getClassLoader().getResourceAsStream("count-ok.ttl"), "http://localhost", RDFFormat.TURTLE)));
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.plan;
+
+import be.fedict.lod.shacl.ShaclDataIndex;
+import be.fedict.lod.shacl.ShaclValidator;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyCount;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyDatatype;
+import be.fedict.lod.shacl.constraints.ShaclConstraintPropertyString;
+import be.fedict.lod.shacl.shapes.ShaclNodeShape;
+import be.fedict.lod.shacl.shapes.ShaclPropertyShape;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+/**
+ * Order of evaluation of shapes and constraints
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclPlannerTest {
+	private final static String SHAPES = 
+		"@prefix dcterms: <http://purl.org/dc/terms/> .\n" +
+		"@prefix ex: <http://example.com/ns#> .\n" +
+		"@prefix sh: <http://www.w3.org/ns/shacl#> .\n" +
+		"@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n" +
+		"ex:BookShape a sh:NodeShape ; sh:targetClass ex:BookClass ;\n" +
+		"  sh:property [ sh:path dcterms:identifier ; sh:pattern \"^ID-[0-9]+$\" ; sh:datatype xsd:string ] ;\n" +
+		"  sh:property [ sh:path dcterms:title ; sh:minCount 1 ] .";
+	
+	private static ShaclValidator validator;
+	
+	@BeforeClass
+	public static void init() throws IOException {
+		validator = new ShaclValidator(new ByteArrayInputStream(SHAPES.getBytes(StandardCharsets.UTF_8)), 
+										RDFFormat.TURTLE);
+	}
+	
+	/**
+	 * Create a model with books, only half of them having a title
+	 * 
+	 * @return model
+	 */
+	private static Model books() {
+		ValueFactory f = SimpleValueFactory.getInstance();
+		IRI cl = f.createIRI("http://example.com/ns#BookClass");
+		
+		Model m = new LinkedHashModel();
+		for (int i = 0; i < 100; i++) {
+			IRI book = f.createIRI("http://example.com/ns#Book" + i);
+			m.add(book, RDF.TYPE, cl);
+			m.add(book, DCTERMS.IDENTIFIER, f.createLiteral("ID-" + i));
+			if (i % 2 == 0) {
+				m.add(book, DCTERMS.TITLE, f.createLiteral("Title " + i));
+			}
+		}
+		return m;
+	}
+	
+	@Test
+	public void estimateCount() {
+		ShaclConstraintPropertyCount c = new ShaclConstraintPropertyCount(1, Integer.MAX_VALUE);
+		assertEquals("wrong rejection", 0.5, ShaclPlanner.estimate(c, 100, 50).getRejection(), 0.001);
+		assertEquals("no focus nodes", 0, ShaclPlanner.estimate(c, 0, 0).getRejection(), 0.001);
+	}
+	
+	@Test
+	public void order() {
+		ShaclPlan plan = validator.plan(new ShaclDataIndex(books()));
+		
+		ShaclNodeShape n = plan.getNodeShapes().get(0);
+		List<ShaclPropertyShape> props = plan.getPropertyShapes(n);
+		assertEquals("missing titles must be checked first", DCTERMS.TITLE, props.get(0).getPath());
+		assertEquals("parsed order must not change", DCTERMS.IDENTIFIER, 
+										n.getPropertyShapes().get(0).getPath());
+		
+		ShaclPropertyShape id = props.get(1);
+		assertTrue("pattern must be checked first", 
+					plan.getConstraints(id).get(0) instanceof ShaclConstraintPropertyString);
+		assertTrue("datatype must be checked last",
+					plan.getConstraints(id).get(1) instanceof ShaclConstraintPropertyDatatype);
+		assertEquals("wrong number of focus nodes", 100, plan.getEstimate(n).getNodes());
+		assertEquals("wrong number of values", 100, plan.getEstimate(id).getValues());
+	}
+	
+	@Test
+	public void explain() {
+		String explain = validator.plan(books()).explain();
+		assertTrue("missing shape", explain.contains("http://example.com/ns#BookShape"));
+		assertTrue("titles not first", 
+			explain.indexOf(DCTERMS.TITLE.toString()) < explain.indexOf(DCTERMS.IDENTIFIER.toString()));
+	}
+	
+	@Test
+	public void failFast() {
+		assertFalse("must not conform", validator.conforms(books()));
+		assertFalse("must report violations", validator.validate(books()));
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.report;
+
+import be.fedict.lod.shacl.ShaclValidator;
+import be.fedict.lod.shacl.ShaclViolation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+/**
+ *
+ * @author Bart Hanssens
+ */
+public class ShaclValidationReportTest {
+	private final static ValueFactory F = SimpleValueFactory.getInstance();
+	
+	public static ShaclValidator validator;
+	
+	private static ClassLoader getClassLoader() {
+		return ShaclValidationReportTest.class.getClassLoader();
+	}
+	
+	public static ShaclValidationReport report(String f) throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream(f);
+		return validator.report(Rio.parse(is, "http://localhost", RDFFormat.TURTLE));
+	}
+	
+	@BeforeClass
+	public static void init() throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream("shacl.ttl");
+		validator = new ShaclValidator(is, RDFFormat.TURTLE);
+	}
+
+	@Test
+	public void conforms() throws IOException {
+		ShaclValidationReport report = report("count-ok.ttl");
+		assertTrue("must conform", report.conforms());
+	}
+	
+	@Test
+	public void tooMany() throws IOException {
+		ShaclValidationReport report = report("count-toomuch.ttl");
+		List<ShaclViolation> l = report.getViolations();
+		assertEquals("one violation expected", 1, l.size());
+		
+		ShaclViolation v = l.get(0);
+		assertEquals(F.createIRI("http://example.com/ns#Book1"), v.getFocusNode());
+		assertEquals(DCTERMS.TITLE, v.getPath());
+		assertEquals(SHACL.MAX_COUNT_CONSTRAINT_COMPONENT, v.getComponent());
+	}
+	
+	@Test
+	public void classMissing() throws IOException {
+		ShaclValidationReport report = report("class-missing.ttl");
+		List<ShaclViolation> l = report.getViolations();
+		assertEquals("one violation expected", 1, l.size());
+		
+		ShaclViolation v = l.get(0);
+		IRI poster = F.createIRI("http://example.com/ns#Poster2");
+		assertEquals(F.createIRI("http://example.com/ns#Booklet2"), v.getFocusNode());
+		assertEquals(poster, v.getValue());
+		assertEquals(SHACL.CLASS_CONSTRAINT_COMPONENT, v.getComponent());
+	}
+}
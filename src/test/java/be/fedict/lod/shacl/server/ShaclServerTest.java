@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.server;
+
+import be.fedict.lod.shacl.ShaclValidator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Validate over HTTP
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclServerTest {
+	private static ShaclServer server;
+	
+	private static ClassLoader getClassLoader() {
+		return ShaclServerTest.class.getClassLoader();
+	}
+	
+	@BeforeClass
+	public static void init() throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream("shacl.ttl");
+		server = new ShaclServer(new InetSocketAddress("localhost", 0), 2);
+		server.register("books", new ShaclValidator(is, RDFFormat.TURTLE));
+		server.start();
+	}
+	
+	@AfterClass
+	public static void close() {
+		server.close();
+	}
+	
+	private static HttpURLConnection post(String path, String type, String f) throws IOException {
+		return post(path, type, f, false);
+	}
+	
+	private static HttpURLConnection post(String path, String type, String f, boolean chunked) 
+																throws IOException {
+		URL url = new URL("http", "localhost", server.getAddress().getPort(), path);
+		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		conn.setRequestMethod("POST");
+		conn.setDoOutput(true);
+		if (chunked) {
+			conn.setChunkedStreamingMode(64);
+		}
+		conn.setRequestProperty("Content-Type", type);
+		conn.setRequestProperty("Accept", "application/n-triples");
+		try (InputStream is = getClassLoader().getResourceAsStream(f);
+			OutputStream os = conn.getOutputStream()) {
+			byte[] buf = new byte[4096];
+			int len;
+			while ((len = is.read(buf)) != -1) {
+				os.write(buf, 0, len);
+			}
+		}
+		return conn;
+	}
+	
+	private static boolean conforms(String f) throws IOException {
+		HttpURLConnection conn = post("/validate/books", "text/turtle", f);
+		assertEquals(200, conn.getResponseCode());
+		assertEquals("application/n-triples", conn.getContentType());
+		
+		Model m;
+		try (InputStream is = conn.getInputStream()) {
+			m = Rio.parse(is, "http://localhost", RDFFormat.NTRIPLES);
+		}
+		Literal conforms = Models.objectLiteral(m.filter(null, SHACL.CONFORMS, null)).get();
+		assertEquals(conforms.booleanValue(), m.filter(null, SHACL.RESULT, null).isEmpty());
+		return conforms.booleanValue();
+	}
+	
+	@Test
+	public void validate() throws IOException {
+		assertTrue(conforms("class-ok.ttl"));
+		assertFalse(conforms("count-toofew.ttl"));
+		assertFalse(conforms("datatype-wrong1.ttl"));
+	}
+	
+	@Test
+	public void errors() throws IOException {
+		assertEquals(404, post("/validate/unknown", "text/turtle", "class-ok.ttl").getResponseCode());
+		assertEquals(415, post("/validate/books", "text/unknown", "class-ok.ttl").getResponseCode());
+		assertEquals(400, post("/validate/books", "application/n-triples", "class-ok.ttl").getResponseCode());
+	}
+	
+	@Test
+	public void tooLarge() throws IOException {
+		server.setMaxBody(100);
+		try {
+			assertEquals(413, post("/validate/books", "text/turtle", "count-toofew.ttl").getResponseCode());
+			assertEquals(413, post("/validate/books", "text/turtle", "count-toofew.ttl", true).getResponseCode());
+		} finally {
+			server.setMaxBody(ShaclServer.DEFAULT_MAX_BODY);
+		}
+		assertFalse(conforms("count-toofew.ttl"));
+	}
+	
+	@Test
+	public void shapes() throws IOException {
+		URL url = new URL("http", "localhost", server.getAddress().getPort(), "/shapes");
+		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		assertEquals(200, conn.getResponseCode());
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (InputStream is = conn.getInputStream()) {
+			byte[] buf = new byte[1024];
+			int len;
+			while ((len = is.read(buf)) != -1) {
+				bos.write(buf, 0, len);
+			}
+		}
+		assertEquals("books\n", bos.toString("UTF-8"));
+	}
+}
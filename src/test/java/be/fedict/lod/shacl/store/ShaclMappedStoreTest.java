@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.store;
+
+import be.fedict.lod.shacl.ShaclValidator;
+import be.fedict.lod.shacl.report.ShaclValidationReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import static be.fedict.lod.shacl.ShaclTestUtil.violations;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Compare validation of the memory-mapped store with regular validation
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclMappedStoreTest {
+	private final static String[] FILES = { 
+		"class-ok.ttl", "class-missing.ttl", 
+		"count-ok.ttl", "count-toofew.ttl", "count-toomuch.ttl",
+		"datatype-ok.ttl", "datatype-wrong1.ttl", "datatype-wrong2.ttl",
+		"lang-ok.ttl", "lang-notunique.ttl", "lang-wrong1.ttl", "lang-wrong2.ttl", "lang-wrong3.ttl",
+		"nodekind-ok.ttl", "nodekind-wrong.ttl",
+		"string-ok.ttl", "string-toolong.ttl", "string-tooshort.ttl",
+		"value-ok.ttl", "value-wrong.ttl" };
+	
+	private final static ValueFactory F = SimpleValueFactory.getInstance();
+	
+	public static ShaclValidator validator;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private static ClassLoader getClassLoader() {
+		return ShaclMappedStoreTest.class.getClassLoader();
+	}
+	
+	private static Model load(String f) throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream(f);
+		return Rio.parse(is, "http://localhost", RDFFormat.TURTLE);
+	}
+	
+	@BeforeClass
+	public static void init() throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream("shacl.ttl");
+		validator = new ShaclValidator(is, RDFFormat.TURTLE);
+	}
+
+	@Test
+	public void sameAsModel() throws IOException {
+		Path dir = folder.newFolder().toPath();
+		for (String f: FILES) {
+			Model m = load(f);
+			ShaclValidationReport expected = validator.report(m);
+			ShaclValidationReport report = new ShaclValidationReport();
+			try (ShaclMappedStore store = ShaclMappedStore.load(dir, m)) {
+				validator.validate(store, report);
+			}
+			assertEquals("mapped differs for " + f, violations(expected), violations(report));
+		}
+	}
+	
+	@Test
+	public void reopen() throws IOException {
+		Path dir = folder.newFolder().toPath();
+		IRI book = F.createIRI("http://example.com/ns#Book1");
+		IRI cl = F.createIRI("http://example.com/ns#BookClass");
+		BNode bnode = F.createBNode("b1");
+		Literal title = F.createLiteral("Tïtel \"1\"\n", "nl");
+		Literal date = F.createLiteral("2018-01-01", XMLSchema.DATE);
+		
+		Model m = new LinkedHashModel();
+		m.add(book, RDF.TYPE, cl);
+		m.add(book, DCTERMS.TITLE, title);
+		m.add(book, DCTERMS.CREATED, date);
+		m.add(book, DCTERMS.PUBLISHER, bnode);
+		ShaclMappedStore.load(dir, m).close();
+		
+		assertTrue("store not found", ShaclMappedStore.exists(dir));
+		try (ShaclMappedStore store = ShaclMappedStore.open(dir)) {
+			assertEquals("wrong number of triples", 4, store.size());
+			assertEquals("wrong number of types", 1, store.typeSize());
+			assertTrue("instance not found", store.hasType(book, cl));
+			assertEquals("wrong terms", m, store.select(store.subjects(), null));
+			assertEquals("term not decoded", title, store.getTerm(store.getID(title)));
+			assertEquals("unknown term found", -1, store.getID(F.createLiteral("Titel")));
+		}
+	}
+	
+	@Test
+	public void sortBlocks() throws IOException {
+		Path dir = folder.newFolder().toPath();
+		IRI cl = F.createIRI("http://example.com/ns#BookClass");
+		
+		ShaclMappedStoreHandler handler = new ShaclMappedStoreHandler(dir);
+		handler.setBlockSize(1000);
+		handler.startRDF();
+		for (int n = 0; n < 2; n++) {
+			for (int i = 50000; i > 0; i--) {
+				IRI book = F.createIRI("http://example.com/ns#Book" + i);
+				handler.handleStatement(F.createStatement(book, RDF.TYPE, cl));
+				handler.handleStatement(F.createStatement(book, DCTERMS.TITLE, F.createLiteral("Title " + i)));
+			}
+		}
+		handler.endRDF();
+		
+		try (ShaclMappedStore store = handler.getStore()) {
+			assertEquals("duplicates not removed", 100000, store.size());
+			assertEquals("duplicate types not removed", 50000, store.typeSize());
+			for (int i = 1; i < store.size(); i++) {
+				assertTrue("not sorted", store.subject(i - 1) < store.subject(i) 
+					|| (store.subject(i - 1) == store.subject(i) && store.predicate(i - 1) < store.predicate(i)));
+			}
+			IRI book = F.createIRI("http://example.com/ns#Book12345");
+			assertTrue("instance not found", store.hasType(book, cl));
+			assertFalse("literal is not an instance", store.hasType(F.createLiteral("Title 12345"), cl));
+		}
+	}
+	
+	@Test(expected = IOException.class)
+	public void incomplete() throws IOException {
+		ShaclMappedStore.open(folder.newFolder().toPath());
+	}
+}
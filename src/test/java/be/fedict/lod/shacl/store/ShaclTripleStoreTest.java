@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.store;
+
+import be.fedict.lod.shacl.ShaclValidator;
+import be.fedict.lod.shacl.ShaclViolation;
+import be.fedict.lod.shacl.report.ShaclValidationReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static be.fedict.lod.shacl.ShaclTestUtil.violations;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compare validation of the dictionary-encoded store with regular validation
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclTripleStoreTest {
+	private final static String[] FILES = { 
+		"class-ok.ttl", "class-missing.ttl", 
+		"count-ok.ttl", "count-toofew.ttl", "count-toomuch.ttl",
+		"datatype-ok.ttl", "datatype-wrong1.ttl", "datatype-wrong2.ttl",
+		"lang-ok.ttl", "lang-notunique.ttl", "lang-wrong1.ttl", "lang-wrong2.ttl", "lang-wrong3.ttl",
+		"nodekind-ok.ttl", "nodekind-wrong.ttl",
+		"string-ok.ttl", "string-toolong.ttl", "string-tooshort.ttl",
+		"value-ok.ttl", "value-wrong.ttl" };
+	
+	private final static ValueFactory F = SimpleValueFactory.getInstance();
+	
+	public static ShaclValidator validator;
+	
+	private static ClassLoader getClassLoader() {
+		return ShaclTripleStoreTest.class.getClassLoader();
+	}
+	
+	private static Model load(String f) throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream(f);
+		return Rio.parse(is, "http://localhost", RDFFormat.TURTLE);
+	}
+	
+	@BeforeClass
+	public static void init() throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream("shacl.ttl");
+		validator = new ShaclValidator(is, RDFFormat.TURTLE);
+	}
+
+	@Test
+	public void sameAsModel() throws IOException {
+		for (String f: FILES) {
+			Model m = load(f);
+			ShaclValidationReport expected = validator.report(m);
+			ShaclValidationReport report = new ShaclValidationReport();
+			validator.validate(ShaclTripleStore.load(m), report);
+			assertEquals("encoded differs for " + f, violations(expected), violations(report));
+		}
+	}
+	
+	@Test
+	public void duplicates() {
+		IRI book = F.createIRI("http://example.com/ns#Book1");
+		IRI cl = F.createIRI("http://example.com/ns#BookClass");
+		
+		Model m = new LinkedHashModel();
+		m.add(book, RDF.TYPE, cl);
+		m.add(book, DCTERMS.TITLE, F.createLiteral("title"));
+		
+		ShaclTripleStoreHandler handler = new ShaclTripleStoreHandler();
+		handler.startRDF();
+		for (int i = 0; i < 3; i++) {
+			m.forEach(handler::handleStatement);
+		}
+		handler.endRDF();
+		ShaclTripleStore store = handler.getStore();
+		
+		assertEquals("duplicates not removed", 2, store.size());
+		assertEquals("duplicate types not removed", 1, store.typeSize());
+		assertTrue("instance not found", store.hasType(book, cl));
+		assertFalse("literal is not an instance", store.hasType(F.createLiteral("title"), cl));
+		assertEquals("wrong number of values", 1, store.select(store.subjects(), DCTERMS.TITLE).size());
+	}
+	
+	@Test
+	public void parallelChunks() {
+		IRI cl = F.createIRI("http://example.com/ns#BookClass");
+		Model m = new LinkedHashModel();
+		for (int i = 0; i < 5000; i++) {
+			IRI book = F.createIRI("http://example.com/ns#Book" + i);
+			m.add(book, RDF.TYPE, cl);
+			if (i % 1000 != 0) {
+				m.add(book, DCTERMS.TITLE, F.createLiteral("Title " + i));
+			}
+		}
+		ShaclValidationReport report = new ShaclValidationReport();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			validator.toBuilder().setPool(pool).build().validate(ShaclTripleStore.load(m), report);
+		} finally {
+			pool.shutdown();
+		}
+		List<ShaclViolation> l = report.getViolations();
+		assertEquals("wrong number of violations", 5, l.size());
+	}
+}
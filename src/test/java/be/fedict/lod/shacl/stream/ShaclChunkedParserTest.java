@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.stream;
+
+import be.fedict.lod.shacl.ShaclValidator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
+import org.eclipse.rdf4j.rio.helpers.StatementCollector;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Parse N-Triples in parallel chunks
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclChunkedParserTest {
+	private final static ValueFactory F = SimpleValueFactory.getInstance();
+	
+	private static ForkJoinPool pool;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@BeforeClass
+	public static void init() {
+		pool = new ForkJoinPool(4);
+	}
+	
+	@AfterClass
+	public static void close() {
+		pool.shutdown();
+	}
+	
+	private File books() throws IOException {
+		File f = folder.newFile("books.nt");
+		IRI cl = F.createIRI("http://example.com/ns#BookClass");
+		
+		try (OutputStream os = new FileOutputStream(f)) {
+			RDFWriter w = Rio.createWriter(RDFFormat.NTRIPLES, os);
+			w.startRDF();
+			for (int i = 0; i < 1000; i++) {
+				IRI book = F.createIRI("http://example.com/ns#Book" + i);
+				BNode author = F.createBNode("author" + (i % 10));
+				w.handleStatement(F.createStatement(book, RDF.TYPE, cl));
+				w.handleStatement(F.createStatement(book, DCTERMS.TITLE, F.createLiteral("Titel " + i, "nl")));
+				w.handleStatement(F.createStatement(book, DCTERMS.CREATOR, author));
+				w.handleStatement(F.createStatement(author, DCTERMS.TITLE, F.createLiteral("Auteur é " + i)));
+			}
+			w.endRDF();
+		}
+		return f;
+	}
+	
+	@Test
+	public void sameAsRio() throws IOException {
+		File f = books();
+		
+		List<Statement> expected = new ArrayList<>();
+		RDFParser parser = Rio.createParser(RDFFormat.NTRIPLES);
+		parser.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+		parser.setRDFHandler(new StatementCollector(expected));
+		try (InputStream is = Files.newInputStream(f.toPath())) {
+			parser.parse(is, "http://localhost");
+		}
+		
+		List<Statement> l = new ArrayList<>();
+		ShaclChunkedParser chunked = new ShaclChunkedParser(pool);
+		chunked.setChunkSize(1000);
+		chunked.parse(f.toPath(), new StatementCollector(l));
+		
+		assertEquals("statements differ or not in order", expected, l);
+		assertEquals("blank nodes not shared between chunks", 10, 
+			l.stream().filter(st -> st.getSubject() instanceof BNode).map(Statement::getSubject).distinct().count());
+	}
+	
+	@Test
+	public void validatorChunked() throws IOException {
+		File f = books();
+		InputStream is = ShaclChunkedParserTest.class.getClassLoader().getResourceAsStream("shacl.ttl");
+		ShaclValidator validator = ShaclValidator.builder(is, RDFFormat.TURTLE).setListener(null).build();
+		boolean expected = validator.validate(f);
+		boolean expectedStream = validator.validateStream(f);
+		
+		// without a pool, the common pool is used
+		validator = validator.toBuilder().setChunked(true).build();
+		assertEquals("chunked differs", expected, validator.validate(f));
+		assertEquals("chunked stream differs", expectedStream, validator.validateStream(f));
+	}
+	
+	@Test
+	public void lineNumber() throws IOException {
+		File f = books();
+		List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+		lines.set(3210, "<http://example.com/ns#Broken> .");
+		Files.write(f.toPath(), lines, StandardCharsets.UTF_8);
+		
+		ShaclChunkedParser chunked = new ShaclChunkedParser(pool);
+		chunked.setChunkSize(1000);
+		try {
+			chunked.parse(f.toPath(), new StatementCollector());
+			fail("no parse exception");
+		} catch (RDFParseException pe) {
+			assertEquals(3211, pe.getLineNumber());
+		}
+	}
+}
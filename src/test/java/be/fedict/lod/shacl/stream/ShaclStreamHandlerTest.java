@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.stream;
+
+import be.fedict.lod.shacl.ShaclValidator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+/**
+ * Compare streaming validation with regular validation
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclStreamHandlerTest {
+	private final static String[] FILES = { 
+		"class-ok.ttl", "class-missing.ttl", 
+		"count-ok.ttl", "count-toofew.ttl", "count-toomuch.ttl",
+		"datatype-ok.ttl", "datatype-wrong1.ttl", "datatype-wrong2.ttl",
+		"lang-ok.ttl", "lang-notunique.ttl", "lang-wrong1.ttl", "lang-wrong2.ttl", "lang-wrong3.ttl",
+		"nodekind-ok.ttl", "nodekind-wrong.ttl",
+		"string-ok.ttl", "string-toolong.ttl", "string-tooshort.ttl",
+		"value-ok.ttl", "value-wrong.ttl" };
+	
+	public static ShaclValidator validator;
+	
+	private static ClassLoader getClassLoader() {
+		return ShaclStreamHandlerTest.class.getClassLoader();
+	}
+	
+	public static boolean validate(String f) throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream(f);
+		return validator.validate(is, RDFFormat.TURTLE);
+	}
+	
+	public static boolean validateStream(String f) throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream(f);
+		return validator.validateStream(is, RDFFormat.TURTLE);
+	}
+	
+	public static boolean validateGrouped(InputStream is) throws IOException {
+		return validator.toBuilder().setGrouped(true).build().validateStream(is, RDFFormat.TURTLE);
+	}
+	
+	@BeforeClass
+	public static void init() throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream("shacl.ttl");
+		validator = new ShaclValidator(is, RDFFormat.TURTLE);
+	}
+
+	@Test
+	public void sameAsModel() throws IOException {
+		for (String f: FILES) {
+			assertEquals("stream differs for " + f, validate(f), validateStream(f));
+		}
+	}
+	
+	@Test
+	public void typeAfterProperties() throws IOException {
+		assertFalse("not reporting too many", validateStream("stream-typelast.ttl"));
+	}
+	
+	@Test
+	public void groupedSameAsModel() throws IOException {
+		for (String f: FILES) {
+			InputStream is = getClassLoader().getResourceAsStream(f);
+			assertEquals("grouped stream differs for " + f, validate(f), validateGrouped(is));
+		}
+	}
+	
+	@Test
+	public void groupedInstanceBefore() throws IOException {
+		String ttl = "@prefix dcterms: <http://purl.org/dc/terms/> .\n" +
+					"@prefix ex: <http://example.com/ns#> .\n" +
+					"ex:Poster1 a ex:PosterClass .\n" +
+					"ex:Booklet1 a ex:BookletClass ; dcterms:related ex:Poster1, ex:Poster2 .\n" +
+					"ex:Poster2 a ex:PosterClass .\n";
+		InputStream is = new ByteArrayInputStream(ttl.getBytes(StandardCharsets.UTF_8));
+		assertTrue("instances not found", validateGrouped(is));
+	}
+	
+	@Test
+	public void targetNodeOnly() throws IOException {
+		String shapes = "@prefix sh: <http://www.w3.org/ns/shacl#> .\n" +
+					"@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n" +
+					"@prefix ex: <http://example.com/ns#> .\n" +
+					"ex:Shape a sh:NodeShape ; sh:targetNode ex:a ; " +
+					"sh:property [ sh:path ex:p ; sh:datatype xsd:int ; sh:maxCount 1 ] .\n";
+		ShaclValidator v = new ShaclValidator(
+			new ByteArrayInputStream(shapes.getBytes(StandardCharsets.UTF_8)), RDFFormat.TURTLE);
+		String ok = "@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n" +
+					"@prefix ex: <http://example.com/ns#> .\n" +
+					"ex:a ex:p \"1\"^^xsd:int .\n" +
+					"ex:b ex:p \"x\", \"y\" .\n";
+		assertTrue("other subjects are not focus nodes", v.validateStream(
+			new ByteArrayInputStream(ok.getBytes(StandardCharsets.UTF_8)), RDFFormat.TURTLE));
+		String wrong = "@prefix ex: <http://example.com/ns#> .\n" +
+					"ex:b ex:p 1 .\n" +
+					"ex:a ex:p \"x\" .\n";
+		assertFalse("target node not validated", v.validateStream(
+			new ByteArrayInputStream(wrong.getBytes(StandardCharsets.UTF_8)), RDFFormat.TURTLE));
+	}
+	
+	@Test(expected = RDFHandlerException.class)
+	public void groupedNotGrouped() throws IOException {
+		validateGrouped(getClassLoader().getResourceAsStream("stream-typelast.ttl"));
+	}
+	
+	@Test(expected = RDFHandlerException.class)
+	public void maxInstances() throws IOException {
+		String ttl = "@prefix dcterms: <http://purl.org/dc/terms/> .\n" +
+					"@prefix ex: <http://example.com/ns#> .\n" +
+					"ex:Poster1 a ex:PosterClass .\n" +
+					"ex:Poster2 a ex:PosterClass .\n" +
+					"ex:Booklet1 a ex:BookletClass ; dcterms:related ex:Poster1, ex:Poster2 .\n";
+		validator.toBuilder().setMaxInstances(1).build().validateStream(
+			new ByteArrayInputStream(ttl.getBytes(StandardCharsets.UTF_8)), RDFFormat.TURTLE);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void nodeUnsupported() throws IOException {
+		String shapes = "@prefix sh: <http://www.w3.org/ns/shacl#> .\n" +
+					"@prefix ex: <http://example.com/ns#> .\n" +
+					"ex:Shape a sh:NodeShape ; sh:targetClass ex:A ; " +
+					"sh:property [ sh:path ex:p ; sh:node ex:Other ] .\n" +
+					"ex:Other a sh:NodeShape .\n";
+		ShaclValidator v = new ShaclValidator(
+			new ByteArrayInputStream(shapes.getBytes(StandardCharsets.UTF_8)), RDFFormat.TURTLE);
+		v.validateStream(new ByteArrayInputStream(new byte[0]), RDFFormat.TURTLE);
+	}
+}
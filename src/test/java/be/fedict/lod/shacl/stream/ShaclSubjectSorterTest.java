@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018, Bart Hanssens <bart.hanssens@fedict.be>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.shacl.stream;
+
+import be.fedict.lod.shacl.ShaclValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.helpers.StatementCollector;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Sort statements by subject, and validate unsorted streams one subject at a time
+ * 
+ * @author Bart Hanssens
+ */
+public class ShaclSubjectSorterTest {
+	private final static String[] FILES = { 
+		"class-ok.ttl", "class-missing.ttl", 
+		"count-ok.ttl", "count-toofew.ttl", "count-toomuch.ttl",
+		"datatype-ok.ttl", "datatype-wrong1.ttl", "datatype-wrong2.ttl",
+		"lang-ok.ttl", "lang-notunique.ttl", "lang-wrong1.ttl", "lang-wrong2.ttl", "lang-wrong3.ttl",
+		"nodekind-ok.ttl", "nodekind-wrong.ttl",
+		"string-ok.ttl", "string-toolong.ttl", "string-tooshort.ttl",
+		"value-ok.ttl", "value-wrong.ttl", "stream-typelast.ttl" };
+	
+	private final static ValueFactory F = SimpleValueFactory.getInstance();
+	
+	public static ShaclValidator validator;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private static ClassLoader getClassLoader() {
+		return ShaclSubjectSorterTest.class.getClassLoader();
+	}
+	
+	@BeforeClass
+	public static void init() throws IOException {
+		InputStream is = getClassLoader().getResourceAsStream("shacl.ttl");
+		validator = new ShaclValidator(is, RDFFormat.TURTLE);
+	}
+	
+	@Test
+	public void sortsBySubject() throws IOException {
+		IRI cl = F.createIRI("http://example.com/ns#BookClass");
+		List<Statement> l = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			IRI book = F.createIRI("http://example.com/ns#Book" + i);
+			l.add(F.createStatement(book, RDF.TYPE, cl));
+			l.add(F.createStatement(book, DCTERMS.TITLE, F.createLiteral("Title\n" + i, "nl")));
+			l.add(F.createStatement(book, DCTERMS.TITLE, F.createLiteral("Title\n" + i, "nl")));
+		}
+		Collections.shuffle(l, new Random(42));
+		
+		File dir = folder.newFolder();
+		StatementCollector collector = new StatementCollector();
+		ShaclSubjectSorter sorter = new ShaclSubjectSorter(collector, 1000, dir.toPath());
+		sorter.startRDF();
+		l.forEach(sorter::handleStatement);
+		assertTrue("not enough runs", sorter.getRuns() > 64);
+		sorter.endRDF();
+		
+		Set<Resource> done = new HashSet<>();
+		Resource prev = null;
+		for (Statement st: collector.getStatements()) {
+			Resource subj = st.getSubject();
+			if (! subj.equals(prev)) {
+				assertTrue("subject not grouped", done.add(subj));
+				prev = subj;
+			}
+		}
+		assertEquals("duplicates not removed", 4000, collector.getStatements().size());
+		assertEquals("temporary files not removed", 0, dir.list().length);
+	}
+	
+	@Test
+	public void sameAsModel() throws IOException {
+		ShaclValidator sorting = validator.toBuilder().setSortBudget(100).build();
+		for (String f: FILES) {
+			boolean expected = validator.validate(getClassLoader().getResourceAsStream(f), RDFFormat.TURTLE);
+			boolean sorted = sorting.validateStream(getClassLoader().getResourceAsStream(f), RDFFormat.TURTLE);
+			assertEquals("sorted stream differs for " + f, expected, sorted);
+		}
+	}
+}